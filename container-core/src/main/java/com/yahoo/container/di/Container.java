@@ -2,6 +2,7 @@
 package com.yahoo.container.di;
 
 import com.google.inject.Injector;
+import com.yahoo.concurrent.ThreadFactoryFactory;
 import com.yahoo.config.ConfigInstance;
 import com.yahoo.config.ConfigurationRuntimeException;
 import com.yahoo.config.subscription.ConfigInterruptedException;
@@ -18,9 +19,10 @@ import com.yahoo.container.di.config.ApplicationBundlesConfig;
 import com.yahoo.container.di.config.PlatformBundlesConfig;
 import com.yahoo.container.di.config.SubscriberFactory;
 import com.yahoo.vespa.config.ConfigKey;
-import com.yahoo.yolean.UncheckedInterruptedException;
 import org.osgi.framework.Bundle;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -29,6 +31,10 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,12 +49,16 @@ public class Container {
 
     private static final Logger log = Logger.getLogger(Container.class.getName());
 
+    /** The max number of components constructed concurrently */
+    private static final int MAX_CONSTRUCTION_THREADS = 8;
+
     private final SubscriberFactory subscriberFactory;
     private final ConfigKey<ApplicationBundlesConfig> applicationBundlesConfigKey;
     private final ConfigKey<PlatformBundlesConfig> platformBundlesConfigKey;
     private final ConfigKey<ComponentsConfig> componentsConfigKey;
     private final ComponentDeconstructor destructor;
     private final Osgi osgi;
+    private final ExecutorService constructionExecutor;
 
     private final ConfigRetriever retriever;
     private List<String> platformBundles;  // Used to verify that platform bundles don't change.
@@ -59,6 +69,7 @@ public class Container {
         this.subscriberFactory = subscriberFactory;
         this.destructor = destructor;
         this.osgi = osgi;
+        this.constructionExecutor = createConstructionExecutor();
 
         applicationBundlesConfigKey = new ConfigKey<>(ApplicationBundlesConfig.class, configId);
         platformBundlesConfigKey = new ConfigKey<>(PlatformBundlesConfig.class, configId);
@@ -102,11 +113,24 @@ public class Container {
     }
 
     private void constructComponents(ComponentGraph graph) {
-        graph.nodes().forEach(n -> {
-            if (Thread.interrupted())
-                throw new UncheckedInterruptedException("Interrupted while constructing component graph", true);
-            n.constructInstance();
-        });
+        Instant start = Instant.now();
+        graph.constructInstances(constructionExecutor);
+        Duration duration = Duration.between(start, Instant.now());
+        log.log(duration.compareTo(Duration.ofMinutes(1)) > 0 ? Level.INFO : FINE,
+                () -> "Finished constructing components of generation " + graph.generation() + " in " + duration);
+    }
+
+    /**
+     * Returns a bounded pool for constructing components which do not depend on each other concurrently,
+     * whose threads are stopped when idle, as components are only constructed on reconfiguration.
+     */
+    private static ExecutorService createConstructionExecutor() {
+        int threads = Math.max(1, Math.min(MAX_CONSTRUCTION_THREADS, Runtime.getRuntime().availableProcessors()));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<>(),
+                                                             ThreadFactoryFactory.getDaemonThreadFactory("component-construction"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     private ComponentGraph waitForNewConfigGenAndCreateGraph(
@@ -282,6 +306,7 @@ public class Container {
             deconstructComponentsAndBundles(graph.generation(), List.of(), graph.allConstructedComponentsAndProviders());
             destructor.shutdown();
         }
+        constructionExecutor.shutdown();
     }
 
     public void shutdownConfigRetriever() {
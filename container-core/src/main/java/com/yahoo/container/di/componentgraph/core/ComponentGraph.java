@@ -16,6 +16,7 @@ import com.yahoo.container.di.componentgraph.Provider;
 import com.yahoo.container.di.componentgraph.cycle.CycleFinder;
 import com.yahoo.container.di.componentgraph.cycle.Graph;
 import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.yolean.UncheckedInterruptedException;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
@@ -26,11 +27,19 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -50,6 +59,8 @@ public class ComponentGraph {
 
     private final long generation;
     private final Map<ComponentId, Node> nodesById = new HashMap<>();
+    /** The nodes in topological order, set when this is completed, and cleared when nodes are added */
+    private List<Node> sortedNodes = null;
 
     public ComponentGraph(long generation) {
         this.generation = generation;
@@ -76,6 +87,7 @@ public class ComponentGraph {
             throw new IllegalStateException("Multiple components with the same id " + component.componentId());
         }
         nodesById.put(component.componentId(), component);
+        sortedNodes = null;
     }
 
     private Optional<Node> lookupGlobalComponent(Key<?> key) {
@@ -129,7 +141,8 @@ public class ComponentGraph {
     public List<Node> complete(Injector fallbackInjector) {
         componentNodes().forEach(node -> completeNode(node, fallbackInjector));
         componentRegistryNodes().forEach(this::completeComponentRegistryNode);
-        return topologicalSort(nodes());
+        sortedNodes = topologicalSort(nodes());
+        return new ArrayList<>(sortedNodes);
     }
 
     public List<Node> complete() {
@@ -154,7 +167,7 @@ public class ComponentGraph {
         }
 
         // reset instances with modified dependencies
-        for (Node node : topologicalSort(nodes())) {
+        for (Node node : sortedNodes()) {
             for (Node usedComponent : node.usedComponents()) {
                 if (usedComponent.instance.isEmpty()) {
                     node.instance = Optional.empty();
@@ -163,9 +176,61 @@ public class ComponentGraph {
         }
     }
 
+    /**
+     * Constructs the instances of all nodes of this which are not already constructed. Each node is constructed
+     * in the given executor once the nodes it uses are constructed, such that nodes which do not depend on each other
+     * may be constructed concurrently. This returns when all constructions have completed, also when some failed.
+     * Then the failure of the first failing node in topological order is thrown, with any other failures suppressed,
+     * such that the failure reported does not depend on the order in which constructions happen to complete.
+     * If the calling thread is interrupted, no further constructions are started.
+     */
+    public void constructInstances(Executor executor) {
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        Map<ComponentId, CompletableFuture<Void>> constructions = new LinkedHashMap<>();
+        for (Node node : sortedNodes()) {
+            CompletableFuture<?>[] usedConstructions = node.usedComponents().stream()
+                                                           .map(usedNode -> constructions.get(usedNode.componentId()))
+                                                           .filter(Objects::nonNull)
+                                                           .toArray(CompletableFuture<?>[]::new);
+            constructions.put(node.componentId(),
+                              CompletableFuture.allOf(usedConstructions)
+                                               .thenRunAsync(() -> { if ( ! cancelled.get()) node.constructInstance(); },
+                                                             executor));
+        }
+
+        boolean interrupted = false;
+        Set<Throwable> failures = new LinkedHashSet<>();
+        for (CompletableFuture<Void> construction : constructions.values()) {
+            while (true) {
+                try {
+                    construction.get();
+                    break;
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                    cancelled.set(true);
+                }
+                catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+            throw new UncheckedInterruptedException("Interrupted while constructing component graph", true);
+        if (failures.isEmpty()) return;
+
+        Iterator<Throwable> iterator = failures.iterator();
+        Throwable failure = iterator.next();
+        iterator.forEachRemaining(failure::addSuppressed);
+        if (failure instanceof RuntimeException runtimeException) throw runtimeException;
+        if (failure instanceof Error error) throw error;
+        throw new IllegalStateException("Failed constructing component graph", failure);
+    }
+
     /** All constructed components and providers of this, in reverse creation order, i.e., suited for ordered deconstruction. */
     public List<Object> allConstructedComponentsAndProviders() {
-        List<Node> orderedNodes = topologicalSort(nodes());
+        List<Node> orderedNodes = new ArrayList<>(sortedNodes());
         Collections.reverse(orderedNodes);
         return orderedNodes.stream()
                 .filter(node -> node.constructedInstance().isPresent())
@@ -173,6 +238,13 @@ public class ComponentGraph {
                 .collect(Collectors.toList());
     }
 
+    /** Returns the nodes of this in topological order, which is computed once per completed graph */
+    private List<Node> sortedNodes() {
+        if (sortedNodes == null)
+            sortedNodes = topologicalSort(nodes());
+        return sortedNodes;
+    }
+
     private void completeComponentRegistryNode(ComponentRegistryNode registry) {
         registry.injectAll(osgiComponentsOfClass(registry.componentClass()));
     }
@@ -386,42 +458,58 @@ public class ComponentGraph {
     /**
      * The returned list is the nodes from the graph bottom-up.
      *
-     * For each iteration, the algorithm finds the components that are not "wanted by" any other component,
-     * and prepends those components into the resulting 'sorted' list. Hence, the first element in the returned
-     * list is the component that is directly or indirectly wanted by "most" other components.
+     * The components that are not "wanted by" any other component make up the first level, and each following level
+     * consists of the components wanted only by components in earlier levels. The levels are then concatenated in
+     * reverse order, each in the order of the given nodes. Hence, the first element in the returned list is the
+     * component that is directly or indirectly wanted by "most" other components.
+     * Each level is found from the edges of the previous one, rather than by scanning all remaining nodes.
      *
      * @return A list where a earlier than b in the list implies that there is no path from a to b
      */
     private static List<Node> topologicalSort(Collection<Node> nodes) {
-        Map<ComponentId, Integer> numIncoming = new HashMap<>();
+        List<Node> unsorted = new ArrayList<>(nodes);
+        Map<ComponentId, Integer> positions = new HashMap<>();
+        for (int i = 0; i < unsorted.size(); i++)
+            positions.put(unsorted.get(i).componentId(), i);
 
+        Map<ComponentId, Integer> numIncoming = new HashMap<>();
         nodes.forEach(
                 node -> node.usedComponents().forEach(
-                        injectedNode -> numIncoming.merge(injectedNode.componentId(), 1, (a, b) -> a + b)));
-
-        LinkedList<Node> sorted = new LinkedList<>();
-        List<Node> unsorted = new ArrayList<>(nodes);
-
-        while (!unsorted.isEmpty()) {
-            List<Node> ready = new ArrayList<>();
-            List<Node> notReady = new ArrayList<>();
-            unsorted.forEach(node -> {
-                if (numIncoming.getOrDefault(node.componentId(), 0) == 0) {
-                    ready.add(node);
-                } else {
-                    notReady.add(node);
+                        injectedNode -> numIncoming.merge(injectedNode.componentId(), 1, Integer::sum)));
+
+        List<List<Node>> levels = new ArrayList<>();
+        List<Node> ready = new ArrayList<>();
+        unsorted.forEach(node -> {
+            if (numIncoming.getOrDefault(node.componentId(), 0) == 0)
+                ready.add(node);
+        });
+        int numSorted = 0;
+        while ( ! ready.isEmpty()) {
+            levels.add(List.copyOf(ready));
+            numSorted += ready.size();
+            List<Integer> nextPositions = new ArrayList<>();
+            for (Node node : ready) {
+                for (Node injectedNode : node.usedComponents()) {
+                    Integer position = positions.get(injectedNode.componentId());
+                    if (numIncoming.merge(injectedNode.componentId(), -1, Integer::sum) == 0 && position != null)
+                        nextPositions.add(position);
                 }
-            });
-
-            if (ready.isEmpty()) {
-                throw new IllegalStateException("There is a cycle in the component injection graph: " + findCycle(notReady));
             }
+            Collections.sort(nextPositions);
+            ready.clear();
+            nextPositions.forEach(position -> ready.add(unsorted.get(position)));
+        }
 
-            ready.forEach(node -> node.usedComponents()
-                    .forEach(injectedNode -> numIncoming.merge(injectedNode.componentId(), -1, (a, b) -> a + b)));
-            sorted.addAll(0, ready);
-            unsorted = notReady;
+        if (numSorted < unsorted.size()) {
+            List<Node> notReady = unsorted.stream()
+                                          .filter(node -> numIncoming.getOrDefault(node.componentId(), 0) > 0)
+                                          .toList();
+            throw new IllegalStateException("There is a cycle in the component injection graph: " + findCycle(notReady));
         }
+
+        List<Node> sorted = new ArrayList<>(unsorted.size());
+        for (int i = levels.size() - 1; i >= 0; i--)
+            sorted.addAll(levels.get(i));
         return sorted;
     }
 
@@ -10,8 +10,10 @@ import com.yahoo.jdisc.Metric;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -28,7 +30,7 @@ public class ContainerThreadpoolImpl extends AbstractComponent implements AutoCl
     private static final int MIN_QUEUE_SIZE = 650;
     private static final int MIN_THREADS_WHEN_SCALE_FACTOR = 8;
 
-    private final ExecutorServiceWrapper threadpool;
+    private final ExecutorService threadpool;
 
     @Inject
     public ContainerThreadpoolImpl(ContainerThreadpoolConfig config, Metric metric) {
@@ -45,9 +47,21 @@ public class ContainerThreadpoolImpl extends AbstractComponent implements AutoCl
         int maxThreads = maxThreads(config, cpus);
         int minThreads = minThreads(config, maxThreads, cpus);
         int queueSize = queueSize(config, maxThreads);
+        ThreadPoolMetric threadPoolMetric = new ThreadPoolMetric(metric, name);
+        if (config.virtualThreads()) {
+            var virtualThreadExecutor = VirtualThreadExecutorService.create(
+                    maxThreads, queueSize, threadPoolMetric, processTerminator,
+                    config.maxThreadExecutionTimeSeconds() * 1000L, name);
+            if (virtualThreadExecutor.isPresent()) {
+                log.info(String.format("Threadpool '%s': virtual threads, max=%d, queue=%d", name, maxThreads, queueSize));
+                threadpool = virtualThreadExecutor.get();
+                return;
+            }
+            log.log(Level.WARNING, "Virtual threads are not supported by this JVM: Threadpool '" + name +
+                                   "' uses platform threads");
+        }
         log.info(String.format("Threadpool '%s': min=%d, max=%d, queue=%d", name, minThreads, maxThreads, queueSize));
 
-        ThreadPoolMetric threadPoolMetric = new ThreadPoolMetric(metric, name);
         WorkerCompletionTimingThreadPoolExecutor executor =
                 new WorkerCompletionTimingThreadPoolExecutor(minThreads, maxThreads,
                         (long) config.keepAliveTime() * 1000, TimeUnit.MILLISECONDS,
@@ -0,0 +1,185 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.threadpool;
+
+import com.yahoo.concurrent.VirtualThreadExecutor;
+import com.yahoo.container.protect.ProcessTerminator;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor service which runs each task in a new virtual thread, with at most a given number of tasks running
+ * concurrently and a given number waiting to run. Further tasks are rejected, and the process is terminated if no
+ * task has been able to start for too long, as with the platform thread pool.
+ * Tasks which block on I/O then do not occupy a platform thread while waiting.
+ *
+ * The same metrics are reported as for the platform thread pool: Tasks running are reported as active threads,
+ * and tasks waiting to run as the work queue.
+ *
+ * Tasks are run by a {@link VirtualThreadExecutor}, so {@link #create} returns empty when virtual threads
+ * are not supported by the running JVM.
+ *
+ * @author michaelcizmar
+ */
+class VirtualThreadExecutorService extends AbstractExecutorService {
+
+    private final VirtualThreadExecutor executor;
+    private final ThreadPoolMetric metric;
+    private final ProcessTerminator processTerminator;
+    private final long maxThreadExecutionTimeMillis;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    /** The number of tasks accepted and not yet completed, whether running or waiting to run */
+    private final AtomicInteger pending = new AtomicInteger(0);
+    private final Thread metricReporter;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile long lastTaskStartTimeMillis = System.currentTimeMillis();
+
+    /**
+     * Creates an instance running tasks in the given executor, which should start a new thread per task.
+     * Package private for testing.
+     */
+    VirtualThreadExecutorService(ExecutorService executor, int maxConcurrency, int queueCapacity,
+                                 ThreadPoolMetric metric, ProcessTerminator processTerminator,
+                                 long maxThreadExecutionTimeMillis, String name) {
+        this(new VirtualThreadExecutor(executor, maxConcurrency), queueCapacity, metric, processTerminator,
+             maxThreadExecutionTimeMillis, name);
+    }
+
+    private VirtualThreadExecutorService(VirtualThreadExecutor executor, int queueCapacity,
+                                         ThreadPoolMetric metric, ProcessTerminator processTerminator,
+                                         long maxThreadExecutionTimeMillis, String name) {
+        this.executor = executor;
+        this.maxConcurrency = executor.maxConcurrency();
+        this.queueCapacity = queueCapacity;
+        this.metric = metric;
+        this.processTerminator = processTerminator;
+        this.maxThreadExecutionTimeMillis = maxThreadExecutionTimeMillis;
+        reportMetrics();
+        metricReporter = new Thread(this::reportMetricsRegularly);
+        metricReporter.setName(name + "-threadpool-metric-reporter");
+        metricReporter.start();
+    }
+
+    /**
+     * Returns a virtual thread executor service running at most the given number of tasks concurrently,
+     * or empty if virtual threads are not supported by this JVM.
+     */
+    static Optional<VirtualThreadExecutorService> create(int maxConcurrency, int queueCapacity,
+                                                         ThreadPoolMetric metric, ProcessTerminator processTerminator,
+                                                         long maxThreadExecutionTimeMillis, String name) {
+        return VirtualThreadExecutor.create(maxConcurrency)
+                                    .map(executor -> new VirtualThreadExecutorService(executor, queueCapacity, metric,
+                                                                                      processTerminator,
+                                                                                      maxThreadExecutionTimeMillis, name));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (pending.incrementAndGet() > maxConcurrency + queueCapacity) {
+            pending.decrementAndGet();
+            metric.reportRejectRequest();
+            long timeSinceLastTaskStartMillis = System.currentTimeMillis() - lastTaskStartTimeMillis;
+            if (timeSinceLastTaskStartMillis > maxThreadExecutionTimeMillis)
+                processTerminator.logAndDie("No worker threads have been available for " +
+                                            timeSinceLastTaskStartMillis + " ms. Shutting down.", true);
+            throw new RejectedExecutionException("Max concurrency " + maxConcurrency + " and queue capacity " +
+                                                 queueCapacity + " reached");
+        }
+        try {
+            executor.execute(() -> run(command));
+        }
+        catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /** Runs the given command once the virtual thread executor has let it start */
+    private void run(Runnable command) {
+        lastTaskStartTimeMillis = System.currentTimeMillis();
+        try {
+            command.run();
+        }
+        catch (RuntimeException | Error e) {
+            metric.reportUnhandledException(e);
+            throw e;
+        }
+        finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    /** Returns the number of tasks currently running */
+    int activeCount() { return executor.activeCount(); }
+
+    int maxConcurrency() { return maxConcurrency; }
+
+    int queueCapacity() { return queueCapacity; }
+
+    private void reportMetrics() {
+        int active = activeCount();
+        metric.reportThreadPoolSize(active);
+        metric.reportMaxAllowedThreadPoolSize(maxConcurrency);
+        metric.reportActiveThreads(active);
+        metric.reportWorkQueueSize(Math.max(0, pending.get() - active));
+        metric.reportWorkQueueCapacity(queueCapacity);
+    }
+
+    private void reportMetricsRegularly() {
+        while (timeToReportMetricsAgain(100)) {
+            reportMetrics();
+        }
+    }
+
+    private boolean timeToReportMetricsAgain(int timeoutMS) {
+        synchronized (closed) {
+            if (!closed.get()) {
+                try {
+                    closed.wait(timeoutMS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+        }
+        return !closed.get();
+    }
+
+    private void stopReportingMetrics() {
+        synchronized (closed) {
+            closed.set(true);
+            closed.notify();
+        }
+        try {
+            metricReporter.join();
+        } catch (InterruptedException e) {}
+    }
+
+    @Override
+    public void shutdown() {
+        stopReportingMetrics();
+        executor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        stopReportingMetrics();
+        return executor.shutdownNow();
+    }
+
+    @Override public boolean isShutdown() { return executor.isShutdown(); }
+
+    @Override public boolean isTerminated() { return executor.isTerminated(); }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+}
@@ -9,11 +9,14 @@ import com.yahoo.container.core.AccessLogConfig;
 class AccessLogHandler {
 
     private final LogFileHandler<RequestLogEntry> logFileHandler;
+    private final AccessLogSampler sampler;
 
-    AccessLogHandler(AccessLogConfig.FileHandler config, LogWriter<RequestLogEntry> logWriter) {
+    AccessLogHandler(AccessLogConfig config, LogWriter<RequestLogEntry> logWriter) {
+        AccessLogConfig.FileHandler fileHandler = config.fileHandler();
         logFileHandler = new LogFileHandler<>(
-                toCompression(config), config.bufferSize(), config.pattern(), config.rotation(),
-                config.symlink(), queueSize(config), "request-logger", logWriter);
+                toCompression(fileHandler), fileHandler.bufferSize(), fileHandler.pattern(), fileHandler.rotation(),
+                fileHandler.symlink(), queueSize(fileHandler), "request-logger", logWriter);
+        sampler = new AccessLogSampler(config.sampling());
     }
 
     private static int queueSize(AccessLogConfig.FileHandler config) {
@@ -22,7 +25,8 @@ class AccessLogHandler {
     }
 
     public void log(RequestLogEntry entry) {
-        logFileHandler.publish(entry);
+        if (sampler.shouldLog(entry))
+            logFileHandler.publish(entry);
     }
 
 
@@ -0,0 +1,52 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import com.yahoo.container.core.AccessLogConfig;
+
+import java.time.Duration;
+import java.util.OptionalInt;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides which completed requests are written to an access log: A random sample of all requests,
+ * and every request which failed or was slow.
+ *
+ * @author michaelcizmar
+ */
+class AccessLogSampler {
+
+    private final double rate;
+    private final int minStatusCode;
+    private final Duration slowRequestThreshold;
+    private final DoubleSupplier random;
+
+    AccessLogSampler(AccessLogConfig.Sampling config) {
+        this(config.rate(), config.minStatusCode(), Duration.ofMillis((long) (config.slowRequestThreshold() * 1000)));
+    }
+
+    AccessLogSampler(double rate, int minStatusCode, Duration slowRequestThreshold) {
+        this(rate, minStatusCode, slowRequestThreshold, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    AccessLogSampler(double rate, int minStatusCode, Duration slowRequestThreshold, DoubleSupplier random) {
+        if (rate < 0 || rate > 1)
+            throw new IllegalArgumentException("Sampling rate must be in [0, 1], but was " + rate);
+        this.rate = rate;
+        this.minStatusCode = minStatusCode;
+        this.slowRequestThreshold = slowRequestThreshold;
+        this.random = random;
+    }
+
+    /** Returns whether the given entry should be logged. Entries without a status code or duration are always logged. */
+    boolean shouldLog(RequestLogEntry entry) {
+        if (rate >= 1) return true;
+
+        OptionalInt statusCode = entry.statusCode();
+        if (statusCode.isEmpty() || statusCode.getAsInt() >= minStatusCode) return true;
+        Duration duration = entry.duration().orElse(null);
+        if (duration == null || duration.compareTo(slowRequestThreshold) >= 0) return true;
+        return random.getAsDouble() < rate;
+    }
+
+}
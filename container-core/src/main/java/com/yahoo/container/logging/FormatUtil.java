@@ -28,7 +28,23 @@ class FormatUtil {
 
     static void writeSecondsField(JsonGenerator generator, String fieldName, long milliseconds) throws IOException {
         generator.writeFieldName(fieldName);
-        generator.writeRawValue(toSecondsString(milliseconds));
+        if (milliseconds < 0) {
+            generator.writeRawValue(toSecondsString(milliseconds));
+            return;
+        }
+        // Formatted backwards into a buffer, as this is done for every entry in the access log
+        char[] buffer = new char[24];
+        int start = buffer.length;
+        long decimals = milliseconds % 1000;
+        for (int i = 0; i < 3; i++, decimals /= 10)
+            buffer[--start] = (char) ('0' + decimals % 10);
+        buffer[--start] = '.';
+        long seconds = milliseconds / 1000L;
+        do {
+            buffer[--start] = (char) ('0' + seconds % 10);
+            seconds /= 10;
+        } while (seconds > 0);
+        generator.writeRawValue(buffer, start, buffer.length - start);
     }
 
     /** @return a string with number of seconds with 3 decimals */
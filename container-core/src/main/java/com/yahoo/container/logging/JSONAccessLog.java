@@ -15,7 +15,7 @@ public final class JSONAccessLog extends AbstractComponent implements RequestLog
     private final AccessLogHandler logHandler;
 
     public JSONAccessLog(AccessLogConfig config) {
-        logHandler = new AccessLogHandler(config.fileHandler(), new JSONFormatter());
+        logHandler = new AccessLogHandler(config, new JSONFormatter());
     }
 
     @Override
@@ -8,6 +8,7 @@ import com.yahoo.protect.Process;
 import com.yahoo.yolean.Exceptions;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileDescriptor;
 import java.io.FileInputStream;
@@ -20,7 +21,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Optional;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -41,11 +42,14 @@ class LogFileHandler <LOGTYPE> {
 
     enum Compression {NONE, GZIP, ZSTD}
 
+    /** The max number of operations taken from the queue and handled by the log thread at once */
+    static final int MAX_BATCH_SIZE = 1024;
+
     private final static Logger logger = Logger.getLogger(LogFileHandler.class.getName());
     private final BlockingQueue<Operation<LOGTYPE>> logQueue;
     final LogThread<LOGTYPE> logThread;
 
-    @FunctionalInterface private interface Pollable<T> { Operation<T> poll() throws InterruptedException; }
+    @FunctionalInterface private interface Pollable<T> { void poll(List<Operation<T>> batch) throws InterruptedException; }
 
     LogFileHandler(Compression compression, int bufferSize, String filePattern, String rotationTimes, String symlinkName,
                    int queueSize, String threadName, LogWriter<LOGTYPE> logWriter) {
@@ -59,8 +63,12 @@ class LogFileHandler <LOGTYPE> {
         this.logThread.start();
     }
 
-    private Operation<LOGTYPE> poll() throws InterruptedException {
-        return logQueue.poll(100, TimeUnit.MILLISECONDS);
+    /** Waits for the next operation, and adds it and any operations queued after it to the given batch */
+    private void poll(List<Operation<LOGTYPE>> batch) throws InterruptedException {
+        Operation<LOGTYPE> first = logQueue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) return;
+        batch.add(first);
+        logQueue.drainTo(batch, MAX_BATCH_SIZE - 1);
     }
 
     /**
@@ -69,11 +77,11 @@ class LogFileHandler <LOGTYPE> {
      * @param r logrecord to publish
      */
     public void publish(LOGTYPE r) {
-        addOperation(new Operation<>(r));
+        addOperation(new Operation<>(r, null));
     }
 
     void publishAndWait(LOGTYPE r) {
-        addOperationAndWait(new Operation<>(r));
+        addOperationAndWait(new Operation<>(r, new CountDownLatch(1)));
     }
 
     public void flush() {
@@ -116,6 +124,7 @@ class LogFileHandler <LOGTYPE> {
             logThread.executor.shutdownNow();
             logThread.executor.awaitTermination(600, TimeUnit.SECONDS);
             logThread.join();
+            logThread.discardCompression();
         } catch (InterruptedException e) {
         }
     }
@@ -196,6 +205,10 @@ class LogFileHandler <LOGTYPE> {
         private final String symlinkName;
         private final ExecutorService executor = createCompressionTaskExecutor();
         private final NativeIO nativeIO = new NativeIO();
+        /** Entries are formatted into this, and written to the file (and compressor) a block at a time */
+        private final ByteArrayOutputStream block;
+        /** Compresses the current file as it is written, or null if it is compressed when rotated away */
+        private LogFileCompressor compressor = null;
 
 
         LogThread(LogWriter<LOGTYPE> logWriter,
@@ -215,6 +228,7 @@ class LogFileHandler <LOGTYPE> {
             this.rotationTimes = rotationTimes;
             this.symlinkName = (symlinkName != null && !symlinkName.isBlank()) ? symlinkName : null;
             this.operationProvider = operationProvider;
+            this.block = new ByteArrayOutputStream(bufferSize);
         }
 
         private static ExecutorService createCompressionTaskExecutor() {
@@ -235,13 +249,22 @@ class LogFileHandler <LOGTYPE> {
                 Process.logAndDie("Failed storing log records", e);
             }
 
+            writeBlock();
             internalFlush();
         }
 
         private void handleLogOperations() throws InterruptedException {
+            List<Operation<LOGTYPE>> batch = new ArrayList<>(MAX_BATCH_SIZE);
             while (!isInterrupted()) {
-                Operation<LOGTYPE> r = operationProvider.poll();
-                if (r != null) {
+                operationProvider.poll(batch);
+                if (batch.isEmpty()) {
+                    flushIfOld(100, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                boolean published = false;
+                long now = System.currentTimeMillis(); // Entries of one batch go to the same file
+                for (Operation<LOGTYPE> r : batch) {
+                    if (r.type != Operation.Type.log) writeBlock();
                     if (r.type == Operation.Type.flush) {
                         internalFlush();
                     } else if (r.type == Operation.Type.close) {
@@ -250,13 +273,17 @@ class LogFileHandler <LOGTYPE> {
                         internalRotateNow();
                         lastFlush = System.nanoTime();
                     } else if (r.type == Operation.Type.log) {
-                        internalPublish(r.log.get());
-                        flushIfOld(3, TimeUnit.SECONDS);
+                        internalPublish(r.log, now);
+                        published = true;
+                    }
+                    if (r.countDownLatch != null) {
+                        writeBlock();
+                        r.countDownLatch.countDown();
                     }
-                    r.countDownLatch.countDown();
-                } else {
-                    flushIfOld(100, TimeUnit.MILLISECONDS);
                 }
+                batch.clear();
+                writeBlock();
+                if (published) flushIfOld(3, TimeUnit.SECONDS);
             }
         }
 
@@ -290,11 +317,10 @@ class LogFileHandler <LOGTYPE> {
             }
         }
 
-        private void internalPublish(LOGTYPE r) {
+        private void internalPublish(LOGTYPE r, long now) {
             // first check to see if new file needed.
             // if so, use this.internalRotateNow() to do it
 
-            long now = System.currentTimeMillis();
             if (nextRotationTime <= 0) {
                 nextRotationTime = getNextRotationTime(now); // lazy initialization
             }
@@ -302,11 +328,31 @@ class LogFileHandler <LOGTYPE> {
                 internalRotateNow();
             }
             try {
-                logWriter.write(r, fileOutput);
-                fileOutput.write('\n');
+                logWriter.write(r, block);
+                block.write('\n');
             } catch (IOException e) {
                 logger.warning("Failed writing log record: " + Exceptions.toMessageString(e));
             }
+            if (block.size() >= bufferSize)
+                writeBlock();
+        }
+
+        /** Writes the formatted entries to the current file, and passes them on to its compressor, if any */
+        private void writeBlock() {
+            if (block.size() == 0) return;
+            try {
+                if (fileOutput != null)
+                    block.writeTo(fileOutput);
+                if (compressor != null) {
+                    byte[] compressorBlock = block.toByteArray();
+                    LogFileCompressor blockCompressor = compressor;
+                    executor.execute(() -> blockCompressor.append(compressorBlock));
+                }
+            } catch (IOException e) {
+                logger.warning("Failed writing log records: " + Exceptions.toMessageString(e));
+            } finally {
+                block.reset();
+            }
         }
 
         /**
@@ -351,13 +397,19 @@ class LogFileHandler <LOGTYPE> {
         private void internalRotateNow() {
             // figure out new file name, then
 
+            writeBlock();
             String oldFileName = fileName;
+            LogFileCompressor oldCompressor = compressor;
             long now = System.currentTimeMillis();
             fileName = LogFormatter.insertDate(filePattern, now);
             internalClose();
             try {
                 checkAndCreateDir(fileName);
-                fileOutput = new PageCacheFriendlyFileOutputStream(nativeIO, Paths.get(fileName), bufferSize);
+                Path file = Paths.get(fileName);
+                // A file which already has content is compressed when rotated away, as its compressor would miss that
+                boolean compressWhileWriting = compression != Compression.NONE && ( ! Files.exists(file) || Files.size(file) == 0);
+                fileOutput = new PageCacheFriendlyFileOutputStream(nativeIO, file, bufferSize);
+                compressor = compressWhileWriting ? new LogFileCompressor(nativeIO, file, compression) : null;
                 LogFileDb.nowLoggingTo(fileName);
             } catch (IOException e) {
                 throw new RuntimeException("Couldn't open log file '" + fileName + "'", e);
@@ -370,11 +422,23 @@ class LogFileHandler <LOGTYPE> {
             if ((oldFileName != null)) {
                 Path oldFile = Paths.get(oldFileName);
                 if (Files.exists(oldFile)) {
-                    executor.execute(() -> runCompression(nativeIO, oldFile, compression));
+                    if (oldCompressor != null)
+                        executor.execute(oldCompressor::finish);
+                    else
+                        executor.execute(() -> runCompression(nativeIO, oldFile, compression));
+                }
+                else if (oldCompressor != null) {
+                    executor.execute(oldCompressor::discard);
                 }
             }
         }
 
+        /** Removes the partly written compressed file of the current log file. Call only after the executor has terminated. */
+        void discardCompression() {
+            if (compressor != null)
+                compressor.discard();
+        }
+
 
         private static void runCompression(NativeIO nativeIO, Path oldFile, Compression compression) {
             switch (compression) {
@@ -484,21 +548,89 @@ class LogFileHandler <LOGTYPE> {
 
         final Type type;
 
-        final Optional<LOGTYPE> log;
-        final CountDownLatch countDownLatch = new CountDownLatch(1);
+        final LOGTYPE log; // null unless this is a log operation
+        final CountDownLatch countDownLatch; // null if nobody waits for this to complete
 
         Operation(Type type) {
-            this(type, Optional.empty());
+            this(type, null, new CountDownLatch(1));
         }
 
-        Operation(LOGTYPE log) {
-            this(Type.log, Optional.of(log));
+        /** Creates a log operation, which is waited for only if a latch is given */
+        Operation(LOGTYPE log, CountDownLatch countDownLatch) {
+            this(Type.log, log, countDownLatch);
         }
 
-        private Operation(Type type, Optional<LOGTYPE> log) {
+        private Operation(Type type, LOGTYPE log, CountDownLatch countDownLatch) {
             this.type = type;
             this.log = log;
+            this.countDownLatch = countDownLatch;
+        }
+    }
+
+    /**
+     * Compresses a log file as blocks of it are written, so it does not need to be read back and compressed
+     * when rotated away. The compressed content is the same as when compressing the whole file at rotation.
+     * This is used only by the compression executor thread.
+     */
+    private static class LogFileCompressor {
+
+        private final NativeIO nativeIO;
+        private final Path file;
+        private final Compression compression;
+        private AtomicFileOutputStream fileOut = null;
+        private OutputStream out = null;
+        private boolean failed = false;
+
+        LogFileCompressor(NativeIO nativeIO, Path file, Compression compression) {
+            this.nativeIO = nativeIO;
+            this.file = file;
+            this.compression = compression;
         }
+
+        void append(byte[] block) {
+            if (failed) return;
+            try {
+                if (out == null) {
+                    fileOut = AtomicFileOutputStream.create(compressedFile());
+                    out = compression == Compression.ZSTD ? new ZstdOutputStream(fileOut, 2*1024*1024)
+                                                          : new GZIPOutputStream(fileOut, 0x100000);
+                }
+                out.write(block);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to compress log file with " + compression + ", will compress it when rotated: " + file, e);
+                discard();
+                failed = true;
+            }
+        }
+
+        /** Completes the compressed file and deletes the log file, or compresses all of it if that is not possible */
+        void finish() {
+            if (failed || out == null) {
+                LogThread.runCompression(nativeIO, file, compression);
+                return;
+            }
+            try {
+                out.close();
+                Files.delete(file);
+                nativeIO.dropFileFromCache(compressedFile().toFile());
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to compress log file with " + compression + ": " + file, e);
+            } finally {
+                nativeIO.dropFileFromCache(file.toFile());
+            }
+        }
+
+        void discard() {
+            if (fileOut != null)
+                fileOut.discard();
+            fileOut = null;
+            out = null;
+        }
+
+        private Path compressedFile() {
+            return Paths.get(file.toString() + (compression == Compression.ZSTD ? ".zst" : ".gz"));
+        }
+
     }
 
     /** File output stream that signals to kernel to drop previous pages after write */
@@ -553,6 +685,17 @@ class LogFileHandler <LOGTYPE> {
             }
         }
 
+        /** Closes this and deletes the partly written file, instead of moving it into place */
+        synchronized void discard() {
+            try {
+                super.close();
+                Files.deleteIfExists(tmpPath);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to delete " + tmpPath, e);
+            }
+            closed = true;
+        }
+
         private static AtomicFileOutputStream create(Path path) throws FileNotFoundException {
             return new AtomicFileOutputStream(path, path.resolveSibling("." + path.getFileName() + ".tmp"));
         }
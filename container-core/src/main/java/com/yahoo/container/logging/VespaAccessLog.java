@@ -22,7 +22,7 @@ public final class VespaAccessLog extends AbstractComponent implements RequestLo
     private final AccessLogHandler logHandler;
 
     public VespaAccessLog(AccessLogConfig config) {
-        logHandler = new AccessLogHandler(config.fileHandler(), this);
+        logHandler = new AccessLogHandler(config, this);
     }
 
     private static SimpleDateFormat createDateFormat() {
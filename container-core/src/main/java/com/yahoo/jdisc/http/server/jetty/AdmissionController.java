@@ -0,0 +1,156 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.http.ConnectorConfig;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of requests to a connector which are handled concurrently, to reject requests quickly
+ * when overloaded instead of queueing them until they time out.
+ * <p>
+ * Requests to paths with different first segments, e.g. search and feed, have separate limits.
+ * Each limit adapts to the observed latency, in the style of the gradient algorithm of Netflix' concurrency-limits:
+ * It is reduced when the short-term average latency exceeds the long-term average by more than a tolerance,
+ * and grows otherwise, as long as the limit is in use.
+ *
+ * @author michaelcizmar
+ */
+class AdmissionController {
+
+    /** The max number of distinct first path segments with a separate limit, as paths are set by clients */
+    static final int MAX_LIMITED_PATHS = 64;
+
+    private final ConnectorConfig.AdmissionControl config;
+    private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+    private final Limiter otherPaths;
+
+    AdmissionController(ConnectorConfig.AdmissionControl config) {
+        this.config = config;
+        this.otherPaths = new Limiter(config);
+    }
+
+    /**
+     * Admits a request to the given path if the limit of the path is not reached.
+     *
+     * @return a permit which must be released when the request completes, or empty if the request is rejected
+     */
+    Optional<Permit> tryAcquire(String path) {
+        Limiter limiter = limiterFor(path);
+        if ( ! limiter.tryAcquire()) return Optional.empty();
+        return Optional.of(new Permit(limiter, System.nanoTime()));
+    }
+
+    private Limiter limiterFor(String path) {
+        String segment = firstPathSegment(path);
+        Limiter limiter = limiters.get(segment);
+        if (limiter != null) return limiter;
+        if (limiters.size() >= MAX_LIMITED_PATHS) return otherPaths;
+        return limiters.computeIfAbsent(segment, __ -> new Limiter(config));
+    }
+
+    static String firstPathSegment(String path) {
+        if (path == null) return "";
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.indexOf('/', start);
+        return end < 0 ? path.substring(start) : path.substring(start, end);
+    }
+
+    /** Admission of a single request */
+    static class Permit {
+
+        private final Limiter limiter;
+        private final long startNanos;
+
+        private Permit(Limiter limiter, long startNanos) {
+            this.limiter = limiter;
+            this.startNanos = startNanos;
+        }
+
+        /** Releases this, and uses the latency of the request to adjust the limit unless it failed */
+        void release(boolean failed) {
+            limiter.release(System.nanoTime() - startNanos, failed);
+        }
+
+    }
+
+    static class Limiter {
+
+        private static final double SHORT_WINDOW = 10;
+        private static final double LONG_WINDOW = 600;
+        private static final double SMOOTHING = 0.2;
+
+        private final int minLimit;
+        private final int maxLimit;
+        private final double latencyTolerance;
+        private final AtomicInteger inFlight = new AtomicInteger(0);
+        private volatile int limit;
+
+        // GuardedBy("this")
+        private double estimatedLimit;
+        private double shortLatency;
+        private double longLatency;
+        private long samples = 0;
+
+        Limiter(ConnectorConfig.AdmissionControl config) {
+            this(config.initialLimit(), config.minLimit(), config.maxLimit(), config.latencyTolerance());
+        }
+
+        Limiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance) {
+            if (minLimit < 1 || minLimit > maxLimit)
+                throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max, but min is " + minLimit +
+                                                   " and max is " + maxLimit);
+            if (latencyTolerance < 1)
+                throw new IllegalArgumentException("Latency tolerance must be at least 1, but was " + latencyTolerance);
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.latencyTolerance = latencyTolerance;
+            this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+            this.limit = (int) estimatedLimit;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= limit) return false;
+                if (inFlight.compareAndSet(current, current + 1)) return true;
+            }
+        }
+
+        void release(long latencyNanos, boolean failed) {
+            int inFlightBefore = inFlight.getAndDecrement();
+            if ( ! failed)
+                update(Math.max(1, latencyNanos), inFlightBefore);
+        }
+
+        private synchronized void update(double latency, int inFlight) {
+            samples++;
+            if (samples == 1) {
+                shortLatency = latency;
+                longLatency = latency;
+            }
+            else {
+                shortLatency += (latency - shortLatency) / Math.min(samples, SHORT_WINDOW);
+                longLatency += (latency - longLatency) / Math.min(samples, LONG_WINDOW);
+            }
+            if (longLatency / shortLatency > 2) // Latency has improved a lot: Let the long-term average catch up
+                longLatency *= 0.95;
+            if (inFlight < estimatedLimit / 2) return; // The limit is not what restricts concurrency
+
+            double gradient = Math.max(0.5, Math.min(1.0, latencyTolerance * longLatency / shortLatency));
+            double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            limit = (int) estimatedLimit;
+        }
+
+        int limit() { return limit; }
+
+        int inFlight() { return inFlight.get(); }
+
+    }
+
+}
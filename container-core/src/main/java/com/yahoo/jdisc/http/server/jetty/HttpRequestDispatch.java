@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeoutException;
@@ -75,9 +76,15 @@ class HttpRequestDispatch {
     }
 
     void dispatchRequest() {
-        CompletableFuture<Void> requestCompletion = startServletAsyncExecution();
+        Optional<AdmissionController> admissionController = getConnector(jettyRequest).admissionController();
+        Optional<AdmissionController.Permit> permit =
+                admissionController.flatMap(controller -> controller.tryAcquire(jettyRequest.getRequestURI()));
+        CompletableFuture<Void> requestCompletion = startServletAsyncExecution(permit);
         ServletRequestReader servletRequestReader;
         try {
+            if (admissionController.isPresent() && permit.isEmpty())
+                throw new RequestException(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                                           "Too many concurrent requests to " + jettyRequest.getRequestURI());
             servletRequestReader = handleRequest();
         } catch (Throwable t) {
             servletResponseController.finishedFuture()
@@ -101,7 +108,7 @@ class HttpRequestDispatch {
         servletRequestReader.start();
     }
 
-    private CompletableFuture<Void> startServletAsyncExecution() {
+    private CompletableFuture<Void> startServletAsyncExecution(Optional<AdmissionController.Permit> permit) {
         CompletableFuture<Void> requestCompletion = new CompletableFuture<>();
         AsyncContext asyncCtx = jettyRequest.startAsync();
         asyncCtx.setTimeout(0);
@@ -115,7 +122,10 @@ class HttpRequestDispatch {
                 requestCompletion.completeExceptionally(event.getThrowable());
             }
         });
-        requestCompletion.whenComplete((__, t) -> onRequestFinished(asyncCtx, t));
+        requestCompletion.whenComplete((__, t) -> {
+            permit.ifPresent(p -> p.release(t != null));
+            onRequestFinished(asyncCtx, t);
+        });
         return requestCompletion;
     }
 
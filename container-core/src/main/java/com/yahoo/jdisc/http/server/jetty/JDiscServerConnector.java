@@ -13,6 +13,8 @@ import org.eclipse.jetty.server.ServerConnector;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author bjorncs
@@ -20,6 +22,9 @@ import java.util.Map;
 class JDiscServerConnector extends ServerConnector {
 
     public static final String REQUEST_ATTRIBUTE = JDiscServerConnector.class.getName();
+    /** The max number of distinct request dimension sets to keep metric contexts for, as some are set by clients */
+    private static final int MAX_CACHED_REQUEST_METRIC_CONTEXTS = 1000;
+
     private final Metric.Context metricCtx;
     private final ConnectionStatistics statistics;
     private final ConnectorConfig config;
@@ -27,6 +32,8 @@ class JDiscServerConnector extends ServerConnector {
     private final String connectorName;
     private final int listenPort;
     private final List<String> knownServerNames;
+    private final Map<RequestDimensions, Metric.Context> requestMetricContexts = new ConcurrentHashMap<>();
+    private final AdmissionController admissionController; // null if admission control is disabled
 
     JDiscServerConnector(ConnectorConfig config, Metric metric, Server server, JettyConnectionLogger connectionLogger,
                          ConnectionMetricAggregator connectionMetricAggregator, ConnectionFactory... factories) {
@@ -45,6 +52,7 @@ class JDiscServerConnector extends ServerConnector {
         if (throttlingConfig.enabled()) {
             new ConnectionThrottler(this, throttlingConfig).registerWithConnector();
         }
+        this.admissionController = config.admissionControl().enabled() ? new AdmissionController(config.admissionControl()) : null;
         addBean(connectionLogger);
         addBean(connectionMetricAggregator);
         setPort(config.listenPort());
@@ -67,17 +75,30 @@ class JDiscServerConnector extends ServerConnector {
     }
 
     public Metric.Context createRequestMetricContext(HttpServletRequest request, Map<String, String> extraDimensions) {
-        String method = request.getMethod();
-        String scheme = request.getScheme();
-        boolean clientAuthenticated = request.getAttribute(RequestUtils.SERVLET_REQUEST_X509CERT) != null;
-        Map<String, Object> dimensions = createConnectorDimensions(listenPort, connectorName, extraDimensions.size() + 5);
-        dimensions.put(MetricDefinitions.METHOD_DIMENSION, method);
-        dimensions.put(MetricDefinitions.SCHEME_DIMENSION, scheme);
-        dimensions.put(MetricDefinitions.CLIENT_AUTHENTICATED_DIMENSION, Boolean.toString(clientAuthenticated));
-        dimensions.put(MetricDefinitions.PROTOCOL_DIMENSION, request.getProtocol());
         String serverName = knownServerNames.stream().filter(name -> name.equalsIgnoreCase(request.getServerName())).findFirst().orElse("unknown");
-        dimensions.put(MetricDefinitions.REQUEST_SERVER_NAME_DIMENSION, serverName);
-        dimensions.putAll(extraDimensions);
+        RequestDimensions requestDimensions = new RequestDimensions(request.getMethod(),
+                                                                    request.getScheme(),
+                                                                    request.getAttribute(RequestUtils.SERVLET_REQUEST_X509CERT) != null,
+                                                                    request.getProtocol(),
+                                                                    serverName,
+                                                                    extraDimensions);
+        Metric.Context context = requestMetricContexts.get(requestDimensions);
+        if (context != null) return context;
+
+        context = createRequestMetricContext(requestDimensions);
+        if (context != null && requestMetricContexts.size() < MAX_CACHED_REQUEST_METRIC_CONTEXTS)
+            requestMetricContexts.putIfAbsent(requestDimensions.withImmutableExtraDimensions(), context);
+        return context;
+    }
+
+    private Metric.Context createRequestMetricContext(RequestDimensions requestDimensions) {
+        Map<String, Object> dimensions = createConnectorDimensions(listenPort, connectorName, requestDimensions.extraDimensions().size() + 5);
+        dimensions.put(MetricDefinitions.METHOD_DIMENSION, requestDimensions.method());
+        dimensions.put(MetricDefinitions.SCHEME_DIMENSION, requestDimensions.scheme());
+        dimensions.put(MetricDefinitions.CLIENT_AUTHENTICATED_DIMENSION, Boolean.toString(requestDimensions.clientAuthenticated()));
+        dimensions.put(MetricDefinitions.PROTOCOL_DIMENSION, requestDimensions.protocol());
+        dimensions.put(MetricDefinitions.REQUEST_SERVER_NAME_DIMENSION, requestDimensions.serverName());
+        dimensions.putAll(requestDimensions.extraDimensions());
         return metric.createContext(dimensions);
     }
 
@@ -89,6 +110,10 @@ class JDiscServerConnector extends ServerConnector {
         return config;
     }
 
+    Optional<AdmissionController> admissionController() {
+        return Optional.ofNullable(admissionController);
+    }
+
     int listenPort() {
         return listenPort;
     }
@@ -100,4 +125,14 @@ class JDiscServerConnector extends ServerConnector {
         return props;
     }
 
+    /** The dimensions of a request metric context which vary between requests to this connector */
+    private record RequestDimensions(String method, String scheme, boolean clientAuthenticated, String protocol,
+                                     String serverName, Map<String, String> extraDimensions) {
+
+        RequestDimensions withImmutableExtraDimensions() {
+            return new RequestDimensions(method, scheme, clientAuthenticated, protocol, serverName, Map.copyOf(extraDimensions));
+        }
+
+    }
+
 }
@@ -60,6 +60,11 @@ class ServletOutputStreamWriter {
     // GuardedBy("monitor")
     private final Deque<ResponseContentPart> responseContentQueue = new ArrayDeque<>();
 
+    // The handler of the last buffer written. As Jetty may still use the buffer after write returns, this is
+    // completed when the output stream is ready for the next write, which means Jetty is done with the buffer.
+    // GuardedBy("monitor")
+    private CompletionHandler writtenBufferHandler = null;
+
     private final RequestMetricReporter metricReporter;
 
     /**
@@ -136,7 +141,8 @@ class ServletOutputStreamWriter {
         boolean lastOperationWasFlush = false;
 
         while (true) {
-            ResponseContentPart contentPart;
+            ResponseContentPart contentPart = null;
+            CompletionHandler writtenHandler;
 
             synchronized (monitor) {
                 if (state == State.FINISHED_OR_ERROR) {
@@ -149,15 +155,23 @@ class ServletOutputStreamWriter {
                     return;
                 }
 
-                contentPart = responseContentQueue.pollFirst();
+                writtenHandler = writtenBufferHandler;
+                writtenBufferHandler = null;
+                if (writtenHandler == null) {
+                    contentPart = responseContentQueue.pollFirst();
 
-                if (contentPart == null && lastOperationWasFlush) {
-                    state = State.WAITING_FOR_BUFFER;
-                    return;
+                    if (contentPart == null && lastOperationWasFlush) {
+                        state = State.WAITING_FOR_BUFFER;
+                        return;
+                    }
                 }
             }
 
             try {
+                if (writtenHandler != null) {
+                    writtenHandler.completed(); //Might throw an exception, handling in the enclosing scope.
+                    continue;
+                }
                 boolean isFlush = contentPart == null;
                 if (isFlush) {
                     outputStream.flush();
@@ -183,6 +197,10 @@ class ServletOutputStreamWriter {
     private void setFinished(Throwable t) {
         synchronized (monitor) {
             state = State.FINISHED_OR_ERROR;
+            if (writtenBufferHandler != null) {
+                responseContentQueue.addFirst(new ResponseContentPart(null, writtenBufferHandler));
+                writtenBufferHandler = null;
+            }
             if (!responseContentQueue.isEmpty()) {
                 failAllParts_holdingLock(t != null ? t : new IllegalStateException("ContentChannel closed."));
             }
@@ -212,23 +230,32 @@ class ServletOutputStreamWriter {
     }
 
     private void writeBufferToOutputStream(ResponseContentPart contentPart) throws Throwable {
-        callCompletionHandlerWhenDone(contentPart.handler, () -> {
-            ByteBuffer buffer = contentPart.buf;
-            final int bytesToSend = buffer.remaining();
-            try {
-                if (buffer.hasArray()) {
-                    outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
-                } else {
-                    final byte[] array = new byte[buffer.remaining()];
-                    buffer.get(array);
-                    outputStream.write(array);
-                }
-                metricReporter.successfulWrite(bytesToSend);
-            } catch (Throwable throwable) {
-                metricReporter.failedWrite();
-                throw throwable;
+        ByteBuffer buffer = contentPart.buf;
+        final int bytesToSend = buffer.remaining();
+        try {
+            if (buffer.hasArray()) {
+                outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else if (outputStream instanceof HttpOutput out) {
+                out.write(buffer); // Direct and read-only buffers are passed to Jetty without copying
+            } else {
+                final byte[] array = new byte[buffer.remaining()];
+                buffer.get(array);
+                outputStream.write(array);
+            }
+            metricReporter.successfulWrite(bytesToSend);
+        } catch (Throwable throwable) {
+            metricReporter.failedWrite();
+            runCompletionHandler_logOnExceptions(() -> contentPart.handler.failed(throwable));
+            throw throwable;
+        }
+        synchronized (monitor) {
+            if (state == State.FINISHED_OR_ERROR) {
+                responseContentQueue.addFirst(contentPart);
+                failAllParts_holdingLock(new IllegalStateException("ContentChannel closed."));
+            } else {
+                writtenBufferHandler = contentPart.handler;
             }
-        });
+        }
     }
 
     private static void callCompletionHandlerWhenDone(CompletionHandler handler, IORunnable runnable) throws Exception {
@@ -16,11 +16,14 @@ public class Counter {
     private final Point defaultPosition;
     private final String name;
     private final MetricReceiver metricReceiver;
+    /** The value at the default position, resolved once as most updates use it, or null if not resolved */
+    private final ResolvedMetrics.CounterSlot defaultSlot;
 
     Counter(String name, Point defaultPosition, MetricReceiver receiver) {
         this.name = name;
         this.defaultPosition = defaultPosition;
         this.metricReceiver = receiver;
+        this.defaultSlot = receiver == null ? null : receiver.resolveCounter(new Identifier(name, defaultPosition));
     }
 
     /**
@@ -57,7 +60,10 @@ public class Counter {
      *            the point in the metric space at which to add to the metric
      */
     public void add(long n, Point p) {
-        metricReceiver.update(new Sample(new Measurement(n), new Identifier(name, p), AssumedType.COUNTER));
+        if (p == defaultPosition && defaultSlot != null)
+            defaultSlot.add(n);
+        else
+            metricReceiver.update(new Sample(new Measurement(n), new Identifier(name, p), AssumedType.COUNTER));
     }
 
     /**
@@ -17,11 +17,14 @@ public class Gauge {
     private final Point defaultPosition;
     private final String name;
     private final MetricReceiver receiver;
+    /** The samples at the default position, resolved once as most samples use it, or null if not resolved */
+    private final ResolvedMetrics.GaugeSlot defaultSlot;
 
     Gauge(String name, Point defaultPosition, MetricReceiver receiver) {
         this.name = name;
         this.defaultPosition = defaultPosition;
         this.receiver = receiver;
+        this.defaultSlot = receiver == null ? null : receiver.resolveGauge(new Identifier(name, defaultPosition));
     }
 
     /**
@@ -43,7 +46,10 @@ public class Gauge {
      *            position/dimension values for the sample
      */
     public void sample(double x, Point p) {
-        receiver.update(new Sample(new Measurement(x), new Identifier(name, p), AssumedType.GAUGE));
+        if (p == defaultPosition && defaultSlot != null)
+            defaultSlot.sample(x);
+        else
+            receiver.update(new Sample(new Measurement(x), new Identifier(name, p), AssumedType.GAUGE));
     }
 
     /**
@@ -37,15 +37,16 @@ public class MetricManager extends AbstractComponent implements Provider<MetricR
                               ", pointsToKeepPerMetric=" + settings.pointsToKeepPerMetric());
         metricsCollection = new ThreadLocalDirectory<>(updater);
         final AtomicReference<Bucket> currentSnapshot = new AtomicReference<>(null);
+        final ResolvedMetrics resolvedMetrics = new ResolvedMetrics();
         executor = new ScheduledThreadPoolExecutor(1);
         // Fixed rate, not fixed delay, is it is not too important that each
         // bucket has data for exactly one second, but one should strive for
         // this.buffer to contain data for as close a period to the report
         // interval as possible
-        executor.scheduleAtFixedRate(new MetricAggregator(metricsCollection, currentSnapshot, settings),
+        executor.scheduleAtFixedRate(new MetricAggregator(metricsCollection, currentSnapshot, resolvedMetrics, settings),
                                      1,
                                      1, TimeUnit.SECONDS);
-        receiver = new MetricReceiver(metricsCollection, currentSnapshot);
+        receiver = new MetricReceiver(metricsCollection, currentSnapshot, resolvedMetrics);
     }
 
     static MetricManager constructWithCustomUpdater(ManagerConfig settings, Updater<Bucket, Sample> updater) {
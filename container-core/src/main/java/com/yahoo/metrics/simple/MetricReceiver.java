@@ -26,13 +26,22 @@ public class MetricReceiver {
     // A reference to the current snapshot. The *reference* is shared with MetricsAggregator and updated from there :-/
     private final AtomicReference<Bucket> currentSnapshot;
 
+    // The values at the default positions of declared metrics, or null to update those through samples as well
+    private final ResolvedMetrics resolvedMetrics;
+
     // metricSettings is volatile for reading, the lock is for updates
     private final Object histogramDefinitionsLock = new Object();
     private volatile Map<String, MetricSettings> metricSettings;
 
     public MetricReceiver(ThreadLocalDirectory<Bucket, Sample> metricsCollection, AtomicReference<Bucket> currentSnapshot) {
+        this(metricsCollection, currentSnapshot, null);
+    }
+
+    MetricReceiver(ThreadLocalDirectory<Bucket, Sample> metricsCollection, AtomicReference<Bucket> currentSnapshot,
+                   ResolvedMetrics resolvedMetrics) {
         this.metricsCollection = metricsCollection;
         this.currentSnapshot = currentSnapshot;
+        this.resolvedMetrics = resolvedMetrics;
         metricSettings = new ImmutableMap.Builder<String, MetricSettings>().build();
     }
 
@@ -117,6 +126,16 @@ public class MetricReceiver {
         return new Gauge(name, defaultDimensions, this);
     }
 
+    /** Returns the slot to add to for the given counter, or null if this does not resolve metrics */
+    ResolvedMetrics.CounterSlot resolveCounter(Identifier identifier) {
+        return resolvedMetrics == null ? null : resolvedMetrics.counter(identifier);
+    }
+
+    /** Returns the slot to sample to for the given gauge, or null if this does not resolve metrics */
+    ResolvedMetrics.GaugeSlot resolveGauge(Identifier identifier) {
+        return resolvedMetrics == null ? null : resolvedMetrics.gauge(identifier, getMetricDefinition(identifier.getName()));
+    }
+
     /**
      * Create a PointBuilder instance with no default settings. PointBuilder
      * instances are not thread-safe.
@@ -217,14 +236,16 @@ public class MetricReceiver {
     public static final class MockReceiver extends MetricReceiver {
 
         private final ThreadLocalDirectory<Bucket, Sample> collection;
+        private final ResolvedMetrics resolvedMetrics;
 
-        private MockReceiver(ThreadLocalDirectory<Bucket, Sample> collection) {
-            super(collection, null);
+        private MockReceiver(ThreadLocalDirectory<Bucket, Sample> collection, ResolvedMetrics resolvedMetrics) {
+            super(collection, null, resolvedMetrics);
             this.collection = collection;
+            this.resolvedMetrics = resolvedMetrics;
         }
 
         public MockReceiver() {
-            this(new ThreadLocalDirectory<>(new MetricUpdater()));
+            this(new ThreadLocalDirectory<>(new MetricUpdater()), new ResolvedMetrics());
         }
 
         /** Gathers all data since last snapshot */
@@ -233,6 +254,7 @@ public class MetricReceiver {
             for (Bucket b : collection.fetch()) {
                 merged.merge(b, true);
             }
+            merged.merge(resolvedMetrics.fetch(), true);
             return merged;
         }
 
@@ -18,6 +18,7 @@ public final class MetricSettings {
     @Beta
     public static final class Builder {
         private boolean histogram = false;
+        private int significantDigits = 2;
 
         /**
          * Create a new builder for a MetricSettings instance with default
@@ -39,6 +40,22 @@ public final class MetricSettings {
             return this;
         }
 
+        /**
+         * Set the number of significant decimal digits kept by the histogram
+         * of a resulting metric, which must be between 0 and 5. Higher
+         * precision uses more memory per histogram. Default is 2.
+         *
+         * @param significantDigits
+         *            the precision of recorded values
+         * @return this, to facilitate chaining
+         */
+        public Builder significantDigits(int significantDigits) {
+            if (significantDigits < 0 || significantDigits > 5)
+                throw new IllegalArgumentException("Significant digits must be between 0 and 5, but was " + significantDigits);
+            this.significantDigits = significantDigits;
+            return this;
+        }
+
         /**
          * Build a fresh MetricSettings instance.
          *
@@ -46,18 +63,16 @@ public final class MetricSettings {
          *         builder
          */
         public MetricSettings build() {
-            return new MetricSettings(histogram);
+            return new MetricSettings(histogram, significantDigits);
         }
     }
 
-    private final int significantDigits; // could have been static, but would
-                                         // just introduce bugs when we must
-                                         // expose this setting
+    private final int significantDigits;
     private final boolean histogram;
 
-    private MetricSettings(boolean histogram) {
+    private MetricSettings(boolean histogram, int significantDigits) {
         this.histogram = histogram;
-        this.significantDigits = 2;
+        this.significantDigits = significantDigits;
     }
 
     int getSignificantdigits() {
@@ -0,0 +1,94 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import org.HdrHistogram.DoubleRecorder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The values at the default positions of declared counters and gauges. A slot is resolved once when
+ * the metric is declared, and updated through its own striped primitives, so recording a value at the
+ * default position needs no lookup, allocation or lock. The slots are collected into a bucket, and reset,
+ * each time a snapshot is made.
+ *
+ * Metrics declared with the same name and default position share a slot. A value which is recorded while
+ * the slots are collected may be split between two consecutive snapshots.
+ *
+ * @author michaelcizmar
+ */
+class ResolvedMetrics {
+
+    private final Map<Identifier, CounterSlot> counters = new ConcurrentHashMap<>();
+    private final Map<Identifier, GaugeSlot> gauges = new ConcurrentHashMap<>();
+
+    CounterSlot counter(Identifier identifier) {
+        return counters.computeIfAbsent(identifier, __ -> new CounterSlot());
+    }
+
+    GaugeSlot gauge(Identifier identifier, MetricSettings settings) {
+        return gauges.computeIfAbsent(identifier, __ -> new GaugeSlot(settings));
+    }
+
+    /** Returns the values recorded since the last time this was called */
+    Bucket fetch() {
+        Bucket bucket = new Bucket();
+        counters.forEach((identifier, slot) -> slot.collectInto(identifier, bucket));
+        gauges.forEach((identifier, slot) -> slot.collectInto(identifier, bucket));
+        return bucket;
+    }
+
+    static final class CounterSlot {
+
+        private final LongAdder count = new LongAdder();
+
+        void add(long n) { count.add(n); }
+
+        private void collectInto(Identifier identifier, Bucket bucket) {
+            long n = count.sumThenReset();
+            if (n != 0)
+                bucket.put(identifier, UntypedMetric.counter(n));
+        }
+
+    }
+
+    static final class GaugeSlot {
+
+        private final MetricSettings settings;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+        private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+        private final DoubleRecorder histogram;
+        private volatile double last;
+
+        private GaugeSlot(MetricSettings settings) {
+            this.settings = settings;
+            this.histogram = settings != null && settings.isHistogram() ? new DoubleRecorder(settings.getSignificantdigits())
+                                                                        : null;
+        }
+
+        void sample(double x) {
+            last = x;
+            if (histogram != null)
+                histogram.recordValue(x);
+            sum.add(x);
+            min.accumulate(x);
+            max.accumulate(x);
+            count.increment(); // last, so a collected count never includes a value missing from the others
+        }
+
+        private void collectInto(Identifier identifier, Bucket bucket) {
+            long n = count.sumThenReset();
+            if (n == 0) return;
+            bucket.put(identifier, UntypedMetric.gauge(settings, n, sum.sumThenReset(), min.getThenReset(),
+                                                       max.getThenReset(), last,
+                                                       histogram == null ? null : histogram.getIntervalHistogram()));
+        }
+
+    }
+
+}
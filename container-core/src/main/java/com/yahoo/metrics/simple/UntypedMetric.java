@@ -38,6 +38,34 @@ public class UntypedMetric {
         }
     }
 
+    /** Returns a counter with the given count */
+    static UntypedMetric counter(long count) {
+        UntypedMetric metric = new UntypedMetric(null);
+        metric.outputFormat = AssumedType.COUNTER;
+        metric.count = count;
+        return metric;
+    }
+
+    /** Returns a gauge with the given aggregated samples, and a histogram of them if the settings ask for one */
+    static UntypedMetric gauge(MetricSettings metricSettings, long count, double sum, double min, double max,
+                               double last, DoubleHistogram samples) {
+        UntypedMetric metric = new UntypedMetric(metricSettings);
+        metric.outputFormat = AssumedType.GAUGE;
+        metric.count = count;
+        metric.sum = sum;
+        metric.min = min;
+        metric.max = max;
+        metric.current = last;
+        if (metric.histogram != null && samples != null) {
+            try {
+                metric.histogram.add(samples);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                log.log(Level.WARNING, "Had trouble merging histograms: " + e.getMessage());
+            }
+        }
+        return metric;
+    }
+
     void add(Number x) {
         outputFormat = AssumedType.COUNTER;
         count += x.longValue();
@@ -1,7 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.metrics.simple.jdisc;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.yahoo.jdisc.Metric.Context;
 import com.yahoo.jdisc.application.MetricConsumer;
@@ -19,8 +22,14 @@ import com.yahoo.metrics.simple.UntypedMetric.AssumedType;
  */
 public class SimpleMetricConsumer implements MetricConsumer {
 
+    /** The max number of distinct dimension sets to keep points for */
+    private static final int MAX_CACHED_POINTS = 10000;
+
     private final MetricReceiver receiver;
 
+    /** Points of recurring dimension sets, so that creating their contexts again does not build new points */
+    private final Map<Map<String, ?>, Point> points = new ConcurrentHashMap<>();
+
     public SimpleMetricConsumer(MetricReceiver receiver) {
         this.receiver = receiver;
     }
@@ -47,7 +56,13 @@ public class SimpleMetricConsumer implements MetricConsumer {
     public Context createContext(Map<String, ?> properties) {
         if ((properties == null) || properties.isEmpty())
             return Point.emptyPoint();
-        return new Point(properties);
+        Point point = points.get(properties);
+        if (point != null) return point;
+
+        point = new Point(properties);
+        if (points.size() < MAX_CACHED_POINTS)
+            points.putIfAbsent(Collections.unmodifiableMap(new HashMap<>(properties)), point);
+        return point;
     }
 
     public MetricReceiver receiver() { return receiver; }
@@ -25,8 +25,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import static com.yahoo.container.di.componentgraph.core.ComponentGraph.isBindingAnnotation;
@@ -184,6 +187,21 @@ public class ComponentGraphTest {
         assertNotNull(instance);
     }
 
+    @Test
+    void completed_graph_is_returned_with_dependencies_before_dependents() {
+        ComponentGraph componentGraph = new ComponentGraph();
+        Node root = mockComponentNode(ComponentTakingAllSimpleComponents.class);
+        componentGraph.add(root);
+        for (int i = 0; i < 100; i++)
+            componentGraph.add(mockComponentNode(SimpleComponent.class));
+        List<Node> sorted = componentGraph.complete();
+
+        assertEquals(componentGraph.size(), sorted.size());
+        assertSame(root, sorted.get(sorted.size() - 1));
+        assertTrue(sorted.get(sorted.size() - 2) instanceof ComponentRegistryNode);
+        assertTrue(sorted.subList(0, 100).stream().allMatch(node -> node.instanceType() == SimpleComponent.class));
+    }
+
     @Test
     void all_components_of_a_type_can_be_injected() {
         ComponentGraph componentGraph = new ComponentGraph();
@@ -384,6 +402,56 @@ public class ComponentGraphTest {
         assertNotNull(injectedComponent);
     }
 
+    @Test
+    void independent_components_are_constructed_concurrently_after_their_dependencies() {
+        ConcurrentlyConstructedComponent.constructing = new CountDownLatch(2);
+        ComponentGraph componentGraph = new ComponentGraph();
+        Node concurrent1 = mockComponentNode(ConcurrentlyConstructedComponent.class);
+        Node concurrent2 = mockComponentNode(ConcurrentlyConstructedComponent.class);
+        Node inner = mockComponentNode(SimpleComponent.class);
+        Node middle = mockComponentNode(ComponentTakingComponent.class);
+        Node outer = mockComponentNode(ComponentTakingComponentTakingComponent.class);
+        List.of(concurrent1, concurrent2, inner, middle, outer).forEach(componentGraph::add);
+        componentGraph.complete();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            componentGraph.constructInstances(executor);
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertTrue(concurrent1.constructedInstance().isPresent());
+        assertTrue(concurrent2.constructedInstance().isPresent());
+        assertSame(inner.constructedInstance().get(), ((ComponentTakingComponent) middle.constructedInstance().get()).injectedComponent);
+        assertSame(middle.constructedInstance().get(), ((ComponentTakingComponentTakingComponent) outer.constructedInstance().get()).injectedComponent);
+    }
+
+    @Test
+    void first_failure_in_topological_order_is_thrown_when_all_constructions_have_completed() {
+        ComponentGraph componentGraph = new ComponentGraph();
+        Node thrower1 = mockComponentNode(ComponentThrowingInConstructor.class);
+        Node thrower2 = mockComponentNode(ComponentThrowingInConstructor.class);
+        Node inner = mockComponentNode(SimpleComponent.class);
+        Node middle = mockComponentNode(ComponentTakingComponent.class);
+        List.of(thrower1, thrower2, inner, middle).forEach(componentGraph::add);
+        List<Node> sorted = componentGraph.complete();
+        Node firstThrower = sorted.stream().filter(node -> node == thrower1 || node == thrower2).findFirst().get();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ComponentNode.ComponentConstructorException e = assertThrows(ComponentNode.ComponentConstructorException.class,
+                                                                         () -> componentGraph.constructInstances(executor));
+            assertTrue(e.getMessage().contains(firstThrower.idAndType()), e.getMessage());
+            assertEquals(1, e.getSuppressed().length);
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertTrue(inner.constructedInstance().isPresent());
+        assertTrue(middle.constructedInstance().isPresent());
+    }
+
     //TODO: move
     @Test
     void check_if_annotation_is_a_binding_annotation() {
@@ -626,6 +694,21 @@ public class ComponentGraphTest {
         }
     }
 
+    public static class ConcurrentlyConstructedComponent extends AbstractComponent {
+        static CountDownLatch constructing;
+
+        public ConcurrentlyConstructedComponent() throws InterruptedException {
+            constructing.countDown();
+            assertTrue(constructing.await(60, TimeUnit.SECONDS), "Constructed concurrently with another instance");
+        }
+    }
+
+    public static class ComponentThrowingInConstructor extends AbstractComponent {
+        public ComponentThrowingInConstructor() {
+            throw new IllegalStateException("Thrown in constructor");
+        }
+    }
+
     public static class ComponentCausingCycle extends AbstractComponent {
         public ComponentCausingCycle(ComponentCausingCycle component) {
         }
@@ -116,6 +116,23 @@ public class ContainerThreadPoolImplTest {
         assertEquals(CPUS * 4 * 100, executor.getQueue().remainingCapacity());
     }
 
+    @Test
+    void testVirtualThreadsOrFallbackToPlatformThreads() {
+        ContainerThreadpoolConfig config = new ContainerThreadpoolConfig(new ContainerThreadpoolConfig.Builder()
+                .maxThreads(24)
+                .queueSize(-2)
+                .virtualThreads(true));
+        ContainerThreadpoolImpl threadPool = new ContainerThreadpoolImpl(config, new MetricMock(), new MockProcessTerminator(), CPUS);
+        if (threadPool.executor() instanceof VirtualThreadExecutorService executor) {
+            assertEquals(24, executor.maxConcurrency());
+            assertEquals(650, executor.queueCapacity());
+        } else {
+            ExecutorServiceWrapper wrapper = (ExecutorServiceWrapper) threadPool.executor();
+            assertEquals(24, ((ThreadPoolExecutor) wrapper.delegate()).getMaximumPoolSize());
+        }
+        threadPool.close();
+    }
+
     private static class FlipIt implements Runnable {
         public final Receiver<Boolean> didItRun = new Receiver<>();
 
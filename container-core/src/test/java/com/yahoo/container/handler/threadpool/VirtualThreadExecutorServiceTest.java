@@ -0,0 +1,76 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.threadpool;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.container.protect.ProcessTerminator;
+import com.yahoo.container.test.MetricMock;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the limits of {@link VirtualThreadExecutorService} with a platform thread per task,
+ * as virtual threads may not be supported by the JVM running the tests.
+ *
+ * @author michaelcizmar
+ */
+public class VirtualThreadExecutorServiceTest {
+
+    @Test
+    void concurrency_and_queue_are_limited() throws InterruptedException {
+        MetricMock metrics = new MetricMock();
+        VirtualThreadExecutorService executor = new VirtualThreadExecutorService(
+                Executors.newCachedThreadPool(), 3, 2, new ThreadPoolMetric(metrics, "test"),
+                new ProcessTerminator(), 60_000, "test");
+        assertEquals(3L, metrics.innvocations().get(ContainerMetrics.JDISC_THREAD_POOL_MAX_ALLOWED_SIZE.baseName()).val);
+        assertEquals(2L, metrics.innvocations().get(ContainerMetrics.JDISC_THREAD_POOL_WORK_QUEUE_CAPACITY.baseName()).val);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(5);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                running.decrementAndGet();
+                completed.countDown();
+            });
+        }
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+        assertEquals(1L, metrics.innvocations().get(ContainerMetrics.JDISC_THREAD_POOL_REJECTED_TASKS.baseName()).val);
+
+        while (executor.activeCount() < 3)
+            Thread.sleep(1);
+        release.countDown();
+        assertTrue(completed.await(60, TimeUnit.SECONDS));
+        assertEquals(3, maxRunning.get());
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        assertEquals(0, executor.activeCount());
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+    }
+
+    @Test
+    void concurrency_must_be_positive() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> new VirtualThreadExecutorService(Executors.newCachedThreadPool(), 0, 0,
+                                                            new ThreadPoolMetric(new MetricMock(), "test"),
+                                                            new ProcessTerminator(), 60_000, "test"));
+    }
+
+}
@@ -0,0 +1,56 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author michaelcizmar
+ */
+public class AccessLogSamplerTest {
+
+    @Test
+    void all_entries_are_logged_by_default() {
+        AccessLogSampler sampler = new AccessLogSampler(1.0, 500, Duration.ofSeconds(1), () -> 0.99);
+        assertTrue(sampler.shouldLog(entry(200, Duration.ofMillis(10))));
+    }
+
+    @Test
+    void failed_and_slow_requests_are_always_logged() {
+        AccessLogSampler sampler = new AccessLogSampler(0.0, 500, Duration.ofSeconds(1), () -> 0.0);
+        assertFalse(sampler.shouldLog(entry(200, Duration.ofMillis(10))));
+        assertFalse(sampler.shouldLog(entry(404, Duration.ofMillis(999))));
+        assertTrue(sampler.shouldLog(entry(500, Duration.ofMillis(10))));
+        assertTrue(sampler.shouldLog(entry(503, Duration.ofMillis(10))));
+        assertTrue(sampler.shouldLog(entry(200, Duration.ofSeconds(1))));
+        assertTrue(sampler.shouldLog(new RequestLogEntry.Builder().duration(Duration.ofMillis(10)).build()));
+        assertTrue(sampler.shouldLog(new RequestLogEntry.Builder().statusCode(200).build()));
+    }
+
+    @Test
+    void other_requests_are_sampled() {
+        double[] random = { 0.0 };
+        AccessLogSampler sampler = new AccessLogSampler(0.1, 500, Duration.ofSeconds(1), () -> random[0]);
+        assertTrue(sampler.shouldLog(entry(200, Duration.ofMillis(10))));
+        random[0] = 0.0999;
+        assertTrue(sampler.shouldLog(entry(200, Duration.ofMillis(10))));
+        random[0] = 0.1;
+        assertFalse(sampler.shouldLog(entry(200, Duration.ofMillis(10))));
+    }
+
+    @Test
+    void sampling_rate_must_be_a_fraction() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogSampler(1.5, 500, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogSampler(-0.1, 500, Duration.ofSeconds(1)));
+    }
+
+    private static RequestLogEntry entry(int statusCode, Duration duration) {
+        return new RequestLogEntry.Builder().statusCode(statusCode).duration(duration).build();
+    }
+
+}
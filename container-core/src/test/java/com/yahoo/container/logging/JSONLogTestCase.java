@@ -10,6 +10,7 @@ import java.time.Duration;
 import java.time.Instant;
 
 import static com.yahoo.test.json.JsonTestHelper.assertJsonEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /**
@@ -295,6 +296,14 @@ public class JSONLogTestCase {
                 newRequestLogEntry("test",  new Coverage(0, 0, 0, 2)).build());
     }
 
+    @Test
+    void test_times_are_written_as_seconds_with_three_decimals() {
+        String json = formatEntry(newRequestLogEntry("test").timestamp(Instant.ofEpochMilli(7))
+                                                            .duration(Duration.ofMillis(12050)).build());
+        assertTrue(json.contains("\"time\":0.007,"), json);
+        assertTrue(json.contains("\"duration\":12.050,"), json);
+    }
+
     private String formatEntry(RequestLogEntry entry) {
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
             new JSONFormatter().write(entry, outputStream);
@@ -18,6 +18,7 @@ import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.function.BiFunction;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
@@ -96,6 +97,38 @@ public class LogFileHandlerTestCase {
         h.shutdown();
     }
 
+    @Test
+    @Timeout(300_000)
+    void operations_are_handled_in_order_across_batches() throws IOException, InterruptedException {
+        File root = newFolder(temporaryFolder, "batches");
+        LogFileHandler<String> h = new LogFileHandler<>(
+                Compression.NONE, BUFFER_SIZE, root.getAbsolutePath() + "/logfilehandlertest.%Y%m%d%H%M%S%s", new long[]{0}, null, 8192, "thread-name", new StringLogWriter());
+        int logEntries = 3 * LogFileHandler.MAX_BATCH_SIZE;
+        for (int i = 0; i < logEntries - 1; i++) {
+            h.publish("first " + i);
+        }
+        h.publishAndWait("first " + (logEntries - 1));
+        String firstFile = h.getFileName();
+        Thread.sleep(2); // File names have millisecond resolution
+        h.rotateNow();
+        for (int i = 0; i < logEntries; i++) {
+            h.publish("second " + i);
+        }
+        h.flush();
+        String secondFile = h.getFileName();
+        assertNotEquals(firstFile, secondFile);
+
+        List<String> first = Files.readAllLines(Paths.get(firstFile));
+        List<String> second = Files.readAllLines(Paths.get(secondFile));
+        assertEquals(logEntries, first.size());
+        assertEquals(logEntries, second.size());
+        for (int i = 0; i < logEntries; i++) {
+            assertEquals("first " + i, first.get(i));
+            assertEquals("second " + i, second.get(i));
+        }
+        h.shutdown();
+    }
+
     @Test
     @Timeout(300_000)
     void testSymlink() throws IOException, InterruptedException {
@@ -176,6 +209,33 @@ public class LogFileHandlerTestCase {
                 }));
     }
 
+    @Test
+    @Timeout(300_000)
+    void compresses_log_file_written_in_several_blocks() throws IOException, InterruptedException {
+        File root = newFolder(temporaryFolder, "compressesblocks");
+        LogFileHandler<String> h = new LogFileHandler<>(
+                Compression.GZIP, BUFFER_SIZE, root.getAbsolutePath() + "/logfilehandlertest.%Y%m%d%H%M%S%s", new long[]{0}, null, 2048, "thread-name", new StringLogWriter());
+        for (int i = 0; i < 20000; i++) {
+            h.publish("entry " + i);
+            if (i % 5000 == 0) h.flush();
+        }
+        h.flush();
+        String content = IOUtils.readFile(new File(h.getFileName()));
+        assertTrue(content.length() > 3 * BUFFER_SIZE);
+        Path uncompressed = Paths.get(h.getFileName());
+        h.rotateNow();
+        while (Files.exists(uncompressed)) {
+            Thread.sleep(1);
+        }
+        Path compressed = Paths.get(uncompressed + ".gz");
+        assertEquals(content, new String(new GZIPInputStream(Files.newInputStream(compressed)).readAllBytes(), StandardCharsets.UTF_8));
+        try (var files = Files.list(root.toPath())) {
+            assertEquals(List.of(compressed.getFileName().toString(), Paths.get(h.getFileName()).getFileName().toString()),
+                         files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+        h.shutdown();
+    }
+
     private void testcompression(Compression compression,
                                  String fileExtension,
                                  BiFunction<Path, Integer, String> decompressor) throws IOException, InterruptedException {
@@ -0,0 +1,109 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.http.ConnectorConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author michaelcizmar
+ */
+public class AdmissionControllerTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void requests_beyond_the_limit_are_rejected() {
+        AdmissionController.Limiter limiter = new AdmissionController.Limiter(2, 1, 10, 1.5);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.release(10 * MILLIS, false);
+        assertEquals(1, limiter.inFlight());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void limit_grows_while_latency_is_stable_and_shrinks_when_latency_increases() {
+        AdmissionController.Limiter limiter = new AdmissionController.Limiter(20, 5, 100, 1.5);
+        for (int i = 0; i < 200; i++)
+            runAtLimit(limiter, 10 * MILLIS);
+        int grown = limiter.limit();
+        assertEquals(100, grown);
+
+        for (int i = 0; i < 20; i++)
+            runAtLimit(limiter, 100 * MILLIS);
+        assertTrue(limiter.limit() < grown / 2, "Limit " + limiter.limit() + " is reduced");
+        assertTrue(limiter.limit() >= 5);
+    }
+
+    @Test
+    void limit_is_unchanged_when_not_in_use() {
+        AdmissionController.Limiter limiter = new AdmissionController.Limiter(20, 5, 100, 1.5);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(i * MILLIS, false);
+        }
+        assertEquals(20, limiter.limit());
+    }
+
+    @Test
+    void failed_requests_do_not_change_the_limit() {
+        AdmissionController.Limiter limiter = new AdmissionController.Limiter(4, 1, 100, 1.5);
+        for (int i = 0; i < 4; i++)
+            assertTrue(limiter.tryAcquire());
+        for (int i = 0; i < 4; i++)
+            limiter.release(MILLIS, true);
+        assertEquals(4, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void paths_with_different_first_segments_have_separate_limits() {
+        AdmissionController controller = new AdmissionController(new ConnectorConfig.AdmissionControl(
+                new ConnectorConfig.AdmissionControl.Builder().enabled(true).initialLimit(1).minLimit(1).maxLimit(1)));
+        Optional<AdmissionController.Permit> search = controller.tryAcquire("/search/");
+        assertTrue(search.isPresent());
+        assertTrue(controller.tryAcquire("/search/other").isEmpty());
+        assertTrue(controller.tryAcquire("/document/v1/ns/type/docid/1").isPresent());
+        search.get().release(false);
+        assertTrue(controller.tryAcquire("/search").isPresent());
+
+        for (int i = 0; i < AdmissionController.MAX_LIMITED_PATHS; i++)
+            controller.tryAcquire("/path" + i);
+        assertTrue(controller.tryAcquire("/unknown1").isEmpty(), "Paths beyond the max share a limit");
+        assertTrue(controller.tryAcquire("/unknown2").isEmpty());
+    }
+
+    @Test
+    void first_path_segment() {
+        assertEquals("search", AdmissionController.firstPathSegment("/search/"));
+        assertEquals("search", AdmissionController.firstPathSegment("/search"));
+        assertEquals("document", AdmissionController.firstPathSegment("/document/v1/"));
+        assertEquals("", AdmissionController.firstPathSegment("/"));
+        assertEquals("", AdmissionController.firstPathSegment(null));
+    }
+
+    @Test
+    void illegal_limits_are_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionController.Limiter(10, 0, 10, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionController.Limiter(10, 20, 10, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionController.Limiter(10, 1, 10, 0.5));
+    }
+
+    /** Runs as many concurrent requests as the limit allows, all with the given latency */
+    private static void runAtLimit(AdmissionController.Limiter limiter, long latencyNanos) {
+        int acquired = 0;
+        while (limiter.tryAcquire())
+            acquired++;
+        for (int i = 0; i < acquired; i++)
+            limiter.release(latencyNanos, false);
+    }
+
+}
@@ -225,6 +225,15 @@ public class HttpServerTest {
         assertTrue(driver.close());
     }
 
+    @Test
+    void requireThatDirectAndReadOnlyBuffersAreWritten() throws Exception {
+        final JettyTestDriver driver = JettyTestDriver.newInstance(new BufferTypesRequestHandler());
+        driver.client().get("/status.html")
+                .expectStatusCode(is(OK))
+                .expectContent(is("heap,direct," + "x".repeat(100_000) + ",read-only"));
+        assertTrue(driver.close());
+    }
+
     @Test
     void requireThatServerCanHandleMultipleRequests() throws Exception {
         final JettyTestDriver driver = JettyTestDriver.newInstance(new EchoRequestHandler());
@@ -1024,6 +1033,19 @@ public class HttpServerTest {
         }
     }
 
+    private static class BufferTypesRequestHandler extends AbstractRequestHandler {
+        @Override
+        public ContentChannel handleRequest(Request req, ResponseHandler handler) {
+            final ContentChannel ch = handler.handleResponse(new Response(OK));
+            ch.write(ByteBuffer.wrap("heap,".getBytes(UTF_8)), null);
+            byte[] direct = ("direct," + "x".repeat(100_000)).getBytes(UTF_8);
+            ch.write(ByteBuffer.allocateDirect(direct.length).put(direct).flip(), null);
+            ch.write(ByteBuffer.wrap(",read-only".getBytes(UTF_8)).asReadOnlyBuffer(), null);
+            ch.close(null);
+            return null;
+        }
+    }
+
     private static class UriRequestHandler extends AbstractRequestHandler {
         @Override
         public ContentChannel handleRequest(Request req, ResponseHandler handler) {
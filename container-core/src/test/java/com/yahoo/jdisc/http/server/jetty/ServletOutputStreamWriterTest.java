@@ -0,0 +1,89 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author michaelcizmar
+ */
+public class ServletOutputStreamWriterTest {
+
+    @Test
+    void buffers_are_completed_when_the_output_stream_is_ready_again() throws IOException {
+        Janitor janitor = new Janitor();
+        AsyncOutputStream out = new AsyncOutputStream();
+        ServletOutputStreamWriter writer = new ServletOutputStreamWriter(
+                out, janitor, new RequestMetricReporter(mock(Metric.class), null, 0));
+        List<String> completions = new ArrayList<>();
+
+        writer.writeBuffer(ByteBuffer.wrap("foo".getBytes(UTF_8)), handler("foo", completions));
+        writer.writeBuffer(ByteBuffer.wrap("bar".getBytes(UTF_8)), handler("bar", completions));
+        out.becomeReady();
+        assertEquals("foo", out.written.toString(UTF_8));
+        assertEquals(List.of(), completions, "Jetty may still use the buffer of a pending write");
+
+        out.becomeReady();
+        assertEquals("foobar", out.written.toString(UTF_8));
+        assertEquals(List.of("foo"), completions);
+
+        out.becomeReady();
+        assertEquals(List.of("foo", "bar"), completions);
+
+        writer.close(handler("close", completions));
+        assertEquals(List.of("foo", "bar", "close"), completions);
+        assertTrue(writer.finishedFuture().isDone());
+        janitor.deconstruct();
+    }
+
+    private static CompletionHandler handler(String name, List<String> completions) {
+        return new CompletionHandler() {
+            @Override public void completed() { completions.add(name); }
+            @Override public void failed(Throwable t) { completions.add(name + " failed"); }
+        };
+    }
+
+    /** An output stream where each write is pending until the stream is made ready again */
+    private static class AsyncOutputStream extends ServletOutputStream {
+
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private WriteListener listener;
+        private boolean ready = false;
+
+        void becomeReady() throws IOException {
+            ready = true;
+            listener.onWritePossible();
+        }
+
+        @Override public boolean isReady() { return ready; }
+        @Override public void setWriteListener(WriteListener listener) { this.listener = listener; }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written.write(b, off, len);
+            ready = false;
+        }
+
+        @Override
+        public void write(int b) {
+            written.write(b);
+            ready = false;
+        }
+
+    }
+
+}
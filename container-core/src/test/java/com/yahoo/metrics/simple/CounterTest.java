@@ -76,6 +76,21 @@ public class CounterTest {
         assertEquals(1, x.get(0).getValue().getCount());
     }
 
+    @Test
+    final void testAddDefaultAndEqualPoint() {
+        final String metricName = "unitTestCounter";
+        Point p = receiver.pointBuilder().set("x", 2L).build();
+        Counter c = receiver.declareCounter(metricName, p);
+        c.add();
+        c.add(2L, p);
+        c.add(3L, receiver.pointBuilder().set("x", 2L).build());
+        Bucket b = receiver.getSnapshot();
+        List<Entry<Point, UntypedMetric>> x = b.getValuesByMetricName().get(metricName);
+        assertEquals(1, x.size());
+        assertEquals(p, x.get(0).getKey());
+        assertEquals(6L, x.get(0).getValue().getCount());
+    }
+
     @Test
     final void testAddLongPoint() {
         final String metricName = "unitTestCounter";
@@ -107,4 +122,16 @@ public class CounterTest {
         assertEquals(twoToThePowerOfFourtyeight, x.get(0).getValue().getCount());
     }
 
+    @Test
+    final void testCountersWithTheSameDefaultPositionAreAddedTogether() {
+        final String metricName = "unitTestCounter";
+        Counter c0 = receiver.declareCounter(metricName);
+        Counter c1 = receiver.declareCounter(metricName);
+        c0.add(2);
+        c1.add(3);
+        Bucket b = receiver.getSnapshot();
+        assertEquals(5L, b.getMapForMetric(metricName).get(Point.emptyPoint()).getCount());
+        assertEquals(0, receiver.getSnapshot().getValuesForMetric(metricName).size());
+    }
+
 }
@@ -6,9 +6,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -78,4 +80,48 @@ public class GaugeTest {
         assertEquals(Math.E, x.get(0).getValue().getLast(), 1e-15);
     }
 
+    @Test
+    final void testHistogramPrecision() {
+        final String metricName = "unitTestGauge";
+        MetricSettings settings = new MetricSettings.Builder().histogram(true).significantDigits(4).build();
+        Gauge g = receiver.declareGauge(metricName, Optional.empty(), settings);
+        for (int i = 1; i <= 10000; i++) {
+            g.sample(i);
+        }
+        Bucket b = receiver.getSnapshot();
+        UntypedMetric.Histogram histogram = b.getValuesForMetric(metricName).iterator().next().getValue().getHistogram();
+        assertEquals(5000.0d, histogram.getValueAtPercentile(50.0d), 1.0d);
+        assertEquals(9900.0d, histogram.getValueAtPercentile(99.0d), 1.0d);
+    }
+
+    @Test
+    final void testSamplesAtDefaultPositionAreAggregatedPerSnapshot() {
+        final String metricName = "unitTestGauge";
+        Gauge g = receiver.declareGauge(metricName);
+        g.sample(3.0d);
+        g.sample(1.0d);
+        g.sample(2.0d, null);
+        g.sample(5.0d, receiver.pointBuilder().set("x", "y").build());
+        Bucket b = receiver.getSnapshot();
+        UntypedMetric atDefault = b.getMapForMetric(metricName).get(Point.emptyPoint());
+        assertEquals(3L, atDefault.getCount());
+        assertEquals(6.0d, atDefault.getSum(), 0.0d);
+        assertEquals(1.0d, atDefault.getMin(), 0.0d);
+        assertEquals(3.0d, atDefault.getMax(), 0.0d);
+        assertEquals(2.0d, atDefault.getLast(), 0.0d);
+        assertEquals(2, b.getValuesForMetric(metricName).size());
+
+        g.sample(7.0d);
+        atDefault = receiver.getSnapshot().getMapForMetric(metricName).get(Point.emptyPoint());
+        assertEquals(1L, atDefault.getCount());
+        assertEquals(7.0d, atDefault.getMin(), 0.0d);
+        assertEquals(7.0d, atDefault.getMax(), 0.0d);
+        assertEquals(0, receiver.getSnapshot().getValuesForMetric(metricName).size());
+    }
+
+    @Test
+    final void testIllegalHistogramPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new MetricSettings.Builder().significantDigits(6));
+    }
+
 }
@@ -0,0 +1,40 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple.jdisc;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.metrics.simple.Point;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author michaelcizmar
+ */
+public class SimpleMetricConsumerTest {
+
+    @Test
+    void testContextsOfRecurringDimensionsAreReused() {
+        SimpleMetricConsumer consumer = new SimpleMetricConsumer(new MetricReceiver.MockReceiver());
+        Map<String, Object> dimensions = new HashMap<>();
+        dimensions.put("method", "GET");
+        dimensions.put("port", 4080);
+        Metric.Context context = consumer.createContext(dimensions);
+        assertSame(context, consumer.createContext(Map.of("method", "GET", "port", 4080)));
+        assertEquals(new Point(Map.of("method", "GET", "port", 4080)), context);
+
+        dimensions.put("method", "POST"); // Changing the map after creating a context does not change the context
+        assertSame(context, consumer.createContext(Map.of("method", "GET", "port", 4080)));
+        Metric.Context other = consumer.createContext(dimensions);
+        assertNotEquals(context, other);
+        assertSame(other, consumer.createContext(Map.of("method", "POST", "port", 4080)));
+
+        assertSame(Point.emptyPoint(), consumer.createContext(Map.of()));
+    }
+
+}
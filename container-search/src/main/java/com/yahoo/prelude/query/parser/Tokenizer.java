@@ -239,7 +239,7 @@ public final class Tokenizer {
 
     private SpecialTokens.Token getSpecialToken(int start) {
         if (specialTokens == null) return null;
-        return specialTokens.tokenize(source.substring(start), substringSpecialTokens);
+        return specialTokens.tokenize(source, start, substringSpecialTokens);
     }
 
     private int consumeExact(int start,Index index) {
@@ -4,6 +4,7 @@ package com.yahoo.docproc.impl;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.ComponentId;
 import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.concurrent.VirtualThreadExecutor;
 import com.yahoo.docproc.CallStack;
 import com.yahoo.docproc.DocumentProcessor;
 import com.yahoo.docproc.Processing;
@@ -12,6 +13,7 @@ import com.yahoo.document.DocumentOperation;
 import com.yahoo.document.DocumentTypeManager;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -41,6 +43,8 @@ public class DocprocService extends AbstractComponent {
     /** The processings currently in progress at this service */
     private final LinkedBlockingQueue<Processing> queue;
     private final ThreadPoolExecutor threadPool;
+    /** The executor processing documents in virtual threads, or null to process them in the thread pool */
+    private final VirtualThreadExecutor virtualThreadExecutor;
     /** The current state of this service */
     private boolean inService = false;
     /** The current state of this service */
@@ -49,6 +53,10 @@ public class DocprocService extends AbstractComponent {
     private DocumentTypeManager documentTypeManager = null;
 
     private DocprocService(ComponentId id, int numThreads) {
+        this(id, numThreads, 0);
+    }
+
+    private DocprocService(ComponentId id, int numThreads, int maxVirtualThreads) {
         super(id);
         queue = new LinkedBlockingQueue<>();
         threadPool = new ThreadPoolExecutor(numThreads,
@@ -56,6 +64,16 @@ public class DocprocService extends AbstractComponent {
                 0, TimeUnit.SECONDS,
                 new LinkedBlockingQueue<>(),
                 new DaemonThreadFactory("docproc-" + id.stringValue() + "-"));
+        virtualThreadExecutor = createVirtualThreadExecutor(id, maxVirtualThreads);
+    }
+
+    private static VirtualThreadExecutor createVirtualThreadExecutor(ComponentId id, int maxVirtualThreads) {
+        if (maxVirtualThreads <= 0) return null;
+        var executor = VirtualThreadExecutor.create(maxVirtualThreads);
+        if (executor.isEmpty())
+            log.log(Level.WARNING, "Virtual threads are not supported by this JVM: Docproc service " + id +
+                                   " will process documents in its thread pool");
+        return executor.orElse(null);
     }
 
     public DocprocService(ComponentId id) {
@@ -71,7 +89,22 @@ public class DocprocService extends AbstractComponent {
      * @param numThreads to have in the thread pool
      */
     public DocprocService(ComponentId id, CallStack stack, DocumentTypeManager mgr, int numThreads) {
-        this(id, numThreads);
+        this(id, stack, mgr, numThreads, 0);
+    }
+
+    /**
+     * Creates a new docproc service, which is set to be in service.
+     *
+     * @param id the component id of the new service.
+     * @param stack the call stack to use.
+     * @param mgr the document type manager to use.
+     * @param numThreads to have in the thread pool
+     * @param maxVirtualThreads the max number of processings to run concurrently in virtual threads,
+     *                          or 0 to run processings in the thread pool. Processings are run in the
+     *                          thread pool also when virtual threads are not supported by the JVM.
+     */
+    public DocprocService(ComponentId id, CallStack stack, DocumentTypeManager mgr, int numThreads, int maxVirtualThreads) {
+        this(id, numThreads, maxVirtualThreads);
         setCallStack(stack);
         setDocumentTypeManager(mgr);
         setInService(true);
@@ -89,6 +122,8 @@ public class DocprocService extends AbstractComponent {
     @Override
     public void deconstruct() {
         threadPool.shutdown();
+        if (virtualThreadExecutor != null)
+            virtualThreadExecutor.shutdown();
     }
 
     public DocumentTypeManager getDocumentTypeManager() {
@@ -117,6 +152,17 @@ public class DocprocService extends AbstractComponent {
         return threadPool;
     }
 
+    /**
+     * Returns the executor which should run the processings of this: A virtual thread executor
+     * if this is configured to use virtual threads and they are supported, and the thread pool otherwise.
+     */
+    public Executor getProcessingExecutor() {
+        return virtualThreadExecutor != null ? virtualThreadExecutor : threadPool;
+    }
+
+    /** Returns whether this processes documents in virtual threads */
+    public boolean usesVirtualThreads() { return virtualThreadExecutor != null; }
+
     private void setExecutor(DocprocExecutor executor) {
         this.executor = executor;
     }
@@ -54,6 +54,7 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
                                       ComponentRegistry<DocumentProcessor> documentProcessorComponentRegistry,
                                       ComponentRegistry<AbstractConcreteDocumentFactory> docFactoryRegistry,
                                       int numThreads,
+                                      int maxVirtualThreads,
                                       DocumentTypeManager documentTypeManager,
                                       ChainsModel chainsModel, SchemaMap schemaMap,
                                       Metric metric,
@@ -71,7 +72,8 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
 
             for (Chain<DocumentProcessor> chain : chainRegistry.allComponents()) {
                 log.config("Setting up call stack for chain " + chain.getId());
-                DocprocService service = new DocprocService(chain.getId(), convertToCallStack(chain, metric), documentTypeManager, computeNumThreads(numThreads));
+                DocprocService service = new DocprocService(chain.getId(), convertToCallStack(chain, metric), documentTypeManager,
+                                                            computeNumThreads(numThreads), maxVirtualThreads);
                 service.setInService(true);
                 docprocServiceRegistry.register(service.getId(), service);
             }
@@ -88,6 +90,7 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
                               DocumentProcessingHandlerParameters params) {
         this(docprocServiceRegistry, documentProcessorComponentRegistry, docFactoryRegistry,
              params.getMaxNumThreads(),
+             params.getMaxVirtualThreads(),
              params.getDocumentTypeManager(), params.getChainsModel(), params.getSchemaMap(),
              params.getMetric(),
              params.getContainerDocConfig());
@@ -106,6 +109,7 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
              documentProcessorComponentRegistry, docFactoryRegistry,
                 new DocumentProcessingHandlerParameters()
                      .setMaxNumThreads(docprocConfig.numthreads())
+                     .setMaxVirtualThreads(docprocConfig.virtualthreads() ? docprocConfig.maxvirtualthreads() : 0)
                      .setDocumentTypeManager(documentTypeManager)
                      .setChainsModel(buildFromConfig(chainsConfig)).setSchemaMap(configureMapping(mappingConfig))
                      .setMetric(metric)
@@ -177,7 +181,7 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
             return null;
         }
 
-        DocumentProcessingTask task = new DocumentProcessingTask(requestContext, this, service, service.getThreadPoolExecutor());
+        DocumentProcessingTask task = new DocumentProcessingTask(requestContext, this, service, service.getProcessingExecutor());
         task.submit();
         return null;
     }
@@ -17,6 +17,7 @@ import com.yahoo.jdisc.Metric;
 public class DocumentProcessingHandlerParameters {
 
     private int maxNumThreads = 0;
+    private int maxVirtualThreads = 0;
     private DocumentTypeManager documentTypeManager = null;
     private ChainsModel chainsModel = null;
     private SchemaMap schemaMap = null;
@@ -48,6 +49,19 @@ public class DocumentProcessingHandlerParameters {
         return this;
     }
 
+    /**
+     * Returns the max number of processings run concurrently in virtual threads,
+     * or 0 (default) to run them in the thread pool.
+     */
+    public int getMaxVirtualThreads() {
+        return maxVirtualThreads;
+    }
+
+    public DocumentProcessingHandlerParameters setMaxVirtualThreads(int maxVirtualThreads) {
+        this.maxVirtualThreads = maxVirtualThreads;
+        return this;
+    }
+
     public DocumentTypeManager getDocumentTypeManager() {
         return documentTypeManager;
     }
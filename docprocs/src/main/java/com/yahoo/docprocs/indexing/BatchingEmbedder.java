@@ -0,0 +1,227 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docprocs.indexing;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.process.Embedder;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An embedder which collects the texts embedded concurrently by multiple threads, such as the threads
+ * processing different documents, and embeds them as one batch in the wrapped embedder.
+ *
+ * Batching is opportunistic: A thread embedding texts when no batch is being evaluated evaluates
+ * its texts immediately, together with any other texts waiting. Texts arriving while a batch is being
+ * evaluated wait for it to complete and are then evaluated as the next batch by one of the waiting threads.
+ * This adds no latency when the load is low, and batches more texts as the load increases.
+ *
+ * Texts are only batched together when they are embedded with the same destination, embedder id,
+ * language and tensor type. The embedder context cache is not shared between the texts of a batch.
+ * No batch passed to the wrapped embedder has more than the max batch size texts, also when a single
+ * invocation embeds more texts than that. With a max batch size of 1, all texts are embedded one by one.
+ *
+ * @author michaelcizmar
+ */
+class BatchingEmbedder implements Embedder {
+
+    private final Embedder embedder;
+    private final int maxBatchSize;
+    private final Map<BatchKey, Batcher> batchers = new ConcurrentHashMap<>();
+
+    BatchingEmbedder(Embedder embedder, int maxBatchSize) {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("Max batch size must be positive, but was " + maxBatchSize);
+        this.embedder = embedder;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Returns the given embedder wrapped in a batching embedder if it implements batch embedding,
+     * such that it is never passed more than the given max batch size texts at once,
+     * and the embedder itself otherwise.
+     */
+    static Embedder wrapIfBatching(Embedder embedder, int maxBatchSize) {
+        if ( ! implementsBatchEmbedding(embedder)) return embedder;
+        return new BatchingEmbedder(embedder, Math.max(1, maxBatchSize));
+    }
+
+    private static boolean implementsBatchEmbedding(Embedder embedder) {
+        try {
+            return embedder.getClass().getMethod("embed", List.class, Context.class, TensorType.class)
+                           .getDeclaringClass() != Embedder.class;
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e); // Declared by Embedder
+        }
+    }
+
+    @Override
+    public List<Integer> embed(String text, Context context) {
+        return embedder.embed(text, context);
+    }
+
+    @Override
+    public String decode(List<Integer> tokens, Context context) {
+        return embedder.decode(tokens, context);
+    }
+
+    @Override
+    public Tensor embed(String text, Context context, TensorType tensorType) {
+        if (maxBatchSize == 1) return embedder.embed(text, context, tensorType);
+        return embed(List.of(text), context, tensorType).get(0);
+    }
+
+    @Override
+    public List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+        if (texts.isEmpty()) return List.of();
+        if (maxBatchSize == 1) return Embedder.super.embed(texts, context, tensorType);
+        BatchKey key = new BatchKey(context.getDestination(), context.getEmbedderId(), context.getLanguage(), tensorType);
+        return batchers.computeIfAbsent(key, Batcher::new).embed(texts);
+    }
+
+    /** Returns the number of invocations currently waiting for a batch to be evaluated. For testing. */
+    int waitingRequests() {
+        int waiting = 0;
+        for (Batcher batcher : batchers.values())
+            waiting += batcher.waitingRequests();
+        return waiting;
+    }
+
+    @Override
+    public String toString() {
+        return "batching embedder of " + embedder + " with max batch size " + maxBatchSize;
+    }
+
+    private record BatchKey(String destination, String embedderId, Language language, TensorType tensorType) {}
+
+    /** Batches the texts embedded with a given key */
+    private class Batcher {
+
+        private final BatchKey key;
+        private final Queue<Request> waiting = new ArrayDeque<>();
+        private boolean evaluating = false;
+
+        Batcher(BatchKey key) {
+            this.key = key;
+        }
+
+        List<Tensor> embed(List<String> texts) {
+            Request request = new Request(texts);
+            synchronized (this) {
+                waiting.add(request);
+            }
+            while (true) {
+                List<Request> batch;
+                synchronized (this) {
+                    while (evaluating && ! request.isDone())
+                        awaitBatch();
+                    if (request.isDone()) break;
+                    batch = takeBatch();
+                    evaluating = true;
+                }
+                evaluate(batch);
+            }
+            return request.result();
+        }
+
+        synchronized int waitingRequests() { return waiting.size(); }
+
+        /** Removes and returns the requests of the next batch: At least one request, and at most max batch size texts if possible */
+        private List<Request> takeBatch() {
+            List<Request> batch = new ArrayList<>();
+            int texts = 0;
+            while ( ! waiting.isEmpty() && (batch.isEmpty() || texts + waiting.peek().texts.size() <= maxBatchSize)) {
+                Request request = waiting.remove();
+                texts += request.texts.size();
+                batch.add(request);
+            }
+            return batch;
+        }
+
+        /** Evaluates the texts of the given requests, in chunks of at most max batch size texts */
+        private void evaluate(List<Request> batch) {
+            List<String> texts = new ArrayList<>();
+            for (Request request : batch)
+                texts.addAll(request.texts);
+            List<Tensor> embeddings = null;
+            RuntimeException failure = null;
+            try {
+                Context context = new Context(key.destination()).setEmbedderId(key.embedderId()).setLanguage(key.language());
+                embeddings = new ArrayList<>(texts.size());
+                for (int start = 0; start < texts.size(); start += maxBatchSize) {
+                    List<String> chunk = texts.subList(start, Math.min(texts.size(), start + maxBatchSize));
+                    List<Tensor> chunkEmbeddings = embedder.embed(chunk, context, key.tensorType());
+                    if (chunkEmbeddings.size() != chunk.size())
+                        throw new IllegalStateException(embedder + " returned " + chunkEmbeddings.size() +
+                                                        " embeddings for " + chunk.size() + " texts");
+                    embeddings.addAll(chunkEmbeddings);
+                }
+            }
+            catch (RuntimeException e) {
+                failure = e;
+            }
+            catch (Error e) {
+                failure = new IllegalStateException("Failed embedding " + texts.size() + " texts", e);
+                throw e;
+            }
+            finally {
+                complete(batch, embeddings, failure);
+            }
+        }
+
+        private synchronized void complete(List<Request> batch, List<Tensor> embeddings, RuntimeException failure) {
+            int offset = 0;
+            for (Request request : batch) {
+                if (failure != null)
+                    request.fail(failure);
+                else
+                    request.complete(embeddings.subList(offset, offset + request.texts.size()));
+                offset += request.texts.size();
+            }
+            evaluating = false;
+            notifyAll();
+        }
+
+        private void awaitBatch() {
+            try {
+                wait();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for embedding", e);
+            }
+        }
+
+    }
+
+    /** The texts to embed for one invocation. Accessed while synchronized on its batcher */
+    private static class Request {
+
+        private final List<String> texts;
+        private List<Tensor> result = null;
+        private RuntimeException failure = null;
+
+        Request(List<String> texts) {
+            this.texts = texts;
+        }
+
+        boolean isDone() { return result != null || failure != null; }
+
+        void complete(List<Tensor> result) { this.result = List.copyOf(result); }
+
+        void fail(RuntimeException failure) { this.failure = failure; }
+
+        List<Tensor> result() {
+            if (failure != null) throw failure;
+            return result;
+        }
+
+    }
+
+}
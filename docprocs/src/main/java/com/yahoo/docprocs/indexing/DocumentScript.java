@@ -17,6 +17,8 @@ import com.yahoo.document.update.FieldUpdate;
 import com.yahoo.document.update.MapValueUpdate;
 import com.yahoo.document.update.ValueUpdate;
 import com.yahoo.vespa.indexinglanguage.AdapterFactory;
+import com.yahoo.vespa.indexinglanguage.DocumentAdapter;
+import com.yahoo.vespa.indexinglanguage.expressions.ExecutionContext;
 import com.yahoo.vespa.indexinglanguage.expressions.Expression;
 
 import java.util.Collection;
@@ -24,6 +26,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * @author Simon Thoresen Hult
@@ -43,12 +46,27 @@ public class DocumentScript {
     public Expression getExpression() { return expression; }
 
     public Document execute(AdapterFactory adapterFactory, Document document) {
+        return execute(adapterFactory, document, null);
+    }
+
+    /**
+     * Executes this on a document.
+     *
+     * @param executor the executor to use for executing independent statements concurrently,
+     *                 or null to execute all statements in the calling thread
+     */
+    public Document execute(AdapterFactory adapterFactory, Document document, Executor executor) {
         for (var i = document.iterator(); i.hasNext(); ) {
             Map.Entry<Field, FieldValue> entry = i.next();
             requireThatFieldIsDeclaredInDocument(entry.getKey());
             removeAnyLinguisticsSpanTree(entry.getValue());
         }
-        return expression.execute(adapterFactory, document);
+        if (executor == null)
+            return expression.execute(adapterFactory, document);
+
+        DocumentAdapter adapter = adapterFactory.newDocumentAdapter(document);
+        expression.execute(new ExecutionContext(adapter).setExecutor(executor));
+        return adapter.getFullOutput();
     }
 
     public DocumentUpdate execute(AdapterFactory adapterFactory, DocumentUpdate update) {
@@ -3,13 +3,17 @@ package com.yahoo.docprocs.indexing;
 
 import java.util.ArrayList;
 import java.util.List;
+
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.component.annotation.Inject;
+import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.component.chain.dependencies.After;
 import com.yahoo.component.chain.dependencies.Before;
 import com.yahoo.component.chain.dependencies.Provides;
 import com.yahoo.component.provider.ComponentRegistry;
 import com.yahoo.docproc.DocumentProcessor;
 import com.yahoo.docproc.Processing;
+import com.yahoo.docproc.jdisc.metric.NullMetric;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentOperation;
 import com.yahoo.document.DocumentPut;
@@ -20,6 +24,7 @@ import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.serialization.DocumentSerializer;
 import com.yahoo.document.serialization.DocumentSerializerFactory;
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.language.provider.DefaultEmbedderProvider;
@@ -27,8 +32,14 @@ import com.yahoo.vespa.configdefinition.IlscriptsConfig;
 import com.yahoo.vespa.indexinglanguage.AdapterFactory;
 import com.yahoo.vespa.indexinglanguage.SimpleAdapterFactory;
 import com.yahoo.vespa.indexinglanguage.expressions.Expression;
+import com.yahoo.vespa.indexinglanguage.linguistics.TermAnalysisCache;
 
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -43,9 +54,20 @@ public class IndexingProcessor extends DocumentProcessor {
     public final static String INDEXING_START = "indexingStart";
     public final static String INDEXING_END = "indexingEnd";
 
+    private static final String TERM_ANALYSIS_CACHE_ELEMENTS = ContainerMetrics.DOCPROC_TERM_ANALYSIS_CACHE_ELEMENTS.baseName();
+    private static final String TERM_ANALYSIS_CACHE_HITS = ContainerMetrics.DOCPROC_TERM_ANALYSIS_CACHE_HITS.baseName();
+    private static final String TERM_ANALYSIS_CACHE_MISSES = ContainerMetrics.DOCPROC_TERM_ANALYSIS_CACHE_MISSES.baseName();
+
     private final DocumentTypeManager documentTypeManager;
     private final ScriptManager scriptManager;
     private final AdapterFactory adapterFactory;
+    private final Metric metric;
+
+    /** The cumulative term analysis cache hits and misses at the time they were last reported */
+    private final AtomicLong reportedCacheHits = new AtomicLong(), reportedCacheMisses = new AtomicLong();
+
+    /** Executes independent statements of a document script concurrently, or null to execute them sequentially */
+    private final ExecutorService statementExecutor;
 
     private class ExpressionSelector extends SimpleAdapterFactory.SelectExpression {
         @Override
@@ -54,14 +76,43 @@ public class IndexingProcessor extends DocumentProcessor {
         }
     }
 
-    @Inject
     public IndexingProcessor(DocumentTypeManager documentTypeManager,
                              IlscriptsConfig ilscriptsConfig,
                              Linguistics linguistics,
                              ComponentRegistry<Embedder> embedders) {
+        this(documentTypeManager, ilscriptsConfig, linguistics, embedders, new NullMetric());
+    }
+
+    @Inject
+    public IndexingProcessor(DocumentTypeManager documentTypeManager,
+                             IlscriptsConfig ilscriptsConfig,
+                             Linguistics linguistics,
+                             ComponentRegistry<Embedder> embedders,
+                             Metric metric) {
         this.documentTypeManager = documentTypeManager;
-        scriptManager = new ScriptManager(this.documentTypeManager, ilscriptsConfig, linguistics, toMap(embedders));
+        scriptManager = new ScriptManager(this.documentTypeManager, ilscriptsConfig, linguistics,
+                                          toMap(embedders, ilscriptsConfig.maxembedbatchsize()));
         adapterFactory = new SimpleAdapterFactory(new ExpressionSelector());
+        this.metric = metric;
+        statementExecutor = createStatementExecutor(ilscriptsConfig.statementthreads());
+    }
+
+    /**
+     * Creates an executor with a bounded queue which discards statements when it is full,
+     * as the thread executing a script runs all the statements not already claimed by the executor.
+     */
+    private static ExecutorService createStatementExecutor(int threads) {
+        if (threads <= 0) return null;
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                                      new ArrayBlockingQueue<>(threads),
+                                      new DaemonThreadFactory("indexing-statement-"),
+                                      new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    public void deconstruct() {
+        if (statementExecutor != null)
+            statementExecutor.shutdown();
     }
 
     @Override
@@ -84,9 +135,28 @@ public class IndexingProcessor extends DocumentProcessor {
         }
         proc.getDocumentOperations().clear();
         proc.getDocumentOperations().addAll(out);
+        reportTermAnalysisCacheMetrics();
         return Progress.DONE;
     }
 
+    /**
+     * Reports the cache size, and the hits and misses since the last report as counters.
+     * This is called by all processing threads, so the reported counts are advanced without locking,
+     * by the thread which observed the higher count.
+     */
+    private void reportTermAnalysisCacheMetrics() {
+        TermAnalysisCache cache = scriptManager.getTermAnalysisCache();
+        metric.set(TERM_ANALYSIS_CACHE_ELEMENTS, cache.size(), null);
+        reportIncrease(TERM_ANALYSIS_CACHE_HITS, cache.hits(), reportedCacheHits);
+        reportIncrease(TERM_ANALYSIS_CACHE_MISSES, cache.misses(), reportedCacheMisses);
+    }
+
+    private void reportIncrease(String name, long count, AtomicLong reportedCount) {
+        long previous = reportedCount.getAndAccumulate(count, Math::max);
+        if (count > previous)
+            metric.add(name, count - previous, null);
+    }
+
     DocumentTypeManager getDocumentTypeManager() {
         return documentTypeManager;
     }
@@ -110,7 +180,7 @@ public class IndexingProcessor extends DocumentProcessor {
             buffer.flip();
             inputDocument = documentTypeManager.createDocument(buffer);
         }
-        Document output = script.execute(adapterFactory, inputDocument);
+        Document output = script.execute(adapterFactory, inputDocument, statementExecutor);
         if (output == null) return;
 
         out.add(new DocumentPut(input, output));
@@ -132,9 +202,10 @@ public class IndexingProcessor extends DocumentProcessor {
         out.add(input);
     }
 
-    private Map<String, Embedder> toMap(ComponentRegistry<Embedder> embedders) {
+    private Map<String, Embedder> toMap(ComponentRegistry<Embedder> embedders, int maxEmbedBatchSize) {
         var map = embedders.allComponentsById().entrySet().stream()
-                    .collect(Collectors.toMap(e -> e.getKey().stringValue(), Map.Entry::getValue));
+                    .collect(Collectors.toMap(e -> e.getKey().stringValue(),
+                                              e -> BatchingEmbedder.wrapIfBatching(e.getValue(), maxEmbedBatchSize)));
         if (map.size() > 1) {
             map.remove(DefaultEmbedderProvider.class.getName());
             // Ideally, this should be handled by dependency injection, however for now this workaround is necessary.
@@ -13,6 +13,7 @@ import com.yahoo.vespa.indexinglanguage.expressions.InputExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.OutputExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.ScriptExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.StatementExpression;
+import com.yahoo.vespa.indexinglanguage.linguistics.TermAnalysisCache;
 import com.yahoo.vespa.indexinglanguage.parser.IndexingInput;
 import com.yahoo.vespa.indexinglanguage.parser.ParseException;
 
@@ -27,13 +28,17 @@ public class ScriptManager {
     private static final String FULL = "[all]";
     private final Map<String, Map<String, DocumentScript>> documentFieldScripts;
     private final DocumentTypeManager documentTypeManager;
+    private final TermAnalysisCache termAnalysisCache = new TermAnalysisCache();
 
     public ScriptManager(DocumentTypeManager documentTypeManager, IlscriptsConfig config, Linguistics linguistics,
                          Map<String, Embedder> embedders) {
         this.documentTypeManager = documentTypeManager;
-        documentFieldScripts = createScriptsMap(documentTypeManager, config, linguistics, embedders);
+        documentFieldScripts = createScriptsMap(documentTypeManager, config, linguistics, embedders, termAnalysisCache);
     }
 
+    /** Returns the cache of analyzed terms shared by all the scripts of this */
+    public TermAnalysisCache getTermAnalysisCache() { return termAnalysisCache; }
+
     private Map<String, DocumentScript> getScripts(DocumentType inputType) {
         Map<String, DocumentScript> scripts = documentFieldScripts.get(inputType.getName());
         if (scripts != null) return scripts;
@@ -68,9 +73,11 @@ public class ScriptManager {
     private static Map<String, Map<String, DocumentScript>>  createScriptsMap(DocumentTypeManager docTypeMgr,
                                                                               IlscriptsConfig config,
                                                                               Linguistics linguistics,
-                                                                              Map<String, Embedder> embedders) {
+                                                                              Map<String, Embedder> embedders,
+                                                                              TermAnalysisCache termAnalysisCache) {
         Map<String, Map<String, DocumentScript>> documentFieldScripts = new HashMap<>(config.ilscript().size());
         ScriptParserContext parserContext = new ScriptParserContext(linguistics, embedders);
+        parserContext.setTermAnalysisCache(termAnalysisCache);
         parserContext.getAnnotatorConfig().setMaxTermOccurrences(config.maxtermoccurrences());
         parserContext.getAnnotatorConfig().setMaxTokenizeLength(config.fieldmatchmaxlength());
 
@@ -0,0 +1,161 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docprocs.indexing;
+
+import com.yahoo.language.process.Embedder;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author michaelcizmar
+ */
+public class BatchingEmbedderTestCase {
+
+    private static final TensorType type = TensorType.fromSpec("tensor(x[1])");
+
+    @Test
+    public void testOnlyBatchingEmbeddersAreWrapped() {
+        Embedder nonBatching = new NonBatchingEmbedder();
+        assertSame(nonBatching, BatchingEmbedder.wrapIfBatching(nonBatching, 10));
+        Embedder batching = new LengthEmbedder();
+        assertTrue(BatchingEmbedder.wrapIfBatching(batching, 1) instanceof BatchingEmbedder);
+        assertTrue(BatchingEmbedder.wrapIfBatching(batching, 10) instanceof BatchingEmbedder);
+    }
+
+    @Test
+    public void testEmptyListIsNotEmbedded() {
+        LengthEmbedder lengthEmbedder = new LengthEmbedder();
+        assertEquals(List.of(), new BatchingEmbedder(lengthEmbedder, 10).embed(List.of(), context(), type));
+        assertEquals(List.of(), new BatchingEmbedder(lengthEmbedder, 1).embed(List.of(), context(), type));
+        assertEquals(List.of(), lengthEmbedder.batchSizes);
+    }
+
+    @Test
+    public void testLargeListsAreSplitIntoBatches() {
+        List<String> texts = new ArrayList<>();
+        List<Tensor> expected = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            texts.add("a".repeat(i));
+            expected.add(Tensor.from(type, "[" + i + "]"));
+        }
+
+        LengthEmbedder lengthEmbedder = new LengthEmbedder();
+        assertEquals(expected, new BatchingEmbedder(lengthEmbedder, 3).embed(texts, context(), type));
+        assertEquals(List.of(3, 3, 3, 1), lengthEmbedder.batchSizes);
+
+        LengthEmbedder singleTextEmbedder = new LengthEmbedder();
+        assertEquals(expected, new BatchingEmbedder(singleTextEmbedder, 1).embed(texts, context(), type));
+        assertEquals(Collections.nCopies(10, 1), singleTextEmbedder.batchSizes);
+    }
+
+    @Test
+    public void testConcurrentTextsAreEmbeddedInOneBatch() throws Exception {
+        LengthEmbedder lengthEmbedder = new LengthEmbedder();
+        lengthEmbedder.blockFirstBatch();
+        BatchingEmbedder embedder = new BatchingEmbedder(lengthEmbedder, 10);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            Future<Tensor> first = executor.submit(() -> embedder.embed("a", context(), type));
+            lengthEmbedder.firstBatchStarted.await();
+            List<Future<List<Tensor>>> others = new ArrayList<>();
+            for (int i = 1; i <= 4; i++) {
+                String text = "b".repeat(i);
+                others.add(executor.submit(() -> embedder.embed(List.of(text, text + text), context(), type)));
+            }
+            while (embedder.waitingRequests() < 4)
+                Thread.sleep(1);
+            lengthEmbedder.releaseFirstBatch.countDown();
+
+            assertEquals(Tensor.from(type, "[1]"), first.get());
+            for (int i = 1; i <= 4; i++)
+                assertEquals(List.of(Tensor.from(type, "[" + i + "]"), Tensor.from(type, "[" + 2 * i + "]")),
+                             others.get(i - 1).get());
+            // The texts arriving while the first batch is evaluated are embedded in one batch
+            assertEquals(List.of(1, 8), lengthEmbedder.batchSizes);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailuresArePropagatedToAllTextsInBatch() {
+        Embedder embedder = new BatchingEmbedder(new LengthEmbedder(), 10);
+        try {
+            embedder.embed(List.of("a", ""), context(), type);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Cannot embed an empty text", e.getMessage());
+        }
+        assertEquals(Tensor.from(type, "[3]"), embedder.embed("abc", context(), type));
+    }
+
+    private static Embedder.Context context() {
+        return new Embedder.Context("test.field");
+    }
+
+    /** Embeds texts as their length, recording the size of each batch */
+    private static class LengthEmbedder implements Embedder {
+
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        private boolean blockFirstBatch = false;
+
+        void blockFirstBatch() { blockFirstBatch = true; }
+
+        @Override
+        public List<Integer> embed(String text, Context context) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public Tensor embed(String text, Context context, TensorType tensorType) {
+            return embed(List.of(text), context, tensorType).get(0);
+        }
+
+        @Override
+        public List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+            batchSizes.add(texts.size());
+            if (batchSizes.size() == 1 && blockFirstBatch) {
+                firstBatchStarted.countDown();
+                try {
+                    releaseFirstBatch.await();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            List<Tensor> embeddings = new ArrayList<>();
+            for (String text : texts) {
+                if (text.isEmpty()) throw new IllegalArgumentException("Cannot embed an empty text");
+                embeddings.add(Tensor.from(tensorType, "[" + text.length() + "]"));
+            }
+            return embeddings;
+        }
+
+    }
+
+    private static class NonBatchingEmbedder implements Embedder {
+
+        @Override
+        public List<Integer> embed(String text, Context context) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public Tensor embed(String text, Context context, TensorType tensorType) { throw new UnsupportedOperationException(); }
+
+    }
+
+}
@@ -14,6 +14,9 @@ import java.nio.CharBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -70,10 +73,14 @@ public class FSA implements Closeable {
         }
 
         public void delta(char chr){
+            Maps m = fsa.map();
+            if (fsa._utf8) {
+                deltaUtf8(m, Character.isSurrogate(chr) ? '?' : chr);
+                return;
+            }
             CharBuffer chrbuf = CharBuffer.allocate(1);
             chrbuf.put(0,chr);
             ByteBuffer buf = fsa.encode(chrbuf);
-            Maps m = fsa.map();
             while(state >0 && buf.position()<buf.limit()){
                 delta(m, buf.get());
             }
@@ -81,13 +88,51 @@ public class FSA implements Closeable {
 
         /** Jumps ahead by string */
         public void delta(String string){
-            ByteBuffer buf = fsa.encode(string);
             Maps m = fsa.map();
+            if (fsa._utf8) {
+                // Encode on the fly, replacing unpaired surrogates by '?' as Charset.encode does
+                int length = string.length();
+                for (int i = 0; i < length && state > 0; i++) {
+                    char c = string.charAt(i);
+                    if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1)))
+                        deltaUtf8(m, Character.toCodePoint(c, string.charAt(++i)));
+                    else
+                        deltaUtf8(m, Character.isSurrogate(c) ? '?' : c);
+                }
+                return;
+            }
+            ByteBuffer buf = fsa.encode(string);
             while (state >0 && buf.position()<buf.limit()){
                 delta(m, buf.get());
             }
         }
 
+        /** Jumps ahead by the utf-8 encoding of the given code point, stopping at the first invalid state */
+        private void deltaUtf8(Maps m, int codePoint) {
+            if (codePoint < 0x80) {
+                delta(m, (byte)codePoint);
+            }
+            else if (codePoint < 0x800) {
+                delta(m, (byte)(0xc0 | (codePoint >> 6)));
+                deltaIfValid(m, 0x80 | (codePoint & 0x3f));
+            }
+            else if (codePoint < 0x10000) {
+                delta(m, (byte)(0xe0 | (codePoint >> 12)));
+                deltaIfValid(m, 0x80 | ((codePoint >> 6) & 0x3f));
+                deltaIfValid(m, 0x80 | (codePoint & 0x3f));
+            }
+            else {
+                delta(m, (byte)(0xf0 | (codePoint >> 18)));
+                deltaIfValid(m, 0x80 | ((codePoint >> 12) & 0x3f));
+                deltaIfValid(m, 0x80 | ((codePoint >> 6) & 0x3f));
+                deltaIfValid(m, 0x80 | (codePoint & 0x3f));
+            }
+        }
+
+        private void deltaIfValid(Maps m, int symbol) {
+            if (state > 0) delta(m, (byte)symbol);
+        }
+
         /**
          * Jumps ahead by string if that puts us into a valid state, does nothing otherwise
          *
@@ -144,6 +189,15 @@ public class FSA implements Closeable {
             return fsa.data(state);
         }
 
+        /**
+         * Returns a read-only view of the data of this state, which reads directly from the mapped
+         * automaton instead of copying, or null if this state is not final.
+         * The view must not be used after the automaton is closed.
+         */
+        public ByteBuffer dataView(){
+            return fsa.dataView(state);
+        }
+
         public String dataString(){
             return fsa.dataString(state);
         }
@@ -344,6 +398,11 @@ public class FSA implements Closeable {
             } else {
                 _phash = null;
             }
+            // Header values used on every transition are read once
+            _start = h_start();
+            _data_type = h_data_type();
+            _fixed_data_size = h_fixed_data_size();
+            _has_phash = h_has_phash() == 1;
             _ok = true;
         }
         private int h_magic(){
@@ -381,7 +440,7 @@ public class FSA implements Closeable {
             if(s<0){
                 s+=256;
             }
-            if(_ok && h_has_phash()==1 && s>0 && s<255){
+            if(_ok && _has_phash && s>0 && s<255){
                 if(getSymbol(state+s)==s){
                     return _phash.getInt(4*(state+s));
                 }
@@ -447,10 +506,15 @@ public class FSA implements Closeable {
         private final MappedByteBuffer _state_tab;
         private final MappedByteBuffer _data;
         private final MappedByteBuffer _phash;
+        private final int _start;
+        private final int _data_type;
+        private final int _fixed_data_size;
+        private final boolean _has_phash;
         private final boolean _ok;
     }
     private final boolean _ok;
     private final Charset _charset;
+    private final boolean _utf8;
     private final AtomicReference<Maps> maps = new AtomicReference<>();
 
 
@@ -515,6 +579,7 @@ public class FSA implements Closeable {
     private FSA(FileInputStream file, String charsetname, boolean closeInput) {
         try {
             _charset = Charset.forName(charsetname);
+            _utf8 = _charset.equals(StandardCharsets.UTF_8);
             maps.set(new Maps(file));
             _ok=true;
         }
@@ -557,7 +622,7 @@ public class FSA implements Closeable {
     }
 
     public boolean hasPerfectHash(){
-        return _ok && map().h_has_phash()==1;
+        return _ok && map()._has_phash;
     }
 
     public int version(){
@@ -576,7 +641,7 @@ public class FSA implements Closeable {
 
     protected int start(){
         if(_ok){
-            return map().h_start();
+            return map()._start;
         }
 
         return 0;
@@ -600,24 +665,33 @@ public class FSA implements Closeable {
      * @return A new buffer containing the data for the given state.
      **/
     protected ByteBuffer data(int state) {
+        ByteBuffer view = dataView(state);
+        if (view == null) return null;
+
+        ByteBuffer meta = ByteBuffer.allocate(view.remaining());
+        meta.order(ByteOrder.LITTLE_ENDIAN);
+        view.get(meta.array());
+        return meta;
+    }
+
+    /**
+     * Retrieves data for the given state without copying it from the underlying fsa data buffer.
+     * @param state The fsa state to retrieve data from.
+     * @return A read-only little-endian view of the data for the given state, or null if the state is not final.
+     **/
+    protected ByteBuffer dataView(int state) {
         Maps m = maps.get();
         if(_ok && m.isFinal(state)){
             int offset = m._state_tab.getInt(4*(state+255));
             int length;
-            if(m.h_data_type()==1){
-                length = m.h_fixed_data_size();
+            if(m._data_type==1){
+                length = m._fixed_data_size;
             }
             else{
                 length = m._data.getInt(offset);
                 offset += 4;
             }
-            ByteBuffer meta = ByteBuffer.allocate(length);
-            meta.order(ByteOrder.LITTLE_ENDIAN);
-            byte[] dst = meta.array();
-            for (int i = 0; i < length; ++i) {
-                dst[i] = m._data.get(i + offset);
-            }
-            return meta;
+            return m._data.slice(offset, length).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
         }
         return null;
     }
@@ -628,7 +702,7 @@ public class FSA implements Closeable {
      * @return A string representation of the data for the given state.
      **/
     protected String dataString(int state) {
-        ByteBuffer meta = data(state);
+        ByteBuffer meta = dataView(state);
         if(meta!=null){
             // Remove trailing '\0' if it exists. This is usually the
             // case for automata built with text format (makefsa -t)
@@ -653,6 +727,23 @@ public class FSA implements Closeable {
         return s.dataString();
     }
 
+    /**
+     * Looks up each of the given strings, reusing a single state for all of them.
+     * This is equivalent to, but cheaper than, calling {@link #lookup(String)} for each string.
+     * @param strings The strings to look up.
+     * @return The metadata string of each input string, in the same order, or null for strings which do not exist in the fsa.
+     */
+    public List<String> lookupAll(List<String> strings) {
+        State s = getState();
+        List<String> result = new ArrayList<>(strings.size());
+        for (String str : strings) {
+            s.start();
+            s.delta(str);
+            result.add(s.dataString());
+        }
+        return result;
+    }
+
 
     //// test ////
     public static void main(String[] args) {
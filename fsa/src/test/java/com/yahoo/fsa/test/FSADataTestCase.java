@@ -7,11 +7,15 @@ import org.junit.Test;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.nio.BufferUnderflowException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -88,6 +92,27 @@ public class FSADataTestCase {
         assertEquals("dddddd data", state.dataString());
     }
 
+    @Test
+    public void testDataView() {
+        FSA.State state = fsa.getState();
+        state.delta("bbbb");
+        ByteBuffer view = state.dataView();
+        assertTrue(view.isReadOnly());
+        assertEquals(state.data(), view);
+        assertEquals("bbbb data\0", StandardCharsets.UTF_8.decode(view).toString());
+
+        state.start();
+        state.delta("b");
+        assertNull(state.dataView());
+        assertNull(state.data());
+    }
+
+    @Test
+    public void testLookupAll() {
+        assertEquals(Arrays.asList("aa data", null, "c data", "dddddd data", null),
+                     fsa.lookupAll(List.of("aa", "b", "c", "dddddd", "")));
+    }
+
     @Test
     public void testMultipleThreads() {
         long numRuns = 10000;
@@ -5,7 +5,9 @@ import com.yahoo.fsa.FSA;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
+import java.util.List;
 import java.nio.charset.Charset;
 
 import static org.junit.Assert.assertEquals;
@@ -63,6 +65,23 @@ public class UTF8TestCase {
         assertTrue(state.isFinal());
     }
 
+    @Test
+    public void testStringDeltaEncodesLikeCharset() {
+        List<String> strings = List.of(word, prefix, suffix, word + "x", "x" + word, prefix + "\u00e9",
+                                       "\ud83d\ude00", prefix + "\ud83d", "\ude00" + word, "");
+        for (String string : strings) {
+            FSA.State byString = fsa.getState();
+            byString.delta(string);
+            FSA.State byBytes = fsa.getState();
+            ByteBuffer bytes = charset.encode(string);
+            while (byBytes.isValid() && bytes.hasRemaining())
+                byBytes.delta(bytes.get());
+            assertEquals(string, byBytes.isValid(), byString.isValid());
+            assertEquals(string, byBytes.isFinal(), byString.isFinal());
+            assertEquals(string, byBytes.hash(), byString.hash());
+        }
+    }
+
     @Test
     public void testByteDelta() {
         FSA.State state = fsa.getState();
@@ -47,6 +47,7 @@ public final class ScriptParser {
         parser.setDefaultFieldName(context.getDefaultFieldName());
         parser.setLinguistics(context.getLinguistcs());
         parser.setEmbedders(context.getEmbedders());
+        parser.setTermAnalysisCache(context.getTermAnalysisCache());
         try {
             return method.call(parser);
         } catch (ParseException e) {
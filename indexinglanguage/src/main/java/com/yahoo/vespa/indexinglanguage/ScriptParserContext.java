@@ -4,6 +4,7 @@ package com.yahoo.vespa.indexinglanguage;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.vespa.indexinglanguage.linguistics.AnnotatorConfig;
+import com.yahoo.vespa.indexinglanguage.linguistics.TermAnalysisCache;
 import com.yahoo.vespa.indexinglanguage.parser.CharStream;
 
 import java.util.Collections;
@@ -17,6 +18,7 @@ public class ScriptParserContext {
     private AnnotatorConfig annotatorConfig = new AnnotatorConfig();
     private Linguistics linguistics;
     private final Map<String, Embedder> embedders;
+    private TermAnalysisCache termAnalysisCache = new TermAnalysisCache();
     private String defaultFieldName = null;
     private CharStream inputStream = null;
 
@@ -40,6 +42,17 @@ public class ScriptParserContext {
 
     public ScriptParserContext setLinguistics(Linguistics linguistics) {
         this.linguistics = linguistics;
+        this.termAnalysisCache = new TermAnalysisCache(); // cached terms are specific to a linguistics
+        return this;
+    }
+
+    /** Returns the cache of analyzed terms shared by the tokenize expressions parsed with this context */
+    public TermAnalysisCache getTermAnalysisCache() {
+        return termAnalysisCache;
+    }
+
+    public ScriptParserContext setTermAnalysisCache(TermAnalysisCache termAnalysisCache) {
+        this.termAnalysisCache = termAnalysisCache;
         return this;
     }
 
@@ -11,6 +11,7 @@ import com.yahoo.language.detect.Detection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 
 /**
  * @author Simon Thoresen Hult
@@ -21,15 +22,34 @@ public class ExecutionContext {
     private final FieldValueAdapter fieldValue;
     private FieldValue currentValue;
     private Language language;
-    private final Map<Object, Object> cache = LazyMap.newHashMap();
+    private final Map<Object, Object> cache;
+    private Executor executor = null;
 
     public ExecutionContext() {
         this(null);
     }
 
     public ExecutionContext(FieldValueAdapter fieldValue) {
+        this(fieldValue, LazyMap.newHashMap());
+    }
+
+    private ExecutionContext(FieldValueAdapter fieldValue, Map<Object, Object> cache) {
         this.fieldValue = fieldValue;
         this.language = Language.UNKNOWN;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns a new context for executing a part of a script concurrently with other parts,
+     * having the variables, language and current value of this, but accessing fields through the given adapter
+     * and using the given cache. The returned context has no executor.
+     */
+    ExecutionContext fork(FieldValueAdapter fieldValue, Map<Object, Object> cache) {
+        ExecutionContext fork = new ExecutionContext(fieldValue, cache);
+        fork.variables.putAll(variables);
+        fork.currentValue = currentValue;
+        fork.language = language;
+        return fork;
     }
 
     public ExecutionContext execute(Expression expression) {
@@ -91,6 +111,14 @@ public class ExecutionContext {
         return cache;
     }
 
+    /** Returns the executor which may be used to execute independent statements concurrently, or null to execute sequentially */
+    public Executor getExecutor() { return executor; }
+
+    public ExecutionContext setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
     void fillVariableTypes(VerificationContext vctx) {
         for (var entry : variables.entrySet()) {
             vctx.setVariable(entry.getKey(), entry.getValue().getDataType());
@@ -1,28 +1,43 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.indexinglanguage.expressions;
 
+import com.yahoo.collections.Pair;
 import com.yahoo.document.DataType;
+import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.language.simple.SimpleLinguistics;
+import com.yahoo.vespa.indexinglanguage.DocumentAdapter;
 import com.yahoo.vespa.indexinglanguage.ExpressionConverter;
+import com.yahoo.vespa.indexinglanguage.ExpressionVisitor;
 import com.yahoo.vespa.indexinglanguage.ScriptParser;
 import com.yahoo.vespa.indexinglanguage.ScriptParserContext;
 import com.yahoo.vespa.indexinglanguage.parser.IndexingInput;
 import com.yahoo.vespa.indexinglanguage.parser.ParseException;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Simon Thoresen Hult
  */
 public final class ScriptExpression extends ExpressionList<StatementExpression> {
 
+    /** The independent groups of statements of this, or null if not resolved yet */
+    private List<StatementGroup> statementGroups = null;
+
     public ScriptExpression() {
         this(List.of());
     }
@@ -71,14 +86,25 @@ public final class ScriptExpression extends ExpressionList<StatementExpression>
     @Override
     protected void doExecute(ExecutionContext context) {
         FieldValue input = context.getCurrentValue();
-        for (StatementExpression statement : this) {
-            if (context.isComplete() ||
-                (statement.getInputFields().isEmpty() || containsAtLeastOneInputFrom(statement.getInputFields(), context))) {
+        if (context.getExecutor() != null && context.getFieldValue() instanceof DocumentAdapter && hasIndependentStatements())
+            executeConcurrently(input, context);
+        else
+            executeInOrder(this, input, context);
+        context.setCurrentValue(input);
+    }
+
+    private void executeInOrder(Iterable<StatementExpression> statements, FieldValue input, ExecutionContext context) {
+        for (StatementExpression statement : statements) {
+            if (shouldExecute(statement, context)) {
                 context.setCurrentValue(input);
                 context.execute(statement);
             }
         }
-        context.setCurrentValue(input);
+    }
+
+    private boolean shouldExecute(StatementExpression statement, ExecutionContext context) {
+        return context.isComplete() ||
+               (statement.getInputFields().isEmpty() || containsAtLeastOneInputFrom(statement.getInputFields(), context));
     }
 
     private boolean containsAtLeastOneInputFrom(List<String> inputFields, ExecutionContext context) {
@@ -88,6 +114,119 @@ public final class ScriptExpression extends ExpressionList<StatementExpression>
         return false;
     }
 
+    /**
+     * Executes the concurrent groups of statements of this using the executor of the given context,
+     * and the calling thread. Outputs are buffered and applied in statement order once all of these
+     * are executed, and the remaining groups are then executed in order by the calling thread,
+     * such that the result is the same as when executing sequentially.
+     */
+    private void executeConcurrently(FieldValue input, ExecutionContext context) {
+        Map<Object, Object> cache = new ConcurrentHashMap<>(context.getCache());
+        List<StatementExecution> executions = new ArrayList<>(size());
+        List<StatementGroup> sequentialGroups = new ArrayList<>();
+        for (StatementGroup group : statementGroups()) {
+            if ( ! group.concurrent()) {
+                sequentialGroups.add(group);
+                continue;
+            }
+            StatementExpression statement = group.statements().get(0);
+            if ( ! shouldExecute(statement, context)) continue;
+            BufferedFieldValueAdapter adapter = new BufferedFieldValueAdapter(context.getFieldValue());
+            executions.add(new StatementExecution(statement, adapter,
+                                                  context.fork(adapter, cache).setCurrentValue(copyOf(input))));
+        }
+
+        for (int i = 1; i < executions.size(); i++) {
+            try {
+                context.getExecutor().execute(executions.get(i));
+            }
+            catch (RejectedExecutionException e) {
+                // Executed by this thread below
+            }
+        }
+        for (StatementExecution execution : executions)
+            execution.run(); // Those not already claimed by the executor
+        for (StatementExecution execution : executions)
+            execution.awaitAndApplyTo(context.getFieldValue());
+        context.getCache().putAll(cache);
+
+        for (StatementGroup group : sequentialGroups)
+            executeInOrder(group.statements(), input, context);
+    }
+
+    /** Returns whether some statements of this will be executed concurrently when the context has an executor */
+    boolean hasIndependentStatements() {
+        return statementGroups().stream().filter(StatementGroup::concurrent).count() > 1;
+    }
+
+    /** Returns the groups of statements of this which can be executed in any order relative to each other */
+    List<StatementGroup> statementGroups() {
+        if (statementGroups == null)
+            statementGroups = resolveStatementGroups();
+        return statementGroups;
+    }
+
+    /**
+     * Splits the statements of this into groups such that statements in different groups don't depend on each other:
+     * No field is written by one and read or written by the other, except that a statement which only reads the text
+     * of a field is independent of one which only adds annotations to it, as in
+     * "input title | tokenize | index title; input title | embed | attribute title_embedding".
+     * Statements setting or reading variables depend on those setting them, and statements following
+     * one which sets the language depend on it.
+     */
+    private List<StatementGroup> resolveStatementGroups() {
+        List<StatementExpression> statements = asList();
+        List<StatementAccess> accesses = statements.stream().map(StatementAccess::of).toList();
+        int[] groupOf = new int[statements.size()];
+        for (int i = 0; i < groupOf.length; i++)
+            groupOf[i] = i;
+        for (int i = 0; i < groupOf.length; i++) {
+            for (int j = i + 1; j < groupOf.length; j++) {
+                if (accesses.get(i).isDependentWith(accesses.get(j)))
+                    join(i, j, groupOf);
+            }
+        }
+
+        Map<Integer, List<Integer>> members = new LinkedHashMap<>();
+        for (int i = 0; i < groupOf.length; i++)
+            members.computeIfAbsent(root(i, groupOf), key -> new ArrayList<>()).add(i);
+        List<StatementGroup> groups = new ArrayList<>(members.size());
+        for (List<Integer> group : members.values()) {
+            boolean concurrent = group.size() == 1 && accesses.get(group.get(0)).canExecuteBuffered();
+            groups.add(new StatementGroup(group.stream().map(statements::get).toList(), concurrent));
+        }
+        return List.copyOf(groups);
+    }
+
+    private static void join(int a, int b, int[] groupOf) {
+        int rootA = root(a, groupOf);
+        int rootB = root(b, groupOf);
+        if (rootA < rootB)
+            groupOf[rootB] = rootA;
+        else
+            groupOf[rootA] = rootB;
+    }
+
+    private static int root(int i, int[] groupOf) {
+        while (groupOf[i] != i)
+            i = groupOf[i];
+        return i;
+    }
+
+    private static String topLevelField(String fieldName) {
+        if (fieldName == null) return null;
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (c == '.' || c == '{' || c == '[')
+                return fieldName.substring(0, i);
+        }
+        return fieldName;
+    }
+
+    private static FieldValue copyOf(FieldValue value) {
+        return value != null ? value.clone() : null;
+    }
+
     private static DataType resolveInputType(Collection<? extends StatementExpression> list) {
         DataType prev = null;
         for (Expression exp : list) {
@@ -141,4 +280,221 @@ public final class ScriptExpression extends ExpressionList<StatementExpression>
         return ScriptParser.parseScript(config);
     }
 
+    /**
+     * A group of statements which must be executed in order, and whether it is a single statement
+     * which can be executed concurrently with other groups, with its outputs buffered.
+     */
+    record StatementGroup(List<StatementExpression> statements, boolean concurrent) {}
+
+    /** The top-level fields, variables and context state accessed by a statement */
+    private record StatementAccess(Set<String> reads, Set<String> writes, Set<String> annotates,
+                                   boolean readsOnlyText, boolean unresolvedOutput,
+                                   boolean setsVariables, boolean readsVariables, boolean setsLanguage) {
+
+        /** Returns whether this statement and the given statement, which follows it, must be executed in order */
+        boolean isDependentWith(StatementAccess next) {
+            if (unresolvedOutput || next.unresolvedOutput || setsLanguage) return true;
+            if (setsVariables && (next.setsVariables || next.readsVariables)) return true;
+            if (next.setsVariables && readsVariables) return true;
+            if (intersects(writes, next.reads) || intersects(next.writes, reads)) return true;
+            if (intersects(writes, next.writes) || intersects(writes, next.annotates)) return true;
+            if (intersects(annotates, next.writes) || intersects(annotates, next.annotates)) return true;
+            if ( ! next.readsOnlyText && intersects(annotates, next.reads)) return true;
+            if ( ! readsOnlyText && intersects(next.annotates, reads)) return true;
+            return false;
+        }
+
+        /**
+         * Returns whether this can be executed with its outputs buffered until it completes, which is not the case
+         * if it changes the variables or language of the context, or may read a field after writing it.
+         */
+        boolean canExecuteBuffered() {
+            return ! setsVariables && ! setsLanguage && ! intersects(reads, writes);
+        }
+
+        private static boolean intersects(Set<String> a, Set<String> b) {
+            for (String element : a)
+                if (b.contains(element)) return true;
+            return false;
+        }
+
+        static StatementAccess of(StatementExpression statement) {
+            List<Expression> expressions = new ArrayList<>();
+            new ExpressionVisitor() {
+                @Override
+                protected void doVisit(Expression expression) { expressions.add(expression); }
+            }.visit(statement);
+
+            Set<String> reads = new HashSet<>();
+            for (String inputField : statement.getInputFields())
+                reads.add(topLevelField(inputField));
+            for (Expression expression : expressions) {
+                if (expression instanceof SelectInputExpression selectInput)
+                    for (Pair<String, Expression> selectCase : selectInput.getCases())
+                        reads.add(topLevelField(selectCase.getFirst()));
+            }
+
+            Set<String> writes = new HashSet<>();
+            Set<String> annotates = new HashSet<>();
+            String annotatedField = annotatedField(statement, expressions);
+            boolean unresolvedOutput = false;
+            for (Expression expression : expressions) {
+                if ( ! (expression instanceof OutputExpression output)) continue;
+                String field = topLevelField(output.getFieldName());
+                if (field == null)
+                    unresolvedOutput = true;
+                else if (field.equals(annotatedField))
+                    annotates.add(field);
+                else
+                    writes.add(field);
+            }
+            return new StatementAccess(reads, writes, annotates,
+                                       readsOnlyText(statement, expressions),
+                                       unresolvedOutput,
+                                       expressions.stream().anyMatch(SetVarExpression.class::isInstance),
+                                       expressions.stream().anyMatch(e -> e instanceof GetVarExpression ||
+                                                                          e instanceof OptimizePredicateExpression),
+                                       expressions.stream().anyMatch(SetLanguageExpression.class::isInstance));
+        }
+
+        /**
+         * Returns the single field read by the given statement if it only writes it back with annotations added,
+         * as in "input title | tokenize | summary title | index title", or null otherwise.
+         */
+        private static String annotatedField(StatementExpression statement, List<Expression> expressions) {
+            if (statement.getInputFields().size() != 1) return null;
+            for (Expression expression : expressions) {
+                if ( ! (expression instanceof StatementExpression || expression instanceof ScriptExpression ||
+                        expression instanceof GuardExpression || expression instanceof ClearStateExpression ||
+                        expression instanceof InputExpression || expression instanceof OutputExpression ||
+                        expression instanceof TokenizeExpression || expression instanceof ExactExpression ||
+                        expression instanceof NGramExpression))
+                    return null;
+            }
+            return topLevelField(statement.getInputFields().get(0));
+        }
+
+        /**
+         * Returns whether the given statement only uses the text of the fields it reads, and not any annotations,
+         * which is the case when each input is directly consumed by an expression which only reads its text,
+         * as in "input title | embed | attribute title_embedding".
+         */
+        private static boolean readsOnlyText(StatementExpression statement, List<Expression> expressions) {
+            int consumedInputs = 0;
+            for (Expression expression : expressions) {
+                if (expression instanceof SelectInputExpression) return false;
+                if ( ! (expression instanceof StatementExpression nested)) continue;
+                List<Expression> steps = nested.asList();
+                for (int i = 0; i < steps.size(); i++) {
+                    if ( ! (steps.get(i) instanceof InputExpression)) continue;
+                    if (i + 1 == steps.size()) return false;
+                    if ( ! (steps.get(i + 1) instanceof EmbedExpression || steps.get(i + 1) instanceof HashExpression))
+                        return false;
+                    consumedInputs++;
+                }
+            }
+            return consumedInputs == statement.getInputFields().size();
+        }
+
+    }
+
+    /** The execution of a single statement, which is done once, by the first thread to run it */
+    private static class StatementExecution implements Runnable {
+
+        private final StatementExpression statement;
+        private final BufferedFieldValueAdapter adapter;
+        private final ExecutionContext context;
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Throwable failure = null;
+
+        StatementExecution(StatementExpression statement, BufferedFieldValueAdapter adapter, ExecutionContext context) {
+            this.statement = statement;
+            this.adapter = adapter;
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            if ( ! claimed.compareAndSet(false, true)) return;
+            try {
+                context.execute(statement);
+            }
+            catch (Throwable e) {
+                failure = e;
+            }
+            finally {
+                done.countDown();
+            }
+        }
+
+        /** Waits for this to complete and applies its outputs, or rethrows the exception it failed with */
+        void awaitAndApplyTo(FieldValueAdapter target) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+
+            if (failure instanceof RuntimeException e) throw e;
+            if (failure instanceof Error e) throw e;
+            if (failure != null) throw new IllegalStateException("Failed executing '" + statement + "'", failure);
+            adapter.applyTo(target);
+        }
+
+    }
+
+    /** An adapter which reads from another adapter, and buffers outputs until they are applied to it */
+    private static class BufferedFieldValueAdapter implements FieldValueAdapter {
+
+        private final FieldValueAdapter adapter;
+        private final List<Output> outputs = new ArrayList<>(1);
+
+        BufferedFieldValueAdapter(FieldValueAdapter adapter) {
+            this.adapter = adapter;
+        }
+
+        // Values are copied as statements reading the same field may modify them concurrently, e.g. by annotating
+
+        @Override
+        public FieldValue getInputValue(String fieldName) { return copyOf(adapter.getInputValue(fieldName)); }
+
+        @Override
+        public FieldValue getInputValue(FieldPath fieldPath) { return copyOf(adapter.getInputValue(fieldPath)); }
+
+        @Override
+        public DataType getInputType(Expression expression, String fieldName) {
+            return adapter.getInputType(expression, fieldName);
+        }
+
+        @Override
+        public void tryOutputType(Expression expression, String fieldName, DataType valueType) {
+            adapter.tryOutputType(expression, fieldName, valueType);
+        }
+
+        @Override
+        public FieldValueAdapter setOutputValue(Expression expression, String fieldName, FieldValue fieldValue) {
+            outputs.add(new Output(expression, fieldName, fieldValue));
+            return this;
+        }
+
+        @Override
+        public boolean isComplete() { return adapter.isComplete(); }
+
+        void applyTo(FieldValueAdapter target) {
+            for (Output output : outputs)
+                target.setOutputValue(output.expression(), output.fieldName(), output.value());
+        }
+
+        private record Output(Expression expression, String fieldName, FieldValue value) {}
+
+    }
+
 }
@@ -8,6 +8,7 @@ import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.StemMode;
 import com.yahoo.vespa.indexinglanguage.linguistics.AnnotatorConfig;
 import com.yahoo.vespa.indexinglanguage.linguistics.LinguisticsAnnotator;
+import com.yahoo.vespa.indexinglanguage.linguistics.TermAnalysisCache;
 
 /**
  * @author Simon Thoresen Hult
@@ -16,17 +17,26 @@ public final class TokenizeExpression extends Expression {
 
     private final Linguistics linguistics;
     private final AnnotatorConfig config;
+    private final TermAnalysisCache termAnalysisCache;
 
     public TokenizeExpression(Linguistics linguistics, AnnotatorConfig config) {
+        this(linguistics, config, new TermAnalysisCache());
+    }
+
+    /** Creates a tokenize expression which caches analyzed terms in the given cache, shared with the same linguistics */
+    public TokenizeExpression(Linguistics linguistics, AnnotatorConfig config, TermAnalysisCache termAnalysisCache) {
         super(DataType.STRING);
         this.linguistics = linguistics;
         this.config = config;
+        this.termAnalysisCache = termAnalysisCache;
     }
 
     public Linguistics getLinguistics() { return linguistics; }
 
     public AnnotatorConfig getConfig() { return config; }
 
+    public TermAnalysisCache getTermAnalysisCache() { return termAnalysisCache; }
+
     @Override
     public DataType setInputType(DataType input, VerificationContext context) {
         return super.setInputType(input, DataType.STRING, context);
@@ -53,7 +63,7 @@ public final class TokenizeExpression extends Expression {
         if (lang != null) {
             cfg.setLanguage(lang);
         }
-        LinguisticsAnnotator annotator = new LinguisticsAnnotator(linguistics, cfg);
+        LinguisticsAnnotator annotator = new LinguisticsAnnotator(linguistics, cfg, termAnalysisCache);
         annotator.annotate(output);
     }
 
@@ -11,6 +11,7 @@ import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.StemMode;
 import com.yahoo.language.process.Token;
+import com.yahoo.language.process.TokenBuffer;
 import com.yahoo.language.process.Tokenizer;
 import com.yahoo.text.Text;
 
@@ -26,8 +27,12 @@ import static com.yahoo.language.LinguisticsCase.toLowerCase;
  */
 public class LinguisticsAnnotator {
 
+    /** Token buffers reused across the documents annotated by each thread */
+    private static final ThreadLocal<TokenBuffer> tokenBuffers = ThreadLocal.withInitial(TokenBuffer::new);
+
     private final Linguistics factory;
     private final AnnotatorConfig config;
+    private final TermAnalysisCache termAnalysisCache;
 
     private static class TermOccurrences {
 
@@ -56,8 +61,20 @@ public class LinguisticsAnnotator {
      * @param config  the linguistics config to use
      */
     public LinguisticsAnnotator(Linguistics factory, AnnotatorConfig config) {
+        this(factory, config, new TermAnalysisCache(0));
+    }
+
+    /**
+     * Constructs a new instance of this annotator.
+     *
+     * @param factory the linguistics factory to use when annotating
+     * @param config  the linguistics config to use
+     * @param termAnalysisCache the cache of analyzed terms to use, which must only be used with this linguistics
+     */
+    public LinguisticsAnnotator(Linguistics factory, AnnotatorConfig config, TermAnalysisCache termAnalysisCache) {
         this.factory = factory;
         this.config = config;
+        this.termAnalysisCache = termAnalysisCache;
     }
 
     /**
@@ -73,13 +90,22 @@ public class LinguisticsAnnotator {
         String input = (text.getString().length() <= config.getMaxTokenizeLength())
                 ? text.getString()
                 : Text.substringByCodepoints(text.getString(), 0, config.getMaxTokenizeLength());
-        Iterable<Token> tokens = tokenizer.tokenize(input, config.getLanguage(), config.getStemMode(),
-                                                    config.getRemoveAccents());
+        TokenBuffer tokens = tokenBuffers.get();
         TermOccurrences termOccurrences = new TermOccurrences(config.getMaxTermOccurrences());
         SpanTree tree = new SpanTree(SpanTrees.LINGUISTICS);
-        for (Token token : tokens)
-            addAnnotationSpan(text.getString(), tree.spanList(), token, config.getStemMode(), termOccurrences,
-                    config.getMaxTokenLength());
+        try {
+            tokenizer.tokenize(input, config.getLanguage(), config.getStemMode(), config.getRemoveAccents(), tokens);
+            for (int i = 0; i < tokens.size(); i++) {
+                if (tokens.numComponents(i) > 0 || tokens.isSpecialToken(i))
+                    addAnnotationSpan(text.getString(), tree.spanList(), tokens.token(i), config.getStemMode(),
+                                      termOccurrences, config.getMaxTokenLength());
+                else
+                    addAnnotationSpan(text.getString(), tree.spanList(), tokens, i, termOccurrences);
+            }
+        }
+        finally {
+            tokens.clear();
+        }
 
         if (tree.numAnnotations() == 0) return false;
         text.setSpanTree(tree);
@@ -132,14 +158,8 @@ public class LinguisticsAnnotator {
         }
         if (mode == StemMode.ALL) {
             Span where = parent.span((int)token.getOffset(), token.getOrig().length());
-
-            String lowercasedOrig = toLowerCase(token.getOrig());
             String term = token.getTokenString();
-            if (term != null) {
-                addAnnotation(where, term, token.getOrig(), termOccurrences, maxTokenLength);
-                if ( ! term.equals(lowercasedOrig))
-                    addAnnotation(where, lowercasedOrig, token.getOrig(), termOccurrences, maxTokenLength);
-            }
+            String lowercasedOrig = addTermAnnotations(where, term, token.getOrig(), termOccurrences, maxTokenLength);
             for (int i = 0; i < token.getNumStems(); i++) {
                 String stem = token.getStem(i);
                 if (! (stem.equals(lowercasedOrig) || stem.equals(term)))
@@ -157,4 +177,66 @@ public class LinguisticsAnnotator {
         }
     }
 
+    /**
+     * Adds the annotation span of a token without components in the given token buffer.
+     * This is equivalent to adding the span of the corresponding token instance, but only creates
+     * the strings needed.
+     */
+    private void addAnnotationSpan(String input, SpanList parent, TokenBuffer tokens, int i,
+                                   TermOccurrences termOccurrences) {
+        StemMode mode = config.getStemMode();
+        int maxTokenLength = config.getMaxTokenLength();
+        if ( ! tokens.isIndexable(i)) return;
+        if (tokens.offset(i) >= input.length()) {
+            throw new IllegalArgumentException(tokens.token(i) + " has offset " + tokens.offset(i) + ", which is outside the " +
+                                               "bounds of the input string '" + input + "'");
+        }
+        if (tokens.offset(i) + tokens.length(i) > input.length()) {
+            throw new IllegalArgumentException(tokens.token(i) + " has offset " + tokens.offset(i) + ", which makes it overflow " +
+                                               "the bounds of the input string; " + input);
+        }
+        if (mode == StemMode.ALL) {
+            Span where = parent.span(tokens.offset(i), tokens.length(i));
+            String orig = tokens.orig(i);
+            String term = tokenString(tokens, i, orig);
+            String lowercasedOrig = addTermAnnotations(where, term, orig, termOccurrences, maxTokenLength);
+            for (int stemIndex = 1; stemIndex < tokens.numStems(i); stemIndex++) { // the first stem is the term
+                String stem = tokens.stem(i, stemIndex);
+                if (! (stem.equals(lowercasedOrig) || stem.equals(term)))
+                    addAnnotation(where, stem, orig, termOccurrences, maxTokenLength);
+            }
+        } else {
+            String term = tokenString(tokens, i, null);
+            if (term == null || term.trim().isEmpty()) return;
+            if (term.length() > maxTokenLength) {
+                return;
+            }
+            if (termOccurrences.termCountBelowLimit(term))  {
+                parent.span(tokens.offset(i), tokens.length(i))
+                      .annotate(tokens.origEquals(i, term) ? new Annotation(AnnotationTypes.TERM)
+                                                           : new Annotation(AnnotationTypes.TERM, new StringFieldValue(term)));
+            }
+        }
+    }
+
+    /** Returns the token string of the given token, using the term analysis cache if possible */
+    private String tokenString(TokenBuffer tokens, int i, String orig) {
+        if (tokens.hasTokenInstance(i) || termAnalysisCache.maxSize() == 0) return tokens.tokenString(i);
+        return termAnalysisCache.analyze(orig != null ? orig : tokens.orig(i),
+                                         config.getLanguage(), config.getStemMode(), config.getRemoveAccents(),
+                                         token -> tokens.tokenString(i));
+    }
+
+    /** Annotates the given term and lowercased original of a token, and returns the lowercased original */
+    private static String addTermAnnotations(Span where, String term, String orig, TermOccurrences termOccurrences,
+                                             int maxTokenLength) {
+        String lowercasedOrig = toLowerCase(orig);
+        if (term != null) {
+            addAnnotation(where, term, orig, termOccurrences, maxTokenLength);
+            if ( ! term.equals(lowercasedOrig))
+                addAnnotation(where, lowercasedOrig, orig, termOccurrences, maxTokenLength);
+        }
+        return lowercasedOrig;
+    }
+
 }
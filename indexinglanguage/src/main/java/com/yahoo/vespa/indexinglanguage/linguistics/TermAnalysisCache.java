@@ -0,0 +1,93 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage.linguistics;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.process.StemMode;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of the result of analyzing (normalizing, lowercasing, removing accents and stemming)
+ * a token, shared by the threads and documents tokenized by the same linguistics.
+ * Since the frequency of words in text is very skewed, most analysis work is redundant.
+ *
+ * The cache is bounded by clearing it when it reaches its max size. This is cheap and avoids
+ * synchronization, and frequent terms will quickly be cached again.
+ *
+ * This is multithread safe.
+ *
+ * @author michaelcizmar
+ */
+public final class TermAnalysisCache {
+
+    public static final int DEFAULT_MAX_SIZE = 100_000;
+
+    private final int maxSize;
+    private final Map<Key, String> cache = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TermAnalysisCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /** Creates a cache holding at most the given number of terms, or which does not cache if this is 0 */
+    public TermAnalysisCache(int maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("Max size must be non-negative, but was " + maxSize);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the analyzed form of the given token, which is looked up in this if present,
+     * and produced by the given analyzer and added to this otherwise.
+     * The analyzer must produce the same result for the same token, language, stem mode and accent removal flag.
+     */
+    public String analyze(String token, Language language, StemMode stemMode, boolean removeAccents,
+                          Function<String, String> analyzer) {
+        if (maxSize == 0) return analyzer.apply(token);
+
+        Key key = new Key(token, language, stemMode, removeAccents);
+        String analyzed = cache.get(key);
+        if (analyzed != null) {
+            hits.increment();
+            return analyzed;
+        }
+        misses.increment();
+        analyzed = analyzer.apply(token);
+        if (analyzed == null) return null;
+        if (cache.size() >= maxSize)
+            cache.clear();
+        cache.put(key, analyzed);
+        return analyzed;
+    }
+
+    /** Returns the number of terms currently in this */
+    public int size() { return cache.size(); }
+
+    /** Returns the max number of terms held in this */
+    public int maxSize() { return maxSize; }
+
+    /** Returns the number of lookups finding the term in this */
+    public long hits() { return hits.sum(); }
+
+    /** Returns the number of lookups not finding the term in this */
+    public long misses() { return misses.sum(); }
+
+    /** Returns the fraction of lookups finding the term in this, or 0 if there has been no lookups */
+    public double hitRate() {
+        long hits = hits();
+        long lookups = hits + misses();
+        return lookups == 0 ? 0 : (double)hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "term analysis cache with " + size() + " terms and hit rate " + hitRate();
+    }
+
+    private record Key(String token, Language language, StemMode stemMode, boolean removeAccents) {}
+
+}
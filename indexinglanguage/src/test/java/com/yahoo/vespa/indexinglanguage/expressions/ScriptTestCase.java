@@ -3,18 +3,35 @@ package com.yahoo.vespa.indexinglanguage.expressions;
 
 import com.yahoo.document.ArrayDataType;
 import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
 import com.yahoo.document.Field;
 import com.yahoo.document.StructDataType;
+import com.yahoo.document.TensorDataType;
+import com.yahoo.document.annotation.SpanTrees;
 import com.yahoo.document.datatypes.Array;
 import com.yahoo.document.datatypes.IntegerFieldValue;
 import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.datatypes.Struct;
+import com.yahoo.document.datatypes.TensorFieldValue;
+import com.yahoo.language.process.Embedder;
 import com.yahoo.language.simple.SimpleLinguistics;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.vespa.indexinglanguage.DocumentAdapter;
+import com.yahoo.vespa.indexinglanguage.EmbeddingScriptTester;
+import com.yahoo.vespa.indexinglanguage.SimpleAdapterFactory;
 import com.yahoo.vespa.indexinglanguage.SimpleTestAdapter;
+import com.yahoo.vespa.indexinglanguage.parser.ParseException;
 import org.junit.Test;
 
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static com.yahoo.vespa.indexinglanguage.expressions.ExpressionAssert.assertVerify;
 import static com.yahoo.vespa.indexinglanguage.expressions.ExpressionAssert.assertVerifyThrows;
@@ -148,6 +165,102 @@ public class ScriptTestCase {
         assertEquals(new IntegerFieldValue(9), adapter.getInputValue("out"));
     }
 
+    @Test
+    public void requireThatIndependentStatementsAreExecutedConcurrently() throws ParseException {
+        assertTrue(ScriptExpression.fromString("{ input 'in-1' | lowercase | attribute 'out-1'; input 'in-2' | attribute 'out-2'; }")
+                                   .hasIndependentStatements());
+        assertFalse("A single statement",
+                    ScriptExpression.fromString("{ input 'in-1' | attribute 'out-1'; }").hasIndependentStatements());
+        assertFalse("The second statement reads the output of the first",
+                    ScriptExpression.fromString("{ input 'in-1' | attribute 'out-1'; input 'out-1' | attribute 'out-2'; }")
+                                    .hasIndependentStatements());
+        assertFalse("The statements write the same field",
+                    ScriptExpression.fromString("{ input 'in-1' | attribute 'out-1'; input 'in-2' | index 'out-1'; }")
+                                    .hasIndependentStatements());
+        assertFalse("The statements exchange a variable",
+                    ScriptExpression.fromString("{ input 'in-1' | set_var tmp; get_var tmp | attribute 'out-2'; }")
+                                    .hasIndependentStatements());
+        assertTrue("The statements read the same field",
+                   ScriptExpression.fromString("{ input 'in-1' | attribute 'out-1'; input 'in-1' | lowercase | attribute 'out-2'; }")
+                                   .hasIndependentStatements());
+        assertTrue("The second statement only reads the text of the field annotated by the first",
+                   ScriptExpression.fromString("{ input 'in-1' | tokenize | index 'in-1'; input 'in-1' | embed | attribute 'out-1'; }")
+                                   .hasIndependentStatements());
+        assertFalse("The second statement reads the annotations added by the first",
+                    ScriptExpression.fromString("{ input 'in-1' | tokenize | index 'in-1'; input 'in-1' | summary 'out-1'; }")
+                                    .hasIndependentStatements());
+
+        ScriptExpression partlyDependent = ScriptExpression.fromString("{ input 'in-1' | attribute 'out-1'; " +
+                                                                       "input 'in-2' | attribute 'out-3'; " +
+                                                                       "input 'out-1' | attribute 'out-2'; " +
+                                                                       "input 'in-2' | lowercase | attribute 'out-4'; }");
+        assertTrue(partlyDependent.hasIndependentStatements());
+        assertEquals(List.of(List.of(partlyDependent.get(0), partlyDependent.get(2)),
+                             List.of(partlyDependent.get(1)),
+                             List.of(partlyDependent.get(3))),
+                     partlyDependent.statementGroups().stream().map(ScriptExpression.StatementGroup::statements).toList());
+        assertEquals(List.of(false, true, true),
+                     partlyDependent.statementGroups().stream().map(ScriptExpression.StatementGroup::concurrent).toList());
+
+        DocumentType type = new DocumentType("mytype");
+        for (String field : List.of("in-1", "in-2", "out-1", "out-2"))
+            type.addField(field, DataType.STRING);
+        Document document = new Document(type, "id:scheme:mytype::");
+        document.setFieldValue("in-1", new StringFieldValue("FOO"));
+        document.setFieldValue("in-2", new StringFieldValue("Bar"));
+
+        // Each statement waits for the other to start, so this only completes if they execute concurrently
+        CountDownLatch started = new CountDownLatch(2);
+        ScriptExpression script = newScript(newStatement(new InputExpression("in-1"), new LowerCaseExpression(),
+                                                         new AwaitingExpression(started), new AttributeExpression("out-1")),
+                                            newStatement(new InputExpression("in-2"),
+                                                         new AwaitingExpression(started), new AttributeExpression("out-2")));
+        assertTrue(script.hasIndependentStatements());
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            DocumentAdapter adapter = new SimpleAdapterFactory().newDocumentAdapter(document);
+            script.execute(new ExecutionContext(adapter).setExecutor(executor));
+            Document output = adapter.getFullOutput();
+            assertEquals(new StringFieldValue("foo"), output.getFieldValue("out-1"));
+            assertEquals(new StringFieldValue("Bar"), output.getFieldValue("out-2"));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void requireThatStatementsAnnotatingAndEmbeddingTheSameFieldAreExecutedConcurrently() throws ParseException {
+        DocumentType type = new DocumentType("mytype");
+        type.addField("title", DataType.STRING);
+        type.addField("embedding", new TensorDataType(TensorType.fromSpec("tensor(x[4])")));
+        Document document = new Document(type, "id:scheme:mytype::");
+        document.setFieldValue("title", new StringFieldValue("Hello"));
+
+        var embedders = Map.<String, Embedder>of("emb", new EmbeddingScriptTester.MockIndexedEmbedder("mytype.embedding"));
+        ScriptExpression script = ScriptExpression.fromString("{ input title | tokenize | index title; " +
+                                                              "input title | embed | attribute embedding; }",
+                                                              new SimpleLinguistics(), embedders);
+        assertTrue(script.hasIndependentStatements());
+        script.get(1).setStatementOutput(type, type.getField("embedding"));
+        script.verify(new Document(document));
+        Document expected = Expression.execute(script, new Document(document));
+
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            DocumentAdapter adapter = new SimpleAdapterFactory().newDocumentAdapter(new Document(document));
+            script.execute(new ExecutionContext(adapter).setExecutor(executor));
+            Document output = adapter.getFullOutput();
+            assertEquals(expected, output);
+            assertNotNull(((StringFieldValue)output.getFieldValue("title")).getSpanTree(SpanTrees.LINGUISTICS));
+            assertEquals(Tensor.from("tensor(x[4]):[72, 101, 108, 108]"),
+                         ((TensorFieldValue)output.getFieldValue("embedding")).getTensor().get());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     //       indexing: input expressions | for_each {
     //        get_field myStructField
@@ -252,6 +365,36 @@ public class ScriptTestCase {
 
     }
 
+    /** Passes its input through once the given latch is counted down, by this and other threads */
+    private static class AwaitingExpression extends Expression {
+
+        private final CountDownLatch latch;
+
+        public AwaitingExpression(CountDownLatch latch) {
+            super(null);
+            this.latch = latch;
+        }
+
+        @Override
+        protected void doExecute(ExecutionContext context) {
+            latch.countDown();
+            try {
+                if ( ! latch.await(60, TimeUnit.SECONDS))
+                    throw new IllegalStateException("Statements were not executed concurrently");
+            }
+            catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        protected void doVerify(VerificationContext context) {}
+
+        @Override
+        public DataType createdOutputType() { return null; }
+
+    }
+
     private static class PutCacheExpression extends Expression {
 
         private final String keyToSet;
@@ -232,6 +232,24 @@ public class LinguisticsAnnotatorTestCase {
         }
     }
 
+    @Test
+    public void requireThatTermAnalysisCacheGivesTheSameAnnotations() {
+        Linguistics linguistics = new SimpleLinguistics();
+        TermAnalysisCache cache = new TermAnalysisCache();
+        for (StemMode stemMode : List.of(StemMode.NONE, StemMode.ALL)) {
+            AnnotatorConfig config = new AnnotatorConfig().setStemMode(stemMode).setRemoveAccents(true);
+            for (String text : List.of("Running cars are running", "cars running", "Running cars are running")) {
+                StringFieldValue uncached = new StringFieldValue(text);
+                StringFieldValue cached = new StringFieldValue(text);
+                assertTrue(new LinguisticsAnnotator(linguistics, config).annotate(uncached));
+                assertTrue(new LinguisticsAnnotator(linguistics, config, cache).annotate(cached));
+                assertEquals(uncached.getSpanTree(SpanTrees.LINGUISTICS), cached.getSpanTree(SpanTrees.LINGUISTICS));
+            }
+        }
+        assertEquals(8, cache.misses()); // 4 distinct (case-sensitive) words in 2 stem modes
+        assertEquals(12, cache.hits());
+    }
+
     // --------------------------------------------------------------------------------
     // Utilities
 
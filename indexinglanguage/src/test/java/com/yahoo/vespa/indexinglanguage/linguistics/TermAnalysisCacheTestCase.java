@@ -0,0 +1,56 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage.linguistics;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.process.StemMode;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author michaelcizmar
+ */
+public class TermAnalysisCacheTestCase {
+
+    @Test
+    public void requireThatAnalyzedTermsAreCachedPerLanguageStemModeAndAccentRemoval() {
+        AtomicInteger analyzed = new AtomicInteger();
+        Function<String, String> analyzer = token -> { analyzed.incrementAndGet(); return token.toLowerCase(); };
+        TermAnalysisCache cache = new TermAnalysisCache();
+        assertEquals(0.0, cache.hitRate(), 0);
+
+        assertEquals("foo", cache.analyze("Foo", Language.ENGLISH, StemMode.NONE, false, analyzer));
+        assertEquals("foo", cache.analyze("Foo", Language.ENGLISH, StemMode.NONE, false, analyzer));
+        assertEquals(1, analyzed.get());
+
+        cache.analyze("Foo", Language.GERMAN, StemMode.NONE, false, analyzer);
+        cache.analyze("Foo", Language.ENGLISH, StemMode.ALL, false, analyzer);
+        cache.analyze("Foo", Language.ENGLISH, StemMode.NONE, true, analyzer);
+        cache.analyze("foo", Language.ENGLISH, StemMode.NONE, false, analyzer);
+        assertEquals(5, analyzed.get());
+        assertEquals(5, cache.size());
+        assertEquals(1, cache.hits());
+        assertEquals(5, cache.misses());
+        assertEquals(1 / 6.0, cache.hitRate(), 0.000001);
+    }
+
+    @Test
+    public void requireThatCacheIsBounded() {
+        TermAnalysisCache cache = new TermAnalysisCache(10);
+        for (int i = 0; i < 25; i++)
+            cache.analyze("term" + i, Language.ENGLISH, StemMode.NONE, false, Function.identity());
+        assertEquals(5, cache.size());
+    }
+
+    @Test
+    public void requireThatEmptyCacheDoesNotCache() {
+        TermAnalysisCache cache = new TermAnalysisCache(0);
+        assertEquals("foo", cache.analyze("foo", Language.ENGLISH, StemMode.NONE, false, Function.identity()));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.hits() + cache.misses());
+    }
+
+}
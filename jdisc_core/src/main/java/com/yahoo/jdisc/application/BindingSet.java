@@ -2,9 +2,13 @@
 package com.yahoo.jdisc.application;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 /**
  * <p>This is an immutable set of ordered bindings from {@link UriPattern}s to some target type T. To create an instance
@@ -17,10 +21,33 @@ public class BindingSet<T> implements Iterable<Map.Entry<UriPattern, T>>  {
 
     public static final String DEFAULT = "default";
 
-    private final Collection<Map.Entry<UriPattern, T>> bindings;
+    private final List<Map.Entry<UriPattern, T>> bindings;
+
+    /**
+     * The indices of the bindings which may match URIs with a given first path segment, in matching order.
+     * This lets matching skip the bindings with a different verbatim first path segment.
+     */
+    private final Map<String, int[]> candidatesByFirstPathSegment = new HashMap<>();
+
+    /** The indices of the bindings which may match URIs with any first path segment, in matching order */
+    private final int[] candidatesForAnyFirstPathSegment;
 
     BindingSet(Collection<Map.Entry<UriPattern, T>> bindings) {
         this.bindings = sorted(bindings);
+
+        Map<String, List<Integer>> indicesByFirstPathSegment = new HashMap<>();
+        List<Integer> anyFirstPathSegment = new ArrayList<>();
+        for (int i = 0; i < this.bindings.size(); i++) {
+            String segment = this.bindings.get(i).getKey().firstPathSegment();
+            if (segment == null)
+                anyFirstPathSegment.add(i);
+            else
+                indicesByFirstPathSegment.computeIfAbsent(segment, __ -> new ArrayList<>()).add(i);
+        }
+        candidatesForAnyFirstPathSegment = anyFirstPathSegment.stream().mapToInt(i -> i).toArray();
+        indicesByFirstPathSegment.forEach((segment, indices) -> candidatesByFirstPathSegment.put(
+                segment, IntStream.concat(indices.stream().mapToInt(i -> i), IntStream.of(candidatesForAnyFirstPathSegment))
+                                  .sorted().toArray()));
     }
 
     /**
@@ -32,7 +59,8 @@ public class BindingSet<T> implements Iterable<Map.Entry<UriPattern, T>>  {
      * @return A {@link BindingMatch} object describing the match found, or null if not found.
      */
     public BindingMatch<T> match(URI uri) {
-        for (Map.Entry<UriPattern, T> entry : bindings) {
+        for (int index : candidatesFor(uri)) {
+            Map.Entry<UriPattern, T> entry = bindings.get(index);
             UriPattern pattern = entry.getKey();
             UriPattern.Match match = pattern.match(uri);
             if (match != null) {
@@ -66,7 +94,13 @@ public class BindingSet<T> implements Iterable<Map.Entry<UriPattern, T>>  {
         return bindings.iterator();
     }
 
-    private static <T> Collection<Map.Entry<UriPattern, T>> sorted(Collection<Map.Entry<UriPattern, T>> unsorted) {
+    private int[] candidatesFor(URI uri) {
+        String segment = UriPattern.firstPathSegment(uri);
+        if (segment == null) return candidatesForAnyFirstPathSegment;
+        return candidatesByFirstPathSegment.getOrDefault(segment, candidatesForAnyFirstPathSegment);
+    }
+
+    private static <T> List<Map.Entry<UriPattern, T>> sorted(Collection<Map.Entry<UriPattern, T>> unsorted) {
         return unsorted.stream().sorted(Map.Entry.comparingByKey()).toList();
     }
 
@@ -88,6 +88,26 @@ public class UriPattern implements Comparable<UriPattern> {
         return new Match(schemeMatch, hostMatch, port > 0 ? 0 : uri.getPort(), pathMatch);
     }
 
+    /**
+     * Returns the first segment of the path of all URIs matched by this, or null if this may match
+     * URIs with different first path segments.
+     */
+    String firstPathSegment() {
+        String prefix = path.parts.length == 0 ? "" : path.parts[0]; // The verbatim path, or the part before the first '*'
+        int slash = prefix.indexOf('/');
+        if (slash >= 0) return prefix.substring(0, slash);
+        return path.parts.length == 1 ? prefix : null;
+    }
+
+    /** Returns the first segment of the path of the given URI, as used when matching, or null if it has no path */
+    static String firstPathSegment(URI uri) {
+        String path = uri.getRawPath();
+        if (path == null) return null;
+        int start = path.isEmpty() ? 0 : 1; // Strip leading '/'.
+        int end = path.indexOf('/', start);
+        return path.substring(start, end < 0 ? path.length() : end);
+    }
+
     @Override
     public int hashCode() {
         return pattern.hashCode();
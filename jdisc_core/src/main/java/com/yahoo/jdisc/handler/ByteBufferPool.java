@@ -0,0 +1,126 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.handler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * <p>This class implements a pool of direct {@link ByteBuffer}s in power-of-two size classes, for content that is
+ * written to a {@link ContentChannel}. A buffer is taken from the pool with {@link #acquire(int)}, filled, and written
+ * together with a CompletionHandler from {@link #releaseOnCompletion(ByteBuffer, CompletionHandler)}, which returns
+ * the buffer to the pool once the ContentChannel has completed writing it. A buffer for which the write fails is not
+ * returned, as the channel may still hold it.</p>
+ *
+ * <p>Requests for more than the largest size class get a heap buffer, which is not pooled. A size class keeps at most
+ * a given number of released buffers, and the rest are left to the garbage collector.</p>
+ *
+ * @author michaelcizmar
+ */
+public final class ByteBufferPool {
+
+    private static final int MIN_BUFFER_SIZE = 4096;
+    private static final ByteBufferPool shared = new ByteBufferPool(1 << 20, 8);
+
+    private final int maxBufferSize;
+    private final List<ArrayBlockingQueue<ByteBuffer>> sizeClasses = new ArrayList<>();
+
+    /**
+     * <p>Creates a new pool.</p>
+     *
+     * @param maxBufferSize           The size of the largest buffers pooled, rounded up to a power of two.
+     * @param maxPooledBuffersPerSize The max number of released buffers kept by each size class.
+     * @throws IllegalArgumentException If either argument is not positive.
+     */
+    public ByteBufferPool(int maxBufferSize, int maxPooledBuffersPerSize) {
+        if (maxBufferSize < 1 || maxBufferSize > 1 << 30)
+            throw new IllegalArgumentException("Max buffer size must be in [1, 2^30], but was " + maxBufferSize);
+        if (maxPooledBuffersPerSize < 1)
+            throw new IllegalArgumentException("Max pooled buffers per size must be positive, but was " + maxPooledBuffersPerSize);
+        this.maxBufferSize = sizeClassSize(sizeClassOf(maxBufferSize));
+        for (int i = 0; i <= sizeClassOf(this.maxBufferSize); i++)
+            sizeClasses.add(new ArrayBlockingQueue<>(maxPooledBuffersPerSize));
+    }
+
+    /** Returns a pool shared by all users, with size classes from 4 KiB to 1 MiB, keeping at most 8 buffers of each. */
+    public static ByteBufferPool shared() { return shared; }
+
+    /** Returns the size of the largest buffers in this pool. */
+    public int maxBufferSize() { return maxBufferSize; }
+
+    /**
+     * <p>Returns an empty buffer with at least the given capacity, with its limit set to its capacity. This is a
+     * direct buffer from the smallest size class that fits, or a new heap buffer if the capacity is larger than
+     * {@link #maxBufferSize()}.</p>
+     *
+     * @param minCapacity The min capacity of the returned buffer.
+     * @return The buffer to fill.
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity > maxBufferSize)
+            return ByteBuffer.allocate(minCapacity);
+        int sizeClass = sizeClassOf(minCapacity);
+        ByteBuffer buffer = sizeClasses.get(sizeClass).poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(sizeClassSize(sizeClass));
+    }
+
+    /**
+     * <p>Returns the given buffer to this pool. Buffers which are not direct, are read-only, or do not have the
+     * capacity of a size class, are ignored. The buffer must not be used by the caller after this.</p>
+     *
+     * @param buffer The buffer to return.
+     */
+    public void release(ByteBuffer buffer) {
+        if ( ! buffer.isDirect() || buffer.isReadOnly() || buffer.capacity() > maxBufferSize) return;
+        int sizeClass = sizeClassOf(buffer.capacity());
+        if (sizeClassSize(sizeClass) != buffer.capacity()) return;
+        buffer.clear();
+        sizeClasses.get(sizeClass).offer(buffer);
+    }
+
+    /**
+     * <p>Returns a CompletionHandler which releases the given buffer to this pool when completed, and then completes
+     * the given handler. Failures are passed on without releasing the buffer.</p>
+     *
+     * @param buffer  The buffer to release on completion.
+     * @param handler The handler to pass completion and failure to, or null.
+     * @return The handler to write the buffer with.
+     */
+    public CompletionHandler releaseOnCompletion(ByteBuffer buffer, CompletionHandler handler) {
+        return new CompletionHandler() {
+            @Override
+            public void completed() {
+                release(buffer);
+                if (handler != null) {
+                    handler.completed();
+                }
+            }
+
+            @Override
+            public void failed(Throwable t) {
+                if (handler != null) {
+                    handler.failed(t);
+                }
+            }
+        };
+    }
+
+    /** Returns the number of released buffers held by this pool. */
+    int pooledBuffers() {
+        int pooled = 0;
+        for (ArrayBlockingQueue<ByteBuffer> sizeClass : sizeClasses)
+            pooled += sizeClass.size();
+        return pooled;
+    }
+
+    private static int sizeClassOf(int capacity) {
+        if (capacity <= MIN_BUFFER_SIZE) return 0;
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+
+    private static int sizeClassSize(int sizeClass) {
+        return MIN_BUFFER_SIZE << sizeClass;
+    }
+
+}
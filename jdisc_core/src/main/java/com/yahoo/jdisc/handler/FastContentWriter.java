@@ -26,6 +26,7 @@ public class FastContentWriter extends CompletableFuture<Boolean> implements Aut
     private final AtomicInteger numPendingCompletions = new AtomicInteger();
     private final CompletionHandler completionHandler = new SimpleCompletionHandler();
     private final ContentChannel out;
+    private final ByteBufferPool pool;
 
     /**
      * <p>Creates a new FastContentWriter that encapsulates a given {@link ContentChannel}.</p>
@@ -34,8 +35,22 @@ public class FastContentWriter extends CompletableFuture<Boolean> implements Aut
      * @throws NullPointerException If the <em>content</em> argument is null.
      */
     public FastContentWriter(ContentChannel out) {
+        this(out, null);
+    }
+
+    /**
+     * <p>Creates a new FastContentWriter that encapsulates a given {@link ContentChannel}, and copies byte arrays and
+     * strings into direct buffers from the given pool, which are returned to the pool once written. The arrays can then
+     * be reused as soon as a write returns, and the channel gets buffers it can pass on without copying them.</p>
+     *
+     * @param out  The ContentChannel to encapsulate.
+     * @param pool The pool of buffers to copy arrays into, or null to wrap arrays in buffers instead.
+     * @throws NullPointerException If the <em>content</em> argument is null.
+     */
+    public FastContentWriter(ContentChannel out, ByteBufferPool pool) {
         Objects.requireNonNull(out, "out");
         this.out = out;
+        this.pool = pool;
     }
 
     /**
@@ -67,7 +82,18 @@ public class FastContentWriter extends CompletableFuture<Boolean> implements Aut
      * @param length The length of the subarray to be used.
      */
     public void write(byte[] buf, int offset, int length) {
-        write(ByteBuffer.wrap(buf, offset, length));
+        if (pool == null || length == 0) {
+            write(ByteBuffer.wrap(buf, offset, length));
+            return;
+        }
+        Objects.checkFromIndexSize(offset, length, buf.length);
+        for (int end = offset + length; offset < end; ) {
+            ByteBuffer pooled = pool.acquire(Math.min(end - offset, pool.maxBufferSize()));
+            int part = Math.min(end - offset, pooled.remaining());
+            pooled.put(buf, offset, part).flip();
+            offset += part;
+            write(pooled, pool.releaseOnCompletion(pooled, completionHandler));
+        }
     }
 
     /**
@@ -77,9 +103,13 @@ public class FastContentWriter extends CompletableFuture<Boolean> implements Aut
      * @param buf The ByteBuffer to write.
      */
     public void write(ByteBuffer buf) {
+        write(buf, completionHandler);
+    }
+
+    private void write(ByteBuffer buf, CompletionHandler handler) {
         numPendingCompletions.incrementAndGet();
         try {
-            out.write(buf, completionHandler);
+            out.write(buf, handler);
         } catch (Throwable t) {
             completeExceptionally(t);
             throw t;
@@ -473,6 +473,35 @@ public class BindingSetTestCase {
                 "http://*:4080/*");
     }
 
+    @Test
+    void requireThatMatchingIsEqualToMatchingAllPatternsInOrder() {
+        List<String> patterns = List.of("http://*/", "http://*/*", "http://*/a", "http://*/a/*", "http://*/a*",
+                                        "http://*/a/b", "http://*/a/b*", "http://*/ab/*", "http://*/*/b", "http://host/a/*",
+                                        "http://*:4080/a/*", "http://*/b", "http://*/b/c/*", "*://*/b/*", "http://*/*b");
+        List<String> uris = List.of("http://host", "http://host/", "http://host/a", "http://host/a/", "http://host/a/b",
+                                    "http://host/a/bc", "http://host/ab", "http://host/ab/c", "http://other/a/c",
+                                    "http://other:4080/a/c", "http://host/b", "http://host/b/", "http://host/b/c/d",
+                                    "ftp://host/b/c", "http://host/c", "http://host/c/b", "http://host/cb", "http://host//b");
+        for (int size = 0; size <= patterns.size(); ++size) {
+            BindingRepository<String> repo = new BindingRepository<>();
+            for (String pattern : patterns.subList(0, size)) {
+                repo.bind(pattern, pattern);
+            }
+            BindingSet<String> bindings = repo.activate();
+            for (String uri : uris) {
+                UriPattern expected = null;
+                for (Map.Entry<UriPattern, String> entry : bindings) {
+                    if (entry.getKey().match(URI.create(uri)) != null) {
+                        expected = entry.getKey();
+                        break;
+                    }
+                }
+                BindingMatch<String> match = bindings.match(URI.create(uri));
+                assertEquals(expected, match == null ? null : match.matched(), uri);
+            }
+        }
+    }
+
     private static void assertOrder(String... expected) {
         for (int off = 0; off < expected.length; ++off) {
             List<String> actual = new ArrayList<>();
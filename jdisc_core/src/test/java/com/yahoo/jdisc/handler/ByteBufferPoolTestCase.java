@@ -0,0 +1,92 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.handler;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author michaelcizmar
+ */
+public class ByteBufferPoolTestCase {
+
+    @Test
+    void requireThatBuffersAreDirectAndSizedByClass() {
+        ByteBufferPool pool = new ByteBufferPool(100_000, 2);
+        assertEquals(131072, pool.maxBufferSize());
+        assertBuffer(4096, true, pool.acquire(1));
+        assertBuffer(4096, true, pool.acquire(4096));
+        assertBuffer(8192, true, pool.acquire(4097));
+        assertBuffer(131072, true, pool.acquire(131072));
+        assertBuffer(131073, false, pool.acquire(131073));
+    }
+
+    @Test
+    void requireThatReleasedBuffersAreReused() {
+        ByteBufferPool pool = new ByteBufferPool(65536, 2);
+        ByteBuffer first = pool.acquire(5000);
+        first.put((byte)1).flip();
+        pool.release(first);
+        assertEquals(1, pool.pooledBuffers());
+        ByteBuffer second = pool.acquire(8000);
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(8192, second.limit());
+        assertNotSame(first, pool.acquire(8000));
+    }
+
+    @Test
+    void requireThatOnlyBuffersOfTheSizeClassesArePooled() {
+        ByteBufferPool pool = new ByteBufferPool(65536, 2);
+        pool.release(ByteBuffer.allocate(4096));
+        pool.release(ByteBuffer.allocateDirect(5000));
+        pool.release(ByteBuffer.allocateDirect(4096).asReadOnlyBuffer());
+        pool.release(ByteBuffer.allocateDirect(131072));
+        assertEquals(0, pool.pooledBuffers());
+        for (int i = 0; i < 3; i++)
+            pool.release(ByteBuffer.allocateDirect(4096));
+        assertEquals(2, pool.pooledBuffers());
+    }
+
+    @Test
+    void requireThatBuffersAreReleasedOnlyOnCompletion() {
+        ByteBufferPool pool = new ByteBufferPool(65536, 2);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CompletionHandler handler = new CompletionHandler() {
+            @Override public void completed() { completed.incrementAndGet(); }
+            @Override public void failed(Throwable t) { failed.incrementAndGet(); }
+        };
+        pool.releaseOnCompletion(pool.acquire(1), handler).failed(new RuntimeException());
+        assertEquals(0, pool.pooledBuffers());
+        assertEquals(1, failed.get());
+        pool.releaseOnCompletion(pool.acquire(1), handler).completed();
+        assertEquals(1, pool.pooledBuffers());
+        assertEquals(1, completed.get());
+        pool.releaseOnCompletion(pool.acquire(1), null).completed();
+        assertEquals(1, pool.pooledBuffers());
+    }
+
+    @Test
+    void requireThatArgumentsAreValidated() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(4096, 0));
+    }
+
+    private static void assertBuffer(int capacity, boolean direct, ByteBuffer buffer) {
+        assertEquals(capacity, buffer.capacity());
+        assertEquals(capacity, buffer.remaining());
+        assertEquals(direct, buffer.isDirect());
+        assertFalse(buffer.isReadOnly());
+        assertTrue(buffer.hasRemaining());
+    }
+
+}
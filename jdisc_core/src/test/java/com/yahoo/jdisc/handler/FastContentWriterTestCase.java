@@ -49,6 +49,38 @@ public class FastContentWriterTestCase {
         assertTrue(out.isDone());
     }
 
+    @Test
+    void requireThatArraysAreCopiedToPooledBuffersWhichAreReleasedWhenWritten() {
+        ReadableContentChannel content = new ReadableContentChannel();
+        ByteBufferPool pool = new ByteBufferPool(4096, 4);
+        FastContentWriter out = new FastContentWriter(content, pool);
+
+        byte[] in = new byte[5000];
+        new Random().nextBytes(in);
+        out.write(in, 1, 4999);
+        out.close();
+
+        ByteBuffer first = content.read();
+        assertTrue(first.isDirect());
+        assertEquals(4096, first.remaining());
+        byte[] firstBytes = new byte[4096];
+        first.get(firstBytes);
+        assertEquals(1, pool.pooledBuffers()); // Reading completes the write
+        ByteBuffer second = content.read();
+        byte[] secondBytes = new byte[903];
+        second.get(secondBytes);
+        assertEquals(2, pool.pooledBuffers());
+        assertNull(content.read());
+        assertTrue(out.isDone());
+
+        byte[] expected = new byte[4999];
+        System.arraycopy(in, 1, expected, 0, 4999);
+        byte[] actual = new byte[4999];
+        System.arraycopy(firstBytes, 0, actual, 0, 4096);
+        System.arraycopy(secondBytes, 0, actual, 4096, 903);
+        assertArrayEquals(expected, actual);
+    }
+
     @Test
     void requireThatStringsAreUtf8Encoded() {
         ReadableContentChannel content = new ReadableContentChannel();
@@ -7,6 +7,7 @@ import com.yahoo.language.Language;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -68,6 +69,24 @@ public interface Embedder {
      */
     Tensor embed(String text, Context context, TensorType tensorType);
 
+    /**
+     * Converts a batch of texts into tokens in tensors.
+     * This returns the same tensors as embedding each text separately, but embedders which can evaluate
+     * a batch more efficiently than the texts one by one should override this.
+     *
+     * @param texts the texts to embed
+     * @param context the context which may influence an embedder's behavior
+     * @param tensorType the type of the tensors to be returned
+     * @return the tensor embeddings of the texts, in the same order as the texts
+     * @throws IllegalArgumentException if the language or tensor type is not supported by this embedder
+     */
+    default List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+        List<Tensor> embeddings = new ArrayList<>(texts.size());
+        for (String text : texts)
+            embeddings.add(embed(text, context, tensorType));
+        return embeddings;
+    }
+
     /**
      * Runtime that is injectable through {@link Embedder} constructor.
      */
@@ -12,6 +12,7 @@ import java.util.List;
 public class SegmenterImpl implements Segmenter {
 
     private final Tokenizer tokenizer;
+    private final ThreadLocal<TokenBuffer> buffers = ThreadLocal.withInitial(TokenBuffer::new);
 
     public SegmenterImpl(Tokenizer tokenizer) {
         this.tokenizer = tokenizer;
@@ -20,8 +21,18 @@ public class SegmenterImpl implements Segmenter {
     @Override
     public List<String> segment(String input, Language language) {
         List<String> segments = new ArrayList<>();
-        for (Token token : tokenizer.tokenize(input, language, StemMode.NONE, false)) {
-            findSegments(token, segments);
+        TokenBuffer buffer = buffers.get();
+        try {
+            tokenizer.tokenize(input, language, StemMode.NONE, false, buffer);
+            for (int i = 0; i < buffer.size(); i++) {
+                if (buffer.numComponents(i) > 0)
+                    findSegments(buffer.token(i), segments);
+                else if (buffer.isIndexable(i) && buffer.length(i) > 0)
+                    segments.add(buffer.orig(i));
+            }
+        }
+        finally {
+            buffer.clear();
         }
         if (segments.isEmpty()) {
             segments.add(input); // no segments, return original string
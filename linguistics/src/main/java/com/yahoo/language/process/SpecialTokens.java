@@ -1,9 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.language.process;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -24,16 +22,16 @@ public class SpecialTokens {
 
     private final String name;
     private final int maximumLength;
-    private final List<Token> tokens;
+    private final TokenTrie tokens;
     private final Map<String, String> tokenMap;
 
     public SpecialTokens(String name,  List<Token> tokens) {
         tokens.stream().peek(token -> token.validate());
-        List<Token> mutableTokens = new ArrayList<>(tokens);
-        Collections.sort(mutableTokens);
         this.name = name;
         this.maximumLength = tokens.stream().mapToInt(token -> token.token().length()).max().orElse(0);
-        this.tokens = List.copyOf(mutableTokens);
+        this.tokens = new TokenTrie();
+        for (Token token : tokens)
+            this.tokens.add(token);
         this.tokenMap = tokens.stream().collect(Collectors.toUnmodifiableMap(t -> t.token(), t -> t.replacement()));
     }
 
@@ -57,26 +55,86 @@ public class SpecialTokens {
      *        mark the end of a token
      */
     public Token tokenize(String string, boolean substring) {
+        return tokenize(string, 0, substring);
+    }
+
+    /**
+     * Returns the longest special token starting at the given position in the given string, or null if no
+     * special token starts at this position. This takes time proportional to the length of the
+     * longest special token, regardless of the number of special tokens.
+     *
+     * @param string the string to search for a special token in
+     * @param start the position in the string where the special token must start
+     * @param substring true to allow the special token to be followed by a character which does not
+     *        mark the end of a token
+     */
+    public Token tokenize(String string, int start, boolean substring) {
         // XXX detonator pattern token.length may be != the length of the
         // matching data in string, ref caseIndependentLength(String)
-        String input = toLowerCase(string.substring(0, Math.min(string.length(), maximumLength)));
-        for (Iterator<Token> i = tokens.iterator(); i.hasNext();) {
-            Token special = i.next();
-
-            if (input.startsWith(special.token())) {
-                if (string.length() == special.token().length() || substring || tokenEndsAt(special.token().length(), string))
-                    return special;
-            }
+        String input = toLowerCase(string.substring(start, Math.min(string.length(), start + maximumLength)));
+        TokenTrie node = tokens;
+        Token longest = matchAt(node, start, string, substring);
+        for (int i = 0; i < input.length() && node != null; i++) {
+            node = node.child(input.charAt(i));
+            Token match = matchAt(node, start + i + 1, string, substring);
+            if (match != null)
+                longest = match;
         }
-        return null;
+        return longest;
+    }
+
+    /** Returns the token at the given trie node if it is a valid match ending at the given position */
+    private Token matchAt(TokenTrie node, int end, String string, boolean substring) {
+        if (node == null || node.token == null) return null;
+        return substring || tokenEndsAt(end, string) ? node.token : null;
     }
 
     private boolean tokenEndsAt(int position, String string) {
-        return !Character.isLetterOrDigit(string.charAt(position));
+        return position >= string.length() || !Character.isLetterOrDigit(string.charAt(position));
     }
 
     public static SpecialTokens empty() { return empty; }
 
+    /** A trie of special tokens, where each node holds the token spelled by the path to it, if any */
+    private static final class TokenTrie {
+
+        private char[] symbols = new char[0]; // sorted
+        private TokenTrie[] children = new TokenTrie[0];
+        private Token token = null;
+
+        void add(Token token) {
+            TokenTrie node = this;
+            for (int i = 0; i < token.token().length(); i++)
+                node = node.childOrAdd(token.token().charAt(i));
+            if (node.token == null) // The first of equal tokens wins
+                node.token = token;
+        }
+
+        TokenTrie child(char symbol) {
+            int index = Arrays.binarySearch(symbols, symbol);
+            return index < 0 ? null : children[index];
+        }
+
+        private TokenTrie childOrAdd(char symbol) {
+            int index = Arrays.binarySearch(symbols, symbol);
+            if (index >= 0) return children[index];
+
+            index = -index - 1;
+            char[] newSymbols = new char[symbols.length + 1];
+            TokenTrie[] newChildren = new TokenTrie[children.length + 1];
+            System.arraycopy(symbols, 0, newSymbols, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newSymbols[index] = symbol;
+            newChildren[index] = new TokenTrie();
+            System.arraycopy(symbols, index, newSymbols, index + 1, symbols.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            symbols = newSymbols;
+            children = newChildren;
+            return children[index];
+        }
+
+    }
+
     /** An immutable special token */
     public final static class Token implements Comparable<Token> {
 
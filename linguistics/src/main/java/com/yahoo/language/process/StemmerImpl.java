@@ -12,6 +12,7 @@ import java.util.List;
 public class StemmerImpl implements Stemmer {
 
     private final Tokenizer tokenizer;
+    private final ThreadLocal<TokenBuffer> buffers = ThreadLocal.withInitial(TokenBuffer::new);
 
     public StemmerImpl(Tokenizer tokenizer) {
         this.tokenizer = tokenizer;
@@ -20,8 +21,18 @@ public class StemmerImpl implements Stemmer {
     @Override
     public List<StemList> stem(String input, Language language, StemMode stemMode, boolean removeAccents) {
         List<StemList> stems = new ArrayList<>();
-        for (Token token : tokenizer.tokenize(input, language, stemMode, removeAccents)) {
-            findStems(token, stems);
+        TokenBuffer buffer = buffers.get();
+        try {
+            tokenizer.tokenize(input, language, stemMode, removeAccents, buffer);
+            for (int i = 0; i < buffer.size(); i++) {
+                if (buffer.numComponents(i) > 0)
+                    findStems(buffer.token(i), stems);
+                else if (buffer.isIndexable(i))
+                    stems.add(stemList(buffer, i));
+            }
+        }
+        finally {
+            buffer.clear();
         }
         return stems;
     }
@@ -31,6 +42,15 @@ public class StemmerImpl implements Stemmer {
         return stem(input, language, stemMode, false);
     }
 
+    private static StemList stemList(TokenBuffer buffer, int i) {
+        StemList word = new StemList();
+        word.add(buffer.tokenString(i)); // takes care of stem(i, 0)
+        for (int stem = 1; stem < buffer.numStems(i); stem++) {
+            word.add(buffer.stem(i, stem));
+        }
+        return word;
+    }
+
     private void findStems(Token token, List<StemList> out) {
         int len;
         if (token.isSpecialToken() || (len = token.getNumComponents()) == 0) {
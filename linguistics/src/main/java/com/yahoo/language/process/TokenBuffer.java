@@ -0,0 +1,252 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.process;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * A reusable buffer of the tokens produced by tokenizing a source text.
+ * Tokens are stored as offsets into the source text together with their type and script,
+ * and token strings are only created when requested. This allows a tokenizer to tokenize
+ * many texts without allocating objects for each token.
+ *
+ * Tokenizers which do not produce tokens natively into a buffer may add complete {@link Token}
+ * instances instead, which are then returned as-is.
+ *
+ * This is not multithread safe.
+ *
+ * @author michaelcizmar
+ */
+public final class TokenBuffer {
+
+    private static final TokenType[] types = TokenType.values();
+    private static final TokenScript[] scripts = TokenScript.values();
+
+    private static final int initialCapacity = 64;
+
+    /** Buffers which has grown larger than this are shrunk back to the initial capacity when cleared */
+    private static final int retainedCapacity = 1 << 16;
+
+    private CharSequence source = "";
+    private Function<String, String> tokenProcessor = null;
+
+    private int size = 0;
+    private int[] offsets = new int[initialCapacity];
+    private int[] lengths = new int[initialCapacity];
+    private byte[] typeOrdinals = new byte[initialCapacity];
+    private byte[] scriptOrdinals = new byte[initialCapacity];
+    private Token[] tokens = null; // tokens added as instances, created on demand
+
+    /**
+     * Clears this and prepares it for receiving tokens of the given source text.
+     *
+     * @param source the text which is tokenized into this
+     * @param tokenProcessor the function producing the token string from the original string of a token,
+     *                       or null if tokens added by offset have no token string
+     * @return this for chaining
+     */
+    public TokenBuffer reset(CharSequence source, Function<String, String> tokenProcessor) {
+        clear();
+        this.source = source;
+        this.tokenProcessor = tokenProcessor;
+        return this;
+    }
+
+    /** Removes all tokens and the reference to the source text from this */
+    public void clear() {
+        if (offsets.length > retainedCapacity) {
+            offsets = new int[initialCapacity];
+            lengths = new int[initialCapacity];
+            typeOrdinals = new byte[initialCapacity];
+            scriptOrdinals = new byte[initialCapacity];
+            tokens = null;
+        }
+        else if (tokens != null) {
+            Arrays.fill(tokens, 0, size, null);
+        }
+        size = 0;
+        source = "";
+        tokenProcessor = null;
+    }
+
+    /** Adds a token spanning the given region of the source text */
+    public void add(int offset, int length, TokenType type, TokenScript script) {
+        if (offset < 0 || length < 0 || offset + length > source.length())
+            throw new IllegalArgumentException("Token at offset " + offset + " with length " + length +
+                                               " is outside the source text of length " + source.length());
+        ensureCapacity(size + 1);
+        offsets[size] = offset;
+        lengths[size] = length;
+        typeOrdinals[size] = (byte)type.ordinal();
+        scriptOrdinals[size] = (byte)script.ordinal();
+        size++;
+    }
+
+    /** Adds a token instance. This will be returned unchanged from {@link #token} */
+    public void add(Token token) {
+        ensureCapacity(size + 1);
+        if (tokens == null)
+            tokens = new Token[offsets.length];
+        offsets[size] = (int)token.getOffset();
+        lengths[size] = token.getOrig() == null ? 0 : token.getOrig().length();
+        typeOrdinals[size] = (byte)token.getType().ordinal();
+        scriptOrdinals[size] = (byte)token.getScript().ordinal();
+        tokens[size] = token;
+        size++;
+    }
+
+    /** Returns the number of tokens in this */
+    public int size() { return size; }
+
+    /** Returns the text tokenized into this */
+    public CharSequence source() { return source; }
+
+    /** Returns the offset of the given token in the source text */
+    public int offset(int i) { return offsets[checkIndex(i)]; }
+
+    /** Returns the length of the original string of the given token */
+    public int length(int i) { return lengths[checkIndex(i)]; }
+
+    public TokenType type(int i) { return types[typeOrdinals[checkIndex(i)]]; }
+
+    public TokenScript script(int i) { return scripts[scriptOrdinals[checkIndex(i)]]; }
+
+    /**
+     * Returns whether the given token was added as a token instance. Otherwise its token string is
+     * produced from its original string by the token processor of this when requested.
+     */
+    public boolean hasTokenInstance(int i) {
+        return addedToken(i) != null;
+    }
+
+    public boolean isIndexable(int i) {
+        Token token = addedToken(i);
+        return token != null ? token.isIndexable() : type(i).isIndexable() && lengths[i] > 0;
+    }
+
+    public boolean isSpecialToken(int i) {
+        Token token = addedToken(i);
+        return token != null && token.isSpecialToken();
+    }
+
+    /**
+     * Returns the number of components of the given token.
+     * Only tokens added as instances may have components, which are accessed through {@link #token}.
+     */
+    public int numComponents(int i) {
+        Token token = addedToken(i);
+        return token != null ? token.getNumComponents() : 0;
+    }
+
+    /** Returns the number of stems of the given token. The first stem is the token string */
+    public int numStems(int i) {
+        Token token = addedToken(i);
+        if (token != null) return token.getNumStems();
+        return tokenProcessor != null ? 1 : 0;
+    }
+
+    /** Returns the given stem of the given token */
+    public String stem(int i, int stem) {
+        Token token = addedToken(i);
+        return token != null ? token.getStem(stem) : tokenString(i);
+    }
+
+    /** Returns whether the original string of the given token equals the given string, without creating it */
+    public boolean origEquals(int i, String s) {
+        Token token = addedToken(i);
+        if (token != null) return s.equals(token.getOrig());
+        if (lengths[i] != s.length()) return false;
+        int offset = offsets[i];
+        for (int c = 0; c < lengths[i]; c++)
+            if (source.charAt(offset + c) != s.charAt(c)) return false;
+        return true;
+    }
+
+    /** Creates and returns the original string of the given token */
+    public String orig(int i) {
+        Token token = addedToken(i);
+        if (token != null) return token.getOrig();
+        return source.subSequence(offsets[i], offsets[i] + lengths[i]).toString();
+    }
+
+    /** Creates and returns the token string of the given token, or null if it has none */
+    public String tokenString(int i) {
+        Token token = addedToken(i);
+        if (token != null) return token.getTokenString();
+        return tokenProcessor != null ? tokenProcessor.apply(orig(i)) : null;
+    }
+
+    /**
+     * Returns the given token as a Token instance.
+     * This is the instance added if it was added as one, and a new instance otherwise.
+     */
+    public Token token(int i) {
+        Token token = addedToken(i);
+        if (token != null) return token;
+        return new BufferedToken(orig(i), tokenString(i), offsets[i], type(i), script(i));
+    }
+
+    private Token addedToken(int i) {
+        checkIndex(i);
+        return tokens == null ? null : tokens[i];
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Token " + i + " is outside a buffer of " + size + " tokens");
+        return i;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= offsets.length) return;
+        int newCapacity = Math.max(capacity, offsets.length * 2);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        lengths = Arrays.copyOf(lengths, newCapacity);
+        typeOrdinals = Arrays.copyOf(typeOrdinals, newCapacity);
+        scriptOrdinals = Arrays.copyOf(scriptOrdinals, newCapacity);
+        if (tokens != null)
+            tokens = Arrays.copyOf(tokens, newCapacity);
+    }
+
+    @Override
+    public String toString() {
+        return "token buffer with " + size + " tokens";
+    }
+
+    /** A token materialized from the primitive representation of this */
+    private static class BufferedToken implements Token {
+
+        private final String orig;
+        private final String tokenString;
+        private final long offset;
+        private final TokenType type;
+        private final TokenScript script;
+
+        BufferedToken(String orig, String tokenString, long offset, TokenType type, TokenScript script) {
+            this.orig = orig;
+            this.tokenString = tokenString;
+            this.offset = offset;
+            this.type = type;
+            this.script = script;
+        }
+
+        @Override public TokenType getType() { return type; }
+        @Override public String getOrig() { return orig; }
+        @Override public int getNumStems() { return tokenString != null ? 1 : 0; }
+        @Override public String getStem(int i) { return tokenString; }
+        @Override public int getNumComponents() { return 0; }
+        @Override public Token getComponent(int i) { throw new IndexOutOfBoundsException("This token has no components"); }
+        @Override public long getOffset() { return offset; }
+        @Override public TokenScript getScript() { return script; }
+        @Override public String getTokenString() { return tokenString; }
+        @Override public boolean isSpecialToken() { return false; }
+        @Override public boolean isIndexable() { return type.isIndexable() && ! orig.isEmpty(); }
+
+        @Override
+        public String toString() {
+            return "token '" + orig + "' (" + tokenString + ") at " + offset;
+        }
+
+    }
+
+}
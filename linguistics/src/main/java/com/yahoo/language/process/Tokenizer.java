@@ -22,4 +22,23 @@ public interface Tokenizer {
      */
     Iterable<Token> tokenize(String input, Language language, StemMode stemMode, boolean removeAccents);
 
+    /**
+     * Tokenizes an input string into the given buffer, replacing its previous content.
+     * This produces the same tokens as {@link #tokenize(String, Language, StemMode, boolean)}, but
+     * tokenizers which implement this natively avoid allocating objects for each token,
+     * which makes this preferable when tokenizing large amounts of text.
+     *
+     * @param input the string to tokenize. May be arbitrarily large.
+     * @param language the language of the input string.
+     * @param stemMode the stem mode applied on the returned tokens
+     * @param removeAccents whether to normalize accents and similar
+     * @param buffer the buffer receiving the tokens of the input string
+     * @throws ProcessingException If the underlying library throws an Exception.
+     */
+    default void tokenize(String input, Language language, StemMode stemMode, boolean removeAccents, TokenBuffer buffer) {
+        buffer.reset(input, null);
+        for (Token token : tokenize(input, language, stemMode, removeAccents))
+            buffer.add(token);
+    }
+
 }
@@ -56,11 +56,37 @@ public class SimpleTokenizer implements Tokenizer {
                         token -> processToken(token, language, stemMode, removeAccents));
     }
 
+    /**
+     * Tokenize the input into the given buffer without creating token instances or strings.
+     * The transform of this is applied to token strings when they are requested from the buffer.
+     */
+    @Override
+    public void tokenize(String input, Language language, StemMode stemMode, boolean removeAccents, TokenBuffer buffer) {
+        tokenize(input, token -> processToken(token, language, stemMode, removeAccents), buffer);
+    }
+
     /** Tokenize the input, and apply the given transform to each token string. */
     public Iterable<Token> tokenize(String input, Function<String, String> tokenProcessor) {
         if (input.isEmpty()) return List.of();
 
-        List<Token> tokens = new ArrayList<>();
+        TokenBuffer buffer = new TokenBuffer();
+        tokenize(input, tokenProcessor, buffer);
+        List<Token> tokens = new ArrayList<>(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            String original = buffer.orig(i);
+            tokens.add(new SimpleToken(original).setOffset(buffer.offset(i))
+                                                .setType(buffer.type(i))
+                                                .setTokenString(tokenProcessor.apply(original))
+                                                .setScript(buffer.script(i)));
+        }
+        return tokens;
+    }
+
+    /** Tokenize the input into the given buffer, which will apply the given transform to token strings on request. */
+    public void tokenize(String input, Function<String, String> tokenProcessor, TokenBuffer buffer) {
+        buffer.reset(input, tokenProcessor);
+        if (input.isEmpty()) return;
+
         int nextCode = input.codePointAt(0);
         TokenType prevType = SimpleTokenType.valueOf(nextCode);
         TokenType tokenType = prevType;
@@ -72,11 +98,7 @@ public class SimpleTokenizer implements Tokenizer {
             TokenScript nextScript = SimpleTokenScript.valueOf(nextCode);
 
             if (isAtTokenBoundary(prevType, nextType)) {
-                String original = input.substring(prev, next);
-                tokens.add(new SimpleToken(original).setOffset(prev)
-                                                    .setType(tokenType)
-                                                    .setTokenString(tokenProcessor.apply(original))
-                                                    .setScript(tokenScript));
+                buffer.add(prev, next - prev, tokenType, tokenScript);
                 prev = next;
                 prevType = nextType;
                 prevScript = nextScript;
@@ -89,7 +111,6 @@ public class SimpleTokenizer implements Tokenizer {
             }
             next += Character.charCount(nextCode);
         }
-        return tokens;
     }
 
     private boolean isAtTokenBoundary(TokenType prevType, TokenType nextType) {
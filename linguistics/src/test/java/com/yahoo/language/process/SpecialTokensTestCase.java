@@ -4,7 +4,11 @@ package com.yahoo.language.process;
 import com.yahoo.vespa.configdefinition.SpecialtokensConfig;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * @author bratseth
@@ -37,4 +41,40 @@ public class SpecialTokensTestCase {
         assertEquals("...", defaultTokens.asMap().get("..."));
     }
 
+    @Test
+    public void testTokenize() {
+        var tokens = new SpecialTokens("default", List.of(new SpecialTokens.Token("c"),
+                                                          new SpecialTokens.Token("c++", "cpp"),
+                                                          new SpecialTokens.Token("c#"),
+                                                          new SpecialTokens.Token(".net")));
+        assertEquals("c++", tokens.tokenize("C++", false).token());
+        assertEquals("cpp", tokens.tokenize("c++ code", false).replacement());
+        assertEquals("c", tokens.tokenize("c code", false).token());
+        assertEquals("c#", tokens.tokenize("c#", false).token());
+        assertNull(tokens.tokenize("code", false));
+        assertEquals("c", tokens.tokenize("code", true).token());
+        assertEquals("c", tokens.tokenize("c++code", false).token()); // c++ is followed by a letter
+        assertNull(tokens.tokenize("net", false));
+        assertNull(tokens.tokenize("", false));
+
+        assertEquals(".net", tokens.tokenize("asp.net", 3, false).token());
+        assertNull(tokens.tokenize("asp.network", 3, false));
+        assertEquals(".net", tokens.tokenize("asp.network", 3, true).token());
+        assertEquals("c", tokens.tokenize("abc", 2, false).token());
+        assertNull(SpecialTokens.empty().tokenize("c++", false));
+    }
+
+    @Test
+    public void testTokenizeWithManyTokens() {
+        List<SpecialTokens.Token> tokenList = new ArrayList<>();
+        for (int i = 0; i < 50000; i++)
+            tokenList.add(new SpecialTokens.Token("sku-" + i));
+        var tokens = new SpecialTokens("default", tokenList);
+        assertEquals("sku-123", tokens.tokenize("SKU-123 in stock", false).token());
+        assertEquals("sku-49999", tokens.tokenize("find sku-49999", 5, false).token());
+        assertEquals("sku-12345", tokens.tokenize("sku-12345x", true).token());
+        assertNull(tokens.tokenize("sku-12345x", false));
+        assertNull(tokens.tokenize("sku-", false));
+    }
+
 }
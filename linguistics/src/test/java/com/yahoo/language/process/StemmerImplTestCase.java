@@ -39,7 +39,7 @@ public class StemmerImplTestCase {
                                                                                     .setTokenString("p"))
                                                   .addComponent(new SimpleToken("p").setType(TokenType.ALPHABETIC)
                                                                                     .setTokenString("p"));
-        Tokenizer tokenizer = Mockito.mock(Tokenizer.class);
+        Tokenizer tokenizer = Mockito.mock(Tokenizer.class, Mockito.CALLS_REAL_METHODS);
         Mockito.when(tokenizer.tokenize(Mockito.anyString(), Mockito.<Language>any(), Mockito.<StemMode>any(),
                                         Mockito.anyBoolean()))
                .thenReturn(List.of(token));
@@ -0,0 +1,102 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.process;
+
+import com.yahoo.language.simple.SimpleToken;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author michaelcizmar
+ */
+public class TokenBufferTestCase {
+
+    @Test
+    public void testTokensByOffset() {
+        AtomicInteger processed = new AtomicInteger();
+        TokenBuffer buffer = new TokenBuffer().reset("Foo, bar", s -> { processed.incrementAndGet(); return s.toLowerCase(); });
+        buffer.add(0, 3, TokenType.ALPHABETIC, TokenScript.LATIN);
+        buffer.add(3, 1, TokenType.PUNCTUATION, TokenScript.COMMON);
+        buffer.add(4, 1, TokenType.SPACE, TokenScript.COMMON);
+        buffer.add(5, 3, TokenType.ALPHABETIC, TokenScript.LATIN);
+        assertEquals(4, buffer.size());
+        assertEquals(0, processed.get());
+
+        assertEquals(5, buffer.offset(3));
+        assertEquals(3, buffer.length(3));
+        assertEquals(TokenType.PUNCTUATION, buffer.type(1));
+        assertEquals(TokenScript.COMMON, buffer.script(1));
+        assertFalse(buffer.hasTokenInstance(0));
+        assertTrue(buffer.isIndexable(0));
+        assertFalse(buffer.isIndexable(2));
+        assertFalse(buffer.isSpecialToken(0));
+        assertEquals(0, buffer.numComponents(0));
+        assertTrue(buffer.origEquals(0, "Foo"));
+        assertFalse(buffer.origEquals(0, "foo"));
+        assertFalse(buffer.origEquals(0, "Fo"));
+        assertEquals(0, processed.get());
+
+        assertEquals("Foo", buffer.orig(0));
+        assertEquals("foo", buffer.tokenString(0));
+        assertEquals(1, processed.get());
+        assertEquals(1, buffer.numStems(0));
+        assertEquals("bar", buffer.stem(3, 0));
+
+        Token token = buffer.token(0);
+        assertEquals(new SimpleToken("Foo", "foo").setType(TokenType.ALPHABETIC).setScript(TokenScript.LATIN), token);
+    }
+
+    @Test
+    public void testTokenInstances() {
+        TokenBuffer buffer = new TokenBuffer().reset("foo", null);
+        SimpleToken token = new SimpleToken("foo", "bar").setType(TokenType.ALPHABETIC).setSpecialToken(true);
+        buffer.add(token);
+        assertSame(token, buffer.token(0));
+        assertTrue(buffer.hasTokenInstance(0));
+        assertTrue(buffer.isSpecialToken(0));
+        assertEquals("bar", buffer.tokenString(0));
+        assertEquals(3, buffer.length(0));
+    }
+
+    @Test
+    public void testReuse() {
+        TokenBuffer buffer = new TokenBuffer().reset("a b", null);
+        for (int i = 0; i < 1000; i++)
+            buffer.add(new SimpleToken("a"));
+        buffer.reset("a b", null);
+        assertEquals(0, buffer.size());
+        buffer.add(2, 1, TokenType.ALPHABETIC, TokenScript.LATIN);
+        assertEquals("b", buffer.orig(0));
+        assertNull(buffer.tokenString(0));
+        assertEquals(0, buffer.numStems(0));
+        buffer.clear();
+        assertEquals("", buffer.source());
+    }
+
+    @Test
+    public void testIllegalAccess() {
+        TokenBuffer buffer = new TokenBuffer().reset("foo", null);
+        try {
+            buffer.add(1, 3, TokenType.ALPHABETIC, TokenScript.LATIN);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Token at offset 1 with length 3 is outside the source text of length 3", e.getMessage());
+        }
+        try {
+            buffer.orig(0);
+            fail("Expected exception");
+        }
+        catch (IndexOutOfBoundsException e) {
+            assertEquals("Token 0 is outside a buffer of 0 tokens", e.getMessage());
+        }
+    }
+
+}
@@ -5,10 +5,13 @@ import com.yahoo.language.Language;
 import com.yahoo.language.process.AbstractTokenizerTestCase;
 import com.yahoo.language.process.StemMode;
 import com.yahoo.language.process.Token;
+import com.yahoo.language.process.TokenBuffer;
 import com.yahoo.language.process.TokenScript;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -69,5 +72,29 @@ public class SimpleTokenizerTestCase extends AbstractTokenizerTestCase {
                 TokenScript.COMMON,
                 TokenScript.DEVANAGARI);
     }
-}
 
+    @Test
+    public void testTokenizingIntoBuffer() {
+        SimpleTokenizer tokenizer = new SimpleTokenizer();
+        TokenBuffer buffer = new TokenBuffer();
+        for (String input : List.of("a\u030a tralalala n4lle. \uD800\uDFC8 (old Persian sign Auramazda, sorry if " +
+                                    "anyone 1s offended by ancien7 gods.Running)",
+                                    "anyone is արևելահայերեն by ancient कार्य",
+                                    "",
+                                    "Running")) {
+            for (StemMode stemMode : List.of(StemMode.NONE, StemMode.ALL)) {
+                tokenizer.tokenize(input, Language.ENGLISH, stemMode, true, buffer);
+                List<Token> expected = new ArrayList<>();
+                tokenizer.tokenize(input, Language.ENGLISH, stemMode, true).forEach(expected::add);
+                assertEquals(expected.size(), buffer.size());
+                for (int i = 0; i < buffer.size(); i++) {
+                    assertEquals(expected.get(i), buffer.token(i));
+                    assertEquals(expected.get(i).getTokenString(), buffer.tokenString(i));
+                    assertEquals(expected.get(i).isIndexable(), buffer.isIndexable(i));
+                    assertTrue(buffer.origEquals(i, expected.get(i).getOrig()));
+                }
+            }
+        }
+    }
+
+}
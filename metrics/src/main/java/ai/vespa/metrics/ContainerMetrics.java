@@ -139,6 +139,9 @@ public enum ContainerMetrics implements VespaMetrics {
     QUERY_ITEM_COUNT("query_item_count", Unit.ITEM, "The number of query items (terms, phrases, etc)"),
     DOCPROC_PROC_TIME("docproc.proctime", Unit.MILLISECOND, "Time spent processing document"),
     DOCPROC_DOCUMENTS("docproc.documents", Unit.DOCUMENT, "Number of processed documents"),
+    DOCPROC_TERM_ANALYSIS_CACHE_ELEMENTS("docproc.term_analysis_cache.elements", Unit.ITEM, "Number of elements in the cache of analyzed terms used when tokenizing documents"),
+    DOCPROC_TERM_ANALYSIS_CACHE_HITS("docproc.term_analysis_cache.hits", Unit.OPERATION, "Number of lookups finding the term in the cache of analyzed terms"),
+    DOCPROC_TERM_ANALYSIS_CACHE_MISSES("docproc.term_analysis_cache.misses", Unit.OPERATION, "Number of lookups not finding the term in the cache of analyzed terms"),
     
     TOTAL_HITS_PER_QUERY("totalhits_per_query", Unit.HIT_PER_QUERY, "The total number of documents found to match queries"),
     EMPTY_RESULTS("empty_results", Unit.OPERATION, "Number of queries matching no documents"),
@@ -288,6 +288,9 @@ public class VespaMetricSet {
 
         addMetric(metrics, ContainerMetrics.DOCPROC_PROC_TIME, EnumSet.of(sum, count, max));
         addMetric(metrics, ContainerMetrics.DOCPROC_DOCUMENTS, EnumSet.of(sum, count, max, min));
+        addMetric(metrics, ContainerMetrics.DOCPROC_TERM_ANALYSIS_CACHE_ELEMENTS.max());
+        addMetric(metrics, ContainerMetrics.DOCPROC_TERM_ANALYSIS_CACHE_HITS.count());
+        addMetric(metrics, ContainerMetrics.DOCPROC_TERM_ANALYSIS_CACHE_MISSES.count());
 
         return metrics;
     }
@@ -25,6 +25,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -47,6 +49,9 @@ import java.util.regex.Pattern;
  */
 public class RankProfilesConfigImporter {
 
+    /** Constants in typed binary format of at least this many bytes are memory mapped rather than read to the heap */
+    static final long MIN_MAPPED_CONSTANT_SIZE = 1 << 20;
+
     private final FileAcquirer fileAcquirer;
     private final OnnxRuntime onnx;
 
@@ -267,7 +272,9 @@ public class RankProfilesConfigImporter {
     protected Tensor readTensorFromFile(String name, TensorType type, FileReference fileReference) {
         try {
             File file = fileAcquirer.waitFor(fileReference, 7, TimeUnit.DAYS);
-            if (file.getName().endsWith(".tbf")) {
+            if (file.getName().endsWith(".tbf") && file.length() >= MIN_MAPPED_CONSTANT_SIZE) {
+                return readMappedTensor(type, file);
+            } else if (file.getName().endsWith(".tbf")) {
                 return TypedBinaryFormat.decode(Optional.of(type),
                                                 GrowableByteBuffer.wrap(IOUtils.readFileBytes(file)));
             } else if (file.getName().endsWith(".json")) {
@@ -286,6 +293,18 @@ public class RankProfilesConfigImporter {
         }
     }
 
+    /**
+     * Reads a tensor from a file in typed binary format by memory mapping it.
+     * The cells of dense tensors are not copied to the heap but read from the mapped file regions when accessed,
+     * which is slower than reading heap tensors, so this is only done for constants of at least
+     * {@link #MIN_MAPPED_CONSTANT_SIZE} bytes.
+     */
+    private static Tensor readMappedTensor(TensorType type, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return TypedBinaryFormat.decodeMapped(Optional.of(type), channel);
+        }
+    }
+
     /** Collected information about small constants */
     private static class SmallConstantsInfo {
 
@@ -0,0 +1,67 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import ai.vespa.modelintegration.evaluator.OnnxRuntime;
+import com.yahoo.config.FileReference;
+import com.yahoo.filedistribution.fileacquirer.MockFileAcquirer;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.serialization.TypedBinaryFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests reading constants in the typed binary format, from memory mapped files if they are large.
+ *
+ * @author michaelcizmar
+ */
+public class MappedConstantImportingTest {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Test
+    public void testImportingSmallConstantsToTheHeap() throws IOException {
+        assertImported("dense", Tensor.from("tensor(x[2],y[3]):[[1, 2, 3], [4, 5, 6]]"), "IndexedDoubleTensor");
+        assertImported("dense_float", Tensor.from("tensor<float>(x[3]):[1.5, -2, 3]"), "IndexedFloatTensor");
+        assertImported("mixed", Tensor.from("tensor(x{},y[2]):{a:[1, 2], b:[3, 4]}"), "MixedTensor");
+        assertImported("sparse", Tensor.from("tensor(x{}):{a:1, b:2}"), "MappedTensor");
+    }
+
+    @Test
+    public void testImportingLargeConstantsMapped() throws IOException {
+        int size = (int)RankProfilesConfigImporter.MIN_MAPPED_CONSTANT_SIZE; // More than this number of bytes
+        assertImported("large_dense", denseTensor("tensor(x[" + size + "])", size), "IndexedBufferTensor");
+        assertImported("large_dense_int8", denseTensor("tensor<int8>(x[" + size + "])", size), "IndexedBufferTensor");
+        assertImported("large_mixed", denseTensor("tensor(x[" + (size / 2) + "],y{})", size / 2), "MixedTensor");
+    }
+
+    private static Tensor denseTensor(String type, int size) {
+        Tensor.Builder builder = Tensor.Builder.of(TensorType.fromSpec(type));
+        for (int i = 0; i < size; i++) {
+            if (builder.type().hasMappedDimensions())
+                builder.cell().label("x", i).label("y", "a").value(i % 100);
+            else
+                builder.cell(i % 100, i);
+        }
+        return builder.build();
+    }
+
+    private void assertImported(String name, Tensor tensor, String expectedClass) throws IOException {
+        File constant = tmpDir.newFile(name + ".tbf");
+        Files.write(constant.toPath(), TypedBinaryFormat.encode(tensor));
+        var importer = new RankProfilesConfigImporter(MockFileAcquirer.returnFile(constant), new OnnxRuntime());
+        Tensor imported = importer.readTensorFromFile(name, tensor.type(), new FileReference(name + ".tbf"));
+        assertEquals(tensor, imported);
+        assertEquals(tensor.sum(), imported.sum());
+        assertEquals(expectedClass, imported.getClass().getSimpleName());
+    }
+
+}
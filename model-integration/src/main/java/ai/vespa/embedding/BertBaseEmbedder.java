@@ -100,17 +100,40 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
     @Override
     public Tensor embed(String text, Context context, TensorType type) {
         var start = System.nanoTime();
+        validateType(type);
+        List<Integer> tokens = embedWithSeparatorTokens(text, context, maxTokens);
+        runtime.sampleSequenceLength(tokens.size(), context);
+        var embedding = embedTokens(tokens, type);
+        runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
+        return embedding;
+    }
+
+    /** Embeds the texts in batches of padded token sequences, evaluating the model once per batch */
+    @Override
+    public List<Tensor> embed(List<String> texts, Context context, TensorType type) {
+        if (texts.isEmpty()) return List.of();
+        if (texts.size() == 1) return List.of(embed(texts.get(0), context, type));
+
+        var start = System.nanoTime();
+        validateType(type);
+        List<List<Integer>> tokens = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            List<Integer> textTokens = embedWithSeparatorTokens(text, context, maxTokens);
+            runtime.sampleSequenceLength(textTokens.size(), context);
+            tokens.add(textTokens);
+        }
+        var embeddings = embedTokenBatch(tokens, type);
+        runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
+        return embeddings;
+    }
+
+    private static void validateType(TensorType type) {
         if (type.dimensions().size() != 1) {
             throw new IllegalArgumentException("Error in embedding to type '" + type + "': should only have one dimension.");
         }
         if (!type.dimensions().get(0).isIndexed()) {
             throw new IllegalArgumentException("Error in embedding to type '" + type + "': dimension should be indexed.");
         }
-        List<Integer> tokens = embedWithSeparatorTokens(text, context, maxTokens);
-        runtime.sampleSequenceLength(tokens.size(), context);
-        var embedding = embedTokens(tokens, type);
-        runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
-        return embedding;
     }
 
     @Override public void deconstruct() { evaluator.close(); }
@@ -139,6 +162,59 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
         return poolingStrategy.toSentenceEmbedding(type, tokenEmbeddings, attentionMask);
     }
 
+    /**
+     * Embeds a batch of token sequences in one evaluation of the model. Sequences shorter than the longest
+     * are padded with 0 tokens, which are masked out by the attention mask, so each embedding is the same
+     * as when embedding the sequence alone.
+     */
+    List<Tensor> embedTokenBatch(List<List<Integer>> tokens, TensorType type) {
+        int batchSize = tokens.size();
+        int sequenceLength = tokens.stream().mapToInt(List::size).max().orElse(0);
+        TensorType inputType = new TensorType.Builder(TensorType.Value.FLOAT).indexed("d0", batchSize)
+                                                                             .indexed("d1", sequenceLength)
+                                                                             .build();
+        IndexedTensor.Builder inputBuilder = IndexedTensor.Builder.of(inputType);
+        for (int b = 0; b < batchSize; b++) {
+            List<Integer> sequence = tokens.get(b);
+            for (int i = 0; i < sequenceLength; i++)
+                inputBuilder.cell(i < sequence.size() ? sequence.get(i) : 0, b, i);
+        }
+        Tensor inputSequence = inputBuilder.build();
+        Tensor attentionMask = createAttentionMask(inputSequence);
+        Tensor tokenTypeIds = createTokenTypeIds(inputSequence);
+
+        Map<String, Tensor> inputs;
+        if (!"".equals(tokenTypeIdsName)) {
+            inputs = Map.of(inputIdsName, inputSequence, attentionMaskName, attentionMask, tokenTypeIdsName, tokenTypeIds);
+        } else {
+            inputs = Map.of(inputIdsName, inputSequence, attentionMaskName, attentionMask);
+        }
+        IndexedTensor tokenEmbeddings = (IndexedTensor)evaluator.evaluate(inputs).get(outputName);
+
+        List<Tensor> embeddings = new ArrayList<>(batchSize);
+        for (int b = 0; b < batchSize; b++) {
+            List<Integer> sequence = tokens.get(b);
+            Tensor sequenceEmbeddings = tokenEmbeddingsOf(b, sequence.size(), tokenEmbeddings);
+            Tensor sequenceMask = createAttentionMask(createTensorRepresentation(sequence, "d1"));
+            embeddings.add(poolingStrategy.toSentenceEmbedding(type, sequenceEmbeddings, sequenceMask));
+        }
+        return embeddings;
+    }
+
+    /** Returns the token embeddings of the given unpadded sequence in a batch, as if it was evaluated alone */
+    private static Tensor tokenEmbeddingsOf(int sequence, int sequenceLength, IndexedTensor batchEmbeddings) {
+        long embeddingSize = batchEmbeddings.dimensionSizes().size(2);
+        TensorType type = new TensorType.Builder(batchEmbeddings.type().valueType()).indexed("d0", 1)
+                                                                                     .indexed("d1", sequenceLength)
+                                                                                     .indexed("d2", embeddingSize)
+                                                                                     .build();
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(type);
+        for (int i = 0; i < sequenceLength; i++)
+            for (int j = 0; j < embeddingSize; j++)
+                builder.cell(batchEmbeddings.get(sequence, i, j), 0, i, j);
+        return builder.build();
+    }
+
     private List<Integer> embedWithSeparatorTokens(String text, Context context, int maxLength) {
         List<Integer> tokens = new ArrayList<>();
         tokens.add(startSequenceToken);
@@ -9,6 +9,7 @@ import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -36,6 +37,49 @@ public class BertBaseEmbedderTest {
         assertEquals(embedding, expected);
     }
 
+    @Test
+    public void testEmbedderBatch() {
+        String vocabPath = "src/test/models/onnx/transformer/dummy_vocab.txt";
+        String modelPath = "src/test/models/onnx/transformer/dummy_transformer.onnx";
+        assumeTrue(OnnxRuntime.isRuntimeAvailable(modelPath));
+
+        BertBaseEmbedderConfig.Builder builder = new BertBaseEmbedderConfig.Builder();
+        builder.tokenizerVocab(ModelReference.valueOf(vocabPath));
+        builder.transformerModel(ModelReference.valueOf(modelPath));
+        BertBaseEmbedder embedder = newBertBaseEmbedder(builder.build());
+
+        TensorType destType = TensorType.fromSpec("tensor<float>(x[7])");
+        List<List<Integer>> tokens = List.of(List.of(1,2,3,4,5), List.of(3,1), List.of(5,4,3,2,1,2,3));
+        List<Tensor> embeddings = embedder.embedTokenBatch(tokens, destType);
+        assertEquals(3, embeddings.size());
+        for (int i = 0; i < tokens.size(); i++)
+            assertEquals(embedder.embedTokens(tokens.get(i), destType), embeddings.get(i));
+    }
+
+    @Test
+    public void testEmbedderTextBatches() {
+        String vocabPath = "src/test/models/onnx/transformer/dummy_vocab.txt";
+        String modelPath = "src/test/models/onnx/transformer/dummy_transformer.onnx";
+        assumeTrue(OnnxRuntime.isRuntimeAvailable(modelPath));
+
+        BertBaseEmbedderConfig.Builder builder = new BertBaseEmbedderConfig.Builder();
+        builder.tokenizerVocab(ModelReference.valueOf(vocabPath));
+        builder.transformerModel(ModelReference.valueOf(modelPath));
+        BertBaseEmbedder embedder = newBertBaseEmbedder(builder.build());
+
+        TensorType destType = TensorType.fromSpec("tensor<float>(x[7])");
+        var context = new Embedder.Context("schema.indexing");
+        assertEquals(List.of(), embedder.embed(List.of(), context, destType));
+
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            texts.add("text number " + i + " " + "a b c ".repeat(i % 7));
+        List<Tensor> embeddings = embedder.embed(texts, context, destType);
+        assertEquals(texts.size(), embeddings.size());
+        for (int i = 0; i < texts.size(); i++)
+            assertEquals(embedder.embed(texts.get(i), context, destType), embeddings.get(i));
+    }
+
     @Test
     public void testEmbedderWithoutTokenTypeIdsName() {
         String vocabPath = "src/test/models/onnx/transformer/dummy_vocab.txt";
@@ -110,7 +110,7 @@ public class HuggingFaceEmbedderTest {
             embedder.embed(input, context, TensorType.fromSpec(("tensor<int8>(x[49])")));
         });
         Tensor float16Result = embedder.embed(input, context, TensorType.fromSpec(("tensor<bfloat16>(x[1])")));
-        assertEquals(-0.666, float16Result.sum().asDouble(),1e-3);
+        assertEquals(-0.666, float16Result.sum().asDouble(), 1e-2); // bfloat16 cells are stored with 8 bits of precision
     }
 
     @Test
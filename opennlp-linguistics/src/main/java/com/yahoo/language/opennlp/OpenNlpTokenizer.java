@@ -9,6 +9,7 @@ import com.yahoo.language.process.Normalizer;
 import com.yahoo.language.process.SpecialTokenRegistry;
 import com.yahoo.language.process.StemMode;
 import com.yahoo.language.process.Token;
+import com.yahoo.language.process.TokenBuffer;
 import com.yahoo.language.process.TokenType;
 import com.yahoo.language.process.Tokenizer;
 import com.yahoo.language.process.Transformer;
@@ -103,6 +104,20 @@ public class OpenNlpTokenizer implements Tokenizer {
             return simpleTokenizer.tokenize(input, token -> processToken(token, language, stemMode, removeAccents, stemmer));
     }
 
+    @Override
+    public void tokenize(String input, Language language, StemMode stemMode, boolean removeAccents, TokenBuffer buffer) {
+        if (chineseSegmenter.isPresent() && ( language == Language.CHINESE_SIMPLIFIED || language == Language.CHINESE_TRADITIONAL)) {
+            Tokenizer.super.tokenize(input, language, stemMode, removeAccents, buffer);
+            return;
+        }
+
+        Stemmer stemmer = stemmerFor(language, stemMode);
+        if (stemmer == null)
+            simpleTokenizer.tokenize(input, language, stemMode, removeAccents, buffer);
+        else
+            simpleTokenizer.tokenize(input, token -> processToken(token, language, stemMode, removeAccents, stemmer), buffer);
+    }
+
     private Iterable<Token> segmentChinese(String input) {
         if (input.isEmpty()) return List.of();
 
@@ -0,0 +1,23 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate;
+
+import com.yahoo.api.annotations.Beta;
+
+/**
+ * Receives the hits of a predicate search as primitives, as an alternative to a stream of {@link Hit} objects.
+ *
+ * @author michaelcizmar
+ */
+@Beta
+@FunctionalInterface
+public interface HitCollector {
+
+    /**
+     * Receives a hit.
+     *
+     * @param docId the id of the matching document
+     * @param subquery the bitmap of the subqueries the document matches
+     */
+    void collect(int docId, long subquery);
+
+}
@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.predicate;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.yahoo.api.annotations.Beta;
 import com.yahoo.document.predicate.Predicate;
 import com.yahoo.search.predicate.index.*;
@@ -8,12 +9,29 @@ import com.yahoo.search.predicate.index.conjunction.ConjunctionHit;
 import com.yahoo.search.predicate.index.conjunction.ConjunctionIndex;
 import com.yahoo.search.predicate.serialization.SerializationHelper;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -28,6 +46,12 @@ import java.util.stream.Stream;
  * To perform a search, create a {@link Searcher} and call its {@link Searcher#search(PredicateQuery)}
  * method, which returns a stream of {@link Hit} objects,
  * each of which contains a document id and a 64-bit bitmap specifying which subqueries the hit is for.
+ * To avoid creating an object per hit, pass a {@link HitCollector} to
+ * {@link Searcher#search(PredicateQuery, HitCollector)} instead. Large indexes may be searched by
+ * multiple threads in disjoint document id ranges using {@link Searcher#search(PredicateQuery, HitCollector, Executor, int)}.
+ * </p><p>
+ * An index can be stored with {@link #writeToFile(Path)} and loaded with {@link #fromFile(Path)}.
+ * To update an index without rebuilding it, use an {@link UpdatablePredicateIndex}.
  * </p><p>
  * Note that the {@link PredicateIndex} is thread-safe, but a {@link Searcher} is not.
  * Each thread <strong>must</strong> use its own searcher.
@@ -39,6 +63,12 @@ import java.util.stream.Stream;
 public class PredicateIndex {
 
     private static final int SERIALIZATION_FORMAT_VERSION = 3;
+    // Smaller partitions are not worth searching in a separate thread
+    private static final int MIN_DOCUMENTS_PER_PARTITION = 4096;
+    // The posting list cache is rebuilt from the query traffic after this many queries
+    private static final int POSTING_LIST_CACHE_REBUILD_INTERVAL = 10000;
+    // Rebuilds the posting list caches of all indexes in the background, such that queries never wait for it
+    private static final ThreadPoolExecutor postingListCacheRebuilder = createPostingListCacheRebuilder();
 
     private final PredicateRangeTermExpander expander;
     private final int[] internalToExternalIdMapping;
@@ -51,8 +81,10 @@ public class PredicateIndex {
     private final PredicateIntervalStore intervalStore;
     private final ConjunctionIndex conjunctionIndex;
     private final int[] zeroConstraintDocuments;
+    private final BitSet zeroConstraintDocumentSet;
     private final Config config;
     private final AtomicReference<CachedPostingListCounter> postingListCounter;
+    private final AtomicBoolean rebuildingPostingListCache = new AtomicBoolean(false);
 
 
     /**
@@ -80,15 +112,133 @@ public class PredicateIndex {
         this.intervalStore = intervalStore;
         this.conjunctionIndex = conjunctionIndex;
         this.zeroConstraintDocuments = zeroConstraintDocuments;
+        this.zeroConstraintDocumentSet = ZeroConstraintPostingList.isDense(zeroConstraintDocuments, internalToExternalIdMapping.length)
+                                         ? ZeroConstraintPostingList.toBitSet(zeroConstraintDocuments) : null;
         this.expander = new PredicateRangeTermExpander(config.arity, config.lowerBound, config.upperBound);
         this.config = config;
         this.postingListCounter = new AtomicReference<>(new CachedPostingListCounter(internalToExternalIdMapping.length));
     }
 
+    /**
+     * Rebuilds the cache of the posting lists which are most expensive to count for the queries seen.
+     * This is also done automatically at regular intervals.
+     */
     public void rebuildPostingListCache() {
         postingListCounter.getAndUpdate(CachedPostingListCounter::rebuildCache);
     }
 
+    /**
+     * Registers the usage of the given posting lists by a query, and schedules a background rebuild of the
+     * posting list cache if the given counter is due for it and no rebuild is already scheduled.
+     * Queries keep using the current counter until the rebuilt one replaces it.
+     */
+    private void registerUsage(CachedPostingListCounter counter, List<PostingList> postingLists) {
+        counter.registerUsage(postingLists);
+        if (counter.getRegisteredQueryCount() < POSTING_LIST_CACHE_REBUILD_INTERVAL) return;
+        if ( ! rebuildingPostingListCache.compareAndSet(false, true)) return;
+        try {
+            postingListCacheRebuilder.execute(() -> rebuildPostingListCache(counter));
+        }
+        catch (RejectedExecutionException e) {
+            rebuildingPostingListCache.set(false);
+        }
+    }
+
+    private void rebuildPostingListCache(CachedPostingListCounter counter) {
+        try {
+            postingListCounter.compareAndSet(counter, counter.rebuildCache());
+        }
+        finally {
+            rebuildingPostingListCache.set(false);
+        }
+    }
+
+    private static ThreadPoolExecutor createPostingListCacheRebuilder() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true)
+                                                                .setNameFormat("predicate-posting-list-cache-rebuilder-%d")
+                                                                .build();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    Config getConfig() { return config; }
+
+    /** Returns the external ids of the documents in this, which must not be modified */
+    int[] documentIds() { return internalToExternalIdMapping; }
+
+    /**
+     * Returns an index containing the documents of the given base index which are not removed, followed by
+     * the documents of the given delta index. The indexes are combined without re-indexing the documents,
+     * and interval lists and conjunctions which are no longer referenced are left out.
+     */
+    static PredicateIndex merge(PredicateIndex base, Set<Integer> removedFromBase, PredicateIndex delta) {
+        int[] baseDocIdMapping = new int[base.internalToExternalIdMapping.length];
+        int nDocuments = 0;
+        for (int i = 0; i < baseDocIdMapping.length; i++) {
+            baseDocIdMapping[i] = removedFromBase.contains(base.internalToExternalIdMapping[i]) ? -1 : nDocuments++;
+        }
+        int[] deltaDocIdMapping = new int[delta.internalToExternalIdMapping.length];
+        for (int i = 0; i < deltaDocIdMapping.length; i++) {
+            deltaDocIdMapping[i] = nDocuments++;
+        }
+
+        int[] internalToExternalIdMapping = new int[nDocuments];
+        byte[] minFeatureIndex = new byte[nDocuments];
+        short[] intervalEnds = new short[nDocuments];
+        for (PredicateIndex index : List.of(base, delta)) {
+            int[] docIdMapping = index == base ? baseDocIdMapping : deltaDocIdMapping;
+            for (int i = 0; i < docIdMapping.length; i++) {
+                int docId = docIdMapping[i];
+                if (docId < 0) continue;
+                internalToExternalIdMapping[docId] = index.internalToExternalIdMapping[i];
+                minFeatureIndex[docId] = index.minFeatureIndex[i];
+                intervalEnds[docId] = index.intervalEnds[i];
+            }
+        }
+        int[] zeroConstraintDocuments = IntStream.concat(
+                Arrays.stream(base.zeroConstraintDocuments).map(docId -> baseDocIdMapping[docId]).filter(docId -> docId >= 0),
+                Arrays.stream(delta.zeroConstraintDocuments).map(docId -> deltaDocIdMapping[docId])).toArray();
+
+        PredicateIntervalStore.Builder intervalStoreBuilder = new PredicateIntervalStore.Builder();
+        SimpleIndex.PostingMapping baseMapping = postingMapping(baseDocIdMapping, base.intervalStore, intervalStoreBuilder);
+        SimpleIndex.PostingMapping deltaMapping = postingMapping(deltaDocIdMapping, delta.intervalStore, intervalStoreBuilder);
+        SimpleIndex conjunctionIntervalIndex = SimpleIndex.merge(base.conjunctionIntervalIndex, baseMapping,
+                                                                 delta.conjunctionIntervalIndex, deltaMapping);
+        return new PredicateIndex(
+                base.config,
+                internalToExternalIdMapping,
+                minFeatureIndex,
+                intervalEnds,
+                Math.max(base.highestIntervalEnd, delta.highestIntervalEnd),
+                SimpleIndex.merge(base.intervalIndex, baseMapping, delta.intervalIndex, deltaMapping),
+                SimpleIndex.merge(base.boundsIndex, baseMapping, delta.boundsIndex, deltaMapping),
+                conjunctionIntervalIndex,
+                intervalStoreBuilder.build(),
+                ConjunctionIndex.merge(base.conjunctionIndex, delta.conjunctionIndex,
+                                       conjunctionId -> conjunctionIntervalIndex.getPostingList(conjunctionId) != null),
+                zeroConstraintDocuments
+        );
+    }
+
+    /** Returns a mapping of postings which copies each referenced interval list to the given builder once */
+    private static SimpleIndex.PostingMapping postingMapping(int[] docIdMapping, PredicateIntervalStore intervalStore,
+                                                             PredicateIntervalStore.Builder intervalStoreBuilder) {
+        int[] dataRefMapping = new int[intervalStore.size()];
+        Arrays.fill(dataRefMapping, -1);
+        return new SimpleIndex.PostingMapping() {
+            @Override
+            public int docId(int docId) { return docIdMapping[docId]; }
+
+            @Override
+            public int dataRef(int dataRef) {
+                if (dataRefMapping[dataRef] < 0)
+                    dataRefMapping[dataRef] = intervalStoreBuilder.insert(intervalStore.get(dataRef));
+                return dataRefMapping[dataRef];
+            }
+        };
+    }
+
     /**
      * Create a new searcher.
      */
@@ -111,6 +261,27 @@ public class PredicateIndex {
         conjunctionIndex.writeToOutputStream(out);
     }
 
+    /**
+     * Writes this index to the given file. The index is written to a temporary file which then atomically
+     * replaces the given file, such that a concurrent {@link #fromFile(Path)} never sees a partially written index.
+     */
+    public void writeToFile(Path file) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+            writeToOutputStream(out);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index written by {@link #writeToFile(Path)} or {@link #writeToOutputStream(DataOutputStream)}.
+     */
+    public static PredicateIndex fromFile(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            return fromInputStream(in);
+        }
+    }
+
     public static PredicateIndex fromInputStream(DataInputStream in) throws IOException {
         int version = in.readInt();
         if (version != SERIALIZATION_FORMAT_VERSION) {
@@ -160,6 +331,87 @@ public class PredicateIndex {
          * @return A stream of hits.
          */
         public Stream<Hit> search(PredicateQuery query) {
+            return createSearch(countedPostingLists(query, conjunctionIndexSearcher.search(query)))
+                    .stream()
+                    // Map to external id. Note that internal id for first document is 1.
+                    .map(hit -> new Hit(internalToExternalIdMapping[hit.getDocId()], hit.getSubquery()));
+        }
+
+        /**
+         * Passes the hits for the given query to the given collector, ordered by internal document id.
+         * This avoids creating a {@link Hit} object for each hit.
+         *
+         * @param query Specifies the boolean variables that are true.
+         * @param collector Receives the external document id and subquery bitmap of each hit.
+         */
+        public void search(PredicateQuery query, HitCollector collector) {
+            createSearch(countedPostingLists(query, conjunctionIndexSearcher.search(query)))
+                    .search((docId, subquery) -> collector.collect(internalToExternalIdMapping[docId], subquery));
+        }
+
+        /**
+         * Passes the hits for the given query to the given collector, as {@link #search(PredicateQuery, HitCollector)},
+         * but searches the given number of disjoint document id ranges concurrently. One range is searched
+         * by the calling thread and the others by the given executor. The collector is only invoked by the
+         * calling thread, in the same order as a single threaded search, after all ranges are searched.
+         *
+         * @param query Specifies the boolean variables that are true.
+         * @param collector Receives the external document id and subquery bitmap of each hit.
+         * @param executor The executor searching all ranges but the first.
+         * @param partitions The number of document id ranges to search concurrently.
+         */
+        public void search(PredicateQuery query, HitCollector collector, Executor executor, int partitions) {
+            if (partitions < 1) throw new IllegalArgumentException("Partitions must be positive, but was " + partitions);
+            int nDocuments = nPostingListsForDocument.length;
+            partitions = Math.max(1, Math.min(partitions, nDocuments / MIN_DOCUMENTS_PER_PARTITION));
+            if (partitions == 1) {
+                search(query, collector);
+                return;
+            }
+
+            List<ConjunctionHit> conjunctionHits = conjunctionIndexSearcher.search(query);
+            // Posting lists are stateful, so each partition needs its own,
+            // while the posting list count per document is computed once and then only read
+            List<PostingList> firstPartitionPostingLists = countedPostingLists(query, conjunctionHits);
+            HitBuffer[] buffers = new HitBuffer[partitions];
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[partitions - 1];
+            for (int i = 1; i < partitions; i++) {
+                HitBuffer buffer = buffers[i] = new HitBuffer();
+                PredicateSearch search = createSearch(postingLists(query, conjunctionHits),
+                                                      partitionStart(i, partitions, nDocuments),
+                                                      partitionStart(i + 1, partitions, nDocuments));
+                futures[i - 1] = CompletableFuture.runAsync(() -> search.search(buffer), executor);
+            }
+            createSearch(firstPartitionPostingLists, 0, partitionStart(1, partitions, nDocuments))
+                    .search((docId, subquery) -> collector.collect(internalToExternalIdMapping[docId], subquery));
+            CompletableFuture.allOf(futures).join();
+            for (int i = 1; i < partitions; i++)
+                buffers[i].replayTo(collector, internalToExternalIdMapping);
+        }
+
+        private int partitionStart(int partition, int partitions, int nDocuments) {
+            return (int)((long)nDocuments * partition / partitions);
+        }
+
+        private PredicateSearch createSearch(List<PostingList> postingLists) {
+            return createSearch(postingLists, 0, nPostingListsForDocument.length);
+        }
+
+        private PredicateSearch createSearch(List<PostingList> postingLists, int fromDocId, int toDocId) {
+            return new PredicateSearch(postingLists, nPostingListsForDocument, minFeatureIndex, intervalEnds,
+                                       highestIntervalEnd, fromDocId, toDocId);
+        }
+
+        /** Returns the posting lists of the given query, after counting them per document */
+        private List<PostingList> countedPostingLists(PredicateQuery query, List<ConjunctionHit> conjunctionHits) {
+            List<PostingList> postingLists = postingLists(query, conjunctionHits);
+            CachedPostingListCounter counter = postingListCounter.get();
+            registerUsage(counter, postingLists);
+            counter.countPostingListsPerDocument(postingLists, nPostingListsForDocument);
+            return postingLists;
+        }
+
+        private List<PostingList> postingLists(PredicateQuery query, List<ConjunctionHit> conjunctionHits) {
             ArrayList<PostingList> postingLists = new ArrayList<>();
             for (PredicateQuery.Feature feature : query.getFeatures()) {
                 addIntervalPostingList(feature.featureHash, feature.subqueryBitmap, postingLists);
@@ -172,16 +424,9 @@ public class PredicateIndex {
                         (featureHash, value) -> addBoundsPostingList(featureHash, value, feature.subqueryBitmap, postingLists));
             }
             addCompressedZStarPostingList(postingLists);
-            addConjunctionPostingLists(query, postingLists);
+            addConjunctionPostingLists(conjunctionHits, postingLists);
             addZeroConstraintPostingList(postingLists);
-
-            CachedPostingListCounter counter = postingListCounter.get();
-            counter.registerUsage(postingLists);
-            counter.countPostingListsPerDocument(postingLists, nPostingListsForDocument);
-            return new PredicateSearch(
-                    postingLists, nPostingListsForDocument, minFeatureIndex, intervalEnds, highestIntervalEnd).stream()
-                    // Map to external id. Note that internal id for first document is 1.
-                    .map(hit -> new Hit(internalToExternalIdMapping[hit.getDocId()], hit.getSubquery()));
+            return postingLists;
         }
 
         private void addCompressedZStarPostingList(List<PostingList> postingLists) {
@@ -206,8 +451,7 @@ public class PredicateIndex {
             }
         }
 
-        private void addConjunctionPostingLists(PredicateQuery query, List<PostingList> postingLists) {
-            List<ConjunctionHit> hits = conjunctionIndexSearcher.search(query);
+        private void addConjunctionPostingLists(List<ConjunctionHit> hits, List<PostingList> postingLists) {
             for (ConjunctionHit hit : hits) {
                 SimpleIndex.Entry e = conjunctionIntervalIndex.getPostingList(hit.conjunctionId);
                 if (e != null) {
@@ -218,10 +462,34 @@ public class PredicateIndex {
 
         private void addZeroConstraintPostingList(ArrayList<PostingList> postingLists) {
             if (zeroConstraintDocuments.length > 0) {
-                postingLists.add(new ZeroConstraintPostingList(zeroConstraintDocuments));
+                postingLists.add(new ZeroConstraintPostingList(zeroConstraintDocuments, zeroConstraintDocumentSet));
             }
         }
 
     }
 
+    /** Hits of a partition, stored as primitives until they can be passed on in order */
+    private static class HitBuffer implements HitCollector {
+
+        private int[] docIds = new int[16];
+        private long[] subqueries = new long[16];
+        private int size = 0;
+
+        @Override
+        public void collect(int docId, long subquery) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                subqueries = Arrays.copyOf(subqueries, size * 2);
+            }
+            docIds[size] = docId;
+            subqueries[size++] = subquery;
+        }
+
+        void replayTo(HitCollector collector, int[] internalToExternalIdMapping) {
+            for (int i = 0; i < size; i++)
+                collector.collect(internalToExternalIdMapping[docIds[i]], subqueries[i]);
+        }
+
+    }
+
 }
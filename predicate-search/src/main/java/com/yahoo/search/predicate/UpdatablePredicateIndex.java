@@ -0,0 +1,248 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate;
+
+import com.yahoo.api.annotations.Beta;
+import com.yahoo.document.predicate.Predicate;
+import org.eclipse.collections.impl.set.mutable.primitive.IntHashSet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * A {@link PredicateIndex} which can be updated without rebuilding it.
+ * <p>
+ * The index consists of a base index, an in-memory delta index of the documents added or replaced since the
+ * base was built, and the set of base documents which are removed or replaced. Updates only rebuild the
+ * delta index, which is done lazily when a searcher is created after an update. When the number of
+ * updates since the base was built reaches the configured limit, the base and delta indexes are merged
+ * into a new base in the background by the merge executor, while searches continue on the old base and delta.
+ * </p><p>
+ * Only the predicates of the documents in the delta index are kept, as merging combines the indexes
+ * without re-indexing the documents of the base.
+ * </p><p>
+ * This is thread-safe, but a {@link Searcher} is not. Each thread <strong>must</strong> use its own searcher.
+ * A searcher searches the documents as they were when it was created.
+ * </p>
+ *
+ * @author michaelcizmar
+ */
+@Beta
+public class UpdatablePredicateIndex {
+
+    private final Config config;
+    private final Executor mergeExecutor;
+    private final int maxUpdatesBeforeMerge;
+
+    /** Ids of all current documents */
+    private final IntHashSet documentIds;
+    /** Documents added or replaced since the base was built */
+    private final Map<Integer, Predicate> delta = new HashMap<>();
+    /** Ids of documents in the base which are removed or replaced */
+    private final Set<Integer> removedFromBase = new HashSet<>();
+    /** Ids of documents added, replaced or removed while a merge is running, and whether they were present when it started */
+    private final Map<Integer, Boolean> updatedDuringMerge = new HashMap<>();
+
+    private Segments segments;
+    private boolean segmentsAreCurrent;
+    private CompletableFuture<Void> merge = null;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param config the config of the indexes to build
+     * @param mergeExecutor the executor building new base indexes
+     * @param maxUpdatesBeforeMerge the number of updates after which a merge is started
+     */
+    public UpdatablePredicateIndex(Config config, Executor mergeExecutor, int maxUpdatesBeforeMerge) {
+        this(new PredicateIndexBuilder(config).build(), mergeExecutor, maxUpdatesBeforeMerge);
+    }
+
+    /**
+     * Creates an index from an existing index, such as one loaded with {@link PredicateIndex#fromFile}.
+     *
+     * @param base the initial base index
+     * @param mergeExecutor the executor building new base indexes
+     * @param maxUpdatesBeforeMerge the number of updates after which a merge is started
+     */
+    public UpdatablePredicateIndex(PredicateIndex base, Executor mergeExecutor, int maxUpdatesBeforeMerge) {
+        if (maxUpdatesBeforeMerge < 1)
+            throw new IllegalArgumentException("Max updates before merge must be positive, but was " + maxUpdatesBeforeMerge);
+        this.config = base.getConfig();
+        this.mergeExecutor = mergeExecutor;
+        this.maxUpdatesBeforeMerge = maxUpdatesBeforeMerge;
+        this.documentIds = IntHashSet.newSetWith(base.documentIds());
+        this.segments = new Segments(base, Set.of(), null);
+        this.segmentsAreCurrent = true;
+    }
+
+    /** Adds a document, or replaces the document with the given id */
+    public synchronized void indexDocument(int docId, Predicate predicate) {
+        boolean present = documentIds.contains(docId);
+        if (present && ! delta.containsKey(docId))
+            removedFromBase.add(docId);
+        documentIds.add(docId);
+        delta.put(docId, predicate);
+        updated(docId, present);
+    }
+
+    /** Removes the document with the given id, and returns whether it was present */
+    public synchronized boolean removeDocument(int docId) {
+        if ( ! documentIds.contains(docId)) return false;
+        if (delta.remove(docId) == null) // Otherwise, a replaced base document is already in removedFromBase
+            removedFromBase.add(docId);
+        documentIds.remove(docId);
+        updated(docId, true);
+        return true;
+    }
+
+    /** Returns the base index, which contains the documents added before the last completed merge */
+    public synchronized PredicateIndex getBase() { return segments.base; }
+
+    /**
+     * Returns the number of updates which are not yet merged into the base: The number of documents added
+     * or replaced, plus the number of base documents removed or replaced, since the base was built.
+     */
+    public synchronized int getPendingUpdateCount() { return delta.size() + removedFromBase.size(); }
+
+    /**
+     * Starts merging the base and delta indexes into a new base index, unless a merge is already running.
+     * If a merge fails, the returned future fails, and the next update or call to this starts a new merge.
+     *
+     * @return a future which completes when the running merge is completed
+     */
+    public synchronized CompletableFuture<Void> merge() {
+        if (merge != null) return merge;
+
+        PredicateIndex base = segments.base;
+        Set<Integer> mergedRemovedFromBase = Set.copyOf(removedFromBase);
+        Map<Integer, Predicate> mergedDelta = Map.copyOf(delta);
+        updatedDuringMerge.clear();
+        CompletableFuture<Void> started =
+                CompletableFuture.supplyAsync(() -> PredicateIndex.merge(base, mergedRemovedFromBase, build(mergedDelta)), mergeExecutor)
+                                 .thenAccept(this::completeMerge);
+        merge = started;
+        started.whenComplete((result, failure) -> mergeCompleted(started));
+        return started;
+    }
+
+    /** Creates a new searcher of the current documents */
+    public Searcher searcher() {
+        return new Searcher(segments());
+    }
+
+    private synchronized Segments segments() {
+        if ( ! segmentsAreCurrent) {
+            segments = new Segments(segments.base, Set.copyOf(removedFromBase), delta.isEmpty() ? null : build(delta));
+            segmentsAreCurrent = true;
+        }
+        return segments;
+    }
+
+    private void updated(int docId, boolean wasPresent) {
+        segmentsAreCurrent = false;
+        if (merge != null)
+            updatedDuringMerge.putIfAbsent(docId, wasPresent);
+        if (getPendingUpdateCount() >= maxUpdatesBeforeMerge)
+            merge();
+    }
+
+    private synchronized void completeMerge(PredicateIndex base) {
+        // Updates done during the merge are not in the new base, and remain pending
+        Map<Integer, Predicate> pending = new HashMap<>();
+        removedFromBase.clear();
+        updatedDuringMerge.forEach((docId, wasPresent) -> {
+            if (wasPresent)
+                removedFromBase.add(docId);
+            if (delta.containsKey(docId))
+                pending.put(docId, delta.get(docId));
+        });
+        delta.clear();
+        delta.putAll(pending);
+        updatedDuringMerge.clear();
+        segments = new Segments(base, Set.of(), null);
+        segmentsAreCurrent = false;
+    }
+
+    private synchronized void mergeCompleted(CompletableFuture<Void> completed) {
+        if (merge != completed) return;
+        merge = null;
+        updatedDuringMerge.clear();
+    }
+
+    private PredicateIndex build(Map<Integer, Predicate> predicates) {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(config);
+        predicates.forEach(builder::indexDocument);
+        return builder.build();
+    }
+
+    /** An immutable view of the segments of this at some point in time */
+    private static class Segments {
+
+        final PredicateIndex base;
+        final Set<Integer> removedFromBase;
+        final PredicateIndex delta; // null if no documents are added since the base was built
+
+        Segments(PredicateIndex base, Set<Integer> removedFromBase, PredicateIndex delta) {
+            this.base = base;
+            this.removedFromBase = removedFromBase;
+            this.delta = delta;
+        }
+
+    }
+
+    @Beta
+    public static class Searcher {
+
+        private final Set<Integer> removedFromBase;
+        private final PredicateIndex.Searcher baseSearcher;
+        private final PredicateIndex.Searcher deltaSearcher;
+
+        private Searcher(Segments segments) {
+            this.removedFromBase = segments.removedFromBase;
+            this.baseSearcher = segments.base.searcher();
+            this.deltaSearcher = segments.delta == null ? null : segments.delta.searcher();
+        }
+
+        /**
+         * Retrieves a stream of hits for the given query. Hits from the base index come before hits
+         * from documents added or replaced later.
+         *
+         * @param query Specifies the boolean variables that are true.
+         * @return A stream of hits.
+         */
+        public Stream<Hit> search(PredicateQuery query) {
+            Stream<Hit> hits = baseSearcher.search(query);
+            if ( ! removedFromBase.isEmpty())
+                hits = hits.filter(hit -> ! removedFromBase.contains(hit.getDocId()));
+            if (deltaSearcher != null)
+                hits = Stream.concat(hits, deltaSearcher.search(query));
+            return hits;
+        }
+
+        /**
+         * Passes the hits for the given query to the given collector. Hits from the base index come before
+         * hits from documents added or replaced later.
+         *
+         * @param query Specifies the boolean variables that are true.
+         * @param collector Receives the external document id and subquery bitmap of each hit.
+         */
+        public void search(PredicateQuery query, HitCollector collector) {
+            if (removedFromBase.isEmpty())
+                baseSearcher.search(query, collector);
+            else
+                baseSearcher.search(query, (docId, subquery) -> {
+                    if ( ! removedFromBase.contains(docId))
+                        collector.collect(docId, subquery);
+                });
+            if (deltaSearcher != null)
+                deltaSearcher.search(query, collector);
+        }
+
+    }
+
+}
@@ -8,21 +8,29 @@ import org.eclipse.collections.impl.map.mutable.primitive.ObjectLongHashMap;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Counts the number of posting lists per document id.
  * Caches the most expensive posting list in a bit vector.
- *
+ * <p>
+ * The cost of a posting list is its size times how often it is used by queries. Usage frequencies
+ * are halved on each rebuild, so the cache follows changes in the query traffic, and when more than
+ * a max number of posting lists are tracked, the least used are evicted on rebuild.
+ * </p>
  * @author bjorncs
  */
 public class CachedPostingListCounter {
 
     // Only use bit vector for counting if the documents covered is more than the threshold (relative to nDocuments)
     private static final double THRESHOLD_USE_BIT_VECTOR = 1;
+    // The max number of posting lists to track the usage frequency of
+    private static final int MAX_TRACKED_POSTING_LISTS = 1 << 16;
 
     private final int nDocuments;
-    private final ObjectLongHashMap<int[]> frequency = new ObjectLongHashMap<>();
+    private ObjectLongHashMap<int[]> frequency;
+    private long registeredQueries = 0;
     private final ObjectIntHashMap<int[]> postingListMapping;
     private final int[] bitVector;
 
@@ -30,20 +38,29 @@ public class CachedPostingListCounter {
         this.nDocuments = nDocuments;
         this.postingListMapping = new ObjectIntHashMap<>();
         this.bitVector = new int[0];
+        this.frequency = new ObjectLongHashMap<>();
     }
 
-    private CachedPostingListCounter(ObjectIntHashMap<int[]> postingListMapping, int[] bitVector) {
+    private CachedPostingListCounter(ObjectIntHashMap<int[]> postingListMapping, int[] bitVector,
+                                     ObjectLongHashMap<int[]> frequency) {
         this.nDocuments = bitVector.length;
         this.postingListMapping = postingListMapping;
         this.bitVector = bitVector;
+        this.frequency = frequency;
     }
 
     public synchronized void registerUsage(List<PostingList> postingLists) {
+        ++registeredQueries;
         for (PostingList postingList : postingLists) {
             frequency.updateValue(postingList.getDocIds(), 0, v -> v + 1);
         }
     }
 
+    /** Returns the number of queries registered since this was built */
+    public synchronized long getRegisteredQueryCount() {
+        return registeredQueries;
+    }
+
     public void countPostingListsPerDocument(List<PostingList> postingLists, byte[] nPostingListsForDocument) {
         Arrays.fill(nPostingListsForDocument, (byte) 0);
         List<int[]> nonCachedPostingLists = new ArrayList<>(postingLists.size());
@@ -89,10 +106,18 @@ public class CachedPostingListCounter {
 
     public CachedPostingListCounter rebuildCache() {
         MinMaxPriorityQueue<Entry> mostExpensive = MinMaxPriorityQueue.maximumSize(32).expectedSize(32).create();
+        ObjectLongHashMap<int[]> decayedFrequency;
         synchronized (this) {
             for (ObjectLongPair<int[]> p : frequency.keyValuesView()) {
                 mostExpensive.add(new Entry(p.getOne(), p.getTwo()));
             }
+            decayedFrequency = decayed(frequency);
+        }
+        if (decayedFrequency.size() > MAX_TRACKED_POSTING_LISTS)
+            decayedFrequency = mostFrequent(decayedFrequency, MAX_TRACKED_POSTING_LISTS * 3 / 4);
+        if (isCached(mostExpensive)) {
+            // The bit vector is unchanged, so there is no need to rebuild it
+            return new CachedPostingListCounter(this.postingListMapping, this.bitVector, decayedFrequency);
         }
         ObjectIntHashMap<int[]> postingListMapping = new ObjectIntHashMap<>();
         int[] bitVector = new int[nDocuments];
@@ -105,7 +130,44 @@ public class CachedPostingListCounter {
                 bitVector[docId] |= (1 << i);
             }
         }
-        return new CachedPostingListCounter(postingListMapping, bitVector);
+        return new CachedPostingListCounter(postingListMapping, bitVector, decayedFrequency);
+    }
+
+    /** Returns whether the given entries are exactly the posting lists in the bit vector of this */
+    private boolean isCached(Collection<Entry> entries) {
+        if (entries.size() != postingListMapping.size() || bitVector.length != nDocuments) return false;
+        for (Entry entry : entries) {
+            if ( ! postingListMapping.containsKey(entry.docIds)) return false;
+        }
+        return true;
+    }
+
+    /** Returns a copy of the given frequencies halved, without those which become 0 */
+    private static ObjectLongHashMap<int[]> decayed(ObjectLongHashMap<int[]> frequency) {
+        ObjectLongHashMap<int[]> decayed = new ObjectLongHashMap<>();
+        for (ObjectLongPair<int[]> p : frequency.keyValuesView()) {
+            long value = p.getTwo() / 2;
+            if (value > 0) {
+                decayed.put(p.getOne(), value);
+            }
+        }
+        return decayed;
+    }
+
+    /** Returns the given number of the most frequent of the given posting lists */
+    static ObjectLongHashMap<int[]> mostFrequent(ObjectLongHashMap<int[]> frequency, int count) {
+        long[] frequencies = frequency.values().toSortedArray();
+        long cutoff = frequencies[frequencies.length - count];
+        int aboveCutoff = 0;
+        for (int i = frequencies.length - 1; i >= 0 && frequencies[i] > cutoff; i--)
+            aboveCutoff++;
+        int keptAtCutoff = count - aboveCutoff;
+        ObjectLongHashMap<int[]> mostFrequent = new ObjectLongHashMap<>(count);
+        for (ObjectLongPair<int[]> p : frequency.keyValuesView()) {
+            if (p.getTwo() > cutoff || (p.getTwo() == cutoff && keptAtCutoff-- > 0))
+                mostFrequent.put(p.getOne(), p.getTwo());
+        }
+        return mostFrequent;
     }
 
     int[] getBitVector() {
@@ -29,6 +29,11 @@ public class PredicateIntervalStore {
         return intervalsList[intervalRef];
     }
 
+    /** Returns the number of interval lists in this */
+    public int size() {
+        return intervalsList.length;
+    }
+
     public void writeToOutputStream(DataOutputStream out) throws IOException {
         out.writeInt(intervalsList.length);
         for (int[] intervals : intervalsList) {
@@ -53,11 +58,14 @@ public class PredicateIntervalStore {
         private int totalInserts = 0;
 
         public int insert(List<Integer> intervals) {
-            int size = intervals.size();
+            return insert(Ints.toArray(intervals));
+        }
+
+        public int insert(int[] array) {
+            int size = array.length;
             if (size == 0) {
                 throw new IllegalArgumentException("Cannot insert interval list of size 0");
             }
-            int[] array = Ints.toArray(intervals);
             Entry entry = new Entry(array);
             ++totalInserts;
             if (intervalsListIndexes.containsKey(entry)) {
@@ -2,13 +2,13 @@
 package com.yahoo.search.predicate.index;
 
 import com.yahoo.search.predicate.Hit;
+import com.yahoo.search.predicate.HitCollector;
 import com.yahoo.search.predicate.SubqueryBitmap;
 import com.yahoo.search.predicate.utils.PrimitiveArraySorter;
 
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
 import java.util.Spliterator;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -31,6 +31,8 @@ public class PredicateSearch {
     private final long[] subqueryMarkers;
     private final boolean[] visited;
     private final short[] intervalEnds;
+    private final int fromDocId;
+    private final int toDocId;
 
     private short[] sortedIndexes;
     private short[] sortedIndexesMergeBuffer;
@@ -48,11 +50,32 @@ public class PredicateSearch {
     public PredicateSearch(
             List<PostingList> postingLists, byte[] nPostingListsForDocument,
             byte[] minFeatureIndex, short[] intervalEnds, int  highestIntervalEnd) {
-        int size = postingLists.size();
+        this(postingLists, nPostingListsForDocument, minFeatureIndex, intervalEnds, highestIntervalEnd,
+             0, nPostingListsForDocument.length);
+    }
+
+    /**
+     * Creates a search for a set of posting lists, which only returns hits in the given range of document ids.
+     * Searches for disjoint ranges over separate posting lists instances may be run concurrently.
+     *
+     * @param postingLists Posting lists for the boolean variables that evaluate to true
+     * @param nPostingListsForDocument The number of posting list for each docId
+     * @param minFeatureIndex Index from docId to min-feature value.
+     * @param intervalEnds The interval end for each document.
+     * @param highestIntervalEnd The highest end value.
+     * @param fromDocId The first document id to return hits for
+     * @param toDocId The first document id after fromDocId to not return hits for
+     */
+    public PredicateSearch(
+            List<PostingList> postingLists, byte[] nPostingListsForDocument,
+            byte[] minFeatureIndex, short[] intervalEnds, int  highestIntervalEnd, int fromDocId, int toDocId) {
         this.nPostingListsForDocument = nPostingListsForDocument;
         this.minFeatureIndex = minFeatureIndex;
+        this.fromDocId = firstCandidate(fromDocId, Math.min(toDocId, nPostingListsForDocument.length));
+        this.toDocId = lastCandidate(this.fromDocId, Math.min(toDocId, nPostingListsForDocument.length)) + 1;
+        this.postingLists = plan(postingLists, this.fromDocId, this.toDocId);
+        int size = this.postingLists.length;
         this.nPostingLists = size;
-        this.postingLists = postingLists.toArray(new PostingList[postingLists.size()]);
         this.sortedIndexes = new short[size];
         this.sortedIndexesMergeBuffer = new short[size];
         this.docIds = new int[size];
@@ -62,9 +85,6 @@ public class PredicateSearch {
         this.visited = new boolean[highestIntervalEnd + 1];
         this.intervalEnds = intervalEnds;
 
-        // Sort posting list array based on the underlying number of documents (largest first).
-        Arrays.sort(this.postingLists, (l, r) -> -Integer.compare(l.size(), r.size()));
-
         for (short i = 0; i < size; ++i) {
             PostingList postingList = this.postingLists[i];
             sortedIndexes[i] = i;
@@ -74,6 +94,54 @@ public class PredicateSearch {
         // All posting lists start at beginId, so no need to sort yet.
     }
 
+    /** Returns the first document at or after fromDocId which has enough posting lists to match, or toDocId if none */
+    private int firstCandidate(int fromDocId, int toDocId) {
+        int docId = fromDocId;
+        while (docId < toDocId && minFeatureIndex[docId] > nPostingListsForDocument[docId]) {
+            ++docId;
+        }
+        return docId;
+    }
+
+    /** Returns the last document before toDocId which has enough posting lists to match, or fromDocId - 1 if none */
+    private int lastCandidate(int fromDocId, int toDocId) {
+        int docId = toDocId - 1;
+        while (docId >= fromDocId && minFeatureIndex[docId] > nPostingListsForDocument[docId]) {
+            --docId;
+        }
+        return docId;
+    }
+
+    /**
+     * Plans the search using the range of documents which may match, as found from the posting list counts:
+     * Posting lists with no documents in the range cannot contribute to a hit and are dropped,
+     * and the others are ordered by their number of documents in the range (largest first).
+     */
+    private static PostingList[] plan(List<PostingList> postingLists, int fromDocId, int toDocId) {
+        int size = postingLists.size();
+        long[] countAndIndex = new long[size];
+        int kept = 0;
+        for (int i = 0; i < size; ++i) {
+            int[] docIds = postingLists.get(i).getDocIds();
+            int count = lowerBound(docIds, toDocId) - lowerBound(docIds, fromDocId);
+            if (count > 0) {
+                countAndIndex[kept++] = ((long) count << 32) | i;
+            }
+        }
+        Arrays.sort(countAndIndex, 0, kept);
+        PostingList[] planned = new PostingList[kept];
+        for (int i = 0; i < kept; ++i) {
+            planned[i] = postingLists.get((int) countAndIndex[kept - 1 - i]);
+        }
+        return planned;
+    }
+
+    /** Returns the index of the first document id which is at least the given document id */
+    private static int lowerBound(int[] docIds, int docId) {
+        int index = Arrays.binarySearch(docIds, docId);
+        return index >= 0 ? index : -index - 1;
+    }
+
     /**
      * @return A stream of Hit-objects from a lazy evaluation of the boolean search algorithm.
      */
@@ -84,17 +152,27 @@ public class PredicateSearch {
         return StreamSupport.stream(new PredicateSpliterator(), false);
     }
 
+    /**
+     * Evaluates the boolean search algorithm and passes each hit to the given collector, in document id order.
+     * This avoids creating an object for each hit.
+     */
+    public void search(HitCollector collector) {
+        if (nPostingLists == 0) return;
+        for (int docId = seek(fromDocId); docId != -1; docId = seek(docId + 1)) {
+            collector.collect(docId, subqueryMarkers[Short.toUnsignedInt(intervalEnds[docId])]);
+        }
+    }
+
     private class PredicateSpliterator implements java.util.Spliterator<Hit> {
-        private int lastHit = -1;
+        private int lastHit = fromDocId - 1;
 
         @Override
         public boolean tryAdvance(Consumer<? super Hit> action) {
-            Optional<Hit> optionalHit = seek(lastHit + 1);
-            optionalHit.ifPresent(hit -> {
-                lastHit = hit.getDocId();
-                action.accept(hit);
-            });
-            return optionalHit.isPresent();
+            int docId = seek(lastHit + 1);
+            if (docId == -1) return false;
+            lastHit = docId;
+            action.accept(new Hit(docId, subqueryMarkers[Short.toUnsignedInt(intervalEnds[docId])]));
+            return true;
         }
 
         @Override
@@ -118,10 +196,18 @@ public class PredicateSearch {
         }
     }
 
-    private Optional<Hit> seek(int docId) {
+    /**
+     * Returns the id of the first matching document at or after the given document id,
+     * or -1 if there are no more matches. The subquery bitmap of the hit is then found in
+     * subqueryMarkers at the interval end of the document.
+     */
+    private int seek(int docId) {
         boolean skippedToEnd = skipMinFeature(docId);
         while (nPostingLists > 0 && !skippedToEnd) {
             int docId0 = docIds[sortedIndexes[0]];
+            if (docId0 >= toDocId) {
+                return -1;
+            }
             int minFeature = minFeatureIndex[docId0];
             int k = minFeature > 0 ? minFeature - 1 : 0;
             int intervalEnd = Short.toUnsignedInt(intervalEnds[docId0]);
@@ -129,21 +215,20 @@ public class PredicateSearch {
                 int docIdK = docIds[sortedIndexes[k]];
                 if (docId0 == docIdK) {
                     if (evaluateHit(docId0, k, intervalEnd)) {
-                        return Optional.of(new Hit(docId0, subqueryMarkers[intervalEnd]));
+                        return docId0;
                     }
                 }
             }
             skippedToEnd = skipMinFeature(docId0 + 1);
         }
-        return Optional.empty();
+        return -1;
     }
 
     private boolean skipMinFeature(int docId) {
-        int nDocuments = nPostingListsForDocument.length;
-        while (docId < nDocuments && minFeatureIndex[docId] > nPostingListsForDocument[docId]) {
+        while (docId < toDocId && minFeatureIndex[docId] > nPostingListsForDocument[docId]) {
             ++docId;
         }
-        if (docId < nDocuments) {
+        if (docId < toDocId) {
             advanceAllTo(docId);
             return false;
         }
@@ -10,6 +10,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -62,6 +63,64 @@ public class SimpleIndex {
         return new SimpleIndex(dictionary);
     }
 
+    /**
+     * Returns an index containing the postings of the first index followed by the postings of the second,
+     * mapped by the given mappings. The document id mappings must preserve the order of the postings, and map
+     * all documents of the first index to lower ids than the documents of the second.
+     */
+    public static SimpleIndex merge(SimpleIndex first, PostingMapping firstMapping,
+                                    SimpleIndex second, PostingMapping secondMapping) {
+        LongObjectHashMap<Entry> dictionary = new LongObjectHashMap<>();
+        for (LongObjectPair<Entry> pair : first.dictionary.keyValuesView()) {
+            putIfNotEmpty(dictionary, pair.getOne(),
+                          merge(pair.getTwo(), firstMapping, second.dictionary.get(pair.getOne()), secondMapping));
+        }
+        for (LongObjectPair<Entry> pair : second.dictionary.keyValuesView()) {
+            if ( ! first.dictionary.containsKey(pair.getOne())) {
+                putIfNotEmpty(dictionary, pair.getOne(), merge(null, firstMapping, pair.getTwo(), secondMapping));
+            }
+        }
+        dictionary.compact();
+        return new SimpleIndex(dictionary);
+    }
+
+    private static void putIfNotEmpty(LongObjectHashMap<Entry> dictionary, long key, Entry entry) {
+        if (entry.docIds.length > 0) {
+            dictionary.put(key, entry);
+        }
+    }
+
+    private static Entry merge(Entry first, PostingMapping firstMapping, Entry second, PostingMapping secondMapping) {
+        int capacity = (first == null ? 0 : first.docIds.length) + (second == null ? 0 : second.docIds.length);
+        int[] docIds = new int[capacity];
+        int[] dataRefs = new int[capacity];
+        int size = addMapped(first, firstMapping, docIds, dataRefs, 0);
+        size = addMapped(second, secondMapping, docIds, dataRefs, size);
+        return new Entry(Arrays.copyOf(docIds, size), Arrays.copyOf(dataRefs, size));
+    }
+
+    private static int addMapped(Entry entry, PostingMapping mapping, int[] docIds, int[] dataRefs, int size) {
+        if (entry == null) return size;
+        for (int i = 0; i < entry.docIds.length; i++) {
+            int docId = mapping.docId(entry.docIds[i]);
+            if (docId < 0) continue;
+            docIds[size] = docId;
+            dataRefs[size++] = mapping.dataRef(entry.dataRefs[i]);
+        }
+        return size;
+    }
+
+    /** Maps the postings of an index to the postings of a merged index */
+    public interface PostingMapping {
+
+        /** Returns the id of the given document in the merged index, or -1 to leave out its postings */
+        int docId(int docId);
+
+        /** Returns the data reference in the merged index of the given data reference */
+        int dataRef(int dataRef);
+
+    }
+
     public static class Entry {
         public final int[] docIds;
         public final int[] dataRefs;
@@ -2,23 +2,39 @@
 package com.yahoo.search.predicate.index;
 
 import com.yahoo.search.predicate.SubqueryBitmap;
+import com.yahoo.search.predicate.utils.PostingListSearch;
+
+import java.util.BitSet;
 
 /**
  * Wraps an int stream of document ids into a PostingList.
  * All documents in the stream are considered matches.
  *
+ * If a bitset of the document ids is given, documents are found by scanning the bitset a word at a time,
+ * which is faster than searching the document id array when the documents are dense.
+ *
  * @author Magnar Nedland
  * @author bjorncs
  */
 public class ZeroConstraintPostingList implements PostingList {
 
     private final int[] docIds;
+    private final BitSet docIdSet;
     private final int length;
     private int currentIndex;
     private int currentDocId;
 
     public ZeroConstraintPostingList(int[] docIds) {
+        this(docIds, null);
+    }
+
+    /**
+     * @param docIds the sorted document ids of this
+     * @param docIdSet the same document ids as a bitset, or null to search the document id array
+     */
+    public ZeroConstraintPostingList(int[] docIds, BitSet docIdSet) {
         this.docIds = docIds;
+        this.docIdSet = docIdSet;
         this.currentIndex = 0;
         this.currentDocId = -1;
         this.length = docIds.length;
@@ -26,17 +42,37 @@ public class ZeroConstraintPostingList implements PostingList {
 
     @Override
     public boolean nextDocument(int docId) {
-        int currentDocId = this.currentDocId;
-        while (currentIndex < length && currentDocId <= docId) {
-            currentDocId = docIds[currentIndex++];
+        if (docId < currentDocId) return true; // Already beyond docId
+        if (docIdSet != null) {
+            int next = docIdSet.nextSetBit(docId + 1);
+            if (next < 0) return false;
+            currentDocId = next;
+            return true;
         }
-        if (currentDocId <= docId) {
+        if (length == 0) return false;
+        int index = PostingListSearch.interpolationSearch(docIds, currentIndex, length, docId);
+        if (index == length) {
             return false;
         }
-        this.currentDocId = currentDocId;
+        this.currentDocId = docIds[index];
+        this.currentIndex = index;
         return true;
     }
 
+    /** Returns whether the given document ids are dense enough that a bitset is faster to search than the array */
+    public static boolean isDense(int[] docIds, int nDocuments) {
+        // A bitset of nDocuments bits uses no more memory than the array of 32 bit ids at this density
+        return docIds.length > 0 && (long)docIds.length * Integer.SIZE >= nDocuments;
+    }
+
+    /** Returns a bitset containing the given document ids */
+    public static BitSet toBitSet(int[] docIds) {
+        BitSet docIdSet = new BitSet(docIds.length == 0 ? 0 : docIds[docIds.length - 1] + 1);
+        for (int docId : docIds)
+            docIdSet.set(docId);
+        return docIdSet;
+    }
+
     @Override
     public boolean prepareIntervals() {
         return true;
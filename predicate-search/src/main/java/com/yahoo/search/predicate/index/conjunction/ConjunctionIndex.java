@@ -10,7 +10,9 @@ import org.eclipse.collections.api.map.primitive.IntObjectMap;
 import org.eclipse.collections.api.map.primitive.LongObjectMap;
 import org.eclipse.collections.api.tuple.primitive.IntObjectPair;
 import org.eclipse.collections.api.tuple.primitive.LongObjectPair;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
 import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.LongIntHashMap;
 import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
 
 import java.io.DataInputStream;
@@ -20,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongPredicate;
 
 /**
  * A searchable index of conjunctions (see {@link FeatureConjunction} / {@link IndexableFeatureConjunction}).
@@ -69,6 +72,77 @@ public class ConjunctionIndex {
         return new ConjunctionIndex(kIndex, zList, idMapping);
     }
 
+    /**
+     * Returns an index of the conjunctions of both given indexes which are accepted by the given predicate
+     * on the external conjunction id, without re-indexing them.
+     */
+    public static ConjunctionIndex merge(ConjunctionIndex first, ConjunctionIndex second, LongPredicate keep) {
+        LongIntHashMap mergedIds = new LongIntHashMap();
+        LongArrayList idMapping = new LongArrayList();
+        int[] firstIdMapping = mapIds(first.idMapping, keep, mergedIds, idMapping);
+        int[] secondIdMapping = mapIds(second.idMapping, keep, mergedIds, idMapping);
+        IntObjectHashMap<FeatureIndex> kIndex = new IntObjectHashMap<>();
+        first.kIndex.forEachKeyValue((k, featureIndex) -> putIfNotEmpty(
+                kIndex, k, FeatureIndex.merge(featureIndex, firstIdMapping, second.kIndex.get(k), secondIdMapping)));
+        second.kIndex.forEachKeyValue((k, featureIndex) -> {
+            if ( ! first.kIndex.containsKey(k)) {
+                putIfNotEmpty(kIndex, k, FeatureIndex.merge(null, firstIdMapping, featureIndex, secondIdMapping));
+            }
+        });
+        kIndex.compact();
+        int[] zList = mergeConjunctionIds(first.zList, firstIdMapping, second.zList, secondIdMapping);
+        return new ConjunctionIndex(kIndex, zList, idMapping.toArray());
+    }
+
+    /** Returns the merged internal id of each conjunction in the given id mapping, or -1 if it is not kept */
+    private static int[] mapIds(long[] externalIds, LongPredicate keep, LongIntHashMap mergedIds, LongArrayList idMapping) {
+        int[] ids = new int[externalIds.length];
+        for (int i = 0; i < externalIds.length; i++) {
+            long externalId = externalIds[i];
+            if (keep.test(externalId)) {
+                ids[i] = mergedIds.getIfAbsentPut(externalId, idMapping.size());
+                if (ids[i] == idMapping.size()) {
+                    idMapping.add(externalId);
+                }
+            } else {
+                ids[i] = -1;
+            }
+        }
+        return ids;
+    }
+
+    private static void putIfNotEmpty(IntObjectHashMap<FeatureIndex> kIndex, int k, FeatureIndex featureIndex) {
+        if ( ! featureIndex.map.isEmpty()) {
+            kIndex.put(k, featureIndex);
+        }
+    }
+
+    /** Returns the sorted, unique conjunction ids of both given lists, mapped to the ids of the merged index */
+    private static int[] mergeConjunctionIds(int[] first, int[] firstIdMapping, int[] second, int[] secondIdMapping) {
+        int[] merged = new int[(first == null ? 0 : first.length) + (second == null ? 0 : second.length)];
+        int size = addMapped(first, firstIdMapping, merged, 0);
+        size = addMapped(second, secondIdMapping, merged, size);
+        Arrays.sort(merged, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || merged[unique - 1] != merged[i]) {
+                merged[unique++] = merged[i];
+            }
+        }
+        return Arrays.copyOf(merged, unique);
+    }
+
+    private static int addMapped(int[] conjunctionIds, int[] idMapping, int[] merged, int size) {
+        if (conjunctionIds == null) return size;
+        for (int conjunctionId : conjunctionIds) {
+            int id = idMapping[conjunctionId >>> 1];
+            if (id >= 0) {
+                merged[size++] = (id << 1) | (conjunctionId & 1);
+            }
+        }
+        return size;
+    }
+
     public static class FeatureIndex {
         // Maps a feature id to conjunction id
         private final LongObjectMap<int[]> map;
@@ -89,6 +163,29 @@ public class ConjunctionIndex {
             }
         }
 
+        private static FeatureIndex merge(FeatureIndex first, int[] firstIdMapping, FeatureIndex second, int[] secondIdMapping) {
+            LongObjectHashMap<int[]> map = new LongObjectHashMap<>();
+            if (first != null) {
+                first.map.forEachKeyValue((featureId, conjunctionIds) -> putIfNotEmpty(map, featureId, mergeConjunctionIds(
+                        conjunctionIds, firstIdMapping, second == null ? null : second.map.get(featureId), secondIdMapping)));
+            }
+            if (second != null) {
+                second.map.forEachKeyValue((featureId, conjunctionIds) -> {
+                    if (first == null || ! first.map.containsKey(featureId)) {
+                        putIfNotEmpty(map, featureId, mergeConjunctionIds(null, firstIdMapping, conjunctionIds, secondIdMapping));
+                    }
+                });
+            }
+            map.compact();
+            return new FeatureIndex(map);
+        }
+
+        private static void putIfNotEmpty(LongObjectHashMap<int[]> map, long featureId, int[] conjunctionIds) {
+            if (conjunctionIds.length > 0) {
+                map.put(featureId, conjunctionIds);
+            }
+        }
+
         public static FeatureIndex fromInputStream(DataInputStream in) throws IOException {
             int mapSize = in.readInt();
             LongObjectHashMap<int[]> map = new LongObjectHashMap<>(mapSize);
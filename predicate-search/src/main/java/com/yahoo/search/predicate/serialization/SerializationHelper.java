@@ -6,6 +6,7 @@ import com.yahoo.search.predicate.PredicateIndex;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Misc utility functions to help serialization of {@link PredicateIndex}.
@@ -14,68 +15,102 @@ import java.io.IOException;
  */
 public class SerializationHelper {
 
+    // Arrays are converted to and from bytes in chunks of at most this size
+    private static final int CHUNK_SIZE = 1 << 16;
+
     public static void writeIntArray(int[] array, DataOutputStream out) throws IOException {
         out.writeInt(array.length);
-        for (int v : array) {
-            out.writeInt(v);
+        ByteBuffer buffer = chunkBuffer(array.length, Integer.BYTES);
+        for (int offset = 0; offset < array.length; ) {
+            int n = Math.min(array.length - offset, buffer.capacity() / Integer.BYTES);
+            buffer.clear();
+            buffer.asIntBuffer().put(array, offset, n);
+            out.write(buffer.array(), 0, n * Integer.BYTES);
+            offset += n;
         }
     }
 
     public static int[] readIntArray(DataInputStream in) throws IOException {
         int length = in.readInt();
         int[] array = new int[length];
-        for (int i = 0; i < length; i++) {
-            array[i] = in.readInt();
+        ByteBuffer buffer = chunkBuffer(length, Integer.BYTES);
+        for (int offset = 0; offset < length; ) {
+            int n = Math.min(length - offset, buffer.capacity() / Integer.BYTES);
+            in.readFully(buffer.array(), 0, n * Integer.BYTES);
+            buffer.clear();
+            buffer.asIntBuffer().get(array, offset, n);
+            offset += n;
         }
         return array;
     }
 
     public static void writeByteArray(byte[] array, DataOutputStream out) throws IOException {
         out.writeInt(array.length);
-        for (int v : array) {
-            out.writeByte(v);
-        }
+        out.write(array);
     }
 
     public static byte[] readByteArray(DataInputStream in) throws IOException {
         int length = in.readInt();
         byte[] array = new byte[length];
-        for (int i = 0; i < length; i++) {
-            array[i] = in.readByte();
-        }
+        in.readFully(array);
         return array;
     }
 
     public static void writeLongArray(long[] array, DataOutputStream out) throws IOException {
         out.writeInt(array.length);
-        for (long v : array) {
-            out.writeLong(v);
+        ByteBuffer buffer = chunkBuffer(array.length, Long.BYTES);
+        for (int offset = 0; offset < array.length; ) {
+            int n = Math.min(array.length - offset, buffer.capacity() / Long.BYTES);
+            buffer.clear();
+            buffer.asLongBuffer().put(array, offset, n);
+            out.write(buffer.array(), 0, n * Long.BYTES);
+            offset += n;
         }
     }
 
     public static long[] readLongArray(DataInputStream in) throws IOException {
         int length = in.readInt();
         long[] array = new long[length];
-        for (int i = 0; i < length; i++) {
-            array[i] = in.readLong();
+        ByteBuffer buffer = chunkBuffer(length, Long.BYTES);
+        for (int offset = 0; offset < length; ) {
+            int n = Math.min(length - offset, buffer.capacity() / Long.BYTES);
+            in.readFully(buffer.array(), 0, n * Long.BYTES);
+            buffer.clear();
+            buffer.asLongBuffer().get(array, offset, n);
+            offset += n;
         }
         return array;
     }
 
     public static void writeShortArray(short[] array, DataOutputStream out) throws IOException {
         out.writeInt(array.length);
-        for (short v : array) {
-            out.writeShort(v);
+        ByteBuffer buffer = chunkBuffer(array.length, Short.BYTES);
+        for (int offset = 0; offset < array.length; ) {
+            int n = Math.min(array.length - offset, buffer.capacity() / Short.BYTES);
+            buffer.clear();
+            buffer.asShortBuffer().put(array, offset, n);
+            out.write(buffer.array(), 0, n * Short.BYTES);
+            offset += n;
         }
     }
 
     public static short[] readShortArray(DataInputStream in) throws IOException {
         int length = in.readInt();
         short[] array = new short[length];
-        for (int i = 0; i < length; i++) {
-            array[i] = in.readShort();
+        ByteBuffer buffer = chunkBuffer(length, Short.BYTES);
+        for (int offset = 0; offset < length; ) {
+            int n = Math.min(length - offset, buffer.capacity() / Short.BYTES);
+            in.readFully(buffer.array(), 0, n * Short.BYTES);
+            buffer.clear();
+            buffer.asShortBuffer().get(array, offset, n);
+            offset += n;
         }
         return array;
     }
 
+    /** Returns a big-endian buffer, as used by DataOutput, large enough for the array or a chunk of it */
+    private static ByteBuffer chunkBuffer(int length, int elementSize) {
+        return ByteBuffer.allocate((int) Math.min((long) length * elementSize, CHUNK_SIZE));
+    }
+
 }
@@ -3,8 +3,15 @@ package com.yahoo.search.predicate;
 
 import com.yahoo.document.predicate.Predicate;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertSerializationDeserializationMatches;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -128,6 +135,40 @@ public class PredicateIndexTest {
         assertEquals("[42]", searcher.search(query).toList().toString());
     }
 
+    @Test
+    void requireThatCollectorAndParallelSearchReturnSameHitsAsStream() {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
+        for (int i = 0; i < 20000; i++) {
+            switch (i % 4) {
+                case 0 -> builder.indexDocument(i, Predicate.fromString("true"));
+                case 1 -> builder.indexDocument(i, Predicate.fromString("country in ['no']"));
+                case 2 -> builder.indexDocument(i, Predicate.fromString("country in ['se'] and age in [20..40]"));
+                default -> builder.indexDocument(i, Predicate.fromString("country not in ['no']"));
+            }
+        }
+        PredicateIndex index = builder.build();
+        PredicateIndex.Searcher searcher = index.searcher();
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", "se", 0x1);
+        query.addRangeFeature("age", 30, 0x3);
+        List<Hit> expected = searcher.search(query).toList();
+        assertEquals(15000, expected.size());
+
+        List<Hit> collected = new ArrayList<>();
+        searcher.search(query, (docId, subquery) -> collected.add(new Hit(docId, subquery)));
+        assertEquals(expected, collected);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Hit> collectedInParallel = new ArrayList<>();
+            searcher.search(query, (docId, subquery) -> collectedInParallel.add(new Hit(docId, subquery)), executor, 4);
+            assertEquals(expected, collectedInParallel);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     void require_that_serialization_and_deserialization_retain_data() throws IOException {
         PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
@@ -137,4 +178,21 @@ public class PredicateIndexTest {
         assertSerializationDeserializationMatches(
                 index, PredicateIndex::writeToOutputStream, PredicateIndex::fromInputStream);
     }
+
+    @Test
+    void require_that_index_can_be_written_to_and_read_from_file(@TempDir Path tempDir) throws IOException {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
+        builder.indexDocument(1, Predicate.fromString("country in ['no', 'se'] and gender in ['male']"));
+        builder.indexDocument(0x3fffffe, Predicate.fromString("country in ['no'] and gender in ['female']"));
+        Path file = tempDir.resolve("predicate-index");
+        builder.build().writeToFile(file);
+        assertEquals(List.of(file), Files.list(tempDir).toList());
+
+        PredicateIndex index = PredicateIndex.fromFile(file);
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", "no");
+        query.addFeature("gender", "female");
+        assertEquals("[67108862]", index.searcher().search(query).toList().toString());
+    }
+
 }
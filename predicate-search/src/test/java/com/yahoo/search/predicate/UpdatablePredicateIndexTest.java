@@ -0,0 +1,164 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate;
+
+import com.yahoo.document.predicate.Predicate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author michaelcizmar
+ */
+public class UpdatablePredicateIndexTest {
+
+    @Test
+    void requireThatUpdatesAreSearchableBeforeMerge() {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
+        builder.indexDocument(1, Predicate.fromString("country in ['no']"));
+        builder.indexDocument(2, Predicate.fromString("country in ['se']"));
+        builder.indexDocument(3, Predicate.fromString("country in ['no'] and gender in ['male']"));
+        PredicateIndex base = builder.build();
+        QueuedExecutor executor = new QueuedExecutor();
+        UpdatablePredicateIndex index = new UpdatablePredicateIndex(base, executor, 100);
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", "no");
+        assertEquals("[1]", search(index, query));
+
+        index.indexDocument(2, Predicate.fromString("country in ['no', 'se']"));
+        index.indexDocument(4, Predicate.fromString("true"));
+        assertTrue(index.removeDocument(1));
+        assertFalse(index.removeDocument(5));
+        assertEquals(4, index.getPendingUpdateCount());
+        assertEquals("[2, 4]", search(index, query));
+        assertEquals("[2, 4]", index.searcher().search(query).toList().toString());
+
+        index.indexDocument(4, Predicate.fromString("false"));
+        assertEquals("[2]", search(index, query));
+        assertSame(base, index.getBase());
+        assertEquals(0, executor.tasks.size());
+    }
+
+    @Test
+    void requireThatUpdatesAreMergedInTheBackground() {
+        QueuedExecutor executor = new QueuedExecutor();
+        UpdatablePredicateIndex index = new UpdatablePredicateIndex(new Config.Builder().setArity(10).build(), executor, 3);
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", "no");
+        index.indexDocument(1, Predicate.fromString("country in ['no']"));
+        index.indexDocument(2, Predicate.fromString("country in ['no']"));
+        assertEquals(0, executor.tasks.size());
+        index.indexDocument(3, Predicate.fromString("country in ['se']"));
+        assertEquals(1, executor.tasks.size());
+        PredicateIndex oldBase = index.getBase();
+
+        // Updates while merging remain pending after the merge
+        index.indexDocument(4, Predicate.fromString("country in ['no']"));
+        index.removeDocument(1);
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertNotSame(oldBase, index.getBase());
+        assertEquals(2, index.getPendingUpdateCount());
+        assertEquals("[2, 4]", search(index, query));
+
+        CompletableFuture<Void> merge = index.merge();
+        executor.runAll();
+        merge.join();
+        assertEquals(0, index.getPendingUpdateCount());
+        assertEquals("[2, 4]", search(index, query));
+        assertEquals("[2, 4]", index.getBase().searcher().search(query).sorted().toList().toString());
+    }
+
+    @Test
+    void requireThatMergedBaseMatchesRebuiltIndex() {
+        for (boolean useConjunctionAlgorithm : List.of(false, true)) {
+            Config config = new Config.Builder().setArity(8).setUseConjunctionAlgorithm(useConjunctionAlgorithm).build();
+            List<String> predicates = List.of("true",
+                                              "false",
+                                              "country in ['no']",
+                                              "country not in ['no']",
+                                              "country in ['se'] and age in [20..40]",
+                                              "(country in ['no'] and gender in ['female']) or age in [30..]",
+                                              "(country in ['no'] and gender in ['female']) or country in ['se']");
+            Map<Integer, Predicate> documents = new HashMap<>();
+            PredicateIndexBuilder builder = new PredicateIndexBuilder(config);
+            for (int docId = 0; docId < 100; docId++) {
+                Predicate predicate = Predicate.fromString(predicates.get(docId % predicates.size()));
+                builder.indexDocument(docId, predicate);
+                documents.put(docId, predicate);
+            }
+            QueuedExecutor executor = new QueuedExecutor();
+            UpdatablePredicateIndex index = new UpdatablePredicateIndex(builder.build(), executor, 1000);
+            for (int docId = 50; docId < 150; docId++) {
+                if (docId % 3 == 0) {
+                    index.removeDocument(docId);
+                    documents.remove(docId);
+                } else {
+                    Predicate predicate = Predicate.fromString(predicates.get((docId * 5) % predicates.size()));
+                    index.indexDocument(docId, predicate);
+                    documents.put(docId, predicate);
+                }
+            }
+            index.merge();
+            executor.runAll();
+            assertEquals(0, index.getPendingUpdateCount());
+
+            PredicateIndexBuilder rebuilt = new PredicateIndexBuilder(config);
+            documents.forEach(rebuilt::indexDocument);
+            for (PredicateQuery query : List.of(query("country", "no", "gender", "female", 25),
+                                                query("country", "se", "gender", "male", 25),
+                                                query("country", "dk", "gender", "female", 35),
+                                                new PredicateQuery())) {
+                assertEquals(hits(rebuilt.build(), query), hits(index.getBase(), query));
+                assertEquals(hits(rebuilt.build(), query).stream().map(Hit::getDocId).toList().toString(),
+                             search(index, query));
+            }
+        }
+    }
+
+    private static PredicateQuery query(String key1, String value1, String key2, String value2, long age) {
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature(key1, value1, 0x1);
+        query.addFeature(key2, value2, 0x3);
+        query.addRangeFeature("age", age, 0x2);
+        return query;
+    }
+
+    private static List<Hit> hits(PredicateIndex index, PredicateQuery query) {
+        return index.searcher().search(query).sorted().toList();
+    }
+
+    private static String search(UpdatablePredicateIndex index, PredicateQuery query) {
+        List<Integer> hits = new ArrayList<>();
+        index.searcher().search(query, (docId, subquery) -> hits.add(docId));
+        hits.sort(Integer::compare);
+        return hits.toString();
+    }
+
+    private static class QueuedExecutor implements Executor {
+
+        final LinkedBlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+
+        @Override
+        public void execute(Runnable task) { tasks.add(task); }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null)
+                task.run();
+        }
+
+    }
+
+}
@@ -3,6 +3,7 @@ package com.yahoo.search.predicate.index;
 
 import com.google.common.primitives.Ints;
 import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectLongHashMap;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
@@ -10,6 +11,10 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -105,6 +110,68 @@ public class CachedPostingListCounterTest {
         assertArrayEquals(new byte[]{100, 0, 0, 0}, nPostingListsPerDocument);
     }
 
+    @Test
+    void require_that_bit_vector_is_reused_when_most_costly_posting_lists_are_unchanged() {
+        int nDocuments = 4;
+        CachedPostingListCounter c = new CachedPostingListCounter(nDocuments);
+        List<PostingList> postingLists = list(postingList(0, 1, 2, 3), postingList(1, 2));
+        c.registerUsage(postingLists);
+        assertEquals(1, c.getRegisteredQueryCount());
+        CachedPostingListCounter rebuilt = c.rebuildCache();
+        assertEquals(0, rebuilt.getRegisteredQueryCount());
+
+        rebuilt.registerUsage(postingLists);
+        CachedPostingListCounter rebuiltAgain = rebuilt.rebuildCache();
+        assertSame(rebuilt.getBitVector(), rebuiltAgain.getBitVector());
+
+        rebuiltAgain.registerUsage(list(postingList(3)));
+        assertNotSame(rebuiltAgain.getBitVector(), rebuiltAgain.rebuildCache().getBitVector());
+    }
+
+    @Test
+    void require_that_usage_frequencies_decay_on_rebuild() {
+        int nDocuments = 4;
+        CachedPostingListCounter c = new CachedPostingListCounter(nDocuments);
+        PostingList frequentEarlier = postingList(0, 1, 2, 3);
+        PostingList frequentNow = postingList(1, 2, 3);
+        for (int i = 0; i < 4; i++) {
+            c.registerUsage(list(frequentEarlier));
+        }
+        c = c.rebuildCache();
+        assertEquals(0, c.getPostingListMapping().getIfAbsent(frequentEarlier.getDocIds(), -1));
+
+        for (int i = 0; i < 4; i++) {
+            c.registerUsage(list(frequentNow));
+        }
+        c = c.rebuildCache(); // frequentEarlier: 2 * 4 = 8, frequentNow: 4 * 3 = 12
+        assertEquals(0, c.getPostingListMapping().getIfAbsent(frequentNow.getDocIds(), -1));
+        assertEquals(1, c.getPostingListMapping().getIfAbsent(frequentEarlier.getDocIds(), -1));
+    }
+
+    @Test
+    void require_that_the_least_used_posting_lists_are_evicted() {
+        int[] hot = {0}, warm = {1}, alsoWarm = {2}, cold = {3};
+        ObjectLongHashMap<int[]> frequency = new ObjectLongHashMap<>();
+        frequency.put(hot, 8);
+        frequency.put(warm, 4);
+        frequency.put(alsoWarm, 4);
+        frequency.put(cold, 1);
+
+        ObjectLongHashMap<int[]> mostFrequent = CachedPostingListCounter.mostFrequent(frequency, 3);
+        assertEquals(3, mostFrequent.size());
+        assertFalse(mostFrequent.containsKey(cold));
+
+        mostFrequent = CachedPostingListCounter.mostFrequent(frequency, 2);
+        assertEquals(2, mostFrequent.size());
+        assertEquals(8, mostFrequent.get(hot));
+        assertTrue(mostFrequent.containsKey(warm) || mostFrequent.containsKey(alsoWarm));
+
+        ObjectLongHashMap<int[]> sameFrequency = new ObjectLongHashMap<>();
+        for (int i = 0; i < 100; i++)
+            sameFrequency.put(new int[] { i }, 5);
+        assertEquals(75, CachedPostingListCounter.mostFrequent(sameFrequency, 75).size());
+    }
+
     private static List<PostingList> list(PostingList... postingLists) {
         return List.of(postingLists);
     }
@@ -10,6 +10,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author <a href="mailto:magnarn@yahoo-inc.com">Magnar Nedland</a>
@@ -205,7 +206,66 @@ public class PredicateSearchTest {
         assertEquals(List.of(new Hit(0)).toString(), search.stream().toList().toString());
     }
 
+    @Test
+    void requireThatCollectorReceivesSameHitsAsStream() {
+        byte[] minFeatures = new byte[]{1, 1, 1, 1};
+        List<Hit> hits = new ArrayList<>();
+        createPredicateSearch(minFeatures, multiDocumentPostingList())
+                .search((docId, subquery) -> hits.add(new Hit(docId, subquery)));
+        assertEquals(createPredicateSearch(minFeatures, multiDocumentPostingList()).stream().toList().toString(),
+                     hits.toString());
+        assertEquals(List.of(new Hit(0), new Hit(1), new Hit(3)).toString(), hits.toString());
+    }
+
+    @Test
+    void requireThatSearchIsLimitedToDocIdRange() {
+        byte[] minFeatures = new byte[]{1, 1, 1, 1};
+        assertEquals(List.of(new Hit(1)).toString(),
+                     createPredicateSearch(minFeatures, 1, 3, multiDocumentPostingList()).stream().toList().toString());
+        List<Hit> hits = new ArrayList<>();
+        createPredicateSearch(minFeatures, 2, 4, multiDocumentPostingList())
+                .search((docId, subquery) -> hits.add(new Hit(docId, subquery)));
+        assertEquals(List.of(new Hit(3)).toString(), hits.toString());
+        assertEquals(0, createPredicateSearch(minFeatures, 2, 3, multiDocumentPostingList()).stream().count());
+    }
+
+    @Test
+    void requireThatPostingListsWithoutCandidateDocumentsAreNotTraversed() {
+        // Document 2 has min-feature 2, but is only in one posting list, so it cannot match
+        SimplePostingList candidates = postingList(SubqueryBitmap.ALL_SUBQUERIES,
+                                                   entry(0, 0x000100ff),
+                                                   entry(1, 0x000100ff));
+        SimplePostingList nonCandidates = postingList(SubqueryBitmap.ALL_SUBQUERIES,
+                                                      entry(2, 0x00010001, 0x000200ff));
+        PredicateSearch search = createPredicateSearch(new byte[]{1, 1, 2}, candidates, nonCandidates);
+        assertEquals(List.of(new Hit(0), new Hit(1)).toString(), search.stream().toList().toString());
+        assertEquals(0, nonCandidates.nextDocumentCalls);
+        assertTrue(candidates.nextDocumentCalls > 0);
+    }
+
+    @Test
+    void requireThatNoPostingListsAreTraversedWithoutCandidateDocuments() {
+        SimplePostingList postingList = postingList(SubqueryBitmap.ALL_SUBQUERIES,
+                                                    entry(0, 0x00010001, 0x000200ff),
+                                                    entry(1, 0x00010001, 0x000200ff));
+        PredicateSearch search = createPredicateSearch(new byte[]{2, 2}, postingList);
+        assertEquals(0, search.stream().count());
+        assertEquals(0, postingList.nextDocumentCalls);
+    }
+
+    private static SimplePostingList multiDocumentPostingList() {
+        return postingList(SubqueryBitmap.ALL_SUBQUERIES,
+                           entry(0, 0x000100ff),
+                           entry(1, 0x000100ff),
+                           entry(2, 0x00010042),
+                           entry(3, 0x000100ff));
+    }
+
     private static PredicateSearch createPredicateSearch(byte[] minFeatures, PostingList... postingLists) {
+        return createPredicateSearch(minFeatures, 0, minFeatures.length, postingLists);
+    }
+
+    private static PredicateSearch createPredicateSearch(byte[] minFeatures, int fromDocId, int toDocId, PostingList... postingLists) {
         byte[] nPostingListsForDocument = new byte[minFeatures.length];
         short[] intervalEnds = new short[minFeatures.length];
         Arrays.fill(intervalEnds, (short) 0xFF);
@@ -215,7 +275,7 @@ public class PredicateSearchTest {
                 nPostingListsForDocument[id]++;
             }
         }
-        return new PredicateSearch(list, nPostingListsForDocument, minFeatures, intervalEnds, 0xFF);
+        return new PredicateSearch(list, nPostingListsForDocument, minFeatures, intervalEnds, 0xFF, fromDocId, toDocId);
     }
 
     private static class SimplePostingList implements PostingList {
@@ -225,6 +285,7 @@ public class PredicateSearchTest {
         private int currentIntervalIndex;
         private int currentDocId;
         private int currentIndex;
+        private int nextDocumentCalls = 0;
 
         public SimplePostingList(long subquery, Entry... entries) {
             this.subquery = subquery;
@@ -235,6 +296,7 @@ public class PredicateSearchTest {
 
         @Override
         public boolean nextDocument(int docId) {
+            ++nextDocumentCalls;
             while (currentIndex < entries.length && entries[currentIndex].docId <= docId) {
                 ++currentIndex;
             }
@@ -3,6 +3,8 @@ package com.yahoo.search.predicate.index;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.BitSet;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -31,4 +33,47 @@ public class ZeroConstraintPostingListTest {
 
         assertFalse(postingList.nextDocument(8));
     }
+
+    @Test
+    void requireThatPostingListCanIterateUsingBitSet() {
+        int[] docIds = new int[]{2, 4, 6, 8};
+        assertTrue(ZeroConstraintPostingList.isDense(docIds, 10));
+        assertFalse(ZeroConstraintPostingList.isDense(docIds, 1000));
+        BitSet docIdSet = ZeroConstraintPostingList.toBitSet(docIds);
+        ZeroConstraintPostingList postingList = new ZeroConstraintPostingList(docIds, docIdSet);
+        assertEquals(-1, postingList.getDocId());
+        assertEquals(4, postingList.size());
+
+        assertTrue(postingList.nextDocument(0));
+        assertEquals(2, postingList.getDocId());
+
+        assertTrue(postingList.nextDocument(2));
+        assertEquals(4, postingList.getDocId());
+
+        assertTrue(postingList.nextDocument(7));
+        assertEquals(8, postingList.getDocId());
+
+        assertTrue(postingList.nextDocument(7));
+        assertEquals(8, postingList.getDocId());
+
+        assertFalse(postingList.nextDocument(8));
+    }
+
+    @Test
+    void requireThatPostingListCanSkipInLargeDocIdArrays() {
+        int[] docIds = new int[100000];
+        for (int i = 0; i < docIds.length; i++)
+            docIds[i] = i * 3;
+        ZeroConstraintPostingList postingList = new ZeroConstraintPostingList(docIds);
+        assertTrue(postingList.nextDocument(-1));
+        assertEquals(0, postingList.getDocId());
+        assertTrue(postingList.nextDocument(150000));
+        assertEquals(150003, postingList.getDocId());
+        assertTrue(postingList.nextDocument(150004));
+        assertEquals(150006, postingList.getDocId());
+        assertTrue(postingList.nextDocument(299994));
+        assertEquals(299997, postingList.getDocId());
+        assertFalse(postingList.nextDocument(299997));
+    }
+
 }
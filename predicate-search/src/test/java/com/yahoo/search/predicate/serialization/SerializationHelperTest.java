@@ -3,9 +3,15 @@ package com.yahoo.search.predicate.serialization;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * @author bjorncs
@@ -40,5 +46,37 @@ public class SerializationHelperTest {
                 shorts, SerializationHelper::writeShortArray, SerializationHelper::readShortArray);
     }
 
+    @Test
+    void require_that_arrays_larger_than_a_chunk_are_serialized_element_by_element() throws IOException {
+        int[] ints = new int[100_000];
+        long[] longs = new long[ints.length];
+        short[] shorts = new short[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i * 31 - 1000;
+            longs[i] = (long) i << 33 | i;
+            shorts[i] = (short) (i * 7);
+        }
+        ByteArrayOutputStream expectedBytes = new ByteArrayOutputStream();
+        DataOutputStream expected = new DataOutputStream(expectedBytes);
+        expected.writeInt(ints.length);
+        for (int v : ints) expected.writeInt(v);
+        expected.writeInt(longs.length);
+        for (long v : longs) expected.writeLong(v);
+        expected.writeInt(shorts.length);
+        for (short v : shorts) expected.writeShort(v);
+
+        ByteArrayOutputStream actualBytes = new ByteArrayOutputStream();
+        DataOutputStream actual = new DataOutputStream(actualBytes);
+        SerializationHelper.writeIntArray(ints, actual);
+        SerializationHelper.writeLongArray(longs, actual);
+        SerializationHelper.writeShortArray(shorts, actual);
+        assertArrayEquals(expectedBytes.toByteArray(), actualBytes.toByteArray());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(actualBytes.toByteArray()));
+        assertArrayEquals(ints, SerializationHelper.readIntArray(in));
+        assertArrayEquals(longs, SerializationHelper.readLongArray(in));
+        assertArrayEquals(shorts, SerializationHelper.readShortArray(in));
+        assertEquals(-1, in.read());
+    }
 
 }
@@ -3,19 +3,37 @@ package com.yahoo.searchlib.rankingexpression.evaluation.tensoroptimization;
 
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
 import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
 import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
 import com.yahoo.searchlib.rankingexpression.evaluation.Optimizer;
 import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
 import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.LambdaFunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.OperationNode;
+import com.yahoo.searchlib.rankingexpression.rule.Operator;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
 import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.functions.CosineSimilarity;
 import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.L2Normalize;
+import com.yahoo.tensor.functions.Map;
 import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ScalarFunctions;
 import com.yahoo.tensor.functions.ReduceJoin;
+import com.yahoo.tensor.functions.Softmax;
 import com.yahoo.tensor.functions.TensorFunction;
+import com.yahoo.tensor.functions.XwPlusB;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Recognizes and optimizes tensor expressions.
@@ -35,6 +53,7 @@ public class TensorOptimizer extends Optimizer {
     }
 
     private ExpressionNode optimize(ExpressionNode node, ContextIndex context) {
+        node = optimizeFusion(node, context);
         node = optimizeReduceJoin(node);
         if (node instanceof CompositeNode) {
             return optimizeChildren((CompositeNode)node, context);
@@ -83,4 +102,221 @@ public class TensorOptimizer extends Optimizer {
         return node;
     }
 
+    /**
+     * Recognizes compositions of joins, maps and reduces which computes softmax, l2 normalization,
+     * cosine similarity or xw + b, whether written using tensor functions or arithmetic operators, and
+     * replaces them by the corresponding composite function. These evaluate in a single pass over dense arguments
+     * instead of creating a temporary tensor per step, and otherwise produce the same result as before.
+     */
+    private ExpressionNode optimizeFusion(ExpressionNode node, ContextIndex context) {
+        Optional<Binary> binary = binary(node);
+        if (binary.isEmpty()) return node;
+        return switch (binary.get().operation()) {
+            case divide -> fuseSoftmax(binary.get())
+                                  .or(() -> fuseL2Normalize(binary.get()))
+                                  .or(() -> fuseCosineSimilarity(binary.get(), context))
+                                  .orElse(node);
+            case plus -> fuseXwPlusB(binary.get()).orElse(node);
+            default -> node;
+        };
+    }
+
+    /** exp(x) / sum(exp(x), d) */
+    private Optional<ExpressionNode> fuseSoftmax(Binary division) {
+        Optional<Unary> numerator = unary(division.left(), UnaryFunction.exp);
+        Optional<Sum> denominator = sum(division.right());
+        if (numerator.isEmpty() || denominator.isEmpty()) return Optional.empty();
+        Optional<Unary> summed = unary(denominator.get().argument(), UnaryFunction.exp);
+        if (summed.isEmpty() || ! summed.get().argument().equals(numerator.get().argument())) return Optional.empty();
+        report.incMetric("Fused softmax", 1);
+        return Optional.of(new TensorFunctionNode(new Softmax<>(TensorFunctionNode.wrap(numerator.get().argument()),
+                                                                denominator.get().dimension())));
+    }
+
+    /** x / sqrt(sum(x * x, d)) */
+    private Optional<ExpressionNode> fuseL2Normalize(Binary division) {
+        Optional<Unary> norm = unary(division.right(), UnaryFunction.sqrt);
+        if (norm.isEmpty()) return Optional.empty();
+        Optional<Sum> sumOfSquares = sum(norm.get().argument());
+        if (sumOfSquares.isEmpty()) return Optional.empty();
+        if ( ! isSquareOf(division.left(), sumOfSquares.get().argument())) return Optional.empty();
+        report.incMetric("Fused l2_normalize", 1);
+        return Optional.of(new TensorFunctionNode(new L2Normalize<>(TensorFunctionNode.wrap(division.left()),
+                                                                    sumOfSquares.get().dimension())));
+    }
+
+    /**
+     * sum(a * b, d) / sqrt(sum(a * a, d) * sum(b * b, d))
+     *
+     * As cosine_similarity is stricter about argument types than the expression it replaces,
+     * this is only done when the argument types are known from the context and accepted.
+     */
+    private Optional<ExpressionNode> fuseCosineSimilarity(Binary division, ContextIndex context) {
+        Optional<Sum> dotProduct = sum(division.left());
+        Optional<Unary> norms = unary(division.right(), UnaryFunction.sqrt);
+        if (dotProduct.isEmpty() || norms.isEmpty()) return Optional.empty();
+        Optional<Binary> product = binary(dotProduct.get().argument()).filter(b -> b.operation() == Operator.multiply);
+        Optional<Binary> normProduct = binary(norms.get().argument()).filter(b -> b.operation() == Operator.multiply);
+        if (product.isEmpty() || normProduct.isEmpty()) return Optional.empty();
+        Optional<Sum> aa = sum(normProduct.get().left());
+        Optional<Sum> bb = sum(normProduct.get().right());
+        if (aa.isEmpty() || bb.isEmpty()) return Optional.empty();
+        String dimension = dotProduct.get().dimension();
+        if ( ! aa.get().dimension().equals(dimension) || ! bb.get().dimension().equals(dimension)) return Optional.empty();
+        if ( ! isSquareOf(product.get().left(), aa.get().argument())) return Optional.empty();
+        if ( ! isSquareOf(product.get().right(), bb.get().argument())) return Optional.empty();
+        if ( ! hasSameIndexedBoundDimension(product.get().left(), product.get().right(), dimension, context))
+            return Optional.empty();
+        report.incMetric("Fused cosine_similarity", 1);
+        return Optional.of(new TensorFunctionNode(new CosineSimilarity<>(TensorFunctionNode.wrap(product.get().left()),
+                                                                         TensorFunctionNode.wrap(product.get().right()),
+                                                                         dimension)));
+    }
+
+    /** sum(x * w, d) + b */
+    private Optional<ExpressionNode> fuseXwPlusB(Binary addition) {
+        Optional<Sum> product = sum(addition.left());
+        if (product.isEmpty()) return Optional.empty();
+        Optional<Binary> xw = binary(product.get().argument()).filter(b -> b.operation() == Operator.multiply);
+        if (xw.isEmpty()) return Optional.empty();
+        report.incMetric("Fused xw_plus_b", 1);
+        return Optional.of(new TensorFunctionNode(new XwPlusB<>(TensorFunctionNode.wrap(xw.get().left()),
+                                                                TensorFunctionNode.wrap(xw.get().right()),
+                                                                TensorFunctionNode.wrap(addition.right()),
+                                                                product.get().dimension())));
+    }
+
+    /** Returns whether both expressions are known to produce tensors with the given indexed bound dimension of the same size */
+    private boolean hasSameIndexedBoundDimension(ExpressionNode a, ExpressionNode b, String dimension, ContextIndex context) {
+        if ( ! (context instanceof Context typeContext)) return false;
+        try {
+            var dimensionInA = a.type(typeContext).dimension(dimension);
+            var dimensionInB = b.type(typeContext).dimension(dimension);
+            return dimensionInA.isPresent() && dimensionInB.isPresent()
+                   && dimensionInA.get().type() == TensorType.Dimension.Type.indexedBound
+                   && dimensionInA.get().equals(dimensionInB.get());
+        }
+        catch (RuntimeException e) { // types are not resolvable in this context
+            return false;
+        }
+    }
+
+    /** Returns whether the given square node computes x * x (or the equivalent map) */
+    private boolean isSquareOf(ExpressionNode x, ExpressionNode square) {
+        Optional<Binary> product = binary(square).filter(b -> b.operation() == Operator.multiply);
+        if (product.isPresent())
+            return product.get().left().equals(x) && product.get().right().equals(x);
+        Optional<Unary> squared = unary(square, UnaryFunction.square);
+        return squared.isPresent() && squared.get().argument().equals(x);
+    }
+
+    /** Returns this as a binary operation on two tensors, or empty */
+    private Optional<Binary> binary(ExpressionNode node) {
+        node = unembrace(node);
+        if (node instanceof OperationNode operation && operation.operators().size() == 1) {
+            return Optional.of(new Binary(operation.operators().get(0), operation.children().get(0), operation.children().get(1)));
+        }
+        if (node instanceof TensorFunctionNode tensorFunctionNode && tensorFunctionNode.function() instanceof Join<Reference> join) {
+            List<ExpressionNode> children = tensorFunctionNode.children();
+            return binaryOperator(join.combinator()).map(operator -> new Binary(operator, children.get(0), children.get(1)));
+        }
+        return Optional.empty();
+    }
+
+    /** Returns this as the given unary function applied to a tensor, or empty */
+    private Optional<Unary> unary(ExpressionNode node, UnaryFunction function) {
+        node = unembrace(node);
+        if (node instanceof FunctionNode functionNode && functionNode.children().size() == 1) {
+            if (functionNode.getFunction() == function.function)
+                return Optional.of(new Unary(functionNode.children().get(0)));
+        }
+        if (node instanceof TensorFunctionNode tensorFunctionNode && tensorFunctionNode.function() instanceof Map<Reference> map) {
+            if (isUnaryFunction(map.mapper(), function))
+                return Optional.of(new Unary(tensorFunctionNode.children().get(0)));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the operator applied by the given combinator to its arguments in order,
+     * if it is a scalar function or a lambda of the form f(x,y)(x op y), or empty otherwise.
+     */
+    static Optional<Operator> binaryOperator(DoubleBinaryOperator combinator) {
+        if (combinator instanceof ScalarFunctions.Multiply) return Optional.of(Operator.multiply);
+        if (combinator instanceof ScalarFunctions.Divide) return Optional.of(Operator.divide);
+        if (combinator instanceof ScalarFunctions.Add) return Optional.of(Operator.plus);
+        Optional<LambdaFunctionNode> lambda = LambdaFunctionNode.from(combinator);
+        if (lambda.isEmpty() || lambda.get().arguments().size() != 2) return Optional.empty();
+        List<String> arguments = lambda.get().arguments();
+        if ( ! (unembrace(lambda.get().children().get(0)) instanceof OperationNode operation)) return Optional.empty();
+        if (operation.operators().size() != 1) return Optional.empty();
+        if ( ! isArgument(operation.children().get(0), arguments.get(0))) return Optional.empty();
+        if ( ! isArgument(operation.children().get(1), arguments.get(1))) return Optional.empty();
+        return Optional.of(operation.operators().get(0));
+    }
+
+    /** Returns whether the given mapper is the given function, either as a scalar function or a lambda */
+    static boolean isUnaryFunction(DoubleUnaryOperator mapper, UnaryFunction function) {
+        boolean isScalarFunction = switch (function) {
+            case exp -> mapper instanceof ScalarFunctions.Exp;
+            case sqrt -> mapper instanceof ScalarFunctions.Sqrt;
+            case square -> mapper instanceof ScalarFunctions.Square;
+        };
+        if (isScalarFunction) return true;
+        Optional<LambdaFunctionNode> lambda = LambdaFunctionNode.from(mapper);
+        if (lambda.isEmpty() || lambda.get().arguments().size() != 1) return false;
+        String argument = lambda.get().arguments().get(0);
+        ExpressionNode body = unembrace(lambda.get().children().get(0));
+        if (function == UnaryFunction.square)
+            return body instanceof OperationNode operation
+                   && operation.operators().equals(List.of(Operator.multiply))
+                   && isArgument(operation.children().get(0), argument)
+                   && isArgument(operation.children().get(1), argument);
+        return body instanceof FunctionNode functionNode
+               && functionNode.getFunction() == function.function
+               && functionNode.children().size() == 1
+               && isArgument(functionNode.children().get(0), argument);
+    }
+
+    /** Returns whether the given node is a reference to the lambda argument with the given name */
+    private static boolean isArgument(ExpressionNode node, String argument) {
+        return unembrace(node) instanceof ReferenceNode reference
+               && reference.getName().equals(argument)
+               && reference.getArguments().isEmpty()
+               && reference.getOutput() == null;
+    }
+
+    /** Returns this as a sum reduce over a single dimension, or empty */
+    private Optional<Sum> sum(ExpressionNode node) {
+        node = unembrace(node);
+        if ( ! (node instanceof TensorFunctionNode tensorFunctionNode)) return Optional.empty();
+        if ( ! (tensorFunctionNode.function() instanceof Reduce<Reference> reduce)) return Optional.empty();
+        if (reduce.aggregator() != Reduce.Aggregator.sum || reduce.dimensions().size() != 1) return Optional.empty();
+        return Optional.of(new Sum(tensorFunctionNode.children().get(0), reduce.dimensions().get(0)));
+    }
+
+    private static ExpressionNode unembrace(ExpressionNode node) {
+        while (node instanceof EmbracedNode embraced)
+            node = embraced.getValue();
+        return node;
+    }
+
+    /** The unary functions recognized as parts of fusable compositions */
+    enum UnaryFunction {
+
+        exp(Function.exp), sqrt(Function.sqrt), square(null);
+
+        /** The ranking expression function computing this, or null if none */
+        private final Function function;
+
+        UnaryFunction(Function function) { this.function = function; }
+
+    }
+
+    private record Binary(Operator operation, ExpressionNode left, ExpressionNode right) {}
+
+    private record Unary(ExpressionNode argument) {}
+
+    private record Sum(ExpressionNode argument, String dimension) {}
+
 }
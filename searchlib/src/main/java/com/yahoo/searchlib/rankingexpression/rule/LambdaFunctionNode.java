@@ -40,6 +40,18 @@ public class LambdaFunctionNode extends CompositeNode {
         this.functionExpression = functionExpression;
     }
 
+    /** Returns the names of the arguments of this */
+    public List<String> arguments() { return arguments; }
+
+    /**
+     * Returns the lambda function node which the given operator was created from
+     * by {@link #asDoubleUnaryOperator} or {@link #asDoubleBinaryOperator}, or empty if it was not created by either.
+     */
+    public static Optional<LambdaFunctionNode> from(Object operator) {
+        if (operator instanceof LambdaOperator lambdaOperator) return Optional.of(lambdaOperator.lambda());
+        return Optional.empty();
+    }
+
     public String singleArgumentName() {
         if (arguments.size() != 1) {
             throw new IllegalArgumentException("Cannot apply " + this + " in map, must have a single argument");
@@ -139,16 +151,7 @@ public class LambdaFunctionNode extends CompositeNode {
     }
 
     private Optional<DoubleBinaryOperator> asFunctionExpression(DoubleBinaryOperator operator) {
-        return Optional.of(new DoubleBinaryOperator() {
-            @Override
-            public double applyAsDouble(double left, double right) {
-                return operator.applyAsDouble(left, right);
-            }
-            @Override
-            public String toString() {
-                return LambdaFunctionNode.this.toString();
-            }
-        });
+        return Optional.of(new DirectBinaryLambda(operator));
     }
 
     private static class FeatureFinder {
@@ -191,7 +194,14 @@ public class LambdaFunctionNode extends CompositeNode {
     @Override
     public int hashCode() { return Objects.hash("lambdaFunction", arguments, functionExpression); }
 
-    private class DoubleUnaryLambda implements DoubleUnaryOperator {
+    /** An operator created from a lambda function node */
+    private interface LambdaOperator {
+
+        LambdaFunctionNode lambda();
+
+    }
+
+    private class DoubleUnaryLambda implements DoubleUnaryOperator, LambdaOperator {
 
         @Override
         public double applyAsDouble(double operand) {
@@ -201,6 +211,9 @@ public class LambdaFunctionNode extends CompositeNode {
             return evaluate(context).asDouble();
         }
 
+        @Override
+        public LambdaFunctionNode lambda() { return LambdaFunctionNode.this; }
+
         @Override
         public String toString() {
             return LambdaFunctionNode.this.toString();
@@ -208,7 +221,7 @@ public class LambdaFunctionNode extends CompositeNode {
 
     }
 
-    private class DoubleBinaryLambda implements DoubleBinaryOperator {
+    private class DoubleBinaryLambda implements DoubleBinaryOperator, LambdaOperator {
 
         @Override
         public double applyAsDouble(double left, double right) {
@@ -220,6 +233,33 @@ public class LambdaFunctionNode extends CompositeNode {
             return evaluate(context).asDouble();
         }
 
+        @Override
+        public LambdaFunctionNode lambda() { return LambdaFunctionNode.this; }
+
+        @Override
+        public String toString() {
+            return LambdaFunctionNode.this.toString();
+        }
+
+    }
+
+    /** A binary lambda evaluated directly by an operator instead of by evaluating its expression */
+    private class DirectBinaryLambda implements DoubleBinaryOperator, LambdaOperator {
+
+        private final DoubleBinaryOperator operator;
+
+        DirectBinaryLambda(DoubleBinaryOperator operator) {
+            this.operator = operator;
+        }
+
+        @Override
+        public double applyAsDouble(double left, double right) {
+            return operator.applyAsDouble(left, right);
+        }
+
+        @Override
+        public LambdaFunctionNode lambda() { return LambdaFunctionNode.this; }
+
         @Override
         public String toString() {
             return LambdaFunctionNode.this.toString();
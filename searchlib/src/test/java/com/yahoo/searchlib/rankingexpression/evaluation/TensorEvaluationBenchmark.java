@@ -0,0 +1,121 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.Random;
+
+/**
+ * Microbenchmark of ranking expressions over tensors, before and after expression optimization,
+ * for a matrix of tensor sizes, cell value types and dense or mixed tensors.
+ * Run the main method to produce a report.
+ *
+ * @author michaelcizmar
+ */
+public class TensorEvaluationBenchmark {
+
+    private static final Random random = new Random(42);
+
+    /** The number of milliseconds to spend warming up each case */
+    private static final long warmupMillis = 100;
+
+    /** The number of milliseconds to spend measuring each case, unless maxIterations is reached first */
+    private static final long measureMillis = 500;
+
+    /** The maximum number of evaluations to measure in each case */
+    private static final long maxIterations = 100_000;
+
+    private static final String[] expressions = {
+            "sum(q * d)",
+            "reduce(q * m, sum, x)",
+            "reduce(join(m, w, f(a,b)(a * b)), sum, x)",
+            "exp(m) / reduce(exp(m), sum, x)",
+            "m / sqrt(reduce(m * m, sum, x))",
+            "reduce(q * m, sum, x) / sqrt(reduce(q * q, sum, x) * reduce(m * m, sum, x))",
+            "reduce(reduce(q * m, sum, x) + 1, max)",
+    };
+
+    private int sink = 0;
+
+    private void run(String expressionString, boolean mixed, TensorType.Value valueType, int batchSize, int vectorSize)
+            throws ParseException {
+        String cells = "tensor<" + valueType.id() + ">";
+        String batch = mixed ? "b{}" : "b[" + batchSize + "]";
+        Tensor q = random(TensorType.fromSpec(cells + "(x[" + vectorSize + "])"), 1, vectorSize);
+        Tensor d = random(TensorType.fromSpec(cells + "(x[" + vectorSize + "])"), 1, vectorSize);
+        Tensor m = random(TensorType.fromSpec(cells + "(" + batch + ",x[" + vectorSize + "])"), batchSize, vectorSize);
+        Tensor w = random(TensorType.fromSpec(cells + "(o[16],x[" + vectorSize + "])"), 16, vectorSize);
+
+        RankingExpression unoptimized = new RankingExpression(expressionString);
+        double unoptimizedTime = benchmark(unoptimized, context(unoptimized, q, d, m, w));
+
+        RankingExpression optimized = new RankingExpression(expressionString);
+        ArrayContext optimizedContext = context(optimized, q, d, m, w);
+        new ExpressionOptimizer().optimize(optimized, optimizedContext);
+        double optimizedTime = benchmark(optimized, optimizedContext);
+
+        System.out.printf("%-75s %-5s %-8s %4d x %-4d %12.2f us %12.2f us%n", expressionString, mixed ? "mixed" : "dense",
+                          valueType.id(), batchSize, vectorSize, unoptimizedTime, optimizedTime);
+    }
+
+    private static ArrayContext context(RankingExpression expression, Tensor q, Tensor d, Tensor m, Tensor w) {
+        ArrayContext context = new ArrayContext(expression, true);
+        context.put("q", new TensorValue(q));
+        context.put("d", new TensorValue(d));
+        context.put("m", new TensorValue(m));
+        context.put("w", new TensorValue(w));
+        return context;
+    }
+
+    /**
+     * Returns the average time in microseconds of one evaluation of the given expression.
+     * Expressions slower than the measure time are reported from their warmup evaluation.
+     */
+    private double benchmark(RankingExpression expression, Context context) {
+        double warmupMicros = measure(expression, context, warmupMillis);
+        if (warmupMicros > measureMillis * 1000) return warmupMicros;
+        System.gc();
+        return measure(expression, context, measureMillis);
+    }
+
+    /** Evaluates until the given time has passed or maxIterations is reached, and returns the average */
+    private double measure(RankingExpression expression, Context context, long millis) {
+        long iterations = 0;
+        long startTime = System.nanoTime();
+        long endTime = startTime + millis * 1_000_000;
+        do {
+            sink += expression.evaluate(context).hashCode() & 1;
+            iterations++;
+        } while (System.nanoTime() < endTime && iterations < maxIterations);
+        return (System.nanoTime() - startTime) / 1000.0 / iterations;
+    }
+
+    /** Returns a tensor of the given type having two dimensions with the given sizes */
+    private static Tensor random(TensorType type, int firstSize, int secondSize) {
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        boolean vector = type.dimensions().size() == 1;
+        for (int i = 0; i < (vector ? 1 : firstSize); i++) {
+            for (int j = 0; j < secondSize; j++) {
+                Tensor.Builder.CellBuilder cell = builder.cell();
+                if ( ! vector)
+                    cell.label(type.dimensions().get(0).name(), i);
+                cell.label(type.dimensions().get(vector ? 0 : 1).name(), j).value(random.nextDouble() * 2 - 1);
+            }
+        }
+        return builder.build();
+    }
+
+    public static void main(String[] args) throws ParseException {
+        TensorEvaluationBenchmark benchmark = new TensorEvaluationBenchmark();
+        System.out.printf("%-75s %-5s %-8s %11s %15s %15s%n", "expression", "", "cells", "b x x", "unoptimized", "optimized");
+        for (String expression : expressions)
+            for (boolean mixed : new boolean[] { false, true })
+                for (TensorType.Value valueType : new TensorType.Value[] { TensorType.Value.DOUBLE, TensorType.Value.FLOAT })
+                    for (int[] shape : new int[][] { { 10, 128 }, { 100, 768 } })
+                        benchmark.run(expression, mixed, valueType, shape[0], shape[1]);
+    }
+
+}
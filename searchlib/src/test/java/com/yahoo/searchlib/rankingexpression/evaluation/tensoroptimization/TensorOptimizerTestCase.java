@@ -6,15 +6,31 @@ import com.yahoo.searchlib.rankingexpression.evaluation.ArrayContext;
 import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
 import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
 import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.tensoroptimization.TensorOptimizer.UnaryFunction;
 import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import com.yahoo.searchlib.rankingexpression.rule.Operator;
 import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.functions.CosineSimilarity;
+import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.L2Normalize;
+import com.yahoo.tensor.functions.Map;
 import com.yahoo.tensor.functions.Reduce;
 import com.yahoo.tensor.functions.ReduceJoin;
+import com.yahoo.tensor.functions.ScalarFunctions;
+import com.yahoo.tensor.functions.Softmax;
+import com.yahoo.tensor.functions.TensorFunction;
+import com.yahoo.tensor.functions.XwPlusB;
 import org.junit.Test;
 
+import java.util.Optional;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author lesters
@@ -52,6 +68,78 @@ public class TensorOptimizerTestCase {
         assertCantOptimize("d0[1],d1[2],d2[3]", "d0[1],d1[2],d2[3]", "d1,d2");  // reducing on less then joining on
     }
 
+    @Test
+    public void testFusionOptimization() throws ParseException {
+        assertFused("exp(a) / sum(exp(a), d1)", "Fused softmax", Softmax.class);
+        assertFused("join(map(a, f(x)(exp(x))), reduce(map(a, f(y)(exp(y))), sum, d0), f(x,y)(x / y))", "Fused softmax", Softmax.class);
+        assertFused("a / sqrt(sum(a * a, d1))", "Fused l2_normalize", L2Normalize.class);
+        assertFused("join(a, map(reduce(map(a, f(x)(x * x)), sum, d1), f(x)(sqrt(x))), f(x,y)(x / y))", "Fused l2_normalize", L2Normalize.class);
+        assertFused("sum(a * b, d1) / sqrt(sum(a * a, d1) * sum(b * b, d1))", "Fused cosine_similarity", CosineSimilarity.class);
+        assertFused("sum(a * b, d1) + c", "Fused xw_plus_b", XwPlusB.class);
+        assertFused("join(reduce(join(a, b, f(x,y)(x * y)), sum, d1), c, f(x,y)(x + y))", "Fused xw_plus_b", XwPlusB.class);
+
+        assertNotFused("exp(a) / sum(exp(b), d1)");
+        assertNotFused("a / sqrt(sum(b * b, d1))");
+        assertNotFused("sum(a * b, d1) - c");
+        assertNotFused("join(a, map(reduce(map(a, f(x)(x * x)), sum, d1), f(x)(sqrt(x))), f(x,y)(y / x))");
+    }
+
+    @Test
+    public void testLambdaRecognition() throws ParseException {
+        assertEquals(Optional.of(Operator.multiply), TensorOptimizer.binaryOperator(combinator("join(a, b, f(x,y)(x * y))")));
+        assertEquals(Optional.of(Operator.divide), TensorOptimizer.binaryOperator(combinator("join(a, b, f(b,a)(b / a))")));
+        assertEquals(Optional.of(Operator.multiply), TensorOptimizer.binaryOperator(ScalarFunctions.multiply()));
+        assertTrue(TensorOptimizer.binaryOperator(combinator("join(a, b, f(x,y)(y / x))")).isEmpty());
+        assertTrue(TensorOptimizer.binaryOperator(combinator("join(a, b, f(x,y)(x * y + 1))")).isEmpty());
+        assertTrue(TensorOptimizer.binaryOperator(ScalarFunctions.max()).isEmpty());
+
+        assertTrue(TensorOptimizer.isUnaryFunction(mapper("map(a, f(value)(exp(value)))"), UnaryFunction.exp));
+        assertTrue(TensorOptimizer.isUnaryFunction(mapper("map(a, f(x)(x * x))"), UnaryFunction.square));
+        assertTrue(TensorOptimizer.isUnaryFunction(ScalarFunctions.sqrt(), UnaryFunction.sqrt));
+        assertFalse(TensorOptimizer.isUnaryFunction(mapper("map(a, f(x)(exp(x)))"), UnaryFunction.sqrt));
+        assertFalse(TensorOptimizer.isUnaryFunction(mapper("map(a, f(x)(exp(x + 1)))"), UnaryFunction.exp));
+        assertFalse(TensorOptimizer.isUnaryFunction(mapper("map(a, f(x)(x * 2))"), UnaryFunction.square));
+    }
+
+    private static DoubleBinaryOperator combinator(String expression) throws ParseException {
+        return ((Join<?>)((TensorFunctionNode)new RankingExpression(expression).getRoot()).function()).combinator();
+    }
+
+    private static DoubleUnaryOperator mapper(String expression) throws ParseException {
+        return ((Map<?>)((TensorFunctionNode)new RankingExpression(expression).getRoot()).function()).mapper();
+    }
+
+    private void assertFused(String expressionString, String metric, Class<?> fusedFunction) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        ArrayContext context = generateFusionContext(expression);
+        Tensor expected = expression.evaluate(context).asTensor();
+
+        OptimizationReport report = new ExpressionOptimizer().optimize(expression, context);
+        assertEquals(1, report.getMetric(metric));
+        TensorFunction<?> function = ((TensorFunctionNode)expression.getRoot()).function();
+        assertEquals(fusedFunction, function.getClass());
+        assertEquals(expected, expression.evaluate(context).asTensor());
+    }
+
+    private void assertNotFused(String expressionString) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        ArrayContext context = generateFusionContext(expression);
+        Tensor expected = expression.evaluate(context).asTensor();
+        String before = expression.toString();
+
+        new ExpressionOptimizer().optimize(expression, context);
+        assertEquals(before, expression.toString());
+        assertEquals(expected, expression.evaluate(context).asTensor());
+    }
+
+    private ArrayContext generateFusionContext(RankingExpression expression) {
+        ArrayContext context = new ArrayContext(expression, true);
+        context.put("a", new TensorValue(generateRandomTensor("d0[2],d1[3]")));
+        context.put("b", new TensorValue(generateRandomTensor("d0[2],d1[3]")));
+        context.put("c", new TensorValue(generateRandomTensor("d0[2]")));
+        return context;
+    }
+
     private void assertWillOptimize(String aType, String bType) throws ParseException {
         assertWillOptimize(aType, bType, "", "sum");
     }
@@ -0,0 +1,103 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes each task in a new virtual thread, with at most a given number of tasks running concurrently.
+ * Tasks submitted when this limit is reached wait (in their virtual thread) until a running task completes.
+ * This lets tasks which block on I/O be many in flight without a large pool of platform threads.
+ *
+ * Virtual threads require Java 21, while this is compiled for an earlier release, so the executor is
+ * created by reflection, and {@link #create} returns empty when it is not available in the running JVM.
+ *
+ * @author michaelcizmar
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    private final ExecutorService executor;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+
+    /**
+     * Creates an instance running tasks in the given executor, which should start a new thread per task.
+     * Use {@link #create} to run tasks in virtual threads.
+     */
+    public VirtualThreadExecutor(ExecutorService threadPerTaskExecutor, int maxConcurrency) {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("Max concurrency must be positive, but was " + maxConcurrency);
+        this.executor = threadPerTaskExecutor;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Returns a virtual thread executor running at most the given number of tasks concurrently,
+     * or empty if virtual threads are not supported by this JVM.
+     */
+    public static Optional<VirtualThreadExecutor> create(int maxConcurrency) {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("Max concurrency must be positive, but was " + maxConcurrency);
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of(new VirtualThreadExecutor((ExecutorService)factory.invoke(null), maxConcurrency));
+        }
+        catch (NoSuchMethodException e) {
+            return Optional.empty();
+        }
+        catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    /** Executes the given task, or throws RejectedExecutionException if this is shut down */
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            }
+            finally {
+                permits.release();
+            }
+        });
+    }
+
+    /** Returns the number of tasks currently running */
+    public int activeCount() { return maxConcurrency - permits.availablePermits(); }
+
+    public int maxConcurrency() { return maxConcurrency; }
+
+    /** Stops accepting new tasks. Tasks already submitted are completed. */
+    @Override
+    public void shutdown() { executor.shutdown(); }
+
+    @Override
+    public List<Runnable> shutdownNow() { return executor.shutdownNow(); }
+
+    @Override
+    public boolean isShutdown() { return executor.isShutdown(); }
+
+    @Override
+    public boolean isTerminated() { return executor.isTerminated(); }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "virtual thread executor with max concurrency " + maxConcurrency;
+    }
+
+}
@@ -0,0 +1,126 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.serialization.TypedBinaryFormat;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * An indexed tensor implementation reading its values from buffers holding them in the
+ * dense binary format, such as read-only memory mapped regions of a file. Values are not copied to the heap.
+ * Since a buffer is limited to 2Gb, the cells may be split over multiple buffers (regions)
+ * of the same power of two size, except the last.
+ *
+ * @author michaelcizmar
+ */
+class IndexedBufferTensor extends IndexedTensor {
+
+    private final List<ByteBuffer> regions;
+    private final int regionBits;
+    private final long regionMask;
+    private final long size;
+
+    /** Creates a tensor reading its cells from the start of the given buffer, which must not be mutated */
+    IndexedBufferTensor(TensorType type, DimensionSizes dimensionSizes, ByteBuffer cells) {
+        this(type, dimensionSizes, List.of(cells), 31);
+    }
+
+    /**
+     * Creates a tensor reading its cells from the given regions, which must not be mutated.
+     * Each region is read from its current position, and all regions but the last must have the same
+     * number of remaining bytes, which must be a power of two.
+     */
+    IndexedBufferTensor(TensorType type, DimensionSizes dimensionSizes, List<ByteBuffer> regions) {
+        this(type, dimensionSizes, regions, regionBits(regions));
+    }
+
+    private IndexedBufferTensor(TensorType type, DimensionSizes dimensionSizes, List<ByteBuffer> regions, int regionBits) {
+        super(type, dimensionSizes);
+        this.size = dimensionSizes.totalSize();
+        long bytes = size * type.valueType().sizeOfCell();
+        long regionSize = 1L << regionBits;
+        long available = 0;
+        for (int i = 0; i < regions.size(); i++) {
+            if (i < regions.size() - 1 && regions.get(i).remaining() != regionSize)
+                throw new IllegalArgumentException("All regions but the last must have " + regionSize + " bytes, but region " +
+                                                   i + " has " + regions.get(i).remaining());
+            available += regions.get(i).remaining();
+        }
+        if (bytes > available)
+            throw new IllegalArgumentException("A tensor of type " + type + " with sizes " + dimensionSizes +
+                                               " requires " + bytes + " bytes, but the buffers only have " + available);
+        this.regions = regions.stream().map(region -> region.slice().asReadOnlyBuffer()).toList();
+        this.regionBits = regionBits;
+        this.regionMask = regionSize - 1;
+    }
+
+    private static int regionBits(List<ByteBuffer> regions) {
+        if (regions.size() < 2) return 31;
+        int regionSize = regions.get(0).remaining();
+        if (Integer.bitCount(regionSize) != 1 || regionSize < 8)
+            throw new IllegalArgumentException("The region size must be a power of two of at least 8 bytes, but got " +
+                                               regionSize);
+        return Integer.numberOfTrailingZeros(regionSize);
+    }
+
+    @Override
+    public long size() { return size; }
+
+    @Override
+    public double get(long valueIndex) {
+        return switch (type().valueType()) {
+            case DOUBLE -> getDouble(valueIndex);
+            default -> getFloat(valueIndex);
+        };
+    }
+
+    @Override
+    public float getFloat(long valueIndex) {
+        return switch (type().valueType()) {
+            case DOUBLE -> (float)getDouble(valueIndex);
+            case FLOAT -> region(valueIndex * 4).getFloat(offsetInRegion(valueIndex * 4));
+            case BFLOAT16 -> TypedBinaryFormat.floatFromBFloat16Bits(getShort(valueIndex));
+            case INT8 -> region(valueIndex).get(offsetInRegion(valueIndex));
+        };
+    }
+
+    private double getDouble(long valueIndex) {
+        return region(valueIndex * 8).getDouble(offsetInRegion(valueIndex * 8));
+    }
+
+    private short getShort(long valueIndex) {
+        return region(valueIndex * 2).getShort(offsetInRegion(valueIndex * 2));
+    }
+
+    private ByteBuffer region(long byteOffset) {
+        return regions.get((int)(byteOffset >>> regionBits));
+    }
+
+    private int offsetInRegion(long byteOffset) {
+        return (int)(byteOffset & regionMask);
+    }
+
+    @Override
+    public IndexedTensor withType(TensorType type) {
+        throwOnIncompatibleType(type);
+        return new IndexedBufferTensor(type, dimensionSizes(), regions, regionBits);
+    }
+
+    /** Returns the same hash code as the heap tensor implementation holding the same value type */
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (long i = 0; i < size; i++) {
+            int cellHashCode = switch (type().valueType()) {
+                case DOUBLE -> Double.hashCode(getDouble(i));
+                case FLOAT -> Float.hashCode(getFloat(i));
+                case BFLOAT16 -> Short.hashCode(getShort(i));
+                case INT8 -> Byte.hashCode(region(i).get(offsetInRegion(i)));
+            };
+            hashCode = 31 * hashCode + cellHashCode;
+        }
+        return hashCode;
+    }
+
+}
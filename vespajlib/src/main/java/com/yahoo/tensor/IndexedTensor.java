@@ -3,6 +3,7 @@ package com.yahoo.tensor;
 
 import com.google.common.collect.ImmutableMap;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -283,6 +284,43 @@ public abstract class IndexedTensor implements Tensor {
         return Tensor.equals(this, ((Tensor)other));
     }
 
+    /**
+     * Returns a tensor reading its cell values directly from the given buffer instead of copying them,
+     * which allows large tensors to be kept off-heap, e.g in a memory mapped file.
+     * The cells must start at the current position of the buffer and be encoded as in the dense binary format,
+     * in the <i>standard value order</i>. The content of the buffer must not be modified after this is called.
+     *
+     * @param type the type of the tensor to create, which must have only indexed dimensions
+     * @param sizes the dimension sizes of the tensor
+     * @param cells the buffer containing the cell values
+     * @throws IllegalArgumentException if the type or sizes are invalid, or the buffer has too few bytes
+     */
+    public static IndexedTensor wrap(TensorType type, DimensionSizes sizes, ByteBuffer cells) {
+        if (type.hasMappedDimensions())
+            throw new IllegalArgumentException("Only indexed tensors can be wrapped, but got " + type);
+        Builder.validate(type, sizes);
+        return new IndexedBufferTensor(type, sizes, cells);
+    }
+
+    /**
+     * Returns a tensor reading its cell values directly from the given buffers instead of copying them,
+     * as {@link #wrap(TensorType, DimensionSizes, ByteBuffer)}, but with the cells split over multiple buffers.
+     * This allows wrapping tensors larger than 2Gb, e.g by mapping a file in multiple regions.
+     * The cells continue from the end of one buffer at the current position of the next, and all buffers
+     * but the last must have the same number of remaining bytes, which must be a power of two.
+     *
+     * @param type the type of the tensor to create, which must have only indexed dimensions
+     * @param sizes the dimension sizes of the tensor
+     * @param regions the buffers containing the cell values
+     * @throws IllegalArgumentException if the type or sizes are invalid, or the buffers are too few or of invalid sizes
+     */
+    public static IndexedTensor wrap(TensorType type, DimensionSizes sizes, List<ByteBuffer> regions) {
+        if (type.hasMappedDimensions())
+            throw new IllegalArgumentException("Only indexed tensors can be wrapped, but got " + type);
+        Builder.validate(type, sizes);
+        return new IndexedBufferTensor(type, sizes, regions);
+    }
+
     public abstract static class Builder implements Tensor.Builder {
 
         final TensorType type;
@@ -336,8 +374,8 @@ public abstract class IndexedTensor implements Tensor {
             return switch (type.valueType()) {
                 case DOUBLE -> new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes);
                 case FLOAT -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes);
-                case BFLOAT16 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes);
-                case INT8 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes);
+                case BFLOAT16 -> new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes);
+                case INT8 -> new IndexedInt8Tensor.BoundInt8Builder(type, sizes);
                 default -> throw new IllegalStateException("Unexpected value type " + type.valueType());
             };
         }
@@ -356,8 +394,8 @@ public abstract class IndexedTensor implements Tensor {
             return switch (type.valueType()) {
                 case DOUBLE -> new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes).fill(values);
                 case FLOAT -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes, values);
-                case BFLOAT16 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes, values);
-                case INT8 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes, values);
+                case BFLOAT16 -> new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes).fill(values);
+                case INT8 -> new IndexedInt8Tensor.BoundInt8Builder(type, sizes).fill(values);
                 default -> throw new IllegalStateException("Unexpected value type " + type.valueType());
             };
         }
@@ -376,8 +414,8 @@ public abstract class IndexedTensor implements Tensor {
             return switch (type.valueType()) {
                 case DOUBLE -> new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes, values);
                 case FLOAT -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes).fill(values);
-                case BFLOAT16 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes).fill(values);
-                case INT8 -> new IndexedFloatTensor.BoundFloatBuilder(type, sizes).fill(values);
+                case BFLOAT16 -> new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes).fill(values);
+                case INT8 -> new IndexedInt8Tensor.BoundInt8Builder(type, sizes).fill(values);
                 default -> throw new IllegalStateException("Unexpected value type " + type.valueType());
             };
         }
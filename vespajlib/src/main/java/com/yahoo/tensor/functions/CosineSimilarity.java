@@ -5,6 +5,7 @@ import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.MapEvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.TypeContext;
+import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.TensorType.Dimension;
@@ -63,10 +64,22 @@ public class CosineSimilarity<NAMETYPE extends Name> extends TensorFunction<NAME
         return toPrimitive().type(context);
     }
 
-    /** Evaluates this by first converting it to a primitive function */
+    /** Evaluates this in a single pass if the arguments are dense, and by the primitive function otherwise */
     @Override
     public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
-        return toPrimitive().evaluate(context);
+        Tensor a = arg1.evaluate(context);
+        Tensor b = arg2.evaluate(context);
+        if (FusedKernels.canFuse(dimension, new Tensor[] { a, b }, new boolean[] { true, true })) {
+            TensorType dotProduct = Reduce.outputType(Join.outputType(a.type(), b.type()), List.of(dimension));
+            TensorType norms = Map.outputType(Join.outputType(Reduce.outputType(a.type(), List.of(dimension)),
+                                                              Reduce.outputType(b.type(), List.of(dimension))));
+            return FusedKernels.cosineSimilarity((IndexedTensor)a, (IndexedTensor)b, dimension,
+                                                 Join.outputType(dotProduct, norms));
+        }
+        Tensor ab = a.join(b, ScalarFunctions.multiply()).reduce(Reduce.Aggregator.sum, dimension);
+        Tensor aa = a.join(a, ScalarFunctions.multiply()).reduce(Reduce.Aggregator.sum, dimension);
+        Tensor bb = b.join(b, ScalarFunctions.multiply()).reduce(Reduce.Aggregator.sum, dimension);
+        return ab.join(aa.join(bb, ScalarFunctions.multiply()).map(ScalarFunctions.sqrt()), ScalarFunctions.divide());
     }
 
     @Override
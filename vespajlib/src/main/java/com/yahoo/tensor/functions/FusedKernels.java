@@ -0,0 +1,216 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+/**
+ * Single pass evaluation of common composite functions over dense tensors.
+ * These produce the same result as evaluating the primitive functions the composites expand to,
+ * but write directly into the result without materializing the intermediate tensors.
+ *
+ * All kernels require that arguments are indexed tensors with bound dimensions only,
+ * and that dimensions shared between arguments have the same size. Use {@link #canFuse} to check this.
+ *
+ * @author michaelcizmar
+ */
+class FusedKernels {
+
+    private FusedKernels() {}
+
+    /**
+     * Returns whether the given tensors can be evaluated by a kernel in this:
+     * They must all be dense with bound dimensions, the ones marked as reduced must contain the given
+     * dimension, and any dimension present in more than one of them must have the same size in all.
+     */
+    static boolean canFuse(String dimension, Tensor[] arguments, boolean[] reduced) {
+        for (int i = 0; i < arguments.length; i++) {
+            Tensor argument = arguments[i];
+            if ( ! (argument instanceof IndexedTensor)) return false;
+            if ( ! argument.type().hasOnlyIndexedBoundDimensions()) return false;
+            if (reduced[i] && argument.type().dimension(dimension).isEmpty()) return false;
+            for (int j = 0; j < i; j++) {
+                for (TensorType.Dimension d : argument.type().dimensions()) {
+                    var other = arguments[j].type().dimension(d.name());
+                    if (other.isPresent() && ! other.get().size().equals(d.size())) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Evaluates join(map(x, exp), reduce(map(x, exp), sum, dimension), divide) */
+    static Tensor softmax(IndexedTensor x, String dimension, TensorType resultType) {
+        TensorType outer = without(dimension, x.type());
+        double[] result = new double[x.sizeAsInt()];
+        long stride = stride(x.type(), dimension);
+        int size = size(x.type(), dimension);
+        for (Odometer i = new Odometer(outer, x.type()); i.hasNext(); i.next()) {
+            long base = i.offset(0);
+            double sum = 0;
+            for (int k = 0; k < size; k++) {
+                int index = (int)(base + k * stride);
+                result[index] = Math.exp(x.get(index));
+                sum += result[index];
+            }
+            for (int k = 0; k < size; k++)
+                result[(int)(base + k * stride)] /= sum;
+        }
+        return IndexedTensor.Builder.of(resultType, result).build();
+    }
+
+    /** Evaluates join(x, map(reduce(map(x, square), sum, dimension), sqrt), divide) */
+    static Tensor l2Normalize(IndexedTensor x, String dimension, TensorType resultType) {
+        TensorType outer = without(dimension, x.type());
+        double[] result = new double[x.sizeAsInt()];
+        long stride = stride(x.type(), dimension);
+        int size = size(x.type(), dimension);
+        for (Odometer i = new Odometer(outer, x.type()); i.hasNext(); i.next()) {
+            long base = i.offset(0);
+            double sumOfSquares = 0;
+            for (int k = 0; k < size; k++) {
+                double value = x.get(base + k * stride);
+                sumOfSquares += value * value;
+            }
+            double norm = Math.sqrt(sumOfSquares);
+            for (int k = 0; k < size; k++) {
+                int index = (int)(base + k * stride);
+                result[index] = x.get(index) / norm;
+            }
+        }
+        return IndexedTensor.Builder.of(resultType, result).build();
+    }
+
+    /** Evaluates sum(a * b, dimension) / sqrt(sum(a * a, dimension) * sum(b * b, dimension)) */
+    static Tensor cosineSimilarity(IndexedTensor a, IndexedTensor b, String dimension, TensorType resultType) {
+        double[] result = new double[(int)totalSize(resultType)];
+        long strideA = stride(a.type(), dimension);
+        long strideB = stride(b.type(), dimension);
+        int size = size(a.type(), dimension);
+        int cell = 0;
+        for (Odometer i = new Odometer(resultType, a.type(), b.type()); i.hasNext(); i.next()) {
+            long baseA = i.offset(0);
+            long baseB = i.offset(1);
+            double ab = 0, aa = 0, bb = 0;
+            for (int k = 0; k < size; k++) {
+                double va = a.get(baseA + k * strideA);
+                double vb = b.get(baseB + k * strideB);
+                ab += va * vb;
+                aa += va * va;
+                bb += vb * vb;
+            }
+            result[cell++] = ab / Math.sqrt(aa * bb);
+        }
+        return IndexedTensor.Builder.of(resultType, result).build();
+    }
+
+    /** Evaluates join(reduce(join(x, w, multiply), sum, dimension), b, add) where b has no dimensions not in the result */
+    static Tensor xwPlusB(IndexedTensor x, IndexedTensor w, IndexedTensor b, String dimension, TensorType resultType) {
+        double[] result = new double[(int)totalSize(resultType)];
+        long strideX = stride(x.type(), dimension);
+        long strideW = stride(w.type(), dimension);
+        int size = size(x.type(), dimension);
+        int cell = 0;
+        for (Odometer i = new Odometer(resultType, x.type(), w.type(), b.type()); i.hasNext(); i.next()) {
+            long baseX = i.offset(0);
+            long baseW = i.offset(1);
+            double sum = 0;
+            for (int k = 0; k < size; k++)
+                sum += x.get(baseX + k * strideX) * w.get(baseW + k * strideW);
+            result[cell++] = sum + b.get(i.offset(2));
+        }
+        return IndexedTensor.Builder.of(resultType, result).build();
+    }
+
+    /** Returns the given type without the given dimension */
+    static TensorType without(String dimension, TensorType type) {
+        TensorType.Builder builder = new TensorType.Builder(type.valueType());
+        for (TensorType.Dimension d : type.dimensions())
+            if ( ! d.name().equals(dimension))
+                builder.dimension(d);
+        return builder.build();
+    }
+
+    static long stride(TensorType type, String dimension) {
+        long stride = 1;
+        for (int i = type.rank() - 1; i > type.indexOfDimensionAsInt(dimension); i--)
+            stride *= type.dimensions().get(i).size().get();
+        return stride;
+    }
+
+    static int size(TensorType type, String dimension) {
+        return type.dimension(dimension).get().size().get().intValue();
+    }
+
+    static long totalSize(TensorType type) {
+        long size = 1;
+        for (TensorType.Dimension d : type.dimensions())
+            size *= d.size().get();
+        return size;
+    }
+
+    /**
+     * Iterates over all cells of an iteration type in standard value order, while keeping track of the
+     * direct index offsets of the corresponding cells in a set of dense argument types.
+     * Argument dimensions not in the iteration type are left at index 0, and iteration dimensions
+     * not in an argument do not move its offset.
+     */
+    static final class Odometer {
+
+        private final long[] sizes;
+        private final long[] indexes;
+        private final long[][] strides; // [argument][iteration dimension]
+        private final long[] offsets;
+        private long remaining;
+
+        Odometer(TensorType iterationType, TensorType ... argumentTypes) {
+            this(0, iterationType, argumentTypes);
+        }
+
+        /** Creates an odometer positioned at the given cell in standard value order of the iteration type */
+        Odometer(long start, TensorType iterationType, TensorType ... argumentTypes) {
+            int rank = iterationType.rank();
+            sizes = new long[rank];
+            indexes = new long[rank];
+            strides = new long[argumentTypes.length][rank];
+            offsets = new long[argumentTypes.length];
+            remaining = 1;
+            for (int i = 0; i < rank; i++) {
+                TensorType.Dimension dimension = iterationType.dimensions().get(i);
+                sizes[i] = dimension.size().get();
+                remaining *= sizes[i];
+                for (int a = 0; a < argumentTypes.length; a++) {
+                    if (argumentTypes[a].dimension(dimension.name()).isPresent())
+                        strides[a][i] = stride(argumentTypes[a], dimension.name());
+                }
+            }
+            remaining -= start;
+            for (int i = rank - 1; i >= 0 && start > 0; i--) {
+                indexes[i] = start % sizes[i];
+                start /= sizes[i];
+                for (int a = 0; a < offsets.length; a++)
+                    offsets[a] += indexes[i] * strides[a][i];
+            }
+        }
+
+        boolean hasNext() { return remaining > 0; }
+
+        long offset(int argument) { return offsets[argument]; }
+
+        void next() {
+            remaining--;
+            for (int i = sizes.length - 1; i >= 0; i--) {
+                indexes[i]++;
+                for (int a = 0; a < offsets.length; a++)
+                    offsets[a] += strides[a][i];
+                if (indexes[i] < sizes[i]) return;
+                for (int a = 0; a < offsets.length; a++)
+                    offsets[a] -= strides[a][i] * sizes[i];
+                indexes[i] = 0;
+            }
+        }
+
+    }
+
+}
@@ -9,6 +9,7 @@ import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.TypeContext;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -99,16 +100,39 @@ public class Generate<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAM
 
     @Override
     public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        DimensionSizes sizes = dimensionSizes(type);
+        if (ParallelEvaluation.shouldParallelize(sizes.totalSize()))
+            return evaluateInParallel(sizes, context);
+
         Tensor.Builder builder = Tensor.Builder.of(type);
-        IndexedTensor.Indexes indexes = IndexedTensor.Indexes.of(dimensionSizes(type));
+        IndexedTensor.Indexes indexes = IndexedTensor.Indexes.of(sizes);
         GenerateEvaluationContext generateContext = new GenerateEvaluationContext(type, context);
         for (int i = 0; i < indexes.size(); i++) {
             indexes.next();
-            builder.cell(generateContext.apply(indexes), indexes.indexesForReading());
+            builder.cell(generateContext.apply(indexes.indexesForReading()), indexes.indexesForReading());
         }
         return builder.build();
     }
 
+    private Tensor evaluateInParallel(DimensionSizes sizes, EvaluationContext<NAMETYPE> context) {
+        double[] values = new double[(int)sizes.totalSize()];
+        ParallelEvaluation.forEachRange(values.length, (start, end) -> {
+            GenerateEvaluationContext generateContext = new GenerateEvaluationContext(type, context);
+            long[] indexes = new long[sizes.dimensions()];
+            long remainder = start;
+            for (int d = indexes.length - 1; d >= 0; d--) {
+                indexes[d] = remainder % sizes.size(d);
+                remainder /= sizes.size(d);
+            }
+            for (int i = start; i < end; i++) {
+                values[i] = generateContext.apply(indexes);
+                for (int d = indexes.length - 1; d >= 0 && ++indexes[d] == sizes.size(d); d--)
+                    indexes[d] = 0;
+            }
+        });
+        return IndexedTensor.Builder.of(type, sizes, values).build();
+    }
+
     private DimensionSizes dimensionSizes(TensorType type) {
         DimensionSizes.Builder b = new DimensionSizes.Builder(type.dimensions().size());
         for (int i = 0; i < b.dimensions(); i++)
@@ -139,16 +163,16 @@ public class Generate<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAM
         private final TensorType type;
         private final EvaluationContext<NAMETYPE> context;
 
-        private IndexedTensor.Indexes indexes;
+        private long[] indexes;
 
         GenerateEvaluationContext(TensorType type, EvaluationContext<NAMETYPE> context) {
             this.type = type;
             this.context = context;
         }
 
-        double apply(IndexedTensor.Indexes indexes) {
+        double apply(long[] indexes) {
             if (freeGenerator != null) {
-                return freeGenerator.apply(indexes.toList());
+                return freeGenerator.apply(Arrays.stream(indexes).boxed().toList());
             }
             else {
                 this.indexes = indexes;
@@ -160,7 +184,7 @@ public class Generate<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAM
         public Tensor getTensor(String name) {
             Optional<Integer> index = type.indexOfDimension(name);
             if (index.isPresent()) // this is the name of a dimension
-                return Tensor.from(indexes.indexesForReading()[index.get()]);
+                return Tensor.from(indexes[index.get()]);
             else
                 return context.getTensor(name);
         }
@@ -97,7 +97,9 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
 
     static Tensor evaluate(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
         // Choose join algorithm
-        if (hasSingleIndexedDimension(a) && hasSingleIndexedDimension(b) && a.type().dimensions().get(0).name().equals(b.type().dimensions().get(0).name()))
+        if (joinedType.hasOnlyIndexedBoundDimensions() && canParallelize(a, b, joinedType))
+            return ParallelEvaluation.join((IndexedTensor)a, (IndexedTensor)b, joinedType, combinator);
+        else if (hasSingleIndexedDimension(a) && hasSingleIndexedDimension(b) && a.type().dimensions().get(0).name().equals(b.type().dimensions().get(0).name()))
             return indexedVectorJoin((IndexedTensor)a, (IndexedTensor)b, joinedType, combinator);
         else if (joinedType.dimensions().size() == a.type().dimensions().size() && joinedType.dimensions().size() == b.type().dimensions().size())
             return singleSpaceJoin(a, b, joinedType, combinator);
@@ -110,6 +112,11 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
 
     }
 
+    private static boolean canParallelize(Tensor a, Tensor b, TensorType joinedType) {
+        return ParallelEvaluation.shouldParallelize(FusedKernels.totalSize(joinedType)) &&
+               FusedKernels.canFuse(null, new Tensor[] { a, b }, new boolean[2]);
+    }
+
     private static boolean hasSingleIndexedDimension(Tensor tensor) {
         return tensor.type().dimensions().size() == 1 && tensor.type().dimensions().get(0).isIndexed();
     }
@@ -1,6 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 
 import java.util.List;
@@ -29,6 +33,18 @@ public class L2Normalize<NAMETYPE extends Name> extends CompositeTensorFunction<
         return new L2Normalize<>(arguments.get(0), dimension);
     }
 
+    /** Evaluates this in a single pass if the argument is dense, and by the primitive function otherwise */
+    @Override
+    public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        Tensor input = argument.evaluate(context);
+        if (FusedKernels.canFuse(dimension, new Tensor[] { input }, new boolean[] { true })) {
+            TensorType norms = Map.outputType(Reduce.outputType(Map.outputType(input.type()), List.of(dimension)));
+            return FusedKernels.l2Normalize((IndexedTensor)input, dimension, Join.outputType(input.type(), norms));
+        }
+        return input.join(input.map(ScalarFunctions.square()).reduce(Reduce.Aggregator.sum, dimension).map(ScalarFunctions.sqrt()),
+                          ScalarFunctions.divide());
+    }
+
     @Override
     public PrimitiveTensorFunction<NAMETYPE> toPrimitive() {
         TensorFunction<NAMETYPE> primitiveArgument = argument.toPrimitive();
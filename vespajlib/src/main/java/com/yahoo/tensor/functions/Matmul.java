@@ -1,7 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 
 import java.util.List;
@@ -44,6 +47,20 @@ public class Matmul<NAMETYPE extends Name> extends CompositeTensorFunction<NAMET
                             dimension);
     }
 
+    @Override
+    public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        Tensor a = argument1.evaluate(context);
+        Tensor b = argument2.evaluate(context);
+        TensorType joinedType = Join.outputType(a.type(), b.type());
+        TensorType resultType = Reduce.outputType(joinedType, List.of(dimension));
+        if (FusedKernels.canFuse(dimension, new Tensor[] { a, b }, new boolean[] { true, true }) &&
+            ParallelEvaluation.shouldParallelize(FusedKernels.totalSize(joinedType)))
+            return ParallelEvaluation.matmul((IndexedTensor)a, (IndexedTensor)b, dimension, resultType);
+        return Reduce.evaluate(Join.evaluate(a, b, joinedType, ScalarFunctions.multiply()),
+                               List.of(dimension),
+                               Reduce.Aggregator.sum);
+    }
+
     @Override
     public String toString(ToStringContext<NAMETYPE> context) {
         return "matmul(" + argument1.toString(context) + ", " + argument2.toString(context) + ", " + context.resolveBinding(dimension) + ")";
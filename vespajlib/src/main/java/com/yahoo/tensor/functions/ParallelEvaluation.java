@@ -0,0 +1,169 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Parallel evaluation of large dense tensor functions. When enabled, dense join, reduce, matmul and generate
+ * operations producing or consuming at least <i>threshold</i> cells are split into ranges of result cells
+ * which are evaluated on the common fork-join pool.
+ *
+ * Parallel evaluation is disabled by default. It is enabled by setting the system property
+ * <code>vespa.tensor.parallel.threshold</code> to the minimum number of cells an operation must involve to be
+ * evaluated in parallel. The functions and evaluation contexts used must then be safe to call from multiple threads.
+ *
+ * @author michaelcizmar
+ */
+final class ParallelEvaluation {
+
+    /** The minimum number of cells to evaluate in each task */
+    private static final int minCellsPerTask = 1024;
+
+    private static final long threshold = Long.getLong("vespa.tensor.parallel.threshold", Long.MAX_VALUE);
+
+    /** Threshold overriding the configured one in the current thread */
+    private static final ThreadLocal<Long> thresholdOverride = new ThreadLocal<>();
+
+    private ParallelEvaluation() {}
+
+    /** Returns the minimum number of cells an operation must involve to be evaluated in parallel */
+    static long threshold() {
+        Long override = thresholdOverride.get();
+        return override != null ? override : threshold;
+    }
+
+    /**
+     * Returns the result of the given evaluation done in the current thread with the given threshold,
+     * where Long.MAX_VALUE disables parallel evaluation. Package private for testing.
+     */
+    static <T> T withThreshold(long cells, Supplier<T> evaluation) {
+        if (cells < 1)
+            throw new IllegalArgumentException("The parallel evaluation threshold must be positive, but got " + cells);
+        Long previous = thresholdOverride.get();
+        thresholdOverride.set(cells);
+        try {
+            return evaluation.get();
+        }
+        finally {
+            if (previous == null)
+                thresholdOverride.remove();
+            else
+                thresholdOverride.set(previous);
+        }
+    }
+
+    /** Returns whether an operation involving the given number of cells should be evaluated in parallel */
+    static boolean shouldParallelize(long cells) {
+        return cells >= threshold() && pool().getParallelism() > 1;
+    }
+
+    /** Evaluates join(a, b, combinator) over dense tensors, which must be accepted by {@link FusedKernels#canFuse} */
+    static Tensor join(IndexedTensor a, IndexedTensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
+        double[] result = new double[(int)FusedKernels.totalSize(joinedType)];
+        forEachRange(result.length, (start, end) -> {
+            var i = new FusedKernels.Odometer(start, joinedType, a.type(), b.type());
+            for (int cell = start; cell < end; cell++, i.next())
+                result[cell] = combinator.applyAsDouble(a.get(i.offset(0)), b.get(i.offset(1)));
+        });
+        return IndexedTensor.Builder.of(joinedType, result).build();
+    }
+
+    /** Evaluates reduce(argument, aggregator, dimensions) over a dense tensor into a dense result */
+    static Tensor reduce(IndexedTensor argument, List<String> dimensions, Reduce.Aggregator aggregator,
+                         TensorType reducedType) {
+        TensorType.Builder reducedDimensions = new TensorType.Builder(argument.type().valueType());
+        for (TensorType.Dimension dimension : argument.type().dimensions())
+            if (dimensions.contains(dimension.name()))
+                reducedDimensions.dimension(dimension);
+        TensorType reducedSubspace = reducedDimensions.build();
+        long[] subspaceOffsets = new long[(int)FusedKernels.totalSize(reducedSubspace)];
+        var subspace = new FusedKernels.Odometer(reducedSubspace, argument.type());
+        for (int k = 0; k < subspaceOffsets.length; k++, subspace.next())
+            subspaceOffsets[k] = subspace.offset(0);
+
+        double[] result = new double[(int)FusedKernels.totalSize(reducedType)];
+        forEachRange(result.length, (start, end) -> {
+            var i = new FusedKernels.Odometer(start, reducedType, argument.type());
+            for (int cell = start; cell < end; cell++, i.next()) {
+                Reduce.ValueAggregator valueAggregator = Reduce.ValueAggregator.ofType(aggregator);
+                long base = i.offset(0);
+                for (long offset : subspaceOffsets)
+                    valueAggregator.aggregate(argument.get(base + offset));
+                result[cell] = valueAggregator.aggregatedValue();
+            }
+        });
+        return IndexedTensor.Builder.of(reducedType, result).build();
+    }
+
+    /** Evaluates reduce(join(a, b, multiply), sum, dimension) over dense tensors */
+    static Tensor matmul(IndexedTensor a, IndexedTensor b, String dimension, TensorType resultType) {
+        long strideA = FusedKernels.stride(a.type(), dimension);
+        long strideB = FusedKernels.stride(b.type(), dimension);
+        int size = FusedKernels.size(a.type(), dimension);
+        double[] result = new double[(int)FusedKernels.totalSize(resultType)];
+        forEachRange(result.length, (start, end) -> {
+            var i = new FusedKernels.Odometer(start, resultType, a.type(), b.type());
+            for (int cell = start; cell < end; cell++, i.next()) {
+                long baseA = i.offset(0);
+                long baseB = i.offset(1);
+                double sum = 0;
+                for (int k = 0; k < size; k++)
+                    sum += a.get(baseA + k * strideA) * b.get(baseB + k * strideB);
+                result[cell] = sum;
+            }
+        });
+        return IndexedTensor.Builder.of(resultType, result).build();
+    }
+
+    /** Evaluates the given range evaluator over all of [0, size), split into tasks run in parallel */
+    static void forEachRange(int size, RangeEvaluator evaluator) {
+        int cellsPerTask = Math.max(minCellsPerTask, size / (pool().getParallelism() * 4));
+        pool().invoke(new RangeTask(0, size, cellsPerTask, evaluator));
+    }
+
+    private static ForkJoinPool pool() { return ForkJoinPool.commonPool(); }
+
+    /** Evaluates a range of cells of a result */
+    @FunctionalInterface
+    interface RangeEvaluator {
+
+        /** Evaluates the cells from start, inclusive, to end, exclusive */
+        void evaluate(int start, int end);
+
+    }
+
+    private static class RangeTask extends RecursiveAction {
+
+        private final int start, end, cellsPerTask;
+        private final RangeEvaluator evaluator;
+
+        RangeTask(int start, int end, int cellsPerTask, RangeEvaluator evaluator) {
+            this.start = start;
+            this.end = end;
+            this.cellsPerTask = cellsPerTask;
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= cellsPerTask) {
+                evaluator.evaluate(start, end);
+            }
+            else {
+                int middle = start + (end - start) / 2;
+                invokeAll(new RangeTask(start, middle, cellsPerTask, evaluator),
+                          new RangeTask(middle, end, cellsPerTask, evaluator));
+            }
+        }
+
+    }
+
+}
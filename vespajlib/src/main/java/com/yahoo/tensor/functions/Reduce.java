@@ -66,9 +66,9 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
 
     public TensorFunction<NAMETYPE> argument() { return argument; }
 
-    Aggregator aggregator() { return aggregator; }
+    public Aggregator aggregator() { return aggregator; }
 
-    List<String> dimensions() { return dimensions; }
+    public List<String> dimensions() { return dimensions; }
 
     @Override
     public List<TensorFunction<NAMETYPE>> arguments() { return List.of(argument); }
@@ -131,7 +131,10 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
         TensorType reducedType = outputType(argument.type(), dimensions);
         int[] indexesToReduce = createIndexesToReduce(argument.type(), dimensions);
         int[] indexesToKeep = createIndexesToKeep(argument.type(), indexesToReduce);
-        if (argument instanceof IndexedTensor indexedTensor && reducedType.hasOnlyIndexedBoundDimensions()) {
+        if (argument instanceof IndexedTensor indexedTensor && argument.type().hasOnlyIndexedBoundDimensions() &&
+            ParallelEvaluation.shouldParallelize(indexedTensor.size())) {
+            return ParallelEvaluation.reduce(indexedTensor, dimensions, aggregator, reducedType);
+        } else if (argument instanceof IndexedTensor indexedTensor && reducedType.hasOnlyIndexedBoundDimensions()) {
             return reduceIndexedTensor(indexedTensor, reducedType, indexesToKeep, indexesToReduce, aggregator);
         } else {
             return reduceGeneral(argument, reducedType, indexesToKeep, aggregator);
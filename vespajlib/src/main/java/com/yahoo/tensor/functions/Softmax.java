@@ -1,7 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 
 import java.util.List;
@@ -34,6 +37,19 @@ public class Softmax<NAMETYPE extends Name> extends CompositeTensorFunction<NAME
         return new Softmax<>(arguments.get(0), dimension);
     }
 
+    /** Evaluates this in a single pass if the argument is dense, and by the primitive function otherwise */
+    @Override
+    public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        Tensor input = argument.evaluate(context);
+        if (FusedKernels.canFuse(dimension, new Tensor[] { input }, new boolean[] { true })) {
+            TensorType exponentiated = Map.outputType(input.type());
+            TensorType resultType = Join.outputType(exponentiated, Reduce.outputType(exponentiated, List.of(dimension)));
+            return FusedKernels.softmax((IndexedTensor)input, dimension, resultType);
+        }
+        Tensor exponentiated = input.map(ScalarFunctions.exp());
+        return exponentiated.join(exponentiated.reduce(Reduce.Aggregator.sum, dimension), ScalarFunctions.divide());
+    }
+
     @Override
     public PrimitiveTensorFunction<NAMETYPE> toPrimitive() {
         TensorFunction<NAMETYPE> primitiveArgument = argument.toPrimitive();
@@ -1,6 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 
 import java.util.List;
@@ -31,6 +35,26 @@ public class XwPlusB<NAMETYPE extends Name> extends CompositeTensorFunction<NAME
         return new XwPlusB<>(arguments.get(0), arguments.get(1), arguments.get(2), dimension);
     }
 
+    /**
+     * Evaluates this in a single pass if the arguments are dense and b only has dimensions of the product of x and w,
+     * and by the primitive function otherwise
+     */
+    @Override
+    public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        Tensor xValue = x.evaluate(context);
+        Tensor wValue = w.evaluate(context);
+        Tensor bValue = b.evaluate(context);
+        if (FusedKernels.canFuse(dimension, new Tensor[] { xValue, wValue, bValue }, new boolean[] { true, true, false })) {
+            TensorType product = Reduce.outputType(Join.outputType(xValue.type(), wValue.type()), List.of(dimension));
+            if (product.dimensionNames().containsAll(bValue.type().dimensionNames()))
+                return FusedKernels.xwPlusB((IndexedTensor)xValue, (IndexedTensor)wValue, (IndexedTensor)bValue, dimension,
+                                            Join.outputType(product, bValue.type()));
+        }
+        return xValue.join(wValue, ScalarFunctions.multiply())
+                     .reduce(Reduce.Aggregator.sum, dimension)
+                     .join(bValue, ScalarFunctions.add());
+    }
+
     @Override
     public PrimitiveTensorFunction<NAMETYPE> toPrimitive() {
         TensorFunction<NAMETYPE> primitiveX = x.toPrimitive();
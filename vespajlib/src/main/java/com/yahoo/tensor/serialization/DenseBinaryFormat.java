@@ -7,6 +7,11 @@ import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -77,10 +82,45 @@ public class DenseBinaryFormat implements BinaryFormat {
 
     @Override
     public Tensor decode(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
-        TensorType type;
-        DimensionSizes sizes;
+        Header header = decodeHeader(optionalType, buffer);
+        Tensor.Builder builder = Tensor.Builder.of(header.type(), header.sizes());
+        decodeCells(header.sizes(), buffer, (IndexedTensor.BoundBuilder)builder);
+        return builder.build();
+    }
+
+    /**
+     * Decodes a tensor which reads its cells directly from the given buffer rather than copying them.
+     * The buffer position is moved past the cells.
+     */
+    Tensor decodeWrapped(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
+        Header header = decodeHeader(optionalType, buffer);
+        Tensor tensor = IndexedTensor.wrap(header.type(), header.sizes(), buffer.getByteBuffer());
+        buffer.position(buffer.position() + (int)(header.sizes().totalSize() * cellSize()));
+        return tensor;
+    }
+
+    /**
+     * Decodes a tensor which reads its cells directly from regions of the given file rather than copying them.
+     * The header is read from the given buffer, which must map the start of the file, and the cells are
+     * mapped in regions of the given size following it, such that the file may be larger than 2Gb.
+     */
+    Tensor decodeMapped(Optional<TensorType> optionalType, GrowableByteBuffer buffer,
+                        FileChannel channel, int regionSize) throws IOException {
+        Header header = decodeHeader(optionalType, buffer);
+        long start = buffer.position();
+        long bytes = header.sizes().totalSize() * cellSize();
+        if (start + bytes > channel.size())
+            throw new IllegalArgumentException("A tensor of type " + header.type() + " requires " + bytes +
+                                               " bytes of cells, but the file only has " + (channel.size() - start));
+        List<ByteBuffer> regions = new ArrayList<>();
+        for (long offset = 0; offset < bytes; offset += regionSize)
+            regions.add(channel.map(FileChannel.MapMode.READ_ONLY, start + offset, Math.min(regionSize, bytes - offset)));
+        return IndexedTensor.wrap(header.type(), header.sizes(), regions);
+    }
+
+    private Header decodeHeader(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
         if (optionalType.isPresent()) {
-            type = optionalType.get();
+            TensorType type = optionalType.get();
             if (type.valueType() != this.serializationValueType) {
                 throw new IllegalArgumentException("Tensor value type mismatch. Value type " + type.valueType() +
                                                    " is not " + this.serializationValueType);
@@ -89,15 +129,21 @@ public class DenseBinaryFormat implements BinaryFormat {
             if ( ! serializedType.isAssignableTo(type))
                 throw new IllegalArgumentException("Type/instance mismatch: A tensor of type " + serializedType +
                                                    " cannot be assigned to type " + type);
-            sizes = sizesFromType(serializedType);
+            return new Header(type, sizesFromType(serializedType));
         }
         else {
-            type = decodeType(buffer);
-            sizes = sizesFromType(type);
+            TensorType type = decodeType(buffer);
+            return new Header(type, sizesFromType(type));
         }
-        Tensor.Builder builder = Tensor.Builder.of(type, sizes);
-        decodeCells(sizes, buffer, (IndexedTensor.BoundBuilder)builder);
-        return builder.build();
+    }
+
+    private int cellSize() {
+        return switch (serializationValueType) {
+            case DOUBLE -> 8;
+            case FLOAT -> 4;
+            case BFLOAT16 -> 2;
+            case INT8 -> 1;
+        };
     }
 
     private TensorType decodeType(GrowableByteBuffer buffer) {
@@ -147,4 +193,6 @@ public class DenseBinaryFormat implements BinaryFormat {
         }
     }
 
+    private record Header(TensorType type, DimensionSizes sizes) {}
+
 }
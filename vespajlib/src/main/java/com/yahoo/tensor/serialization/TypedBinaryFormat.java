@@ -6,6 +6,8 @@ import com.yahoo.tensor.MixedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.Optional;
 
 /**
@@ -31,6 +33,9 @@ public class TypedBinaryFormat {
     private static final int BFLOAT16_VALUE_TYPE = 2;
     private static final int INT8_VALUE_TYPE = 3;
 
+    /** The size of each region mapped when decoding dense tensors from files */
+    private static final int MAPPED_REGION_SIZE = 1 << 30;
+
     public static byte[] encode(Tensor tensor) {
         GrowableByteBuffer buffer = new GrowableByteBuffer();
         return asByteArray(encode(tensor, buffer));
@@ -54,6 +59,53 @@ public class TypedBinaryFormat {
         return decoder.decode(type, buffer);
     }
 
+    /**
+     * Decode some data to a tensor without copying the cell values of dense tensors: These are instead read
+     * directly from the buffer when accessed. This allows large tensors to be kept off-heap, by passing a
+     * buffer wrapping a memory mapped file. Tensors with mapped dimensions are decoded as by
+     * {@link #decode(Optional, GrowableByteBuffer)}.
+     *
+     * @param type the type to decode and validate to, or empty to use the type given in the data
+     * @param buffer the buffer containing the data, the content of which must not be modified after this is called
+     * @return the resulting tensor
+     * @throws IllegalArgumentException if the tensor data was invalid
+     */
+    public static Tensor decodeWrapped(Optional<TensorType> type, GrowableByteBuffer buffer) {
+        BinaryFormat decoder = getFormatDecoder(buffer);
+        if (decoder instanceof DenseBinaryFormat denseDecoder)
+            return denseDecoder.decodeWrapped(type, buffer);
+        return decoder.decode(type, buffer);
+    }
+
+    /**
+     * Decode the content of a file to a tensor without copying the cell values of dense tensors, as by
+     * {@link #decodeWrapped(Optional, GrowableByteBuffer)}, but by memory mapping the file in multiple
+     * regions such that dense tensors larger than 2Gb can be decoded.
+     * The file must not be modified while the returned tensor is in use, but the channel may be closed.
+     *
+     * @param type the type to decode and validate to, or empty to use the type given in the data
+     * @param channel the channel of the file containing the data, starting at position 0
+     * @return the resulting tensor
+     * @throws IllegalArgumentException if the tensor data was invalid, or has mapped dimensions and is larger than 2Gb
+     * @throws IOException if the file could not be mapped
+     */
+    public static Tensor decodeMapped(Optional<TensorType> type, FileChannel channel) throws IOException {
+        return decodeMapped(type, channel, MAPPED_REGION_SIZE);
+    }
+
+    static Tensor decodeMapped(Optional<TensorType> type, FileChannel channel, int regionSize) throws IOException {
+        long size = channel.size();
+        GrowableByteBuffer buffer = new GrowableByteBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                                       Math.min(size, Integer.MAX_VALUE)));
+        BinaryFormat decoder = getFormatDecoder(buffer);
+        if (decoder instanceof DenseBinaryFormat denseDecoder)
+            return denseDecoder.decodeMapped(type, buffer, channel, regionSize);
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Tensors with mapped dimensions can not be decoded from files larger " +
+                                               "than 2Gb, but got " + size + " bytes");
+        return decoder.decode(type, buffer);
+    }
+
     private static BinaryFormat getFormatEncoder(GrowableByteBuffer buffer, Tensor tensor) {
         boolean hasMappedDimensions = tensor.type().hasMappedDimensions();
         boolean hasIndexedDimensions = tensor.type().hasIndexedDimensions();
@@ -142,11 +194,16 @@ public class TypedBinaryFormat {
         return result;
     }
 
-    static short bFloat16BitsFromFloat(float val) {
+    /**
+     * Returns the bfloat16 bits of the given float, truncating the mantissa.
+     * This is used both for serialization and for bfloat16 cells in memory.
+     */
+    public static short bFloat16BitsFromFloat(float val) {
         return (short) (Float.floatToRawIntBits(val) >>> 16);
     }
 
-    static float floatFromBFloat16Bits(short bits) {
+    /** Returns the float value of the given bfloat16 bits */
+    public static float floatFromBFloat16Bits(short bits) {
         return Float.intBitsToFloat(bits << 16);
     }
 
@@ -0,0 +1,85 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.concurrent;
+
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests the limits of {@link VirtualThreadExecutor} with a platform thread per task,
+ * as virtual threads may not be supported by the JVM running the tests.
+ *
+ * @author michaelcizmar
+ */
+public class VirtualThreadExecutorTestCase {
+
+    @Test
+    public void testConcurrencyIsLimited() throws InterruptedException {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor(Executors.newCachedThreadPool(), 3);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(10);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                running.decrementAndGet();
+                completed.countDown();
+            });
+        }
+        while (executor.activeCount() < 3)
+            Thread.sleep(1);
+        release.countDown();
+        assertTrue(completed.await(60, TimeUnit.SECONDS));
+        assertEquals(3, maxRunning.get());
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        assertEquals(0, executor.activeCount());
+        try {
+            executor.execute(() -> { });
+            fail("Expected exception");
+        }
+        catch (RejectedExecutionException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsAreUsedWhenSupported() throws Exception {
+        Optional<VirtualThreadExecutor> created = VirtualThreadExecutor.create(1);
+        assumeTrue("Virtual threads are supported", created.isPresent());
+        VirtualThreadExecutor executor = created.get();
+        assertTrue(executor.submit(() -> Thread.currentThread().toString()).get(60, TimeUnit.SECONDS).startsWith("VirtualThread"));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testIllegalConcurrency() {
+        try {
+            VirtualThreadExecutor.create(0);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Max concurrency must be positive, but was 0", e.getMessage());
+        }
+    }
+
+}
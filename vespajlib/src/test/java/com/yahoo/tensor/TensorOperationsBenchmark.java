@@ -0,0 +1,154 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.serialization.TypedBinaryFormat;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Microbenchmark of tensor operations, parsing and binary serialization over a matrix of
+ * tensor sizes, cell value types and dense, sparse and mixed tensors.
+ * Run the main method to produce a report. Compare reports from runs on the same machine only,
+ * and repeat runs to see the variance before drawing conclusions from differences.
+ *
+ * @author michaelcizmar
+ */
+public class TensorOperationsBenchmark {
+
+    private static final Random random = new Random(42);
+
+    /** The number of milliseconds to spend warming up each case */
+    private static final long warmupMillis = 100;
+
+    /** The number of milliseconds to spend measuring each case, unless maxIterations is reached first */
+    private static final long measureMillis = 500;
+
+    /** The maximum number of invocations to measure in each case */
+    private static final long maxIterations = 100_000;
+
+    /** The structure of the benchmarked tensors: A batch dimension b and a vector dimension x */
+    enum Layout {
+
+        dense("b[%d],x[%d]"), sparse("b{},x{}"), mixed("b{},x[%d]");
+
+        private final String dimensions;
+
+        Layout(String dimensions) { this.dimensions = dimensions; }
+
+        TensorType type(TensorType.Value valueType, int batchSize, int vectorSize) {
+            String spec = "tensor<" + valueType.id() + ">(" + dimensions + ")";
+            return TensorType.fromSpec(this == mixed ? spec.formatted(vectorSize) : spec.formatted(batchSize, vectorSize));
+        }
+
+    }
+
+    /**
+     * Returns the average time in microseconds of one invocation of the given operation.
+     * Each phase runs at least one invocation, so operations slower than the measure time
+     * are reported from their warmup invocation rather than measured again.
+     */
+    private double benchmark(Supplier<Object> operation) {
+        double warmupMicros = measure(operation, warmupMillis);
+        if (warmupMicros > measureMillis * 1000) return warmupMicros;
+        System.gc();
+        return measure(operation, measureMillis);
+    }
+
+    /** Invokes the operation until the given time has passed or maxIterations is reached, and returns the average */
+    private double measure(Supplier<Object> operation, long millis) {
+        long iterations = 0;
+        long startTime = System.nanoTime();
+        long endTime = startTime + millis * 1_000_000;
+        do {
+            consume(operation.get());
+            iterations++;
+        } while (System.nanoTime() < endTime && iterations < maxIterations);
+        return (System.nanoTime() - startTime) / 1000.0 / iterations;
+    }
+
+    private int sink = 0;
+
+    /** Prevents the operation result from being optimized away */
+    private void consume(Object result) {
+        sink += System.identityHashCode(result) & 1;
+    }
+
+    private void run(Layout layout, TensorType.Value valueType, int batchSize, int vectorSize) {
+        String cellType = "tensor<" + valueType.id() + ">";
+        Tensor matrix = random(layout.type(valueType, batchSize, vectorSize), batchSize, vectorSize);
+        Tensor vector = layout == Layout.sparse ? random(TensorType.fromSpec(cellType + "(x{})"), vectorSize)
+                                                : random(TensorType.fromSpec(cellType + "(x[" + vectorSize + "])"));
+        Tensor weights = layout == Layout.sparse ? random(TensorType.fromSpec(cellType + "(x{},o{})"), vectorSize, 16)
+                                                 : random(TensorType.fromSpec(cellType + "(x[" + vectorSize + "],o[16])"));
+        String matrixString = matrix.toString();
+        byte[] matrixBytes = TypedBinaryFormat.encode(matrix);
+
+        report(layout, valueType, batchSize, vectorSize, "join",   benchmark(() -> matrix.multiply(vector)));
+        report(layout, valueType, batchSize, vectorSize, "reduce", benchmark(() -> matrix.sum("x")));
+        report(layout, valueType, batchSize, vectorSize, "dot",    benchmark(() -> matrix.multiply(vector).sum("x")));
+        report(layout, valueType, batchSize, vectorSize, "matmul", benchmark(() -> matrix.matmul(weights, "x")));
+        report(layout, valueType, batchSize, vectorSize, "parse",  benchmark(() -> Tensor.from(matrixString)));
+        report(layout, valueType, batchSize, vectorSize, "encode", benchmark(() -> TypedBinaryFormat.encode(matrix)));
+        report(layout, valueType, batchSize, vectorSize, "decode",
+               benchmark(() -> TypedBinaryFormat.decode(Optional.empty(), GrowableByteBuffer.wrap(matrixBytes))));
+    }
+
+    /**
+     * Concat is benchmarked separately over smaller shapes, as its cost grows too fast with size
+     * for the shapes of the other operations to finish in reasonable time.
+     */
+    private void runConcat(Layout layout, TensorType.Value valueType, int batchSize, int vectorSize) {
+        Tensor matrix = random(layout.type(valueType, batchSize, vectorSize), batchSize, vectorSize);
+        Tensor other = random(layout.type(valueType, batchSize, vectorSize), batchSize, vectorSize);
+        report(layout, valueType, batchSize, vectorSize, "concat", benchmark(() -> matrix.concat(other, "c")));
+    }
+
+    private static void report(Layout layout, TensorType.Value valueType, int batchSize, int vectorSize,
+                               String operation, double micros) {
+        System.out.printf("%-6s %-6s %-8s %4d x %-4d %12.2f us%n",
+                          operation, layout, valueType.id(), batchSize, vectorSize, micros);
+    }
+
+    /**
+     * Returns a tensor of the given type with random integer values in [-100, 100).
+     * Mapped dimensions are given the size at the same position in the given sizes.
+     */
+    private static Tensor random(TensorType type, int ... mappedSizes) {
+        List<TensorType.Dimension> dimensions = type.dimensions();
+        long[] sizes = new long[dimensions.size()];
+        long cells = 1;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = dimensions.get(i).size().isPresent() ? dimensions.get(i).size().get() : mappedSizes[i];
+            cells *= sizes[i];
+        }
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        for (long cell = 0; cell < cells; cell++) {
+            Tensor.Builder.CellBuilder cellBuilder = builder.cell();
+            long remainder = cell;
+            for (int i = sizes.length - 1; i >= 0; i--) {
+                cellBuilder.label(dimensions.get(i).name(), remainder % sizes[i]);
+                remainder /= sizes[i];
+            }
+            cellBuilder.value(random.nextInt(200) - 100);
+        }
+        return builder.build();
+    }
+
+    public static void main(String[] args) {
+        TensorOperationsBenchmark benchmark = new TensorOperationsBenchmark();
+        System.out.printf("%-6s %-6s %-8s %11s %15s%n", "op", "layout", "cells", "b x x", "time");
+        for (Layout layout : Layout.values())
+            for (TensorType.Value valueType : TensorType.Value.values())
+                for (int[] shape : new int[][] { { 1, 128 }, { 100, 128 }, { 100, 768 } })
+                    benchmark.run(layout, valueType, shape[0], shape[1]);
+        for (Layout layout : Layout.values())
+            for (TensorType.Value valueType : TensorType.Value.values())
+                for (int[] shape : new int[][] { { 1, 16 }, { 1, 128 }, { 10, 128 } })
+                    benchmark.runConcat(layout, valueType, shape[0], shape[1]);
+    }
+
+}
@@ -99,13 +99,30 @@ public class TensorTestCase {
         assertEquals(Tensor.Builder.of(TensorType.fromSpec("tensor<float>(x[1])")).cell(5.0, 0).build().getClass(),
                      IndexedFloatTensor.class);
 
-        assertEquals(Tensor.from("tensor<bfloat16>(x[1]):[5]").getClass(), IndexedFloatTensor.class);
+        assertEquals(Tensor.from("tensor<bfloat16>(x[1]):[5]").getClass(), IndexedBFloat16Tensor.class);
         assertEquals(Tensor.Builder.of(TensorType.fromSpec("tensor<bfloat16>(x[1])")).cell(5.0, 0).build().getClass(),
-                IndexedFloatTensor.class);
+                IndexedBFloat16Tensor.class);
 
-        assertEquals(Tensor.from("tensor<int8>(x[1]):[5]").getClass(), IndexedFloatTensor.class);
+        assertEquals(Tensor.from("tensor<int8>(x[1]):[5]").getClass(), IndexedInt8Tensor.class);
         assertEquals(Tensor.Builder.of(TensorType.fromSpec("tensor<int8>(x[1])")).cell(5.0, 0).build().getClass(),
-                IndexedFloatTensor.class);
+                IndexedInt8Tensor.class);
+    }
+
+    @Test
+    public void testNativeCellStorage() {
+        Tensor bfloat16 = Tensor.from("tensor<bfloat16>(x[3]):[1.0, 1.00390625, -256.5]");
+        assertEquals(1.0, bfloat16.get(TensorAddress.of(0)), 0.0);
+        assertEquals(1.0, bfloat16.get(TensorAddress.of(1)), 0.0); // below bfloat16 precision: truncated
+        assertEquals(-256.0, bfloat16.get(TensorAddress.of(2)), 0.0);
+        assertEquals(-256.0f, ((IndexedTensor)bfloat16).getFloat(2), 0.0f);
+        assertEquals(Tensor.from("tensor<float>(x[3]):[1.0, 1.0, -256.0]"), bfloat16.cellCast(TensorType.Value.FLOAT));
+
+        Tensor int8 = Tensor.from("tensor<int8>(x[4]):[1, -2.7, 127, 129]");
+        assertEquals(1.0, int8.get(TensorAddress.of(0)), 0.0);
+        assertEquals(-2.0, int8.get(TensorAddress.of(1)), 0.0);
+        assertEquals(127.0, int8.get(TensorAddress.of(2)), 0.0);
+        assertEquals(-127.0, int8.get(TensorAddress.of(3)), 0.0); // wraps around as when serializing
+        assertEquals(Tensor.from("tensor(x[4]):[2, -4, 254, -254]"), int8.multiply(Tensor.from("tensor(x[4]):[2, 2, 2, 2]")));
     }
 
     @Test
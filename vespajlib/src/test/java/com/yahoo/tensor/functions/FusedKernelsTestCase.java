@@ -0,0 +1,75 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.evaluation.Name;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies that single pass evaluation of composite functions produces the same result as the primitive functions.
+ *
+ * @author michaelcizmar
+ */
+public class FusedKernelsTestCase {
+
+    @Test
+    public void testSoftmax() {
+        assertFusedEqualsPrimitive(new Softmax<>(constant("tensor(x[3]):[1,2,3]"), "x"));
+        assertFusedEqualsPrimitive(new Softmax<>(constant("tensor(b[2],x[3]):[[1,2,3],[4,5,7]]"), "b"));
+        assertFusedEqualsPrimitive(new Softmax<>(constant("tensor(b[2],x[3]):[[1,2,3],[4,5,7]]"), "x"));
+        assertFusedEqualsPrimitive(new Softmax<>(constant("tensor<float>(b[2],x[3]):[[1,2,3],[4,5,7]]"), "x"));
+        assertFusedEqualsPrimitive(new Softmax<>(constant("tensor(b{},x[3]):{a:[1,2,3]}"), "x"));
+    }
+
+    @Test
+    public void testL2Normalize() {
+        assertFusedEqualsPrimitive(new L2Normalize<>(constant("tensor(b[2],x[3]):[[1,2,3],[4,5,7]]"), "x"));
+        assertFusedEqualsPrimitive(new L2Normalize<>(constant("tensor(b[2],x[3]):[[1,2,3],[4,5,7]]"), "b"));
+        assertFusedEqualsPrimitive(new L2Normalize<>(constant("tensor<float>(x[3]):[1,2,3]"), "x"));
+    }
+
+    @Test
+    public void testCosineSimilarity() {
+        assertFusedEqualsPrimitive(new CosineSimilarity<>(constant("tensor(x[3]):[1,2,3]"),
+                                                          constant("tensor(x[3]):[3,-1,2]"), "x"));
+        assertFusedEqualsPrimitive(new CosineSimilarity<>(constant("tensor(x[3]):[1,2,3]"),
+                                                          constant("tensor(b[2],x[3]):[[1,2,3],[4,5,7]]"), "x"));
+        assertFusedEqualsPrimitive(new CosineSimilarity<>(constant("tensor(a[2],x[3]):[[1,2,3],[3,2,1]]"),
+                                                          constant("tensor(b[2],x[3]):[[1,2,3],[4,5,7]]"), "x"));
+        assertFusedEqualsPrimitive(new CosineSimilarity<>(constant("tensor(x[3],y[2]):[[1,2],[3,3],[2,1]]"),
+                                                          constant("tensor(x[3],y[2]):[[1,2],[3,4],[5,7]]"), "x"));
+        assertFusedEqualsPrimitive(new CosineSimilarity<>(constant("tensor(x[3]):[1,2,3]"),
+                                                          constant("tensor(b{},x[3]):{a:[1,2,3],b:[4,5,7]}"), "x"));
+    }
+
+    @Test
+    public void testXwPlusB() {
+        assertFusedEqualsPrimitive(new XwPlusB<>(constant("tensor(d[3]):[1,2,3]"),
+                                                 constant("tensor(d[3],o[2]):[[1,2],[3,4],[5,6]]"),
+                                                 constant("tensor(o[2]):[10,20]"), "d"));
+        assertFusedEqualsPrimitive(new XwPlusB<>(constant("tensor(b[2],d[3]):[[1,2,3],[0,1,0]]"),
+                                                 constant("tensor(a[2],d[3]):[[1,2,3],[3,4,5]]"),
+                                                 constant("tensor(a[2]):[10,20]"), "d"));
+        assertFusedEqualsPrimitive(new XwPlusB<>(constant("tensor(d[3]):[1,2,3]"),
+                                                 constant("tensor(d[3],o[2]):[[1,2],[3,4],[5,6]]"),
+                                                 constant("tensor():{5}"), "d"));
+        // b has a dimension not in the product: Not fused
+        assertFusedEqualsPrimitive(new XwPlusB<>(constant("tensor(d[3]):[1,2,3]"),
+                                                 constant("tensor(d[3],o[2]):[[1,2],[3,4],[5,6]]"),
+                                                 constant("tensor(q[2]):[10,20]"), "d"));
+    }
+
+    private void assertFusedEqualsPrimitive(TensorFunction<Name> function) {
+        Tensor expected = function.toPrimitive().evaluate();
+        Tensor actual = function.evaluate();
+        assertEquals(expected.type(), actual.type());
+        assertEquals(expected, actual);
+    }
+
+    private ConstantTensor<Name> constant(String tensor) {
+        return new ConstantTensor<>(Tensor.from(tensor));
+    }
+
+}
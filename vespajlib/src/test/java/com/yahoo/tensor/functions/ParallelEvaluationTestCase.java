@@ -0,0 +1,75 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.Name;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies that parallel evaluation produces the same result as sequential evaluation.
+ *
+ * @author michaelcizmar
+ */
+public class ParallelEvaluationTestCase {
+
+    @Test
+    public void testJoin() {
+        Tensor a = generated("tensor(a[7],x[300])");
+        Tensor b = generated("tensor(x[300],y[5])");
+        assertParallelEqualsSequential(() -> a.multiply(b));
+        assertParallelEqualsSequential(() -> a.add(generated("tensor<float>(a[7],x[300])")));
+        assertParallelEqualsSequential(() -> a.join(Tensor.from(2.0), (x, y) -> x * y));
+    }
+
+    @Test
+    public void testReduce() {
+        Tensor a = generated("tensor(a[7],x[300],y[5])");
+        assertParallelEqualsSequential(() -> a.sum("x"));
+        assertParallelEqualsSequential(() -> a.max(List.of("a", "y")));
+        assertParallelEqualsSequential(() -> a.reduce(Reduce.Aggregator.median, "a"));
+        assertParallelEqualsSequential(() -> a.reduce(Reduce.Aggregator.avg, "y", "x"));
+    }
+
+    @Test
+    public void testMatmul() {
+        Tensor a = generated("tensor(a[70],x[30])");
+        Tensor b = generated("tensor(x[30],y[50])");
+        assertParallelEqualsSequential(() -> new Matmul<Name>(new ConstantTensor<>(a), new ConstantTensor<>(b), "x").evaluate());
+        assertParallelEqualsSequential(() -> new Matmul<Name>(new ConstantTensor<>(b), new ConstantTensor<>(a), "x").evaluate());
+    }
+
+    @Test
+    public void testGenerate() {
+        Tensor expected = generated("tensor(a[7],x[300])");
+        assertParallelEqualsSequential(() -> generated("tensor(a[7],x[300])"));
+        assertEquals(expected, ParallelEvaluation.withThreshold(100, () -> generated("tensor(a[7],x[300])")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreshold() {
+        ParallelEvaluation.withThreshold(0, () -> null);
+    }
+
+    private void assertParallelEqualsSequential(Supplier<Tensor> evaluation) {
+        Tensor sequential = ParallelEvaluation.withThreshold(Long.MAX_VALUE, evaluation);
+        Tensor parallel = ParallelEvaluation.withThreshold(100, evaluation);
+        assertEquals(sequential.type(), parallel.type());
+        assertEquals(sequential, parallel);
+    }
+
+    private static Tensor generated(String type) {
+        return Generate.<Name>free(TensorType.fromSpec(type), indexes -> {
+            double value = 1;
+            for (long index : indexes)
+                value = value * 31 + index;
+            return value % 17 - 8;
+        }).evaluate();
+    }
+
+}
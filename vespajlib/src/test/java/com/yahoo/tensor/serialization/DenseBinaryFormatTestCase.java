@@ -6,6 +6,12 @@ import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Optional;
 
@@ -40,6 +46,52 @@ public class DenseBinaryFormatTestCase {
         }
     }
 
+    @Test
+    public void testDecodeWrapped() {
+        for (String valueType : new String[] { "double", "float", "bfloat16", "int8" }) {
+            Tensor tensor = Tensor.from("tensor<" + valueType + ">(x[2],y[3]):[[1, -2, 3], [4.5, 5, 0]]");
+            byte[] encoded = TypedBinaryFormat.encode(tensor);
+            ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length + 1).put(encoded).put((byte)7).flip();
+            GrowableByteBuffer buffer = new GrowableByteBuffer(direct);
+            Tensor wrapped = TypedBinaryFormat.decodeWrapped(Optional.of(tensor.type()), buffer);
+            assertEquals(tensor, wrapped);
+            assertEquals(tensor.hashCode(), wrapped.hashCode());
+            assertEquals(tensor.sum(), wrapped.sum());
+            assertEquals(7, buffer.get());
+        }
+        Tensor mixed = Tensor.from("tensor(x{},y[2]):{a:[1, 2]}");
+        assertEquals(mixed, TypedBinaryFormat.decodeWrapped(Optional.empty(),
+                                                            GrowableByteBuffer.wrap(TypedBinaryFormat.encode(mixed))));
+    }
+
+    @Test
+    public void testDecodeMapped() throws IOException {
+        Path file = Files.createTempFile("tensor", ".tbf");
+        try {
+            for (String valueType : new String[] { "double", "float", "bfloat16", "int8" }) {
+                Tensor tensor = Tensor.from("tensor<" + valueType + ">(x[3],y[7])",
+                                            "[[1, -2, 3, 4, 5, 6, 7], [8, 9, 10, 11, 12, 13, 14], [-15, 16, 17, 18, 19, 20, 21]]");
+                Files.write(file, TypedBinaryFormat.encode(tensor));
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    // Small regions to have cells spread over many of them, the last one partially filled
+                    Tensor mapped = TypedBinaryFormat.decodeMapped(Optional.of(tensor.type()), channel, 16);
+                    assertEquals(tensor, mapped);
+                    assertEquals(tensor.hashCode(), mapped.hashCode());
+                    assertEquals(tensor.sum(), mapped.sum());
+                    assertEquals(tensor, TypedBinaryFormat.decodeMapped(Optional.empty(), channel));
+                }
+            }
+            Tensor mixed = Tensor.from("tensor(x{},y[2]):{a:[1, 2]}");
+            Files.write(file, TypedBinaryFormat.encode(mixed));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                assertEquals(mixed, TypedBinaryFormat.decodeMapped(Optional.empty(), channel, 16));
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
     @Test
     public void requireThatDefaultSerializationFormatDoesNotChange() {
         byte[] encodedTensor = new byte[]{2, // binary format type